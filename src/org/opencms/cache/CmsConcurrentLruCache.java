@@ -0,0 +1,547 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.main.CmsLog;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Implements a concurrent, cost based LRU cache with the same contract as {@link CmsLruCache}.<p>
+ *
+ * Instead of a single double linked list guarded by one monitor, the cached objects are distributed
+ * over a number of independently locked segments, each of them keeping its own double linked list
+ * using the pointers provided by {@link I_CmsLruCacheObject}. An object is always assigned to the same
+ * segment based on its identity hash code.<p>
+ *
+ * The costs of all cached objects are accounted globally. If they exceed the max. cache costs,
+ * the last-recently-used objects are removed from the segment tails in round robin order until the
+ * costs drop below the average cache costs. This is an approximation of a global LRU order which does
+ * not require a global list.<p>
+ *
+ * Use {@link #tryTouch(I_CmsLruCacheObject)} on the cache hit path: it only updates the LRU state if
+ * the segment lock is available immediately, so concurrent readers never wait for each other.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsConcurrentLruCache extends CmsLruCache {
+
+    /**
+     * A single segment of the cache, organized as a double linked list like the original LRU cache.<p>
+     */
+    private static final class Segment {
+
+        /** The head of the list of double linked LRU cache objects. */
+        I_CmsLruCacheObject m_listHead;
+
+        /** The tail of the list of double linked LRU cache objects. */
+        I_CmsLruCacheObject m_listTail;
+
+        /** The lock for this segment. */
+        final ReentrantLock m_lock = new ReentrantLock();
+
+        /** The number of objects in this segment. */
+        int m_objectCount;
+
+        /**
+         * Creates a new, empty segment.<p>
+         */
+        Segment() {
+
+            // empty segment
+        }
+    }
+
+    /** The default maximum number of segments. */
+    public static final int MAX_SEGMENTS = 64;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsConcurrentLruCache.class);
+
+    /** Guards the eviction, so that only one thread at a time removes objects. */
+    private final ReentrantLock m_evictionLock = new ReentrantLock();
+
+    /** Index of the next segment to evict from. */
+    private final AtomicInteger m_evictionIndex = new AtomicInteger();
+
+    /** The costs of all cached objects. */
+    private final AtomicLong m_objectCosts = new AtomicLong();
+
+    /** The sum of all cached objects. */
+    private final AtomicInteger m_objectCount = new AtomicInteger();
+
+    /** Mask to select a segment from a hash code. */
+    private final int m_segmentMask;
+
+    /** The cache segments. */
+    private final Segment[] m_segments;
+
+    /**
+     * Creates a new concurrent LRU cache using a number of segments derived from the available processors.<p>
+     *
+     * @param theMaxCacheCosts the maximum cache costs of all cached objects
+     * @param theAvgCacheCosts the average cache costs of all cached objects
+     * @param theMaxObjectCosts the maximum allowed cache costs per object. Set theMaxObjectCosts to -1 if you don't want to limit the max. allowed cache costs per object
+     */
+    public CmsConcurrentLruCache(long theMaxCacheCosts, long theAvgCacheCosts, int theMaxObjectCosts) {
+
+        this(theMaxCacheCosts, theAvgCacheCosts, theMaxObjectCosts, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The constructor with all options.<p>
+     *
+     * @param theMaxCacheCosts the maximum cache costs of all cached objects
+     * @param theAvgCacheCosts the average cache costs of all cached objects
+     * @param theMaxObjectCosts the maximum allowed cache costs per object. Set theMaxObjectCosts to -1 if you don't want to limit the max. allowed cache costs per object
+     * @param concurrencyLevel the estimated number of concurrently accessing threads, rounded up to a power of 2 and limited to {@link #MAX_SEGMENTS}
+     */
+    public CmsConcurrentLruCache(
+        long theMaxCacheCosts,
+        long theAvgCacheCosts,
+        int theMaxObjectCosts,
+        int concurrencyLevel) {
+
+        super(theMaxCacheCosts, theAvgCacheCosts, theMaxObjectCosts);
+        int segmentCount = 1;
+        while ((segmentCount < concurrencyLevel) && (segmentCount < MAX_SEGMENTS)) {
+            segmentCount <<= 1;
+        }
+        m_segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            m_segments[i] = new Segment();
+        }
+        m_segmentMask = segmentCount - 1;
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#add(org.opencms.cache.I_CmsLruCacheObject)
+     */
+    @Override
+    public boolean add(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject == null) {
+            // null can't be added or touched in the cache
+            return false;
+        }
+
+        // only objects with cache costs < the max. allowed object cache costs can be cached!
+        if (isTooExpensive(theCacheObject)) {
+            return false;
+        }
+
+        Segment segment = segmentFor(theCacheObject);
+        segment.m_lock.lock();
+        try {
+            if (!isCached(segment, theCacheObject)) {
+                // add the object to the list of all cached objects in the segment
+                addHead(segment, theCacheObject);
+            } else {
+                moveToHead(segment, theCacheObject);
+            }
+        } finally {
+            segment.m_lock.unlock();
+        }
+
+        // check if the cache has to trash the last-recently-used objects after adding a new object
+        if (m_objectCosts.get() > getMaxCacheCosts()) {
+            gc();
+        }
+        return true;
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#clear()
+     */
+    @Override
+    public void clear() {
+
+        for (Segment segment : m_segments) {
+            segment.m_lock.lock();
+            try {
+                while (segment.m_listTail != null) {
+                    removeTail(segment);
+                }
+            } finally {
+                segment.m_lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#getObjectCosts()
+     */
+    @Override
+    public int getObjectCosts() {
+
+        return (int)Math.min(Integer.MAX_VALUE, m_objectCosts.get());
+    }
+
+    /**
+     * Returns the number of independently locked segments of this cache.<p>
+     *
+     * @return the number of segments
+     */
+    public int getSegmentCount() {
+
+        return m_segments.length;
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#remove(org.opencms.cache.I_CmsLruCacheObject)
+     */
+    @Override
+    public I_CmsLruCacheObject remove(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject == null) {
+            return null;
+        }
+        Segment segment = segmentFor(theCacheObject);
+        segment.m_lock.lock();
+        try {
+            if (!isCached(segment, theCacheObject)) {
+                // theCacheObject is not inside the cache
+                return null;
+            }
+            unlink(segment, theCacheObject);
+            decreaseCache(segment, theCacheObject);
+            return theCacheObject;
+        } finally {
+            segment.m_lock.unlock();
+        }
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#size()
+     */
+    @Override
+    public int size() {
+
+        return m_objectCount.get();
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer buf = new StringBuffer();
+        buf.append("max. costs: " + getMaxCacheCosts()).append(", ");
+        buf.append("avg. costs: " + getAvgCacheCosts()).append(", ");
+        buf.append("max. costs/object: " + getMaxObjectCosts()).append(", ");
+        buf.append("costs: " + m_objectCosts.get()).append(", ");
+        buf.append("count: " + m_objectCount.get()).append(", ");
+        buf.append("segments: " + m_segments.length);
+        return buf.toString();
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#touch(org.opencms.cache.I_CmsLruCacheObject)
+     */
+    @Override
+    public boolean touch(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject == null) {
+            return false;
+        }
+        Segment segment = segmentFor(theCacheObject);
+        segment.m_lock.lock();
+        try {
+            return touch(segment, theCacheObject);
+        } finally {
+            segment.m_lock.unlock();
+        }
+    }
+
+    /**
+     * Touches an object in this cache if this is possible without waiting for other threads.<p>
+     *
+     * If the segment of the object is currently locked by another thread, the LRU state is not updated.
+     * This is acceptable on the cache hit path, where an exact LRU order is not required.<p>
+     *
+     * @param theCacheObject the object being touched
+     *
+     * @return true if the object was found and touched
+     */
+    public boolean tryTouch(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject == null) {
+            return false;
+        }
+        Segment segment = segmentFor(theCacheObject);
+        if (!segment.m_lock.tryLock()) {
+            return false;
+        }
+        try {
+            return touch(segment, theCacheObject);
+        } finally {
+            segment.m_lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a cache object as the new head to the list of the given segment.<p>
+     *
+     * @param segment the segment, must be locked by the current thread
+     * @param theCacheObject the object being added as the new head
+     */
+    private void addHead(Segment segment, I_CmsLruCacheObject theCacheObject) {
+
+        // set the list pointers correct
+        if (segment.m_objectCount > 0) {
+            // there is at least 1 object already in the list
+            I_CmsLruCacheObject oldHead = segment.m_listHead;
+            oldHead.setNextLruObject(theCacheObject);
+            theCacheObject.setPreviousLruObject(oldHead);
+            segment.m_listHead = theCacheObject;
+        } else {
+            // it is the first object to be added to the list
+            segment.m_listTail = theCacheObject;
+            segment.m_listHead = theCacheObject;
+            theCacheObject.setPreviousLruObject(null);
+        }
+        theCacheObject.setNextLruObject(null);
+
+        // update cache stats. and notify the cached object
+        theCacheObject.addToLruCache();
+        segment.m_objectCount++;
+        m_objectCount.incrementAndGet();
+        m_objectCosts.addAndGet(theCacheObject.getLruCacheCosts());
+    }
+
+    /**
+     * Decrease this caches statistics
+     * and notify the cached object that it was removed from this cache.<p>
+     *
+     * @param segment the segment, must be locked by the current thread
+     * @param theCacheObject the object being notified that it was removed from the cache
+     */
+    private void decreaseCache(Segment segment, I_CmsLruCacheObject theCacheObject) {
+
+        // notify the object that it was now removed from the cache
+        theCacheObject.removeFromLruCache();
+
+        // set the list pointers to null
+        theCacheObject.setNextLruObject(null);
+        theCacheObject.setPreviousLruObject(null);
+
+        // update the cache stats.
+        segment.m_objectCount--;
+        m_objectCount.decrementAndGet();
+        m_objectCosts.addAndGet(-theCacheObject.getLruCacheCosts());
+    }
+
+    /**
+     * Removes last recently used objects from the segment tails as long
+     * as the costs of all cached objects are higher than the allowed avg. costs of the cache.<p>
+     *
+     * If another thread is already evicting objects, this method returns immediately.<p>
+     */
+    private void gc() {
+
+        if (!m_evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long avgCosts = getAvgCacheCosts();
+            int emptySegments = 0;
+            while ((m_objectCosts.get() >= avgCosts) && (emptySegments < m_segments.length)) {
+                Segment segment = m_segments[m_evictionIndex.getAndIncrement() & m_segmentMask];
+                segment.m_lock.lock();
+                try {
+                    if (segment.m_listTail == null) {
+                        emptySegments++;
+                    } else {
+                        emptySegments = 0;
+                        removeTail(segment);
+                    }
+                } finally {
+                    segment.m_lock.unlock();
+                }
+            }
+        } finally {
+            m_evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Test if a given object resides inside the given segment.<p>
+     *
+     * @param segment the segment, must be locked by the current thread
+     * @param theCacheObject the object to test
+     *
+     * @return true if the object is inside the segment, false otherwise
+     */
+    private boolean isCached(Segment segment, I_CmsLruCacheObject theCacheObject) {
+
+        if (segment.m_objectCount == 0) {
+            return false;
+        }
+        if ((theCacheObject.getNextLruObject() != null) || (theCacheObject.getPreviousLruObject() != null)) {
+            // the object has either a predecessor or successor in the linked list
+            return true;
+        }
+        // the object might be the one and only object in the segment
+        return (segment.m_objectCount == 1)
+            && (segment.m_listHead == theCacheObject)
+            && (segment.m_listTail == theCacheObject);
+    }
+
+    /**
+     * Checks if the costs of the given object exceed the max. allowed costs per object.<p>
+     *
+     * @param theCacheObject the object to check
+     *
+     * @return true if the object is too expensive to be cached
+     */
+    private boolean isTooExpensive(I_CmsLruCacheObject theCacheObject) {
+
+        int maxObjectCosts = getMaxObjectCosts();
+        if ((maxObjectCosts != -1) && (theCacheObject.getLruCacheCosts() > maxObjectCosts)) {
+            if (LOG.isInfoEnabled()) {
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_CACHE_COSTS_TOO_HIGH_2,
+                        new Integer(theCacheObject.getLruCacheCosts()),
+                        new Integer(maxObjectCosts)));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves a cached object to the head of the list of the given segment.<p>
+     *
+     * @param segment the segment, must be locked by the current thread
+     * @param theCacheObject the cached object
+     */
+    private void moveToHead(Segment segment, I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject.getNextLruObject() == null) {
+            // the object is already at the head pos.
+            return;
+        }
+        unlink(segment, theCacheObject);
+        I_CmsLruCacheObject oldHead = segment.m_listHead;
+        if (oldHead != null) {
+            oldHead.setNextLruObject(theCacheObject);
+            theCacheObject.setPreviousLruObject(oldHead);
+        } else {
+            segment.m_listTail = theCacheObject;
+            theCacheObject.setPreviousLruObject(null);
+        }
+        theCacheObject.setNextLruObject(null);
+        segment.m_listHead = theCacheObject;
+    }
+
+    /**
+     * Removes the tailing object from the list of the given segment.<p>
+     *
+     * @param segment the segment, must be locked by the current thread
+     */
+    private void removeTail(Segment segment) {
+
+        I_CmsLruCacheObject oldTail = segment.m_listTail;
+        if (oldTail != null) {
+            unlink(segment, oldTail);
+            decreaseCache(segment, oldTail);
+        }
+    }
+
+    /**
+     * Returns the segment responsible for the given object.<p>
+     *
+     * @param theCacheObject the cache object
+     *
+     * @return the segment for the object
+     */
+    private Segment segmentFor(I_CmsLruCacheObject theCacheObject) {
+
+        int h = System.identityHashCode(theCacheObject);
+        // spread the bits, identity hash codes are not well distributed in the lower bits
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return m_segments[h & m_segmentMask];
+    }
+
+    /**
+     * Touches the object in the given segment.<p>
+     *
+     * @param segment the segment, must be locked by the current thread
+     * @param theCacheObject the object being touched
+     *
+     * @return true if an object was found and touched
+     */
+    private boolean touch(Segment segment, I_CmsLruCacheObject theCacheObject) {
+
+        if (!isCached(segment, theCacheObject)) {
+            return false;
+        }
+        // only objects with cache costs < the max. allowed object cache costs can be cached!
+        if (isTooExpensive(theCacheObject)) {
+            unlink(segment, theCacheObject);
+            decreaseCache(segment, theCacheObject);
+            return false;
+        }
+        moveToHead(segment, theCacheObject);
+        return true;
+    }
+
+    /**
+     * Removes an object from the list of the given segment without updating the statistics.<p>
+     *
+     * @param segment the segment, must be locked by the current thread
+     * @param theCacheObject the object to unlink
+     */
+    private void unlink(Segment segment, I_CmsLruCacheObject theCacheObject) {
+
+        I_CmsLruCacheObject next = theCacheObject.getNextLruObject();
+        I_CmsLruCacheObject prev = theCacheObject.getPreviousLruObject();
+        if (next == null) {
+            // the object is the head
+            segment.m_listHead = prev;
+        } else {
+            next.setPreviousLruObject(prev);
+        }
+        if (prev == null) {
+            // the object is the tail
+            segment.m_listTail = next;
+        } else {
+            prev.setNextLruObject(next);
+        }
+        theCacheObject.setNextLruObject(null);
+        theCacheObject.setPreviousLruObject(null);
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.main.CmsLog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Allocates off-heap memory for cached byte content.<p>
+ *
+ * The memory is reserved in large direct byte buffers ("slabs") which are split into pages of a fixed size.
+ * Content is stored in as many pages as needed, so there is no fragmentation. Slabs are allocated lazily until
+ * the configured maximum is reached, and they are never given back to the operating system; freed pages are
+ * reused for new content instead.<p>
+ *
+ * Since the content is stored outside of the Java heap, large caches do not increase the old generation
+ * size and the garbage collection pauses.<p>
+ *
+ * @since 11.0.0
+ *
+ * @see org.opencms.cache.CmsSlabBuffer
+ */
+public class CmsSlabAllocator {
+
+    /** The default page size. */
+    public static final int DEFAULT_PAGE_SIZE = 8 * 1024;
+
+    /** The default slab size. */
+    public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsSlabAllocator.class);
+
+    /** The number of allocations that failed because the maximum size was reached. */
+    private long m_failedAllocations;
+
+    /** The free pages. */
+    private ArrayDeque<ByteBuffer> m_freePages;
+
+    /** The maximum number of bytes to allocate. */
+    private long m_maxBytes;
+
+    /** The page size. */
+    private int m_pageSize;
+
+    /** The number of allocated slabs. */
+    private int m_slabCount;
+
+    /** The slab size, always a multiple of the page size. */
+    private int m_slabSize;
+
+    /**
+     * Creates a new slab allocator with the default page and slab sizes.<p>
+     *
+     * @param maxBytes the maximum number of off-heap bytes to allocate
+     */
+    public CmsSlabAllocator(long maxBytes) {
+
+        this(maxBytes, DEFAULT_PAGE_SIZE, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates a new slab allocator.<p>
+     *
+     * @param maxBytes the maximum number of off-heap bytes to allocate
+     * @param pageSize the page size
+     * @param slabSize the slab size, will be rounded down to a multiple of the page size
+     */
+    public CmsSlabAllocator(long maxBytes, int pageSize, int slabSize) {
+
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize");
+        }
+        m_maxBytes = maxBytes;
+        m_pageSize = pageSize;
+        m_slabSize = Math.max(1, slabSize / pageSize) * pageSize;
+        m_freePages = new ArrayDeque<ByteBuffer>();
+    }
+
+    /**
+     * Copies the given bytes to off-heap memory.<p>
+     *
+     * @param bytes the bytes to store
+     *
+     * @return the buffer holding the bytes, or <code>null</code> if there is not enough off-heap memory left
+     */
+    public CmsSlabBuffer allocate(byte[] bytes) {
+
+        int pageCount = (bytes.length + m_pageSize - 1) / m_pageSize;
+        ByteBuffer[] pages = takePages(pageCount);
+        if (pages == null) {
+            return null;
+        }
+        int offset = 0;
+        for (ByteBuffer page : pages) {
+            int length = Math.min(m_pageSize, bytes.length - offset);
+            page.clear();
+            page.put(bytes, offset, length);
+            offset += length;
+        }
+        return new CmsSlabBuffer(this, pages, bytes.length);
+    }
+
+    /**
+     * Returns the number of off-heap bytes reserved by this allocator.<p>
+     *
+     * @return the number of allocated bytes
+     */
+    public synchronized long getAllocatedBytes() {
+
+        return (long)m_slabCount * m_slabSize;
+    }
+
+    /**
+     * Returns the number of allocations that failed because the maximum size was reached.<p>
+     *
+     * @return the number of failed allocations
+     */
+    public synchronized long getFailedAllocations() {
+
+        return m_failedAllocations;
+    }
+
+    /**
+     * Returns the number of allocated, but currently unused off-heap bytes.<p>
+     *
+     * @return the number of free bytes
+     */
+    public synchronized long getFreeBytes() {
+
+        return (long)m_freePages.size() * m_pageSize;
+    }
+
+    /**
+     * Returns the maximum number of off-heap bytes this allocator will reserve.<p>
+     *
+     * @return the maximum number of bytes
+     */
+    public long getMaxBytes() {
+
+        return m_maxBytes;
+    }
+
+    /**
+     * Returns the page size.<p>
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+
+        return m_pageSize;
+    }
+
+    /**
+     * Returns the number of off-heap bytes currently used for content.<p>
+     *
+     * @return the number of used bytes
+     */
+    public synchronized long getUsedBytes() {
+
+        return getAllocatedBytes() - getFreeBytes();
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return "allocated: " + getAllocatedBytes() + ", free: " + getFreeBytes() + ", max: " + m_maxBytes;
+    }
+
+    /**
+     * Returns the given pages to the pool of free pages.<p>
+     *
+     * @param pages the pages to free
+     */
+    synchronized void freePages(ByteBuffer[] pages) {
+
+        for (ByteBuffer page : pages) {
+            m_freePages.push(page);
+        }
+    }
+
+    /**
+     * Allocates a new slab and splits it into pages.<p>
+     *
+     * @return <code>true</code> if a slab was allocated
+     */
+    private boolean addSlab() {
+
+        if ((getAllocatedBytes() + m_slabSize) > m_maxBytes) {
+            return false;
+        }
+        ByteBuffer slab;
+        try {
+            slab = ByteBuffer.allocateDirect(m_slabSize);
+        } catch (OutOfMemoryError e) {
+            // direct memory limit of the JVM reached
+            LOG.error(e.getLocalizedMessage(), e);
+            return false;
+        }
+        for (int offset = 0; offset < m_slabSize; offset += m_pageSize) {
+            slab.limit(offset + m_pageSize);
+            slab.position(offset);
+            m_freePages.push(slab.slice());
+        }
+        m_slabCount++;
+        return true;
+    }
+
+    /**
+     * Takes the given number of pages from the pool of free pages.<p>
+     *
+     * @param count the number of pages required
+     *
+     * @return the pages, or <code>null</code> if not enough pages are available
+     */
+    private synchronized ByteBuffer[] takePages(int count) {
+
+        while (m_freePages.size() < count) {
+            if (!addSlab()) {
+                m_failedAllocations++;
+                return null;
+            }
+        }
+        ByteBuffer[] pages = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            pages[i] = m_freePages.pop();
+        }
+        return pages;
+    }
+}
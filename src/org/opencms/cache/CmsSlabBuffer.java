@@ -0,0 +1,159 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Byte content stored in off-heap pages of a {@link CmsSlabAllocator}.<p>
+ *
+ * The content is immutable and can be read by several threads at the same time.
+ * Callers must make sure that the buffer is not read any more after {@link #free()} was called,
+ * since the pages may be reused for other content.<p>
+ *
+ * @since 11.0.0
+ */
+public final class CmsSlabBuffer {
+
+    /** The allocator the pages belong to. */
+    private CmsSlabAllocator m_allocator;
+
+    /** Flag indicating if the pages have been given back to the allocator. */
+    private AtomicBoolean m_freed = new AtomicBoolean();
+
+    /** The content length in bytes. */
+    private int m_length;
+
+    /** The pages holding the content. */
+    private ByteBuffer[] m_pages;
+
+    /**
+     * Creates a new slab buffer.<p>
+     *
+     * @param allocator the allocator the pages belong to
+     * @param pages the pages holding the content
+     * @param length the content length in bytes
+     */
+    CmsSlabBuffer(CmsSlabAllocator allocator, ByteBuffer[] pages, int length) {
+
+        m_allocator = allocator;
+        m_pages = pages;
+        m_length = length;
+    }
+
+    /**
+     * Gives the pages of this buffer back to the allocator.<p>
+     *
+     * Calling this method more than once has no effect.<p>
+     */
+    public void free() {
+
+        if (m_freed.compareAndSet(false, true)) {
+            m_allocator.freePages(m_pages);
+        }
+    }
+
+    /**
+     * Returns the content length in bytes.<p>
+     *
+     * @return the content length
+     */
+    public int getLength() {
+
+        return m_length;
+    }
+
+    /**
+     * Checks if this buffer has already been freed.<p>
+     *
+     * @return <code>true</code> if this buffer has been freed
+     */
+    public boolean isFreed() {
+
+        return m_freed.get();
+    }
+
+    /**
+     * Copies the content to a new byte array on the heap.<p>
+     *
+     * @return the content as byte array
+     */
+    public byte[] toByteArray() {
+
+        byte[] result = new byte[m_length];
+        int offset = 0;
+        for (ByteBuffer page : m_pages) {
+            // use a duplicate so that concurrent readers do not share the buffer position
+            ByteBuffer source = page.duplicate();
+            source.clear();
+            int length = Math.min(source.remaining(), m_length - offset);
+            source.get(result, offset, length);
+            offset += length;
+        }
+        return result;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return "CmsSlabBuffer [" + m_length + " bytes]";
+    }
+
+    /**
+     * Writes the content to the given output stream.<p>
+     *
+     * The content is transferred page by page using a small transfer buffer, so the complete content
+     * is never copied to the heap at once.<p>
+     *
+     * @param out the output stream to write to
+     *
+     * @throws IOException in case writing to the stream fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+
+        if (m_length == 0) {
+            return;
+        }
+        byte[] transfer = new byte[Math.min(m_length, m_allocator.getPageSize())];
+        int remaining = m_length;
+        for (ByteBuffer page : m_pages) {
+            ByteBuffer source = page.duplicate();
+            source.clear();
+            int length = Math.min(source.remaining(), remaining);
+            source.get(transfer, 0, length);
+            out.write(transfer, 0, length);
+            remaining -= length;
+        }
+    }
+}
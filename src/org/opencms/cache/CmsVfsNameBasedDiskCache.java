@@ -34,6 +34,8 @@ import org.opencms.util.CmsFileUtil;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.logging.Log;
@@ -73,6 +75,39 @@ public class CmsVfsNameBasedDiskCache {
         m_rfsRepository = CmsFileUtil.normalizePath(basepath + foldername + File.separatorChar);
     }
 
+    /**
+     * Deletes the cached files for all versions of a VFS resource, except for the given current version.<p>
+     *
+     * This removes the cached files for all parameters that have been used with the resource.<p>
+     *
+     * @param rootPath the root path of the VFS resource
+     * @param current the current version of the resource, or <code>null</code> to delete the files for all versions
+     *
+     * @return the number of deleted files
+     */
+    public int deleteCacheFiles(String rootPath, CmsResource current) {
+
+        String rfsName = m_rfsRepository + rootPath;
+        String extension = CmsFileUtil.getExtension(rfsName);
+        File baseFile = new File(rfsName.substring(0, rfsName.length() - extension.length()));
+        File[] files = baseFile.getParentFile().listFiles();
+        if (files == null) {
+            return 0;
+        }
+        // cache names are built like "name_versionhash[_parametershash].ext", see getCacheName()
+        Pattern pattern = Pattern.compile(
+            Pattern.quote(baseFile.getName()) + "_(-?\\d+)(_[0-9a-f]{32})?" + Pattern.quote(extension));
+        String currentHash = current != null ? String.valueOf(getVersionHash(current)) : null;
+        int count = 0;
+        for (File file : files) {
+            Matcher matcher = pattern.matcher(file.getName());
+            if (matcher.matches() && !matcher.group(1).equals(currentHash) && file.delete()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Returns the content of the requested file in the disk cache, or <code>null</code> if the
      * file is not found in the cache, or is found but outdated.<p>
@@ -118,18 +153,9 @@ public class CmsVfsNameBasedDiskCache {
         StringBuffer buf = new StringBuffer(rfsName.length() + 24);
         buf.append(rfsName.substring(0, rfsName.length() - extension.length()));
 
-        // calculate a hash code that contains the resource DateLastModified, DateCreated and Length
-        StringBuffer ext = new StringBuffer(48);
-        ext.append(resource.getDateLastModified());
-        ext.append(';');
-        ext.append(resource.getDateCreated());
-        if (resource.getLength() > 0) {
-            ext.append(';');
-            ext.append(resource.getLength());
-        }
-        // append hash code to the result buffer
+        // append hash code for the resource version to the result buffer
         buf.append('_');
-        buf.append(ext.toString().hashCode());
+        buf.append(getVersionHash(resource));
 
         // check if parameters are provided, if so add them as well
         if (parameters != null) {
@@ -185,4 +211,25 @@ public class CmsVfsNameBasedDiskCache {
 
         CmsVfsDiskCache.saveFile(rfsName, content);
     }
+
+    /**
+     * Returns a hash code for the version of a VFS resource, calculated from the resource
+     * date last modified, date created and length.<p>
+     *
+     * @param resource the VFS resource
+     *
+     * @return the hash code for the resource version
+     */
+    private int getVersionHash(CmsResource resource) {
+
+        StringBuffer ext = new StringBuffer(48);
+        ext.append(resource.getDateLastModified());
+        ext.append(';');
+        ext.append(resource.getDateCreated());
+        if (resource.getLength() > 0) {
+            ext.append(';');
+            ext.append(resource.getLength());
+        }
+        return ext.toString().hashCode();
+    }
 }
\ No newline at end of file
@@ -32,6 +32,7 @@ import org.opencms.db.CmsDefaultUsers;
 import org.opencms.db.CmsLoginManager;
 import org.opencms.db.CmsSubscriptionManager;
 import org.opencms.db.I_CmsDbContextFactory;
+import org.opencms.flex.CmsFlexCache;
 import org.opencms.flex.CmsFlexCacheConfiguration;
 import org.opencms.i18n.CmsLocaleManager;
 import org.opencms.letsencrypt.CmsLetsEncryptConfiguration;
@@ -42,6 +43,7 @@ import org.opencms.main.CmsEventManager;
 import org.opencms.main.CmsHttpAuthenticationSettings;
 import org.opencms.main.CmsLog;
 import org.opencms.main.CmsServletContainerSettings;
+import org.opencms.main.I_CmsClusterEventTransport;
 import org.opencms.main.I_CmsRequestHandler;
 import org.opencms.main.I_CmsResourceInit;
 import org.opencms.main.I_CmsSessionStorageProvider;
@@ -94,9 +96,21 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The attribute name for the deleted node. */
     public static final String A_DELETED = "deleted";
 
+    /** The "file" attribute. */
+    public static final String A_FILE = "file";
+
+    /** The "interval" attribute. */
+    public static final String A_INTERVAL = "interval";
+
     /** The attribute name for the localization mode. */
     public static final String A_LOCALIZATION_MODE = "localizationMode";
 
+    /** The "maxentries" attribute. */
+    public static final String A_MAXENTRIES = "maxentries";
+
+    /** The "maxloadtime" attribute. */
+    public static final String A_MAXLOADTIME = "maxloadtime";
+
     /** The "maxvisited" attribute. */
     public static final String A_MAXVISITED = "maxvisited";
 
@@ -142,6 +156,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the cache-offline node. */
     public static final String N_CACHE_OFFLINE = "cache-offline";
 
+    /** The node name for the cluster transport. */
+    public static final String N_CLUSTERTRANSPORT = "clustertransport";
+
     /** The configuration node name. */
     public static final String N_CONFIGURATION = "configuration";
 
@@ -253,18 +270,30 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the maxcachebytes node. */
     public static final String N_MAXCACHEBYTES = "maxcachebytes";
 
+    /** The node name for the coalescingtimeout node. */
+    public static final String N_COALESCINGTIMEOUT = "coalescingtimeout";
+
     /** The node name for the maxentrybytes node. */
     public static final String N_MAXENTRYBYTES = "maxentrybytes";
 
     /** The node name for the maxkeys node. */
     public static final String N_MAXKEYS = "maxkeys";
 
+    /** The node name for the maxoffheapbytes node. */
+    public static final String N_MAXOFFHEAPBYTES = "maxoffheapbytes";
+
+    /** The node name for the maxrevalidations node. */
+    public static final String N_MAXREVALIDATIONS = "maxrevalidations";
+
     /** The node name for the maxusagepercent node. */
     public static final String N_MAXUSAGE_PERCENT = "maxusagepercent";
 
     /** The node name for the memorymonitor node. */
     public static final String N_MEMORYMONITOR = "memorymonitor";
 
+    /** The node name for the memory budget of the caches. */
+    public static final String N_MEMORY_BUDGET = "memory-budget";
+
     /** The duration after which responsibles will be notified about out-dated content. */
     public static final String N_NOTIFICATION_PROJECT = "notification-project";
 
@@ -295,6 +324,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the "publishhistory" section. */
     public static final String N_PUBLISHMANAGER = "publishmanager";
 
+    /** The node name for the number of publish threads. */
+    public static final String N_PUBLISHTHREADS = "publish-threads";
+
     /** The node name for the "publishhistory" section. */
     public static final String N_QUEUEPERSISTANCE = "queue-persistance";
 
@@ -430,12 +462,18 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the version history. */
     public static final String N_VERSIONHISTORY = "versionhistory";
 
+    /** The node name for the warm-start node. */
+    public static final String N_WARM_START = "warm-start";
+
     /** The node name for the warning-interval node. */
     public static final String N_WARNING_INTERVAL = "warning-interval";
 
     /** The node name for the workflow configuration. */
     public static final String N_WORKFLOW = "workflow";
 
+    /** The node name for the XML content cache settings. */
+    public static final String N_XMLCONTENTS = "xmlcontents";
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsSystemConfiguration.class);
 
@@ -469,6 +507,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The settings of the memory monitor. */
     private CmsCacheSettings m_cacheSettings;
 
+    /** The transport that forwards events to the other nodes of a cluster. */
+    private I_CmsClusterEventTransport m_clusterTransport;
+
     /** The configured OpenCms default users and groups. */
     private CmsDefaultUsers m_cmsDefaultUsers;
 
@@ -721,6 +762,16 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER, "addEventManager", 1);
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER, 0, A_CLASS);
 
+        // add cluster transport creation rules, the parameters are set with the generic parameter rules below
+        digester.addObjectCreate(
+            "*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_CLUSTERTRANSPORT,
+            CmsConfigurationException.class.getName(),
+            A_CLASS);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_CLUSTERTRANSPORT,
+            I_CmsConfigurationParameterHandler.INIT_CONFIGURATION_METHOD);
+        digester.addSetNext("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_CLUSTERTRANSPORT, "setClusterTransport");
+
         // add resource init classes
         digester.addCallMethod(
             "*/" + N_SYSTEM + "/" + N_RESOURCEINIT + "/" + N_RESOURCEINITHANDLER,
@@ -835,6 +886,18 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_AVGCACHEBYTES, 3);
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_MAXENTRYBYTES, 4);
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_MAXKEYS, 5);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_MAXOFFHEAPBYTES,
+            "setMaxOffHeapBytes",
+            0);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_COALESCINGTIMEOUT,
+            "setCoalescingTimeout",
+            0);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_MAXREVALIDATIONS,
+            "setMaxRevalidations",
+            0);
         // add flexcache device selector
         digester.addCallMethod(
             "*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_DEVICESELECTOR,
@@ -877,6 +940,10 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             "setResourceCacheSize",
             0);
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_SIZE_ROLES, "setRolesCacheSize", 0);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_MEMORY_BUDGET,
+            "setMemoryBudget",
+            0);
         digester.addCallMethod(
             "*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_SIZE_RESOURCELISTS,
             "setResourcelistCacheSize",
@@ -902,6 +969,11 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             "*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_SIZE_CONTAINERPAGE_ONLINE,
             "setContainerPageOnlineSize",
             0);
+        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_WARM_START, "setWarmStart", 4);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_WARM_START, 0, A_FILE);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_WARM_START, 1, A_INTERVAL);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_WARM_START, 2, A_MAXENTRIES);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_WARM_START, 3, A_MAXLOADTIME);
         digester.addSetNext("*/" + N_SYSTEM + "/" + N_RESULTCACHE, "setCacheSettings");
 
         // set the notification time
@@ -936,6 +1008,10 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             "*/" + N_SYSTEM + "/" + N_PUBLISHMANAGER + "/" + N_QUEUESHUTDOWNTIME,
             "setPublishQueueShutdowntime",
             0);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_PUBLISHMANAGER + "/" + N_PUBLISHTHREADS,
+            "setPublishThreads",
+            0);
         digester.addSetNext("*/" + N_SYSTEM + "/" + N_PUBLISHMANAGER, "setPublishManager");
 
         // add rule for session storage provider
@@ -978,6 +1054,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         digester.addCallParam(adeCachePath + "/" + N_GROUPCONTAINERS, 0, A_OFFLINE);
         digester.addCallMethod(adeCachePath + "/" + N_GROUPCONTAINERS, "setGroupContainerOnlineSize", 1);
         digester.addCallParam(adeCachePath + "/" + N_GROUPCONTAINERS, 0, A_ONLINE);
+        // online XML content cache
+        digester.addCallMethod(adeCachePath + "/" + N_XMLCONTENTS, "setXmlContentOnlineSize", 1);
+        digester.addCallParam(adeCachePath + "/" + N_XMLCONTENTS, 0, A_ONLINE);
         // set the settings
         digester.addSetNext(adeCachePath, "setAdeCacheSettings");
 
@@ -1092,6 +1171,15 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         Element eventsElement = systemElement.addElement(N_EVENTS);
         Element eventManagerElement = eventsElement.addElement(N_EVENTMANAGER);
         eventManagerElement.addAttribute(A_CLASS, m_eventManager.getClass().getName());
+        if (m_clusterTransport != null) {
+            Element clusterTransportElement = eventsElement.addElement(N_CLUSTERTRANSPORT).addAttribute(
+                A_CLASS,
+                m_clusterTransport.getClass().getName());
+            CmsParameterConfiguration transportParameters = m_clusterTransport.getConfiguration();
+            if (transportParameters != null) {
+                transportParameters.appendToXml(clusterTransportElement);
+            }
+        }
 
         // version history
         Element historyElement = systemElement.addElement(N_VERSIONHISTORY);
@@ -1251,6 +1339,18 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         flexcacheElement.addElement(N_MAXENTRYBYTES).addText(
             String.valueOf(m_cmsFlexCacheConfiguration.getMaxEntryBytes()));
         flexcacheElement.addElement(N_MAXKEYS).addText(String.valueOf(m_cmsFlexCacheConfiguration.getMaxKeys()));
+        if (m_cmsFlexCacheConfiguration.getMaxOffHeapBytes() > 0) {
+            flexcacheElement.addElement(N_MAXOFFHEAPBYTES).addText(
+                String.valueOf(m_cmsFlexCacheConfiguration.getMaxOffHeapBytes()));
+        }
+        if (m_cmsFlexCacheConfiguration.getCoalescingTimeout() != CmsFlexCache.DEFAULT_COALESCING_TIMEOUT) {
+            flexcacheElement.addElement(N_COALESCINGTIMEOUT).addText(
+                String.valueOf(m_cmsFlexCacheConfiguration.getCoalescingTimeout()));
+        }
+        if (m_cmsFlexCacheConfiguration.getMaxRevalidations() != CmsFlexCache.DEFAULT_MAX_REVALIDATIONS) {
+            flexcacheElement.addElement(N_MAXREVALIDATIONS).addText(
+                String.valueOf(m_cmsFlexCacheConfiguration.getMaxRevalidations()));
+        }
         if (m_cmsFlexCacheConfiguration.getDeviceSelectorConfiguration() != null) {
             Element flexcacheDeviceSelectorElement = flexcacheElement.addElement(N_DEVICESELECTOR);
             flexcacheDeviceSelectorElement.addAttribute(
@@ -1296,6 +1396,16 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         }
         cacheElement.addElement(N_SIZE_ACLS).setText(Integer.toString(m_cacheSettings.getAclCacheSize()));
         cacheElement.addElement(N_SIZE_PERMISSIONS).setText(Integer.toString(m_cacheSettings.getPermissionCacheSize()));
+        if (m_cacheSettings.getMemoryBudget() > -1) {
+            cacheElement.addElement(N_MEMORY_BUDGET).setText(Integer.toString(m_cacheSettings.getMemoryBudget()));
+        }
+        if (m_cacheSettings.isWarmStartEnabled()) {
+            Element warmStartElement = cacheElement.addElement(N_WARM_START);
+            warmStartElement.addAttribute(A_FILE, m_cacheSettings.getWarmStartFile());
+            warmStartElement.addAttribute(A_INTERVAL, Integer.toString(m_cacheSettings.getWarmStartInterval()));
+            warmStartElement.addAttribute(A_MAXENTRIES, Integer.toString(m_cacheSettings.getWarmStartMaxEntries()));
+            warmStartElement.addAttribute(A_MAXLOADTIME, Integer.toString(m_cacheSettings.getWarmStartMaxLoadTime()));
+        }
 
         // content notification settings
         if ((m_notificationTime != null) || (m_notificationProject != null)) {
@@ -1323,6 +1433,10 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
                 String.valueOf(m_publishManager.isPublishQueuePersistanceEnabled()));
             pubHistElement.addElement(N_QUEUESHUTDOWNTIME).setText(
                 String.valueOf(m_publishManager.getPublishQueueShutdowntime()));
+            if (m_publishManager.getPublishThreads() != CmsPublishManager.DEFAULT_PUBLISH_THREADS) {
+                pubHistElement.addElement(N_PUBLISHTHREADS).setText(
+                    String.valueOf(m_publishManager.getPublishThreads()));
+            }
         }
 
         // session storage provider
@@ -1385,6 +1499,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
                 groupContainerCacheElem.addAttribute(
                     A_ONLINE,
                     "" + getAdeCacheSettings().getGroupContainerOnlineSize());
+                // online XML content cache
+                Element xmlContentCacheElem = cacheElem.addElement(N_XMLCONTENTS);
+                xmlContentCacheElem.addAttribute(A_ONLINE, "" + getAdeCacheSettings().getXmlContentOnlineSize());
             }
         }
 
@@ -1509,6 +1626,16 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         return m_cacheSettings;
     }
 
+    /**
+     * Returns the transport that forwards events to the other nodes of a cluster.<p>
+     *
+     * @return the cluster transport, or <code>null</code> if none is configured
+     */
+    public I_CmsClusterEventTransport getClusterTransport() {
+
+        return m_clusterTransport;
+    }
+
     /**
      * Returns the default users.<p>
      *
@@ -1996,6 +2123,16 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         m_cacheSettings = settings;
     }
 
+    /**
+     * Sets the transport that forwards events to the other nodes of a cluster.<p>
+     *
+     * @param clusterTransport the cluster transport
+     */
+    public void setClusterTransport(I_CmsClusterEventTransport clusterTransport) {
+
+        m_clusterTransport = clusterTransport;
+    }
+
     /**
      * Sets the CmsDefaultUsers.<p>
      *
@@ -108,4 +108,26 @@ public class CmsCacheKey implements I_CmsCacheKey {
         cacheBuffer.append(resource.getStructureId().toString());
         return cacheBuffer.toString();
     }
+
+    /**
+     * @see org.opencms.db.I_CmsCacheKey#getTypedCacheKeyForUserPermissions(java.lang.String, org.opencms.db.CmsDbContext, org.opencms.file.CmsResource, org.opencms.security.CmsPermissionSet)
+     */
+    public CmsTypedCacheKey getTypedCacheKeyForUserPermissions(
+        String prefix,
+        CmsDbContext context,
+        CmsResource resource,
+        CmsPermissionSet requiredPermissions) {
+
+        if (!context.getProjectId().isNullUUID()) {
+            return null;
+        }
+        return new CmsTypedCacheKey(
+            prefix,
+            context.currentProject().isOnlineProject(),
+            ((long)requiredPermissions.getAllowedPermissions() << 32)
+                | (requiredPermissions.getDeniedPermissions() & 0xffffffffL),
+            context.currentUser().getName(),
+            resource.getStructureId(),
+            null);
+    }
 }
@@ -27,6 +27,8 @@
 
 package org.opencms.db;
 
+import org.opencms.util.CmsStringUtil;
+
 /**
  * The settings of the OpenCms memory monitor.<p>
  *
@@ -43,6 +45,9 @@ public class CmsCacheSettings {
     /** The size of the memory monitor's cache for groups. */
     private int m_groupCacheSize;
 
+    /** The memory budget of the memory monitor's caches in megabytes. */
+    private int m_memoryBudget = -1; // this configuration entry is optional
+
     /** The size of the memory monitor's cache for organizational units. */
     private int m_orgUnitCacheSize = -1; // this configuration entry is optional
 
@@ -76,6 +81,18 @@ public class CmsCacheSettings {
     /** The size of the memory monitor's cache for user/group relations. */
     private int m_userGroupsCacheSize;
 
+    /** The path of the warm start snapshot file relative to WEB-INF, or null if warm start is disabled. */
+    private String m_warmStartFile;
+
+    /** The interval in seconds after which the warm start snapshot is written again. */
+    private int m_warmStartInterval = 3600;
+
+    /** The maximum number of cache keys saved in the warm start snapshot. */
+    private int m_warmStartMaxEntries = 10000;
+
+    /** The maximum time in seconds for loading the warm start snapshot at startup. */
+    private int m_warmStartMaxLoadTime = 120;
+
     /**
      * Default constructor.<p>
      */
@@ -162,6 +179,19 @@ public class CmsCacheSettings {
         return m_groupCacheSize;
     }
 
+    /**
+     * Returns the memory budget of the memory monitor's caches in megabytes.<p>
+     *
+     * If a budget is configured, the caches are limited by the estimated size of their entries instead of
+     * the number of entries. The budget is shared by the caches in proportion to their configured sizes.<p>
+     *
+     * @return the memory budget in megabytes, or -1 if the caches are limited by the number of entries
+     */
+    public int getMemoryBudget() {
+
+        return m_memoryBudget;
+    }
+
     /**
      * Returns the size of the memory monitor's cache for organizational units.<p>
      *
@@ -284,6 +314,56 @@ public class CmsCacheSettings {
         return m_userGroupsCacheSize;
     }
 
+    /**
+     * Returns the path of the warm start snapshot file, relative to the WEB-INF folder.<p>
+     *
+     * @return the path of the warm start snapshot file, or <code>null</code> if warm start is disabled
+     */
+    public String getWarmStartFile() {
+
+        return m_warmStartFile;
+    }
+
+    /**
+     * Returns the interval in seconds after which the warm start snapshot is written again.<p>
+     *
+     * @return the interval in seconds after which the warm start snapshot is written again
+     */
+    public int getWarmStartInterval() {
+
+        return m_warmStartInterval;
+    }
+
+    /**
+     * Returns the maximum number of cache keys saved in the warm start snapshot.<p>
+     *
+     * @return the maximum number of cache keys saved in the warm start snapshot
+     */
+    public int getWarmStartMaxEntries() {
+
+        return m_warmStartMaxEntries;
+    }
+
+    /**
+     * Returns the maximum time in seconds for loading the warm start snapshot at startup.<p>
+     *
+     * @return the maximum time in seconds for loading the warm start snapshot
+     */
+    public int getWarmStartMaxLoadTime() {
+
+        return m_warmStartMaxLoadTime;
+    }
+
+    /**
+     * Returns if the online VFS caches are saved to a snapshot file and preloaded at startup.<p>
+     *
+     * @return <code>true</code> if warm start is enabled
+     */
+    public boolean isWarmStartEnabled() {
+
+        return m_warmStartFile != null;
+    }
+
     /**
      * Sets the size of the memory monitor's cache for ACLs.<p>
      *
@@ -314,6 +394,16 @@ public class CmsCacheSettings {
         m_groupCacheSize = getIntValue(size, 64);
     }
 
+    /**
+     * Sets the memory budget of the memory monitor's caches in megabytes.<p>
+     *
+     * @param size the memory budget in megabytes
+     */
+    public void setMemoryBudget(String size) {
+
+        m_memoryBudget = getIntValue(size, -1);
+    }
+
     /**
      * Sets the size of the memory monitor's cache for organizational units.<p>
      *
@@ -424,6 +514,22 @@ public class CmsCacheSettings {
         m_userGroupsCacheSize = getIntValue(size, 256);
     }
 
+    /**
+     * Enables saving the online VFS cache keys to a snapshot file and preloading them at startup.<p>
+     *
+     * @param file the path of the snapshot file, relative to the WEB-INF folder
+     * @param interval the interval in seconds after which the snapshot is written again
+     * @param maxEntries the maximum number of cache keys saved in the snapshot
+     * @param maxLoadTime the maximum time in seconds for loading the snapshot at startup
+     */
+    public void setWarmStart(String file, String interval, String maxEntries, String maxLoadTime) {
+
+        m_warmStartFile = CmsStringUtil.isEmptyOrWhitespaceOnly(file) ? null : file.trim();
+        m_warmStartInterval = getIntValue(interval, 3600);
+        m_warmStartMaxEntries = getIntValue(maxEntries, 10000);
+        m_warmStartMaxLoadTime = getIntValue(maxLoadTime, 120);
+    }
+
     /**
      * Turns a string into an int.<p>
      *
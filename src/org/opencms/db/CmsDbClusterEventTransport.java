@@ -0,0 +1,800 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.json.JSONException;
+import org.opencms.json.JSONObject;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsEventManager;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsClusterEventTransport;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsLogReport;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Cluster transport that exchanges events with the other nodes through the <code>CMS_CLUSTER_EVENTS</code>
+ * table of the shared database.<p>
+ *
+ * Events fired on this node are queued and written to the table by a background thread, which also polls
+ * the table for the events written by the other nodes. The event times are taken from the clock of the node
+ * that has written the event, so the events of each node are read separately, starting from the newest event
+ * time already read from that node, and the clocks of the nodes are never compared. Since events may be
+ * committed after newer events, each poll reads an overlapping time window, and events that have already been
+ * received are skipped. The events of a node that has not been seen before are read starting with its oldest
+ * event in the table. Each node deletes its own events from the table after the retention time.<p>
+ *
+ * The SQL queries are read from the <code>query.properties</code> of the database driver,
+ * see the <code>sqlManager</code> parameter.<p>
+ *
+ * Only simple event data is forwarded: strings, numbers, ids and resources. Resources are read again by
+ * their structure id on the receiving node. Publish events get a database context and a log report on the
+ * receiving node, the database context is cleared after the event has been fired. If the data of an event
+ * is too large, all caches are cleared on the other nodes instead.<p>
+ *
+ * The following parameters are supported:
+ * <ul>
+ * <li><code>nodeId</code>: the id of this node, the default is the server name with a random suffix</li>
+ * <li><code>pool</code>: the database pool to use, the default is the default pool</li>
+ * <li><code>pollInterval</code>: the poll interval in milliseconds, the default is 5000</li>
+ * <li><code>retention</code>: the time in milliseconds to keep events in the table, the default is one hour</li>
+ * <li><code>sqlManager</code>: the class name of the SQL manager of the database driver, the default is
+ * <code>org.opencms.db.generic.CmsSqlManager</code></li>
+ * <li><code>events</code>: a comma separated list of the event types to forward, the default are the
+ * publish, cache clearing, flex cache and resource and property modification events</li>
+ * </ul>
+ *
+ * @since 11.0.0
+ */
+public class CmsDbClusterEventTransport implements I_CmsClusterEventTransport {
+
+    /**
+     * Statistics of the events received from another node.<p>
+     */
+    public static class CmsNodeStatistics {
+
+        /** The number of events received from the node. */
+        private long m_eventCount;
+
+        /** The time the last event has been written by the node. */
+        private long m_lastEventTime;
+
+        /** The lag of the last event received from the node. */
+        private long m_lastLag;
+
+        /** The maximum lag of the events received from the node. */
+        private long m_maxLag;
+
+        /**
+         * Returns the number of events received from the node.<p>
+         *
+         * @return the number of events received from the node
+         */
+        public synchronized long getEventCount() {
+
+            return m_eventCount;
+        }
+
+        /**
+         * Returns the time the last event has been written by the node.<p>
+         *
+         * @return the time the last event has been written by the node
+         */
+        public synchronized long getLastEventTime() {
+
+            return m_lastEventTime;
+        }
+
+        /**
+         * Returns the lag in milliseconds between writing and receiving the last event of the node.<p>
+         *
+         * The lag also contains the clock difference between the nodes.<p>
+         *
+         * @return the lag of the last event
+         */
+        public synchronized long getLastLag() {
+
+            return m_lastLag;
+        }
+
+        /**
+         * Returns the maximum lag in milliseconds between writing and receiving an event of the node.<p>
+         *
+         * @return the maximum lag
+         */
+        public synchronized long getMaxLag() {
+
+            return m_maxLag;
+        }
+
+        /**
+         * Records a received event.<p>
+         *
+         * @param eventTime the time the event has been written
+         * @param receiveTime the time the event has been received
+         */
+        protected synchronized void addEvent(long eventTime, long receiveTime) {
+
+            m_eventCount++;
+            m_lastEventTime = Math.max(m_lastEventTime, eventTime);
+            m_lastLag = receiveTime - eventTime;
+            m_maxLag = Math.max(m_maxLag, m_lastLag);
+        }
+    }
+
+    /** The default event types to forward. */
+    public static final int[] DEFAULT_EVENTS = {
+        I_CmsEventListener.EVENT_PUBLISH_PROJECT,
+        I_CmsEventListener.EVENT_CLEAR_CACHES,
+        I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES,
+        I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES,
+        I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR,
+        I_CmsEventListener.EVENT_FLEX_PURGE_JSP_REPOSITORY,
+        I_CmsEventListener.EVENT_PROPERTY_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCE_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCES_AND_PROPERTIES_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCES_MODIFIED};
+
+    /** The default poll interval in milliseconds. */
+    public static final long DEFAULT_POLL_INTERVAL = 5000;
+
+    /** The default retention time in milliseconds. */
+    public static final long DEFAULT_RETENTION = 60 * 60 * 1000;
+
+    /** The maximum length of the encoded event data. */
+    public static final int MAX_DATA_LENGTH = 4000;
+
+    /** The parameter name for the event types. */
+    public static final String PARAM_EVENTS = "events";
+
+    /** The parameter name for the node id. */
+    public static final String PARAM_NODE_ID = "nodeId";
+
+    /** The parameter name for the poll interval. */
+    public static final String PARAM_POLL_INTERVAL = "pollInterval";
+
+    /** The parameter name for the database pool. */
+    public static final String PARAM_POOL = "pool";
+
+    /** The parameter name for the retention time. */
+    public static final String PARAM_RETENTION = "retention";
+
+    /** The parameter name for the SQL manager class. */
+    public static final String PARAM_SQL_MANAGER = "sqlManager";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsDbClusterEventTransport.class);
+
+    /** Query key to delete the old events of a node. */
+    private static final String QUERY_DELETE = "C_CLUSTER_EVENTS_DELETE_2";
+
+    /** Query key to write an event. */
+    private static final String QUERY_INSERT = "C_CLUSTER_EVENTS_INSERT_5";
+
+    /** Query key to read the events of a node. */
+    private static final String QUERY_READ = "C_CLUSTER_EVENTS_READ_2";
+
+    /** Query key to read the oldest event time of each of the other nodes. */
+    private static final String QUERY_READ_NODES = "C_CLUSTER_EVENTS_READ_NODES_1";
+
+    /** Type prefix for encoded booleans. */
+    private static final String TYPE_BOOLEAN = "b:";
+
+    /** Type prefix for encoded integers. */
+    private static final String TYPE_INTEGER = "i:";
+
+    /** Type prefix for encoded resource lists. */
+    private static final String TYPE_RESOURCE_LIST = "l:";
+
+    /** Type prefix for encoded resources. */
+    private static final String TYPE_RESOURCE = "r:";
+
+    /** Type prefix for encoded strings. */
+    private static final String TYPE_STRING = "s:";
+
+    /** Type prefix for encoded ids. */
+    private static final String TYPE_UUID = "u:";
+
+    /** The admin CmsObject, in the offline project. */
+    private CmsObject m_cms;
+
+    /** The parameter configuration. */
+    private CmsParameterConfiguration m_configuration = new CmsParameterConfiguration();
+
+    /** The factory for the database contexts of the received publish events. */
+    private I_CmsDbContextFactory m_dbContextFactory;
+
+    /** The event manager to fire the received events with. */
+    private CmsEventManager m_eventManager;
+
+    /** The event types to forward. */
+    private Set<Integer> m_eventTypes;
+
+    /** The executor for the background thread. */
+    private ScheduledExecutorService m_executor;
+
+    /** The time of the last deletion of old events. */
+    private long m_lastCleanup;
+
+    /** The times of the newest events of the other nodes, by the clock of each node, with the node ids as keys. */
+    private Map<String, Long> m_nodeEventTimes = new HashMap<String, Long>();
+
+    /** The id of this node. */
+    private String m_nodeId;
+
+    /** The statistics of the events received from the other nodes. */
+    private Map<String, CmsNodeStatistics> m_nodeStatistics = new ConcurrentHashMap<String, CmsNodeStatistics>();
+
+    /** The events waiting to be written. */
+    private ConcurrentLinkedQueue<Object[]> m_outgoing = new ConcurrentLinkedQueue<Object[]>();
+
+    /** The poll interval in milliseconds. */
+    private long m_pollInterval = DEFAULT_POLL_INTERVAL;
+
+    /** The database pool to use. */
+    private String m_poolName;
+
+    /** The ids and times of the events that have already been received, with the node ids as keys. */
+    private Map<String, Map<String, Long>> m_received = new HashMap<String, Map<String, Long>>();
+
+    /** The retention time in milliseconds. */
+    private long m_retention = DEFAULT_RETENTION;
+
+    /** The SQL manager of the database driver, used to read the queries. */
+    private org.opencms.db.generic.CmsSqlManager m_sqlManager;
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#addConfigurationParameter(java.lang.String, java.lang.String)
+     */
+    public void addConfigurationParameter(String paramName, String paramValue) {
+
+        m_configuration.add(paramName, paramValue);
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#getConfiguration()
+     */
+    public CmsParameterConfiguration getConfiguration() {
+
+        return m_configuration;
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsClusterEventTransport#getNodeId()
+     */
+    public String getNodeId() {
+
+        return m_nodeId;
+    }
+
+    /**
+     * Returns the statistics of the events received from the other nodes, with the node ids as keys.<p>
+     *
+     * @return the statistics of the events received from the other nodes
+     */
+    public Map<String, CmsNodeStatistics> getNodeStatistics() {
+
+        return Collections.unmodifiableMap(m_nodeStatistics);
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#initConfiguration()
+     */
+    public void initConfiguration() {
+
+        m_configuration = CmsParameterConfiguration.unmodifiableVersion(m_configuration);
+        m_nodeId = m_configuration.getString(PARAM_NODE_ID, null);
+        m_poolName = m_configuration.getString(PARAM_POOL, null);
+        m_pollInterval = Long.parseLong(
+            m_configuration.getString(PARAM_POLL_INTERVAL, String.valueOf(DEFAULT_POLL_INTERVAL)).trim());
+        m_retention = Long.parseLong(m_configuration.getString(PARAM_RETENTION, String.valueOf(DEFAULT_RETENTION)).trim());
+        m_eventTypes = new HashSet<Integer>();
+        String events = m_configuration.getString(PARAM_EVENTS, null);
+        if (CmsStringUtil.isEmptyOrWhitespaceOnly(events)) {
+            for (int type : DEFAULT_EVENTS) {
+                m_eventTypes.add(Integer.valueOf(type));
+            }
+        } else {
+            for (String type : CmsStringUtil.splitAsList(events, ',', true)) {
+                m_eventTypes.add(Integer.valueOf(type));
+            }
+        }
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsClusterEventTransport#initialize(org.opencms.file.CmsObject, org.opencms.main.CmsEventManager, org.opencms.db.I_CmsDbContextFactory)
+     */
+    public void initialize(CmsObject adminCms, CmsEventManager eventManager, I_CmsDbContextFactory dbContextFactory)
+    throws CmsException {
+
+        if (m_eventTypes == null) {
+            initConfiguration();
+        }
+        m_eventManager = eventManager;
+        m_dbContextFactory = dbContextFactory;
+        m_cms = OpenCms.initCmsObject(adminCms);
+        CmsProject offlineProject = m_cms.readProject(CmsProject.ONLINE_PROJECT_ID);
+        for (CmsProject project : OpenCms.getOrgUnitManager().getAllAccessibleProjects(m_cms, "", true)) {
+            if (!project.isOnlineProject()) {
+                offlineProject = project;
+                break;
+            }
+        }
+        m_cms.getRequestContext().setCurrentProject(offlineProject);
+        if (m_nodeId == null) {
+            m_nodeId = OpenCms.getSystemInfo().getServerName() + "-" + new CmsUUID().toString().substring(0, 8);
+        }
+        if (m_poolName == null) {
+            m_poolName = OpenCms.getSqlManager().getDefaultDbPoolName();
+        }
+        m_sqlManager = org.opencms.db.generic.CmsSqlManager.getInstance(
+            m_configuration.getString(PARAM_SQL_MANAGER, org.opencms.db.generic.CmsSqlManager.class.getName()));
+        m_lastCleanup = System.currentTimeMillis();
+        try {
+            deleteEvents(m_lastCleanup - m_retention);
+            // events written before this node has been started are only marked as received
+            readEvents(false);
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(Messages.get().container(Messages.ERR_CLUSTER_EVENTS_TABLE_1, m_poolName), e);
+        }
+        m_executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "OpenCms: Cluster event transport");
+            thread.setDaemon(true);
+            return thread;
+        });
+        m_executor.scheduleWithFixedDelay(this::poll, m_pollInterval, m_pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsClusterEventTransport#send(org.opencms.main.CmsEvent)
+     */
+    public void send(CmsEvent event) {
+
+        if ((m_executor == null) || !m_eventTypes.contains(event.getTypeInteger())) {
+            return;
+        }
+        int type = event.getType();
+        String data = encodeData(event.getData());
+        if (data.length() > MAX_DATA_LENGTH) {
+            type = I_CmsEventListener.EVENT_CLEAR_CACHES;
+            data = "{}";
+        }
+        m_outgoing.add(
+            new Object[] {new CmsUUID().toString(), Integer.valueOf(type), data, Long.valueOf(System.currentTimeMillis())});
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsClusterEventTransport#shutDown()
+     */
+    public void shutDown() {
+
+        if (m_executor != null) {
+            m_executor.shutdown();
+            try {
+                m_executor.awaitTermination(m_pollInterval, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // write the events that are still waiting
+            writeEvents();
+            m_executor = null;
+        }
+    }
+
+    /**
+     * Decodes the data of an event received from another node.<p>
+     *
+     * @param encoded the encoded data
+     *
+     * @return the event data
+     *
+     * @throws JSONException if the data can not be parsed
+     */
+    protected Map<String, Object> decodeData(String encoded) throws JSONException {
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        JSONObject json = new JSONObject(encoded);
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            String value = json.getString(key);
+            String content = value.substring(2);
+            if (value.startsWith(TYPE_STRING)) {
+                data.put(key, content);
+            } else if (value.startsWith(TYPE_INTEGER)) {
+                data.put(key, Integer.valueOf(content));
+            } else if (value.startsWith(TYPE_BOOLEAN)) {
+                data.put(key, Boolean.valueOf(content));
+            } else if (value.startsWith(TYPE_UUID)) {
+                data.put(key, new CmsUUID(content));
+            } else if (value.startsWith(TYPE_RESOURCE)) {
+                CmsResource resource = readResource(content);
+                if (resource != null) {
+                    data.put(key, resource);
+                }
+            } else if (value.startsWith(TYPE_RESOURCE_LIST)) {
+                List<CmsResource> resources = new ArrayList<CmsResource>();
+                for (String id : CmsStringUtil.splitAsList(content, ',')) {
+                    CmsResource resource = readResource(id);
+                    if (resource != null) {
+                        resources.add(resource);
+                    }
+                }
+                data.put(key, resources);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Encodes the data of an event, values that can not be forwarded are skipped.<p>
+     *
+     * @param data the event data
+     *
+     * @return the encoded data
+     */
+    protected String encodeData(Map<String, Object> data) {
+
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            String encoded = null;
+            if (value instanceof String) {
+                encoded = TYPE_STRING + value;
+            } else if (value instanceof Integer) {
+                encoded = TYPE_INTEGER + value;
+            } else if (value instanceof Boolean) {
+                encoded = TYPE_BOOLEAN + value;
+            } else if (value instanceof CmsUUID) {
+                encoded = TYPE_UUID + value;
+            } else if (value instanceof CmsResource) {
+                encoded = TYPE_RESOURCE + ((CmsResource)value).getStructureId();
+            } else if (value instanceof List) {
+                StringBuffer ids = new StringBuffer();
+                boolean resources = true;
+                for (Object element : (List<?>)value) {
+                    if (!(element instanceof CmsResource)) {
+                        resources = false;
+                        break;
+                    }
+                    if (ids.length() > 0) {
+                        ids.append(',');
+                    }
+                    ids.append(((CmsResource)element).getStructureId());
+                }
+                if (resources) {
+                    encoded = TYPE_RESOURCE_LIST + ids;
+                }
+            }
+            if (encoded != null) {
+                try {
+                    json.put(entry.getKey(), encoded);
+                } catch (JSONException e) {
+                    // should never happen
+                    LOG.error(e.getLocalizedMessage(), e);
+                }
+            }
+        }
+        return json.toString();
+    }
+
+    /**
+     * Returns the start of the time window for reading the events of another node.<p>
+     *
+     * The window starts before the newest event time already read from the node, so that events which are
+     * committed after newer events of the same node are still read. If no events of the node have been read yet,
+     * the window starts with the oldest event of the node in the table.<p>
+     *
+     * @param nodeId the id of the node
+     * @param oldestEventTime the time of the oldest event of the node in the table
+     *
+     * @return the start of the time window, exclusive
+     */
+    protected long getReadStart(String nodeId, long oldestEventTime) {
+
+        Long newestEventTime = m_nodeEventTimes.get(nodeId);
+        if (newestEventTime == null) {
+            return oldestEventTime - 1;
+        }
+        return newestEventTime.longValue() - Math.max(2 * m_pollInterval, 10000);
+    }
+
+    /**
+     * Writes the queued events, reads the events of the other nodes and fires them,
+     * this runs in the background thread.<p>
+     */
+    protected void poll() {
+
+        try {
+            writeEvents();
+            readEvents(true);
+            long now = System.currentTimeMillis();
+            if ((now - m_lastCleanup) > (m_retention / 10)) {
+                m_lastCleanup = now;
+                deleteEvents(now - m_retention);
+            }
+        } catch (Throwable t) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_CLUSTER_EVENTS_POLL_FAILED_1, m_poolName), t);
+        }
+    }
+
+    /**
+     * Reads a resource by its structure id.<p>
+     *
+     * @param id the structure id
+     *
+     * @return the resource, or <code>null</code> if it can not be read
+     */
+    protected CmsResource readResource(String id) {
+
+        try {
+            return m_cms.readResource(new CmsUUID(id), CmsResourceFilter.ALL);
+        } catch (CmsException e) {
+            // the resource may have been deleted in the meantime
+            LOG.debug(e.getLocalizedMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Records that an event of another node has been read.<p>
+     *
+     * @param eventId the id of the event
+     * @param nodeId the id of the node that has written the event
+     * @param eventTime the time the event has been written, by the clock of the node that has written it
+     *
+     * @return <code>true</code> if the event is new, <code>false</code> if it has already been received
+     */
+    protected boolean receiveEvent(String eventId, String nodeId, long eventTime) {
+
+        Map<String, Long> received = m_received.get(nodeId);
+        if (received == null) {
+            received = new HashMap<String, Long>();
+            m_received.put(nodeId, received);
+        }
+        if (received.containsKey(eventId)) {
+            return false;
+        }
+        received.put(eventId, Long.valueOf(eventTime));
+        Long nodeEventTime = m_nodeEventTimes.get(nodeId);
+        if ((nodeEventTime == null) || (nodeEventTime.longValue() < eventTime)) {
+            m_nodeEventTimes.put(nodeId, Long.valueOf(eventTime));
+        }
+        return true;
+    }
+
+    /**
+     * Removes the ids of the received events that are older than the retention time.<p>
+     *
+     * The age of the events of a node is determined by the newest event time read from the same node,
+     * so the clocks of the nodes are never compared.<p>
+     */
+    protected void removeExpiredEvents() {
+
+        for (Map.Entry<String, Map<String, Long>> entry : m_received.entrySet()) {
+            Long newestEventTime = m_nodeEventTimes.get(entry.getKey());
+            if (newestEventTime != null) {
+                long time = newestEventTime.longValue() - m_retention;
+                entry.getValue().values().removeIf(eventTime -> eventTime.longValue() < time);
+            }
+        }
+    }
+
+    /**
+     * Updates the known nodes to the nodes that have events in the table.<p>
+     *
+     * Nodes whose events have all been deleted are removed.<p>
+     *
+     * @param nodeIds the ids of the nodes that have events in the table
+     */
+    protected void updateNodes(Collection<String> nodeIds) {
+
+        m_nodeEventTimes.keySet().retainAll(nodeIds);
+        m_received.keySet().retainAll(nodeIds);
+    }
+
+    /**
+     * Deletes the events of this node that are older than the given time, and the expired ids of the
+     * received events.<p>
+     *
+     * @param time the time, by the clock of this node
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private void deleteEvents(long time) throws SQLException {
+
+        try (Connection conn = OpenCms.getSqlManager().getConnection(m_poolName);
+            PreparedStatement stmt = conn.prepareStatement(m_sqlManager.readQuery(QUERY_DELETE))) {
+            stmt.setString(1, m_nodeId);
+            stmt.setLong(2, time);
+            stmt.executeUpdate();
+        }
+        removeExpiredEvents();
+    }
+
+    /**
+     * Fires an event received from another node.<p>
+     *
+     * Publish events get a database context, which is cleared after the event has been fired.<p>
+     *
+     * @param nodeId the id of the node the event has been received from
+     * @param type the event type
+     * @param encoded the encoded event data
+     */
+    private void fireEvent(String nodeId, int type, String encoded) {
+
+        CmsDbContext dbc = null;
+        try {
+            Map<String, Object> data = decodeData(encoded);
+            if (type == I_CmsEventListener.EVENT_PUBLISH_PROJECT) {
+                dbc = m_dbContextFactory.getDbContext(m_cms.getRequestContext());
+                data.put(I_CmsEventListener.KEY_DBCONTEXT, dbc);
+                data.put(
+                    I_CmsEventListener.KEY_REPORT,
+                    new CmsLogReport(m_cms.getRequestContext().getLocale(), CmsDbClusterEventTransport.class));
+            }
+            m_eventManager.fireClusterEvent(new CmsEvent(type, data), nodeId);
+        } catch (JSONException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+        } finally {
+            if (dbc != null) {
+                dbc.clear();
+            }
+        }
+    }
+
+    /**
+     * Reads the new events of the other nodes.<p>
+     *
+     * @param fire <code>true</code> to fire the new events, <code>false</code> to only mark them as received
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private void readEvents(boolean fire) throws SQLException {
+
+        List<Object[]> events = new ArrayList<Object[]>();
+        try (Connection conn = OpenCms.getSqlManager().getConnection(m_poolName)) {
+            Map<String, Long> oldestEventTimes = new HashMap<String, Long>();
+            try (PreparedStatement stmt = conn.prepareStatement(m_sqlManager.readQuery(QUERY_READ_NODES))) {
+                stmt.setString(1, m_nodeId);
+                try (ResultSet res = stmt.executeQuery()) {
+                    while (res.next()) {
+                        oldestEventTimes.put(res.getString(1), Long.valueOf(res.getLong(2)));
+                    }
+                }
+            }
+            updateNodes(oldestEventTimes.keySet());
+            try (PreparedStatement stmt = conn.prepareStatement(m_sqlManager.readQuery(QUERY_READ))) {
+                for (Map.Entry<String, Long> node : oldestEventTimes.entrySet()) {
+                    String nodeId = node.getKey();
+                    stmt.setString(1, nodeId);
+                    stmt.setLong(2, getReadStart(nodeId, node.getValue().longValue()));
+                    try (ResultSet res = stmt.executeQuery()) {
+                        while (res.next()) {
+                            String id = res.getString(1);
+                            long eventTime = res.getLong(4);
+                            if (receiveEvent(id, nodeId, eventTime) && fire) {
+                                events.add(
+                                    new Object[] {
+                                        nodeId,
+                                        Integer.valueOf(res.getInt(2)),
+                                        res.getString(3),
+                                        Long.valueOf(eventTime)});
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        long receiveTime = System.currentTimeMillis();
+        for (Object[] event : events) {
+            String nodeId = (String)event[0];
+            int type = ((Integer)event[1]).intValue();
+            long eventTime = ((Long)event[3]).longValue();
+            CmsNodeStatistics statistics = m_nodeStatistics.get(nodeId);
+            if (statistics == null) {
+                statistics = new CmsNodeStatistics();
+                m_nodeStatistics.put(nodeId, statistics);
+            }
+            statistics.addEvent(eventTime, receiveTime);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_CLUSTER_EVENT_RECEIVED_3,
+                        Integer.valueOf(type),
+                        nodeId,
+                        Long.valueOf(receiveTime - eventTime)));
+            }
+            fireEvent(nodeId, type, (String)event[2]);
+        }
+    }
+
+    /**
+     * Writes the queued events to the database.<p>
+     */
+    private void writeEvents() {
+
+        if (m_outgoing.isEmpty()) {
+            return;
+        }
+        List<Object[]> events = new ArrayList<Object[]>();
+        Object[] event;
+        while ((event = m_outgoing.poll()) != null) {
+            events.add(event);
+        }
+        try (Connection conn = OpenCms.getSqlManager().getConnection(m_poolName);
+            PreparedStatement stmt = conn.prepareStatement(m_sqlManager.readQuery(QUERY_INSERT))) {
+            for (Object[] e : events) {
+                stmt.setString(1, (String)e[0]);
+                stmt.setString(2, m_nodeId);
+                stmt.setInt(3, ((Integer)e[1]).intValue());
+                stmt.setString(4, (String)e[2]);
+                stmt.setLong(5, ((Long)e[3]).longValue());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_CLUSTER_EVENTS_WRITE_FAILED_2,
+                    Integer.valueOf(events.size()),
+                    m_poolName),
+                e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that owns the database context it has been created with, the context is cleared
+ * when the stream is closed.<p>
+ *
+ * Used for the streams returned by {@link I_CmsVfsDriver#readContentStream}.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsDbContextInputStream extends FilterInputStream {
+
+    /** The database context owned by the stream. */
+    private CmsDbContext m_dbc;
+
+    /**
+     * Creates a new stream owning the given database context.<p>
+     *
+     * @param in the wrapped stream
+     * @param dbc the database context to clear when the stream is closed
+     */
+    public CmsDbContextInputStream(InputStream in, CmsDbContext dbc) {
+
+        super(in);
+        m_dbc = dbc;
+    }
+
+    /**
+     * Closes the wrapped stream and the resources used to read it, and clears the database context.<p>
+     *
+     * @see java.io.FilterInputStream#close()
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (m_dbc == null) {
+            // already closed
+            return;
+        }
+        CmsDbContext dbc = m_dbc;
+        m_dbc = null;
+        try {
+            super.close();
+        } finally {
+            try {
+                closeResources(dbc);
+            } finally {
+                dbc.clear();
+            }
+        }
+    }
+
+    /**
+     * Closes the resources used to read the wrapped stream.<p>
+     *
+     * Called after the wrapped stream has been closed, and before the database context is cleared.<p>
+     *
+     * @param dbc the database context owned by the stream
+     */
+    protected void closeResources(CmsDbContext dbc) {
+
+        // nothing to close by default
+    }
+}
@@ -0,0 +1,625 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.publish.CmsPublishManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Routes read only accesses to the online project from a primary database pool to a set of read replica pools.<p>
+ *
+ * The replicas of a pool are configured in <code>opencms.properties</code>, the replica pools must be declared in
+ * <code>db.pools</code> like any other pool:
+ * <pre>
+ * db.pools=default,replica1,replica2
+ * db.pool.default.replicas=replica1,replica2
+ * db.pool.default.replicas.checkInterval=10000
+ * db.pool.default.replicas.publishDelay=0
+ * </pre>
+ *
+ * Connections are taken from the available replicas in turn. A replica that can not hand out a connection, or that
+ * fails the periodic health check, is skipped until the health check succeeds again.<p>
+ *
+ * While a publish job is running, all reads go to the primary pool. After a publish job, the latest publish tag
+ * is read from the primary pool, and a replica is only used again once it has replicated the publish tag, so that
+ * the caches flushed by the publish job are not filled with stale online data from a replica that lags behind.
+ * The publish tag of a lagging replica is read again at most once per check interval. If the publish tag can not
+ * be read from the primary pool, all reads go to the primary pool until it has been read successfully. The optional
+ * publish delay keeps all reads on the primary pool for some additional time.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsDbReplicaRouter implements I_CmsEventListener {
+
+    /**
+     * Connection statistics of a single pool.<p>
+     */
+    public static class CmsPoolStatistics {
+
+        /** The number of connections handed out. */
+        LongAdder m_connectionCount = new LongAdder();
+
+        /** The number of failed attempts to get a connection. */
+        LongAdder m_failureCount = new LongAdder();
+
+        /** Flag indicating if the pool is available. */
+        volatile boolean m_available = true;
+
+        /** The latest publish tag read from the pool, or -1 if not known. */
+        volatile int m_publishTag = -1;
+
+        /** The time the publish tag has last been read from the pool. */
+        volatile long m_publishTagTime;
+
+        /** The pool URL. */
+        private String m_poolUrl;
+
+        /**
+         * Creates new statistics for the given pool.<p>
+         *
+         * @param poolUrl the pool URL
+         */
+        CmsPoolStatistics(String poolUrl) {
+
+            m_poolUrl = poolUrl;
+        }
+
+        /**
+         * Returns the number of connections handed out by the pool.<p>
+         *
+         * @return the number of connections handed out by the pool
+         */
+        public long getConnectionCount() {
+
+            return m_connectionCount.sum();
+        }
+
+        /**
+         * Returns the number of failed attempts to get a connection from the pool.<p>
+         *
+         * @return the number of failed attempts to get a connection from the pool
+         */
+        public long getFailureCount() {
+
+            return m_failureCount.sum();
+        }
+
+        /**
+         * Returns the pool URL.<p>
+         *
+         * @return the pool URL
+         */
+        public String getPoolUrl() {
+
+            return m_poolUrl;
+        }
+
+        /**
+         * Returns the latest publish tag read from the pool.<p>
+         *
+         * @return the latest publish tag read from the pool, or -1 if not known
+         */
+        public int getPublishTag() {
+
+            return m_publishTag;
+        }
+
+        /**
+         * Returns if the pool is available.<p>
+         *
+         * @return <code>true</code> if the pool is available
+         */
+        public boolean isAvailable() {
+
+            return m_available;
+        }
+
+        /**
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+
+            return m_poolUrl
+                + ": connections="
+                + getConnectionCount()
+                + ", failures="
+                + getFailureCount()
+                + ", available="
+                + m_available
+                + ", publishTag="
+                + m_publishTag;
+        }
+    }
+
+    /** The default interval of the replica health checks in milliseconds. */
+    public static final long DEFAULT_CHECK_INTERVAL = 10000;
+
+    /** The default time in milliseconds after a publish job during which the primary pool is used. */
+    public static final long DEFAULT_PUBLISH_DELAY = 0;
+
+    /** The configuration key suffix for the replica pool names. */
+    public static final String KEY_REPLICAS = "replicas";
+
+    /** The configuration key suffix for the interval of the health checks. */
+    public static final String KEY_REPLICAS_CHECK_INTERVAL = KEY_REPLICAS + ".checkInterval";
+
+    /** The configuration key suffix for the time after a publish job during which the primary pool is used. */
+    public static final String KEY_REPLICAS_PUBLISH_DELAY = KEY_REPLICAS + ".publishDelay";
+
+    /** The timeout for the health check of a replica connection in seconds. */
+    private static final int CHECK_TIMEOUT = 5;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsDbReplicaRouter.class);
+
+    /** Query to read the latest publish tag. */
+    private static final String SQL_READ_PUBLISH_TAG = "SELECT MAX(PUBLISH_TAG) FROM CMS_HISTORY_PROJECTS";
+
+    /** The interval of the health checks in milliseconds. */
+    private long m_checkInterval;
+
+    /** The executor running the health checks. */
+    private ScheduledExecutorService m_executor;
+
+    /** The time the last publish job has finished. */
+    private volatile long m_lastPublish;
+
+    /** The index of the next replica to use. */
+    private AtomicInteger m_nextReplica = new AtomicInteger();
+
+    /** The statistics of the primary pool. */
+    private CmsPoolStatistics m_primary;
+
+    /** The time after a publish job during which the primary pool is used. */
+    private long m_publishDelay;
+
+    /** Flag indicating that the latest publish tag could not be read from the primary pool. */
+    private volatile boolean m_publishTagMissing;
+
+    /** The statistics of the replica pools. */
+    private List<CmsPoolStatistics> m_replicas;
+
+    /**
+     * Creates a new replica router.<p>
+     *
+     * @param primaryPoolUrl the URL of the primary pool
+     * @param replicaPoolUrls the URLs of the replica pools
+     * @param checkInterval the interval of the health checks in milliseconds, or a value &lt;= 0 to disable them
+     * @param publishDelay the time in milliseconds after a publish job during which the primary pool is used
+     */
+    public CmsDbReplicaRouter(
+        String primaryPoolUrl,
+        List<String> replicaPoolUrls,
+        long checkInterval,
+        long publishDelay) {
+
+        m_primary = new CmsPoolStatistics(primaryPoolUrl);
+        m_replicas = new ArrayList<CmsPoolStatistics>();
+        for (String replicaPoolUrl : replicaPoolUrls) {
+            m_replicas.add(new CmsPoolStatistics(replicaPoolUrl));
+        }
+        m_checkInterval = checkInterval;
+        m_publishDelay = publishDelay;
+    }
+
+    /**
+     * Creates the replica router for a pool from the configuration in <code>opencms.properties</code>.<p>
+     *
+     * @param config the configuration
+     * @param poolName the name of the primary pool (without the opencms: prefix)
+     *
+     * @return the replica router, or <code>null</code> if no replicas are configured for the pool
+     */
+    public static CmsDbReplicaRouter create(CmsParameterConfiguration config, String poolName) {
+
+        String prefix = CmsDbPoolV11.KEY_DATABASE_POOL + '.' + poolName + '.';
+        List<String> replicaNames = config.getList(prefix + KEY_REPLICAS, Collections.<String> emptyList());
+        String primaryPoolUrl = CmsDbPoolV11.OPENCMS_URL_PREFIX + poolName;
+        List<String> replicaPoolUrls = new ArrayList<String>();
+        for (String replicaName : replicaNames) {
+            String replicaPoolUrl = CmsDbPoolV11.OPENCMS_URL_PREFIX + replicaName.trim();
+            if (CmsDriverManager.m_pools.containsKey(replicaPoolUrl)) {
+                replicaPoolUrls.add(replicaPoolUrl);
+            } else {
+                LOG.warn(
+                    Messages.get().getBundle().key(Messages.LOG_REPLICA_POOL_MISSING_2, replicaName, primaryPoolUrl));
+            }
+        }
+        if (replicaPoolUrls.isEmpty()) {
+            return null;
+        }
+        long checkInterval = Long.parseLong(
+            config.getString(prefix + KEY_REPLICAS_CHECK_INTERVAL, String.valueOf(DEFAULT_CHECK_INTERVAL)).trim());
+        long publishDelay = Long.parseLong(
+            config.getString(prefix + KEY_REPLICAS_PUBLISH_DELAY, String.valueOf(DEFAULT_PUBLISH_DELAY)).trim());
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(Messages.INIT_REPLICA_POOLS_2, primaryPoolUrl, replicaPoolUrls));
+        }
+        return new CmsDbReplicaRouter(primaryPoolUrl, replicaPoolUrls, checkInterval, publishDelay);
+    }
+
+    /**
+     * Records the end of publish jobs and cache flushes, after which the replicas may be stale.<p>
+     *
+     * After a publish job the latest publish tag is read from the primary pool, the replicas are not used
+     * until they have caught up with it.<p>
+     *
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        switch (event.getType()) {
+            case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
+                m_lastPublish = System.currentTimeMillis();
+                updatePublishTag();
+                break;
+            case I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_CACHES:
+                m_lastPublish = System.currentTimeMillis();
+                break;
+            default:
+                // ignore
+        }
+    }
+
+    /**
+     * Returns a connection for reading the online project.<p>
+     *
+     * The connection is taken from the next available replica pool that has caught up with the latest publish
+     * job, or from the primary pool if there is no such replica, a publish job is running, or the latest publish
+     * tag of the primary pool is not known.<p>
+     *
+     * @return a database connection
+     *
+     * @throws SQLException if no connection could be taken from the primary pool
+     */
+    public Connection getConnection() throws SQLException {
+
+        if (!isPublishing() && isPublishTagKnown()) {
+            int count = m_replicas.size();
+            int start = m_nextReplica.getAndIncrement() & Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                CmsPoolStatistics replica = m_replicas.get((start + i) % count);
+                if (!replica.m_available) {
+                    continue;
+                }
+                try {
+                    Connection con = getReplicaConnection(replica);
+                    if (con != null) {
+                        replica.m_connectionCount.increment();
+                        return con;
+                    }
+                } catch (SQLException e) {
+                    replica.m_failureCount.increment();
+                    setAvailable(replica, false, e);
+                }
+            }
+        }
+        try {
+            Connection con = CmsDriverManager.m_pools.get(m_primary.getPoolUrl()).getConnection();
+            m_primary.m_connectionCount.increment();
+            return con;
+        } catch (SQLException e) {
+            m_primary.m_failureCount.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the URL of the primary pool.<p>
+     *
+     * @return the URL of the primary pool
+     */
+    public String getPoolUrl() {
+
+        return m_primary.getPoolUrl();
+    }
+
+    /**
+     * Returns the connection statistics of the primary pool and the replica pools.<p>
+     *
+     * Only the connections for reading the online project are counted for the primary pool.<p>
+     *
+     * @return the connection statistics, the primary pool comes first
+     */
+    public List<CmsPoolStatistics> getStatistics() {
+
+        List<CmsPoolStatistics> result = new ArrayList<CmsPoolStatistics>();
+        result.add(m_primary);
+        result.addAll(m_replicas);
+        return result;
+    }
+
+    /**
+     * Starts the periodic health checks of the replica pools.<p>
+     */
+    public void initialize() {
+
+        if ((m_checkInterval > 0) && (m_executor == null)) {
+            m_executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "OpenCms: Read replica health check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            m_executor.scheduleWithFixedDelay(
+                this::checkReplicas,
+                m_checkInterval,
+                m_checkInterval,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the health checks.<p>
+     */
+    public void shutDown() {
+
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+            m_executor = null;
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(toString());
+        }
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + getStatistics();
+    }
+
+    /**
+     * Checks if the replica pools can hand out valid connections and updates their availability.<p>
+     *
+     * The publish tags of the replicas that lag behind the primary pool are also updated, as well as the publish tag
+     * of the primary pool if it could not be read after the last publish job.<p>
+     */
+    void checkReplicas() {
+
+        if (m_publishTagMissing) {
+            updatePublishTag();
+        }
+        for (CmsPoolStatistics replica : m_replicas) {
+            CmsDbPoolV11 pool = CmsDriverManager.m_pools.get(replica.getPoolUrl());
+            if (pool == null) {
+                continue;
+            }
+            try (Connection con = pool.getConnection()) {
+                if (con.isValid(CHECK_TIMEOUT)) {
+                    setAvailable(replica, true, null);
+                    isCaughtUp(replica, con);
+                } else {
+                    setAvailable(replica, false, null);
+                }
+            } catch (SQLException e) {
+                setAvailable(replica, false, e);
+            }
+        }
+    }
+
+    /**
+     * Returns a connection of a replica, if the replica has caught up with the latest publish job.<p>
+     *
+     * The publish tag of a replica that lags behind is read again at most once per check interval.<p>
+     *
+     * @param replica the replica
+     *
+     * @return the connection, or <code>null</code> if the replica lags behind
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private Connection getReplicaConnection(CmsPoolStatistics replica) throws SQLException {
+
+        if ((replica.m_publishTag < m_primary.m_publishTag) && !isPublishTagCheckDue(replica)) {
+            // the replica has lagged behind at the last check
+            return null;
+        }
+        Connection con = CmsDriverManager.m_pools.get(replica.getPoolUrl()).getConnection();
+        try {
+            if (isCaughtUp(replica, con)) {
+                return con;
+            }
+        } catch (SQLException e) {
+            con.close();
+            throw e;
+        }
+        con.close();
+        return null;
+    }
+
+    /**
+     * Checks if a replica has caught up with the latest publish job on the primary pool.<p>
+     *
+     * The publish tag of the replica is only read again as long as it lags behind.<p>
+     *
+     * @param replica the replica
+     * @param con a connection of the replica
+     *
+     * @return <code>true</code> if the replica has caught up
+     *
+     * @throws SQLException if the publish tag can not be read
+     */
+    private boolean isCaughtUp(CmsPoolStatistics replica, Connection con) throws SQLException {
+
+        int primaryTag = m_primary.m_publishTag;
+        if (replica.m_publishTag >= primaryTag) {
+            return true;
+        }
+        replica.m_publishTagTime = System.currentTimeMillis();
+        replica.m_publishTag = readPublishTag(con);
+        return replica.m_publishTag >= primaryTag;
+    }
+
+    /**
+     * Checks if a publish job is running or has finished less than the publish delay ago.<p>
+     *
+     * @return <code>true</code> if the replicas may be stale
+     */
+    private boolean isPublishing() {
+
+        if ((System.currentTimeMillis() - m_lastPublish) < m_publishDelay) {
+            return true;
+        }
+        CmsPublishManager publishManager = OpenCms.getPublishManager();
+        return (publishManager != null) && publishManager.isRunning();
+    }
+
+    /**
+     * Checks if the publish tag of a pool has been read longer than the check interval ago.<p>
+     *
+     * If the health checks are disabled, the default check interval is used.<p>
+     *
+     * @param pool the statistics of the pool
+     *
+     * @return <code>true</code> if the publish tag of the pool may be read again
+     */
+    private boolean isPublishTagCheckDue(CmsPoolStatistics pool) {
+
+        long interval = m_checkInterval > 0 ? m_checkInterval : DEFAULT_CHECK_INTERVAL;
+        return (System.currentTimeMillis() - pool.m_publishTagTime) >= interval;
+    }
+
+    /**
+     * Checks if the latest publish tag of the primary pool is known.<p>
+     *
+     * If the publish tag could not be read after the last publish job, it is read again at most once per
+     * check interval.<p>
+     *
+     * @return <code>true</code> if the latest publish tag of the primary pool is known
+     */
+    private boolean isPublishTagKnown() {
+
+        if (!m_publishTagMissing) {
+            return true;
+        }
+        return isPublishTagCheckDue(m_primary) && updatePublishTag();
+    }
+
+    /**
+     * Reads the latest publish tag from a pool.<p>
+     *
+     * @param pool the statistics of the pool
+     *
+     * @return the latest publish tag
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private int readPublishTag(CmsPoolStatistics pool) throws SQLException {
+
+        try (Connection con = CmsDriverManager.m_pools.get(pool.getPoolUrl()).getConnection()) {
+            return readPublishTag(con);
+        }
+    }
+
+    /**
+     * Reads the latest publish tag with the given connection.<p>
+     *
+     * @param con the connection
+     *
+     * @return the latest publish tag, or 0 if nothing has been published yet
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private int readPublishTag(Connection con) throws SQLException {
+
+        try (PreparedStatement stmt = con.prepareStatement(SQL_READ_PUBLISH_TAG); ResultSet res = stmt.executeQuery()) {
+            return res.next() ? res.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Changes the availability of a replica and logs the change.<p>
+     *
+     * @param replica the replica
+     * @param available the new availability
+     * @param cause the cause for the replica to be unavailable, may be <code>null</code>
+     */
+    private void setAvailable(CmsPoolStatistics replica, boolean available, Throwable cause) {
+
+        if (replica.m_available == available) {
+            return;
+        }
+        replica.m_available = available;
+        if (available) {
+            LOG.info(Messages.get().getBundle().key(Messages.LOG_REPLICA_POOL_AVAILABLE_1, replica.getPoolUrl()));
+        } else {
+            LOG.warn(
+                Messages.get().getBundle().key(Messages.LOG_REPLICA_POOL_UNAVAILABLE_1, replica.getPoolUrl()),
+                cause);
+        }
+    }
+
+    /**
+     * Reads the latest publish tag from the primary pool.<p>
+     *
+     * Until the publish tag has been read successfully, all reads go to the primary pool.<p>
+     *
+     * @return <code>true</code> if the publish tag has been read
+     */
+    private boolean updatePublishTag() {
+
+        m_publishTagMissing = true;
+        m_primary.m_publishTagTime = System.currentTimeMillis();
+        try {
+            m_primary.m_publishTag = readPublishTag(m_primary);
+            m_publishTagMissing = false;
+            return true;
+        } catch (SQLException e) {
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_REPLICA_PUBLISH_TAG_FAILED_1, m_primary.getPoolUrl()),
+                e);
+            return false;
+        }
+    }
+}
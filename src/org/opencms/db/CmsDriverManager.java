@@ -120,6 +120,8 @@ import org.opencms.util.PrintfFormat;
 import org.opencms.workflow.CmsDefaultWorkflowManager;
 import org.opencms.workplace.threads.A_CmsProgressThread;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -129,6 +131,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
@@ -323,6 +326,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** Map of pools defined in opencms.properties. */
     protected static ConcurrentMap<String, CmsDbPoolV11> m_pools = Maps.newConcurrentMap();
 
+    /** Map of read replica routers by the URL of their primary pool. */
+    protected static ConcurrentMap<String, CmsDbReplicaRouter> m_replicaRouters = Maps.newConcurrentMap();
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsDriverManager.class);
 
@@ -335,6 +341,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** Constant mode parameter to read all files and folders in the {@link #readChangedResourcesInsideProject(CmsDbContext, CmsUUID, CmsReadChangedProjectResourceMode)}} method. */
     private static final CmsReadChangedProjectResourceMode RCPRM_FOLDERS_ONLY_MODE = new CmsReadChangedProjectResourceMode();
 
+    /** The database context factory. */
+    private I_CmsDbContextFactory m_dbContextFactory;
+
     /** The history driver. */
     private I_CmsHistoryDriver m_historyDriver;
 
@@ -348,7 +357,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
     private CmsLockManager m_lockManager;
 
     /** The log entry cache. */
-    private List<CmsLogEntry> m_log = new ArrayList<CmsLogEntry>();
+    private List<CmsLogEntry> m_log = Collections.synchronizedList(new ArrayList<CmsLogEntry>());
 
     /** Local reference to the memory monitor to avoid multiple lookups through the OpenCms singleton. */
     private CmsMemoryMonitor m_monitor;
@@ -473,6 +482,11 @@ public final class CmsDriverManager implements I_CmsEventListener {
             driverManager.newPoolInstance(config, name);
         }
 
+        // initialize the read replicas of each pool
+        for (String name : driverPoolNames) {
+            driverManager.newReplicaRouter(config, name);
+        }
+
         // initialize the runtime info factory with the generated driver manager
         runtimeInfoFactory.initialize(driverManager);
 
@@ -996,7 +1010,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
                 CmsUUID publishHistoryId = new CmsUUID((String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID));
                 report = (I_CmsReport)event.getData().get(I_CmsEventListener.KEY_REPORT);
                 dbc = (CmsDbContext)event.getData().get(I_CmsEventListener.KEY_DBCONTEXT);
-                m_monitor.clearCache();
+                clearCacheAfterPublish(dbc, publishHistoryId);
                 writeExportPoints(dbc, report, publishHistoryId);
                 break;
 
@@ -2287,7 +2301,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
         } finally {
             // clear the driver manager cache
-            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            uncachePropertyObjects(dbc, resource);
 
             // fire an event that all properties of a resource have been deleted
             OpenCms.fireCmsEvent(
@@ -3207,6 +3221,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
                 m_historyDriver = null;
             }
 
+            for (CmsDbReplicaRouter router : m_replicaRouters.values()) {
+                OpenCms.removeCmsEventListener(router);
+                router.shutDown();
+            }
+            m_replicaRouters.clear();
+
             if (m_pools != null) {
                 for (CmsDbPoolV11 pool : m_pools.values()) {
                     try {
@@ -3834,6 +3854,16 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return m_subscriptionDriver.getDateLastVisitedBy(dbc, poolName, user, resource);
     }
 
+    /**
+     * Returns the factory used to create database contexts.<p>
+     *
+     * @return the database context factory
+     */
+    public I_CmsDbContextFactory getDbContextFactory() {
+
+        return m_dbContextFactory;
+    }
+
     /**
      * Returns all groups of the given organizational unit.<p>
      *
@@ -5152,6 +5182,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
         // store local reference to the memory monitor to avoid multiple lookups through the OpenCms singelton
         m_monitor = OpenCms.getMemoryMonitor();
+        m_dbContextFactory = dbContextFactory;
 
         CmsSystemConfiguration systemConfiguation = (CmsSystemConfiguration)configurationManager.getConfiguration(
             CmsSystemConfiguration.class);
@@ -5607,9 +5638,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // update cache
         m_monitor.cacheUser(newUser);
 
-        // invalidate all user dependent caches
+        // invalidate all user dependent caches, the access control lists only contain principal ids
         m_monitor.flushCache(
-            CmsMemoryMonitor.CacheType.ACL,
             CmsMemoryMonitor.CacheType.GROUP,
             CmsMemoryMonitor.CacheType.ORG_UNIT,
             CmsMemoryMonitor.CacheType.USERGROUPS,
@@ -6033,6 +6063,27 @@ public final class CmsDriverManager implements I_CmsEventListener {
         addPool(pool);
     }
 
+    /**
+     * Creates the read replica router for a pool, if replicas are configured for it.<p>
+     *
+     * @param configuration the configurations from the propertyfile
+     * @param poolName the configuration name of the pool
+     */
+    public void newReplicaRouter(CmsParameterConfiguration configuration, String poolName) {
+
+        CmsDbReplicaRouter router = CmsDbReplicaRouter.create(configuration, poolName);
+        if (router != null) {
+            router.initialize();
+            OpenCms.addCmsEventListener(
+                router,
+                new int[] {
+                    I_CmsEventListener.EVENT_PUBLISH_PROJECT,
+                    I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES,
+                    I_CmsEventListener.EVENT_CLEAR_CACHES});
+            m_replicaRouters.put(router.getPoolUrl(), router);
+        }
+    }
+
     /**
      * Publishes the given publish job.<p>
      *
@@ -6576,6 +6627,41 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return updateContextDates(dbc, resourceList, filter);
     }
 
+    /**
+     * Opens a stream on the binary content of a file resource.<p>
+     *
+     * In contrast to {@link #readFile(CmsDbContext, CmsResource)}, the content of current resources
+     * is not read into memory at once. The caller must always close the returned stream.<p>
+     *
+     * As with {@link I_CmsVfsDriver#readContentStream(CmsDbContext, CmsUUID, CmsUUID)}, the returned stream
+     * owns the database context and clears it when the stream is closed.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the file resource (without content)
+     *
+     * @return a stream on the file content
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public InputStream readContentStream(CmsDbContext dbc, CmsResource resource) throws CmsException {
+
+        if (resource.isFolder()) {
+            throw new CmsVfsResourceNotFoundException(
+                Messages.get().container(
+                    Messages.ERR_ACCESS_FOLDER_AS_FILE_1,
+                    dbc.removeSiteRoot(resource.getRootPath())));
+        }
+        if (resource instanceof I_CmsHistoryResource) {
+            // historical content is not streamed
+            byte[] content = readFile(dbc, resource).getContents();
+            return new CmsDbContextInputStream(new ByteArrayInputStream(content), dbc);
+        }
+        return getVfsDriver(dbc).readContentStream(
+            dbc,
+            dbc.currentProject().getUuid(),
+            resource.getResourceId());
+    }
+
     /**
      * Returns the default file for the given folder.<p>
      *
@@ -7173,7 +7259,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         CmsUUID projectId = getProjectIdForContext(dbc);
 
         // key to cache the resources
-        String cacheKey = getCacheKey(null, false, projectId, cp);
+        CmsTypedCacheKey cacheKey = getCacheKey(CmsTypedCacheKey.TYPE_RESOURCE, projectId, cp);
         // the current resource
         CmsResource currentResource = m_monitor.getCachedResource(cacheKey);
         if ((currentResource == null) || !dbc.getProjectId().isNullUUID()) {
@@ -7200,7 +7286,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             currentPath.append('/');
             // read the folder
             cp = currentPath.toString();
-            cacheKey = getCacheKey(null, false, projectId, cp);
+            cacheKey = getCacheKey(CmsTypedCacheKey.TYPE_RESOURCE, projectId, cp);
             currentResource = m_monitor.getCachedResource(cacheKey);
             if ((currentResource == null) || !dbc.getProjectId().isNullUUID()) {
                 currentResource = getVfsDriver(dbc).readFolder(dbc, projectId, cp);
@@ -7227,7 +7313,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
             // read the file
             cp = currentPath.toString();
-            cacheKey = getCacheKey(null, false, projectId, cp);
+            cacheKey = getCacheKey(CmsTypedCacheKey.TYPE_RESOURCE, projectId, cp);
             currentResource = m_monitor.getCachedResource(cacheKey);
             if ((currentResource == null) || !dbc.getProjectId().isNullUUID()) {
                 currentResource = getVfsDriver(dbc).readResource(dbc, projectId, cp, filter.includeDeleted());
@@ -7385,15 +7471,20 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // NOTE: Do not call readPropertyObject(dbc, resource, key, search, null) for performance reasons
 
-        // use the list reading method to obtain all properties for the resource
-        List<CmsProperty> properties = readPropertyObjects(dbc, resource, search);
+        // use the properties of the resource and, if required, of its parent folders
+        List<List<CmsProperty>> propertyLists = search
+        ? readPropertyObjectsWithParents(dbc, resource)
+        : Collections.singletonList(readPropertyObjects(dbc, resource, false));
 
-        int i = properties.indexOf(new CmsProperty(key, null, null));
-        if (i >= 0) {
-            // property has been found in the map
-            CmsProperty result = properties.get(i);
-            // ensure the result value is not frozen
-            return result.cloneAsProperty();
+        CmsProperty lookup = new CmsProperty(key, null, null);
+        for (List<CmsProperty> properties : propertyLists) {
+            int i = properties.indexOf(lookup);
+            if (i >= 0) {
+                // property has been found in the map
+                CmsProperty result = properties.get(i);
+                // ensure the result value is not frozen
+                return result.cloneAsProperty();
+            }
         }
         return CmsProperty.getNullProperty();
 
@@ -7460,50 +7551,31 @@ public final class CmsDriverManager implements I_CmsEventListener {
     public List<CmsProperty> readPropertyObjects(CmsDbContext dbc, CmsResource resource, boolean search)
     throws CmsException {
 
+        if (search) {
+            // the inherited properties are not cached, they are resolved from the cached properties
+            // of the resource and its parent folders, so changing a folder property does not invalidate
+            // the properties of all resources below the folder
+            Map<String, CmsProperty> properties = new LinkedHashMap<String, CmsProperty>();
+            List<List<CmsProperty>> propertyLists = readPropertyObjectsWithParents(dbc, resource);
+            for (int i = propertyLists.size() - 1; i >= 0; i--) {
+                for (CmsProperty property : propertyLists.get(i)) {
+                    // make sure properties from lower folders "overwrite" properties from upper folders
+                    properties.remove(property.getName());
+                    properties.put(property.getName(), property);
+                }
+            }
+            return new ArrayList<CmsProperty>(properties.values());
+        }
+
         // check if we have the result already cached
         CmsUUID projectId = getProjectIdForContext(dbc);
-        String cacheKey = getCacheKey(CACHE_ALL_PROPERTIES, search, projectId, resource.getRootPath());
+        CmsTypedCacheKey cacheKey = getCacheKey(CmsTypedCacheKey.TYPE_PROPERTY_LIST, projectId, resource.getRootPath());
 
         List<CmsProperty> properties = m_monitor.getCachedPropertyList(cacheKey);
 
         if ((properties == null) || !dbc.getProjectId().isNullUUID()) {
             // result not cached, let's look it up in the DB
-            if (search) {
-                boolean cont;
-                properties = new ArrayList<CmsProperty>();
-                List<CmsProperty> parentProperties = null;
-
-                do {
-                    try {
-                        parentProperties = readPropertyObjects(dbc, resource, false);
-
-                        // make sure properties from lower folders "overwrite" properties from upper folders
-                        parentProperties.removeAll(properties);
-                        parentProperties.addAll(properties);
-
-                        properties.clear();
-                        properties.addAll(parentProperties);
-
-                        cont = resource.getRootPath().length() > 1;
-                    } catch (CmsSecurityException se) {
-                        // a security exception (probably no read permission) we return the current result
-                        cont = false;
-                    }
-                    if (cont) {
-                        // no permission check on parent folder is required since we must have "read"
-                        // permissions to read the child resource anyway
-                        resource = readResource(
-                            dbc,
-                            CmsResource.getParentFolder(resource.getRootPath()),
-                            CmsResourceFilter.ALL);
-                    }
-                } while (cont);
-            } else {
-                properties = getVfsDriver(dbc).readPropertyObjects(dbc, dbc.currentProject(), resource);
-                //                for (CmsProperty prop : properties) {
-                //                    prop.setOrigin(resource.getRootPath());
-                //                }
-            }
+            properties = getVfsDriver(dbc).readPropertyObjects(dbc, dbc.currentProject(), resource);
 
             // set all properties in the result list as frozen
             CmsProperty.setFrozen(properties);
@@ -7516,6 +7588,62 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return new ArrayList<CmsProperty>(properties);
     }
 
+    /**
+     * Reads the property objects mapped to the resources with the given root paths, without inheritance.<p>
+     *
+     * The properties that are not cached are read from the database with a single query, and are cached.
+     * All properties in the result lists will be in frozen (read only) state.<p>
+     *
+     * @param dbc the current database context
+     * @param rootPaths the root paths of the resources
+     *
+     * @return the lists of properties, with the root paths as keys, the list is empty for paths
+     *      without properties or resource
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readPropertyObjects(List)
+     */
+    public Map<String, List<CmsProperty>> readPropertyObjects(CmsDbContext dbc, List<String> rootPaths)
+    throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        boolean useCache = dbc.getProjectId().isNullUUID();
+        Map<String, List<CmsProperty>> result = new HashMap<String, List<CmsProperty>>();
+        List<String> missingPaths = new ArrayList<String>();
+        for (String rootPath : rootPaths) {
+            List<CmsProperty> properties = null;
+            if (useCache) {
+                properties = m_monitor.getCachedPropertyList(
+                    getCacheKey(CmsTypedCacheKey.TYPE_PROPERTY_LIST, projectId, rootPath));
+            }
+            if (properties != null) {
+                result.put(rootPath, Collections.unmodifiableList(properties));
+            } else if (!result.containsKey(rootPath)) {
+                result.put(rootPath, null);
+                missingPaths.add(rootPath);
+            }
+        }
+        if (!missingPaths.isEmpty()) {
+            Map<String, List<CmsProperty>> properties = getVfsDriver(dbc).readPropertyObjects(
+                dbc,
+                dbc.currentProject(),
+                missingPaths);
+            for (String rootPath : missingPaths) {
+                List<CmsProperty> pathProperties = properties.get(rootPath);
+                // set all properties in the result list as frozen
+                CmsProperty.setFrozen(pathProperties);
+                if (useCache) {
+                    m_monitor.cachePropertyList(
+                        getCacheKey(CmsTypedCacheKey.TYPE_PROPERTY_LIST, projectId, rootPath),
+                        pathProperties);
+                }
+                result.put(rootPath, Collections.unmodifiableList(pathProperties));
+            }
+        }
+        return result;
+    }
+
     /**
      * Reads the resources that were published in a publish task for a given publish history ID.<p>
      *
@@ -7646,8 +7774,28 @@ public final class CmsDriverManager implements I_CmsEventListener {
     throws CmsDataAccessException {
 
         CmsUUID projectId = getProjectIdForContext(dbc);
-        // please note: the filter will be applied in the security manager later
-        CmsResource resource = getVfsDriver(dbc).readResource(dbc, projectId, structureID, filter.includeDeleted());
+        CmsTypedCacheKey cacheKey = null;
+        CmsResource resource = null;
+        if (dbc.getProjectId().isNullUUID()) {
+            cacheKey = getCacheKey(CmsTypedCacheKey.TYPE_RESOURCE_ID, projectId, structureID);
+            resource = m_monitor.getCachedResource(cacheKey);
+        }
+        if (resource == null) {
+            // please note: the filter will be applied in the security manager later
+            resource = getVfsDriver(dbc).readResource(dbc, projectId, structureID, filter.includeDeleted());
+            if (cacheKey != null) {
+                // the callers may modify the returned resource, so a copy is cached
+                m_monitor.cacheResource(cacheKey, resource.getCopy());
+            }
+        } else if (resource.getState().isDeleted() && !filter.includeDeleted()) {
+            // the cached resource has been read including deleted resources
+            throw new CmsVfsResourceNotFoundException(
+                org.opencms.db.generic.Messages.get().container(
+                    org.opencms.db.generic.Messages.ERR_READ_DELETED_RESOURCE_1,
+                    dbc.removeSiteRoot(resource.getRootPath())));
+        } else {
+            resource = resource.getCopy();
+        }
 
         // context dates need to be updated
         updateContextDates(dbc, resource);
@@ -7685,6 +7833,76 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return resource;
     }
 
+    /**
+     * Reads the resources with the given structure IDs.<p>
+     *
+     * Resources that are not in the resource cache are read with one query for each chunk of IDs,
+     * and are added to the cache. IDs of resources that do not exist, or that are deleted and not
+     * included by the filter, are skipped.<p>
+     *
+     * @param dbc the current database context
+     * @param structureIds the structure IDs of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given IDs
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     *
+     * @see CmsObject#readResources(Collection, CmsResourceFilter)
+     */
+    public List<CmsResource> readResources(
+        CmsDbContext dbc,
+        Collection<CmsUUID> structureIds,
+        CmsResourceFilter filter)
+    throws CmsDataAccessException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        boolean useCache = dbc.getProjectId().isNullUUID();
+        Map<CmsUUID, CmsResource> resources = new HashMap<CmsUUID, CmsResource>();
+        List<CmsUUID> missingIds = new ArrayList<CmsUUID>();
+        for (CmsUUID structureId : structureIds) {
+            if (resources.containsKey(structureId)) {
+                continue;
+            }
+            CmsResource resource = null;
+            if (useCache) {
+                resource = m_monitor.getCachedResource(
+                    getCacheKey(CmsTypedCacheKey.TYPE_RESOURCE_ID, projectId, structureId));
+                if (resource != null) {
+                    resource = resource.getCopy();
+                }
+            }
+            resources.put(structureId, resource);
+            if (resource == null) {
+                missingIds.add(structureId);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            // read deleted resources as well, so the cached resources can be used with any filter
+            for (CmsResource resource : getVfsDriver(dbc).readResources(dbc, projectId, missingIds, true)) {
+                if (useCache) {
+                    // the callers may modify the returned resources, so copies are cached
+                    m_monitor.cacheResource(
+                        getCacheKey(CmsTypedCacheKey.TYPE_RESOURCE_ID, projectId, resource.getStructureId()),
+                        resource.getCopy());
+                }
+                resources.put(resource.getStructureId(), resource);
+            }
+        }
+        // please note: the filter will be applied in the security manager later
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        for (CmsUUID structureId : structureIds) {
+            CmsResource resource = resources.remove(structureId);
+            if ((resource == null) || (resource.getState().isDeleted() && !filter.includeDeleted())) {
+                continue;
+            }
+            // context dates need to be updated
+            updateContextDates(dbc, resource);
+            result.add(resource);
+        }
+        return result;
+    }
+
     /**
      * Reads all resources below the given path matching the filter criteria,
      * including the full tree below the path only in case the <code>readTree</code>
@@ -8176,7 +8394,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         setDateLastModified(dbc, resource, resource.getDateLastModified());
 
         // clear the cache
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlListCache(resource);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -9406,9 +9624,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // update cache
         m_monitor.cacheUser(user);
 
-        // invalidate all user dependent caches
+        // invalidate all user dependent caches, the access control lists only contain principal ids
         m_monitor.flushCache(
-            CmsMemoryMonitor.CacheType.ACL,
             CmsMemoryMonitor.CacheType.GROUP,
             CmsMemoryMonitor.CacheType.ORG_UNIT,
             CmsMemoryMonitor.CacheType.USERGROUPS,
@@ -9440,8 +9657,11 @@ public final class CmsDriverManager implements I_CmsEventListener {
                 return;
             }
 
-            List<CmsLogEntry> log = new ArrayList<CmsLogEntry>(m_log);
-            m_log.clear();
+            List<CmsLogEntry> log;
+            synchronized (m_log) {
+                log = new ArrayList<CmsLogEntry>(m_log);
+                m_log.clear();
+            }
             String logTableEnabledStr = (String)OpenCms.getRuntimeProperty(PARAM_LOG_TABLE_ENABLED);
             if (Boolean.parseBoolean(logTableEnabledStr)) { // defaults to 'false' if value not set
                 m_projectDriver.log(dbc, log);
@@ -9626,7 +9846,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         setDateLastModified(dbc, resource, resource.getDateLastModified());
 
         // clear the cache
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlListCache(resource);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -10008,7 +10228,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         } finally {
             // update the driver manager cache
             m_monitor.clearResourceCache();
-            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            uncachePropertyObjects(dbc, resource);
 
             // fire an event that a property of a resource has been modified
             Map<String, Object> data = new HashMap<String, Object>();
@@ -10092,7 +10312,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         } finally {
             // update the driver manager cache
             m_monitor.clearResourceCache();
-            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            uncachePropertyObjects(dbc, resource);
 
             // fire an event that the properties of a resource have been modified
             OpenCms.fireCmsEvent(
@@ -10843,6 +11063,64 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return false;
     }
 
+    /**
+     * Clears the cached access control lists after the access control entries of a resource have been changed.<p>
+     *
+     * Only the access control lists of the resource and the resources below it are removed.
+     * If the resource has siblings that share its access control entries, all cached access control lists are removed.<p>
+     *
+     * @param resource the resource whose access control entries have been changed
+     */
+    private void clearAccessControlListCache(CmsResource resource) {
+
+        if (resource.isFile() && (resource.getSiblingCount() > 1)) {
+            m_monitor.clearAccessControlListCache();
+        } else {
+            m_monitor.clearAccessControlListCache(resource.getRootPath());
+        }
+    }
+
+    /**
+     * Clears the caches after a project has been published.<p>
+     *
+     * Since inherited properties are not cached, only the cached properties of the published resources
+     * are removed. If the published resources can not be read, or if a published resource has siblings
+     * that share its properties, all cached properties are removed.<p>
+     *
+     * @param dbc the current database context
+     * @param publishHistoryId the publish history id of the publish job
+     */
+    private void clearCacheAfterPublish(CmsDbContext dbc, CmsUUID publishHistoryId) {
+
+        List<CmsPublishedResource> publishedResources = null;
+        try {
+            publishedResources = readPublishedResources(dbc, publishHistoryId);
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+        }
+        boolean flushProperties = publishedResources == null;
+        if (publishedResources != null) {
+            for (CmsPublishedResource publishedResource : publishedResources) {
+                if (publishedResource.getSiblingCount() > 1) {
+                    flushProperties = true;
+                    break;
+                }
+            }
+        }
+        if (flushProperties) {
+            m_monitor.clearCache();
+            return;
+        }
+        m_monitor.clearCacheExceptPropertyLists();
+        for (CmsPublishedResource publishedResource : publishedResources) {
+            m_monitor.uncachePropertyList(
+                getCacheKey(
+                    CmsTypedCacheKey.TYPE_PROPERTY_LIST,
+                    CmsProject.ONLINE_PROJECT_ID,
+                    publishedResource.getRootPath()));
+        }
+    }
+
     /**
      * Copies all relations from the source resource to the target resource.<p>
      *
@@ -11076,13 +11354,21 @@ public final class CmsDriverManager implements I_CmsEventListener {
         int depth)
     throws CmsException {
 
-        String cacheKey = getCacheKey(
-            new String[] {
-                inheritedOnly ? "+" : "-",
-                forFolder ? "+" : "-",
-                Integer.toString(depth),
-                resource.getStructureId().toString()},
-            dbc);
+        // the access control list of a parent folder is the same for all resources below it,
+        // only the files directly in the folder also get the entries that are not inherited
+        long flags;
+        if (depth == 0) {
+            flags = (inheritedOnly ? 1 : 0) | (forFolder ? 2 : 0);
+        } else {
+            flags = ((depth == 1) && !forFolder) ? 4 : 8;
+        }
+        CmsTypedCacheKey cacheKey = new CmsTypedCacheKey(
+            CmsTypedCacheKey.TYPE_ACL,
+            dbc.currentProject().isOnlineProject(),
+            flags,
+            null,
+            resource.getStructureId(),
+            resource.getRootPath());
 
         CmsAccessControlList acl = m_monitor.getCachedACL(cacheKey);
 
@@ -11156,22 +11442,29 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /**
      * Return a cache key build from the provided information.<p>
      *
-     * @param prefix a prefix for the key
-     * @param flag a boolean flag for the key (only used if prefix is not null)
+     * @param type the type of the key
      * @param projectId the project for which to generate the key
-     * @param resource the resource for which to generate the key
+     * @param rootPath the root path of the resource for which to generate the key
      *
-     * @return String a cache key build from the provided information
+     * @return a cache key build from the provided information
      */
-    private String getCacheKey(String prefix, boolean flag, CmsUUID projectId, String resource) {
+    private CmsTypedCacheKey getCacheKey(String type, CmsUUID projectId, String rootPath) {
 
-        StringBuffer b = new StringBuffer(64);
-        if (prefix != null) {
-            b.append(prefix);
-            b.append(flag ? '+' : '-');
-        }
-        b.append(CmsProject.isOnlineProject(projectId) ? '+' : '-');
-        return b.append(resource).toString();
+        return new CmsTypedCacheKey(type, CmsProject.isOnlineProject(projectId), rootPath);
+    }
+
+    /**
+     * Return a cache key build from the provided information.<p>
+     *
+     * @param type the type of the key
+     * @param projectId the project for which to generate the key
+     * @param structureId the structure id of the resource for which to generate the key
+     *
+     * @return a cache key build from the provided information
+     */
+    private CmsTypedCacheKey getCacheKey(String type, CmsUUID projectId, CmsUUID structureId) {
+
+        return new CmsTypedCacheKey(type, CmsProject.isOnlineProject(projectId), 0, null, structureId, null);
     }
 
     /**
@@ -11530,6 +11823,53 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return result;
     }
 
+    /**
+     * Reads the properties of a resource and of all its parent folders.<p>
+     *
+     * The properties of each resource are cached separately. The properties of the parent folders
+     * that are not cached are read from the database with a single query.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the resource
+     *
+     * @return the lists of frozen properties, starting with the properties of the resource itself,
+     *      followed by the properties of its parent folders up to the root folder
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private List<List<CmsProperty>> readPropertyObjectsWithParents(CmsDbContext dbc, CmsResource resource)
+    throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        boolean useCache = dbc.getProjectId().isNullUUID();
+        CmsTypedCacheKey cacheKey = getCacheKey(CmsTypedCacheKey.TYPE_PROPERTY_LIST, projectId, resource.getRootPath());
+        List<CmsProperty> properties = useCache ? m_monitor.getCachedPropertyList(cacheKey) : null;
+        if (properties == null) {
+            // the resource itself is read by its ids, like without inheritance
+            properties = getVfsDriver(dbc).readPropertyObjects(dbc, dbc.currentProject(), resource);
+            // set all properties in the result list as frozen
+            CmsProperty.setFrozen(properties);
+            if (useCache) {
+                m_monitor.cachePropertyList(cacheKey, properties);
+            }
+        }
+        List<List<CmsProperty>> result = new ArrayList<List<CmsProperty>>();
+        result.add(properties);
+        // no permission check on parent folder is required since we must have "read"
+        // permissions to read the child resource anyway
+        List<String> parentPaths = new ArrayList<String>();
+        String path = CmsResource.getParentFolder(resource.getRootPath());
+        while (path != null) {
+            parentPaths.add(path);
+            path = CmsResource.getParentFolder(path);
+        }
+        Map<String, List<CmsProperty>> parentProperties = readPropertyObjects(dbc, parentPaths);
+        for (String parentPath : parentPaths) {
+            result.add(parentProperties.get(parentPath));
+        }
+        return result;
+    }
+
     /**
      * Sorts the given list of {@link CmsAccessControlEntry} objects.<p>
      *
@@ -11636,6 +11976,26 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Removes the cached properties of a resource after its properties have been changed.<p>
+     *
+     * Since inherited properties are not cached, only the cached properties of the resource itself are removed.
+     * If the resource has siblings that share its properties, all cached properties are removed.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the changed resource, if <code>null</code> all cached properties are removed
+     */
+    private void uncachePropertyObjects(CmsDbContext dbc, CmsResource resource) {
+
+        if ((resource == null) || (resource.getSiblingCount() > 1)) {
+            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            return;
+        }
+        m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY);
+        m_monitor.uncachePropertyList(
+            getCacheKey(CmsTypedCacheKey.TYPE_PROPERTY_LIST, getProjectIdForContext(dbc), resource.getRootPath()));
+    }
+
     /**
      * Undoes all content changes of a resource.<p>
      *
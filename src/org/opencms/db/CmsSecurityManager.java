@@ -93,6 +93,7 @@ import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -4156,6 +4157,39 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Opens a stream on the binary content of a file resource.<p>
+     *
+     * The content is not read into memory at once, so this should be preferred over
+     * {@link #readFile(CmsRequestContext, CmsResource)} for delivering large files.
+     * The caller must always close the returned stream.<p>
+     *
+     * @param context the current request context
+     * @param resource the file resource to read the content for
+     *
+     * @return a stream on the file content
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public InputStream readContentStream(CmsRequestContext context, CmsResource resource) throws CmsException {
+
+        InputStream result = null;
+        boolean streamOwnsContext = false;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            result = m_driverManager.readContentStream(dbc, resource);
+            // the stream owns the context, it is cleared when the stream is closed
+            streamOwnsContext = true;
+        } catch (Exception e) {
+            dbc.report(null, Messages.get().container(Messages.ERR_READ_FILE_1, context.getSitePath(resource)), e);
+        } finally {
+            if (!streamOwnsContext) {
+                dbc.clear();
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the default file for the given folder.<p>
      *
@@ -4920,6 +4954,40 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Reads the property objects mapped to the resources with the given root paths, without inheritance.<p>
+     *
+     * Since the resources are not read, no read permissions are checked, so this requires the
+     * {@link CmsRole#ROOT_ADMIN} role.<p>
+     *
+     * @param context the context of the current request
+     * @param rootPaths the root paths of the resources
+     *
+     * @return the lists of properties, with the root paths as keys
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readPropertyObjects(List)
+     */
+    public Map<String, List<CmsProperty>> readPropertyObjects(CmsRequestContext context, List<String> rootPaths)
+    throws CmsException {
+
+        Map<String, List<CmsProperty>> result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            checkRole(dbc, CmsRole.ROOT_ADMIN);
+            result = m_driverManager.readPropertyObjects(dbc, rootPaths);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_READ_PROPS_FOR_PATHS_1, Integer.valueOf(rootPaths.size())),
+                e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Reads the resources that were published in a publish task for a given publish history ID.<p>
      *
@@ -5117,6 +5185,50 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Reads the resources with the given structure IDs, using the specified resource filter.<p>
+     *
+     * In contrast to reading the resources one by one, resources that do not exist, do not match the filter
+     * or can not be read by the current user are skipped.<p>
+     *
+     * @param context the current request context
+     * @param structureIds the structure IDs of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given IDs
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readResources(Collection, CmsResourceFilter)
+     */
+    public List<CmsResource> readResources(
+        CmsRequestContext context,
+        Collection<CmsUUID> structureIds,
+        CmsResourceFilter filter)
+    throws CmsException {
+
+        List<CmsResource> result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            List<CmsResource> resources = m_driverManager.readResources(dbc, structureIds, filter);
+            result = new ArrayList<CmsResource>(resources.size());
+            for (CmsResource resource : resources) {
+                // only return resources where permission was granted
+                if (hasPermissions(dbc, resource, CmsPermissionSet.ACCESS_READ, true, filter).isAllowed()) {
+                    result.add(resource);
+                }
+            }
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_READ_RESOURCES_FOR_IDS_1, Integer.valueOf(structureIds.size())),
+                e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Returns the resources that were visited by a user set in the filter.<p>
      *
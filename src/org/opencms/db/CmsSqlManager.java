@@ -127,4 +127,15 @@ public class CmsSqlManager {
 
         return m_driverManager.getIdleConnections(dbPoolUrl);
     }
+
+    /**
+     * Returns the read replica router of a pool.<p>
+     *
+     * @param dbPoolUrl the url of a pool
+     * @return the read replica router, or <code>null</code> if no replicas are configured for the pool
+     */
+    public CmsDbReplicaRouter getReplicaRouter(String dbPoolUrl) {
+
+        return CmsDriverManager.m_replicaRouters.get(dbPoolUrl);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.util.CmsUUID;
+
+import java.util.Objects;
+
+/**
+ * Cache key for the resource, property list, access control list and permission caches.<p>
+ *
+ * In contrast to the string keys used by the other caches, a typed key only references the values it is
+ * made of, so creating a key for a cache lookup does not need to build a new string. The hash code is
+ * calculated once when the key is created.<p>
+ *
+ * @since 11.0.0
+ */
+public final class CmsTypedCacheKey {
+
+    /** Key type for access control lists. */
+    public static final String TYPE_ACL = "acl";
+
+    /** Key type for permission keys created from string keys. */
+    public static final String TYPE_PERMISSION = "permission";
+
+    /** Key type for the lists of properties of a resource. */
+    public static final String TYPE_PROPERTY_LIST = "propertyList";
+
+    /** Key type for resources. */
+    public static final String TYPE_RESOURCE = "resource";
+
+    /** Key type for resources by structure id. */
+    public static final String TYPE_RESOURCE_ID = "resourceId";
+
+    /** Additional flags of the key. */
+    private final long m_flags;
+
+    /** The cached hash code. */
+    private final int m_hashCode;
+
+    /** The id of the key, or <code>null</code>. */
+    private final CmsUUID m_id;
+
+    /** The name of the key, like a user name, or <code>null</code>. */
+    private final String m_name;
+
+    /** Flag to indicate if the key is for the online project. */
+    private final boolean m_online;
+
+    /** The root path of the key, or <code>null</code>. */
+    private final String m_path;
+
+    /** The type of the key. */
+    private final String m_type;
+
+    /**
+     * Creates a new cache key.<p>
+     *
+     * @param type the type of the key
+     * @param online <code>true</code> if the key is for the online project
+     * @param flags additional flags of the key
+     * @param name the name of the key, like a user name, or <code>null</code>
+     * @param id the id of the key, or <code>null</code>
+     * @param path the root path of the key, or <code>null</code>
+     */
+    public CmsTypedCacheKey(String type, boolean online, long flags, String name, CmsUUID id, String path) {
+
+        m_type = type;
+        m_online = online;
+        m_flags = flags;
+        m_name = name;
+        m_id = id;
+        m_path = path;
+        int hash = Objects.hashCode(type);
+        hash = (31 * hash) + (online ? 1 : 0);
+        hash = (31 * hash) + Long.hashCode(flags);
+        hash = (31 * hash) + Objects.hashCode(name);
+        hash = (31 * hash) + Objects.hashCode(id);
+        hash = (31 * hash) + Objects.hashCode(path);
+        m_hashCode = hash;
+    }
+
+    /**
+     * Creates a new cache key for a resource path.<p>
+     *
+     * @param type the type of the key
+     * @param online <code>true</code> if the key is for the online project
+     * @param path the root path of the resource
+     */
+    public CmsTypedCacheKey(String type, boolean online, String path) {
+
+        this(type, online, 0, null, null, path);
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof CmsTypedCacheKey)) {
+            return false;
+        }
+        CmsTypedCacheKey other = (CmsTypedCacheKey)obj;
+        return (m_hashCode == other.m_hashCode)
+            && (m_online == other.m_online)
+            && (m_flags == other.m_flags)
+            && Objects.equals(m_type, other.m_type)
+            && Objects.equals(m_id, other.m_id)
+            && Objects.equals(m_path, other.m_path)
+            && Objects.equals(m_name, other.m_name);
+    }
+
+    /**
+     * Returns the additional flags of the key.<p>
+     *
+     * @return the additional flags of the key
+     */
+    public long getFlags() {
+
+        return m_flags;
+    }
+
+    /**
+     * Returns the id of the key.<p>
+     *
+     * @return the id of the key, or <code>null</code>
+     */
+    public CmsUUID getId() {
+
+        return m_id;
+    }
+
+    /**
+     * Returns the name of the key.<p>
+     *
+     * @return the name of the key, or <code>null</code>
+     */
+    public String getName() {
+
+        return m_name;
+    }
+
+    /**
+     * Returns the root path of the key.<p>
+     *
+     * @return the root path of the key, or <code>null</code>
+     */
+    public String getPath() {
+
+        return m_path;
+    }
+
+    /**
+     * Returns the type of the key.<p>
+     *
+     * @return the type of the key
+     */
+    public String getType() {
+
+        return m_type;
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+
+        return m_hashCode;
+    }
+
+    /**
+     * Checks if the key is for the online project.<p>
+     *
+     * @return <code>true</code> if the key is for the online project
+     */
+    public boolean isOnline() {
+
+        return m_online;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer result = new StringBuffer(64);
+        result.append(m_type);
+        result.append('_');
+        result.append(m_flags);
+        result.append(m_online ? '+' : '-');
+        if (m_name != null) {
+            result.append(m_name);
+        }
+        result.append('_');
+        if (m_id != null) {
+            result.append(m_id);
+        }
+        result.append('_');
+        if (m_path != null) {
+            result.append(m_path);
+        }
+        return result.toString();
+    }
+}
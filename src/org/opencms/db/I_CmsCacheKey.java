@@ -31,6 +31,7 @@ import org.opencms.file.CmsGroup;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsUser;
 import org.opencms.security.CmsPermissionSet;
+import org.opencms.util.CmsStringUtil;
 
 /**
  * Describes the cache key generating methods.<p>
@@ -76,4 +77,42 @@ public interface I_CmsCacheKey {
         CmsDbContext context,
         CmsResource resource,
         CmsPermissionSet requiredPermissions);
+
+    /**
+     * Returns the typed cache key for the permission cache.<p>
+     *
+     * The default implementation wraps the key returned by
+     * {@link #getCacheKeyForUserPermissions(String, CmsDbContext, CmsResource, CmsPermissionSet)},
+     * so existing key generators keep working. Key generators should overwrite this method
+     * to avoid building a string for every permission check.<p>
+     *
+     * @param prefix to distinguish keys additionally
+     * @param context the context
+     * @param resource the resource
+     * @param requiredPermissions the permissions to check
+     *
+     * @return a cache key that is unique for the set of parameters,
+     *      or <code>null</code> if the result must not be cached
+     *
+     * @since 11.0.0
+     */
+    default CmsTypedCacheKey getTypedCacheKeyForUserPermissions(
+        String prefix,
+        CmsDbContext context,
+        CmsResource resource,
+        CmsPermissionSet requiredPermissions) {
+
+        String key = getCacheKeyForUserPermissions(prefix, context, resource, requiredPermissions);
+        if (CmsStringUtil.isEmpty(key)) {
+            // an empty key is only returned if the result must not be cached
+            return null;
+        }
+        return new CmsTypedCacheKey(
+            CmsTypedCacheKey.TYPE_PERMISSION,
+            context.currentProject().isOnlineProject(),
+            0,
+            key,
+            null,
+            null);
+    }
 }
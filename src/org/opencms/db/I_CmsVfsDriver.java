@@ -41,6 +41,7 @@ import org.opencms.relations.CmsRelationFilter;
 import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.util.CmsUUID;
 
+import java.io.InputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
@@ -184,6 +185,18 @@ public interface I_CmsVfsDriver {
      */
     void createRelation(CmsDbContext dbc, CmsUUID projectId, CmsRelation relation) throws CmsDataAccessException;
 
+    /**
+     * Creates the given {@link CmsRelation} objects in the database, using JDBC batches where possible.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project to execute the query in
+     * @param relations the relations to create
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    void createRelations(CmsDbContext dbc, CmsUUID projectId, List<CmsRelation> relations)
+    throws CmsDataAccessException;
+
     /**
      * Creates a new resource from a given {@link CmsResource} object.<p>
      *
@@ -464,6 +477,27 @@ public interface I_CmsVfsDriver {
      */
     byte[] readContent(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId) throws CmsDataAccessException;
 
+    /**
+     * Opens a stream on the content of a file specified by it's resource ID.<p>
+     *
+     * In contrast to {@link #readContent(CmsDbContext, CmsUUID, CmsUUID)}, the content is not read into memory
+     * at once (as far as the JDBC driver supports this). The database resources used to read the content
+     * are held until the stream is closed, so the caller must always close the returned stream.<p>
+     *
+     * The returned stream owns the database context, the context is cleared when the stream is closed
+     * (see {@link CmsDbContextInputStream}). If an exception is thrown, the context is left to the caller.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the ID of the current project
+     * @param resourceId the id of the resource
+     *
+     * @return a stream on the file content
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    InputStream readContentStream(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId)
+    throws CmsDataAccessException;
+
     /**
      * Reads a folder specified by it's structure ID.<p>
      *
@@ -570,6 +604,23 @@ public interface I_CmsVfsDriver {
     List<CmsProperty> readPropertyObjects(CmsDbContext dbc, CmsProject project, CmsResource resource)
     throws CmsDataAccessException;
 
+    /**
+     * Reads all property objects of the resources with the given root paths from the database with a single query.<p>
+     *
+     * This is intended for a small number of resources, like the parent folders of a resource.<p>
+     *
+     * @param dbc the current database context
+     * @param project the current project
+     * @param rootPaths the root paths of the resources where the properties are attached to
+     *
+     * @return a map from the root paths to the lists with the CmsProperty objects of the resources,
+     *      the map contains an (empty) list for each of the given root paths
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    Map<String, List<CmsProperty>> readPropertyObjects(CmsDbContext dbc, CmsProject project, List<String> rootPaths)
+    throws CmsDataAccessException;
+
     /**
      * Reads all relations with the given filter for the given resource.<p>
      *
@@ -613,6 +664,27 @@ public interface I_CmsVfsDriver {
     CmsResource readResource(CmsDbContext dbc, CmsUUID projectId, String filename, boolean includeDeleted)
     throws CmsDataAccessException;
 
+    /**
+     * Reads the resources with the given structure IDs.<p>
+     *
+     * Structure IDs that do not exist are ignored, as well as deleted resources if <code>includeDeleted</code> is
+     * <code>false</code>. The resources are read with one query for each chunk of IDs.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the Id of the project
+     * @param structureIds the structure IDs of the resources
+     * @param includeDeleted true if already deleted files are included
+     *
+     * @return the resources that were read, in no particular order
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    List<CmsResource> readResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        Collection<CmsUUID> structureIds,
+        boolean includeDeleted)
+    throws CmsDataAccessException;
+
     /**
      * Reads all resources inside a given project and with a given state.<p>
      *
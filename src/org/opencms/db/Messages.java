@@ -126,6 +126,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CLOSE_VFS_DRIVER_0 = "ERR_CLOSE_VFS_DRIVER_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_CLUSTER_EVENTS_TABLE_1 = "ERR_CLUSTER_EVENTS_TABLE_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CONFIG_SUBSCRIPTIONMANAGER_FROZEN_0 = "ERR_CONFIG_SUBSCRIPTIONMANAGER_FROZEN_0";
 
@@ -516,6 +519,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_PROPDEF_1 = "ERR_READ_PROPDEF_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READ_PROPS_FOR_PATHS_1 = "ERR_READ_PROPS_FOR_PATHS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_PROPS_FOR_RESOURCE_1 = "ERR_READ_PROPS_FOR_RESOURCE_1";
 
@@ -534,6 +540,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_RESOURCES_1 = "ERR_READ_RESOURCES_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READ_RESOURCES_FOR_IDS_1 = "ERR_READ_RESOURCES_FOR_IDS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_RESOURCES_FOR_PRINCIPAL_LOG_1 = "ERR_READ_RESOURCES_FOR_PRINCIPAL_LOG_1";
 
@@ -840,6 +849,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JDBC_POOL_2 = "INIT_JDBC_POOL_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_REPLICA_POOLS_2 = "INIT_REPLICA_POOLS_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_SECURITY_MANAGER_INIT_0 = "INIT_SECURITY_MANAGER_INIT_0";
 
@@ -855,6 +867,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CLOSE_CONN_POOL_ERROR_1 = "LOG_CLOSE_CONN_POOL_ERROR_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_EVENT_RECEIVED_3 = "LOG_CLUSTER_EVENT_RECEIVED_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_EVENTS_POLL_FAILED_1 = "LOG_CLUSTER_EVENTS_POLL_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CLUSTER_EVENTS_WRITE_FAILED_2 = "LOG_CLUSTER_EVENTS_WRITE_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CMS_EVENT_1 = "LOG_CMS_EVENT_1";
 
@@ -876,6 +897,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_GET_TIMESTAMP_2 = "LOG_GET_TIMESTAMP_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_REPLICA_POOL_AVAILABLE_1 = "LOG_REPLICA_POOL_AVAILABLE_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_REPLICA_POOL_MISSING_2 = "LOG_REPLICA_POOL_MISSING_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_REPLICA_POOL_UNAVAILABLE_1 = "LOG_REPLICA_POOL_UNAVAILABLE_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_REPLICA_PUBLISH_TAG_FAILED_1 = "LOG_REPLICA_PUBLISH_TAG_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_NO_EXPORT_POINTS_CONFIGURED_0 = "LOG_NO_EXPORT_POINTS_CONFIGURED_0";
 
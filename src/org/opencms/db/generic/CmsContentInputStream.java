@@ -0,0 +1,102 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db.generic;
+
+import org.opencms.db.CmsDbContext;
+import org.opencms.db.CmsDbContextInputStream;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Input stream for the content of a file, read directly from the database.<p>
+ *
+ * The JDBC connection, statement and result set used to read the content stay open
+ * until the stream is closed, so callers must always close the stream.<p>
+ *
+ * The stream owns the database context it has been created with, the context is cleared
+ * when the stream is closed.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsContentInputStream extends CmsDbContextInputStream {
+
+    /** The JDBC connection. */
+    private Connection m_conn;
+
+    /** The result set. */
+    private ResultSet m_res;
+
+    /** The SQL manager used to close the JDBC resources. */
+    private CmsSqlManager m_sqlManager;
+
+    /** The statement. */
+    private Statement m_stmt;
+
+    /**
+     * Creates a new content input stream.<p>
+     *
+     * @param in the stream of the content column
+     * @param sqlManager the SQL manager used to close the JDBC resources
+     * @param dbc the current database context
+     * @param conn the JDBC connection
+     * @param stmt the statement
+     * @param res the result set
+     */
+    protected CmsContentInputStream(
+        InputStream in,
+        CmsSqlManager sqlManager,
+        CmsDbContext dbc,
+        Connection conn,
+        Statement stmt,
+        ResultSet res) {
+
+        super(in, dbc);
+        m_sqlManager = sqlManager;
+        m_conn = conn;
+        m_stmt = stmt;
+        m_res = res;
+    }
+
+    /**
+     * Closes the JDBC resources used to read the content.<p>
+     *
+     * @see org.opencms.db.CmsDbContextInputStream#closeResources(org.opencms.db.CmsDbContext)
+     */
+    @Override
+    protected void closeResources(CmsDbContext dbc) {
+
+        m_sqlManager.closeAll(dbc, m_conn, m_stmt, m_res);
+        m_sqlManager = null;
+        m_conn = null;
+        m_stmt = null;
+        m_res = null;
+    }
+}
@@ -1369,6 +1369,9 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
 
         try {
             conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_PROPERTIES_HISTORY_CREATE");
+            int batchSize = m_sqlManager.getBatchSize();
+            int count = 0;
             for (Map.Entry<CmsProperty, CmsPropertyDefinition> entry : propDefs.entrySet()) {
 
                 for (int i = 0; i < 2; i++) {
@@ -1393,8 +1396,6 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
                         }
                     }
 
-                    stmt = m_sqlManager.getPreparedStatement(conn, "C_PROPERTIES_HISTORY_CREATE");
-
                     stmt.setString(1, resource.getStructureId().toString());
                     stmt.setString(2, entry.getValue().getId().toString());
                     stmt.setString(3, id.toString());
@@ -1402,10 +1403,16 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
                     stmt.setString(5, m_sqlManager.validateEmpty(value));
                     stmt.setInt(6, publishTag);
 
-                    stmt.executeUpdate();
-                    m_sqlManager.closeAll(dbc, null, stmt, null);
+                    stmt.addBatch();
+                    count++;
+                    if ((count % batchSize) == 0) {
+                        stmt.executeBatch();
+                    }
                 }
             }
+            if ((count % batchSize) != 0) {
+                stmt.executeBatch();
+            }
         } catch (SQLException e) {
             throw new CmsDbSqlException(
                 Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
@@ -0,0 +1,355 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db.generic;
+
+import org.opencms.db.CmsDbContext;
+import org.opencms.db.CmsDriverManager;
+import org.opencms.db.I_CmsDbContextFactory;
+import org.opencms.file.CmsRequestContext;
+import org.opencms.file.CmsResource;
+import org.opencms.i18n.CmsMessageContainer;
+import org.opencms.main.CmsException;
+import org.opencms.report.CmsBufferedReport;
+import org.opencms.report.I_CmsReport;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Publishes lists of resources with several worker threads.<p>
+ *
+ * The resources of a list are split into groups. All resources of a group are published by the same worker,
+ * in the order of the list, so resources that depend on each other (like siblings, or a deleted and a new file
+ * with the same path) must be put into the same group. Each resource has one or more group keys, resources
+ * sharing a key, directly or through other resources, end up in the same group.
+ * Every worker uses its own database context created by the database context factory, with its own copy
+ * of the request context, and thus its own database connections. The report output
+ * for a resource is written to the publish report in one piece.<p>
+ *
+ * If a resource can not be published, the workers stop publishing further resources, and the error is
+ * reported once the running workers have finished, just like in a sequential publish.<p>
+ *
+ * With only one thread, the resources are published sequentially in the calling thread.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsParallelPublisher {
+
+    /**
+     * Publishes a single resource.<p>
+     */
+    public interface I_CmsPublishAction {
+
+        /**
+         * Publishes the given resource.<p>
+         *
+         * @param dbc the database context to use
+         * @param report the report to write to
+         * @param resource the resource to publish
+         *
+         * @throws CmsException if something goes wrong
+         */
+        void publish(CmsDbContext dbc, I_CmsReport report, CmsResource resource) throws CmsException;
+    }
+
+    /** The counter for the names of the worker threads. */
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /** The database context of the publish thread. */
+    private CmsDbContext m_dbc;
+
+    /** The factory for the database contexts of the workers. */
+    private I_CmsDbContextFactory m_dbContextFactory;
+
+    /** The executor for the workers, <code>null</code> if publishing sequentially. */
+    private ExecutorService m_executor;
+
+    /** The message for the first error that occurred. */
+    private CmsMessageContainer m_failedMessage;
+
+    /** The first error that occurred. */
+    private Throwable m_failure;
+
+    /** The publish report. */
+    private I_CmsReport m_report;
+
+    /**
+     * Creates a new parallel publisher.<p>
+     *
+     * @param dbc the database context of the publish thread
+     * @param dbContextFactory the factory for the database contexts of the workers
+     * @param report the publish report
+     * @param threads the number of worker threads
+     */
+    public CmsParallelPublisher(
+        CmsDbContext dbc,
+        I_CmsDbContextFactory dbContextFactory,
+        I_CmsReport report,
+        int threads) {
+
+        m_dbc = dbc;
+        m_dbContextFactory = dbContextFactory;
+        m_report = report;
+        if (threads > 1) {
+            m_executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "OpenCms-Publish-" + THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Checks if the resources are published by several worker threads.<p>
+     *
+     * @return <code>true</code> if the resources are published by several worker threads
+     */
+    public boolean isParallel() {
+
+        return m_executor != null;
+    }
+
+    /**
+     * Publishes the given resources and waits until all of them have been published.<p>
+     *
+     * @param resources the resources to publish
+     * @param groupKeys returns the group keys of a resource, resources sharing a key are published one after
+     *      another
+     * @param errorKey the key of the message to report if a resource can not be published, with the root path as argument
+     * @param action the action that publishes a single resource
+     *
+     * @throws CmsException if a resource could not be published
+     */
+    public void publish(
+        List<CmsResource> resources,
+        Function<CmsResource, Collection<?>> groupKeys,
+        String errorKey,
+        I_CmsPublishAction action)
+    throws CmsException {
+
+        if (!isParallel()) {
+            for (CmsResource resource : resources) {
+                try {
+                    action.publish(m_dbc, m_report, resource);
+                } catch (Throwable t) {
+                    m_dbc.report(m_report, Messages.get().container(errorKey, resource.getRootPath()), t);
+                }
+            }
+            return;
+        }
+
+        // merge the resources sharing a key with a union-find over the indexes of the resources
+        int[] parents = new int[resources.size()];
+        Map<Object, Integer> firstIndexes = new HashMap<Object, Integer>();
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+            for (Object key : groupKeys.apply(resources.get(i))) {
+                Integer first = firstIndexes.putIfAbsent(key, Integer.valueOf(i));
+                if (first != null) {
+                    union(parents, first.intValue(), i);
+                }
+            }
+        }
+        Map<Integer, List<CmsResource>> groups = new LinkedHashMap<Integer, List<CmsResource>>();
+        for (int i = 0; i < parents.length; i++) {
+            Integer root = Integer.valueOf(find(parents, i));
+            List<CmsResource> group = groups.get(root);
+            if (group == null) {
+                group = new ArrayList<CmsResource>();
+                groups.put(root, group);
+            }
+            group.add(resources.get(i));
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>(groups.size());
+        for (List<CmsResource> group : groups.values()) {
+            futures.add(m_executor.submit(() -> publishGroup(group, errorKey, action)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                setFailure(Messages.get().container(Messages.ERR_PUBLISH_WORKER_0), e);
+                break;
+            } catch (ExecutionException e) {
+                setFailure(Messages.get().container(Messages.ERR_PUBLISH_WORKER_0), e.getCause());
+            }
+        }
+        if (isFailed()) {
+            m_dbc.report(m_report, m_failedMessage, m_failure);
+        }
+    }
+
+    /**
+     * Stops the worker threads.<p>
+     */
+    public void shutDown() {
+
+        if (m_executor != null) {
+            m_executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the database context for a worker.<p>
+     *
+     * The request context is not thread safe, so every worker uses its own copy of it.<p>
+     *
+     * @return the database context for a worker
+     */
+    protected CmsDbContext createDbContext() {
+
+        CmsRequestContext context = m_dbc.getRequestContext();
+        CmsDbContext dbc;
+        if (context == null) {
+            dbc = m_dbContextFactory.getDbContext();
+        } else {
+            dbc = m_dbContextFactory.getDbContext(
+                new CmsRequestContext(
+                    context.getCurrentUser(),
+                    context.getCurrentProject(),
+                    context.getUri(),
+                    context.getRequestMatcher(),
+                    context.getSiteRoot(),
+                    context.isSecureRequest(),
+                    context.getLocale(),
+                    context.getEncoding(),
+                    context.getRemoteAddress(),
+                    context.getRequestTime(),
+                    context.getDirectoryTranslator(),
+                    context.getFileTranslator(),
+                    context.getOuFqn()));
+        }
+        dbc.setProjectId(m_dbc.getProjectId());
+        Object changedAndDeleted = m_dbc.getAttribute(CmsDriverManager.KEY_CHANGED_AND_DELETED);
+        if (changedAndDeleted != null) {
+            dbc.setAttribute(CmsDriverManager.KEY_CHANGED_AND_DELETED, changedAndDeleted);
+        }
+        return dbc;
+    }
+
+    /**
+     * Publishes a group of resources, this runs in a worker thread.<p>
+     *
+     * @param group the resources to publish
+     * @param errorKey the key of the message to report if a resource can not be published
+     * @param action the action that publishes a single resource
+     */
+    protected void publishGroup(List<CmsResource> group, String errorKey, I_CmsPublishAction action) {
+
+        CmsDbContext dbc = createDbContext();
+        try {
+            for (CmsResource resource : group) {
+                if (isFailed()) {
+                    return;
+                }
+                CmsBufferedReport report = new CmsBufferedReport(m_report);
+                try {
+                    action.publish(dbc, report, resource);
+                } catch (Throwable t) {
+                    setFailure(Messages.get().container(errorKey, resource.getRootPath()), t);
+                } finally {
+                    report.flush();
+                }
+            }
+        } finally {
+            dbc.clear();
+        }
+    }
+
+    /**
+     * Returns the root of the group of a resource.<p>
+     *
+     * @param parents the parent indexes of the union-find
+     * @param index the index of the resource
+     *
+     * @return the index of the root of the group
+     */
+    private static int find(int[] parents, int index) {
+
+        int i = index;
+        while (parents[i] != i) {
+            // path halving
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    /**
+     * Checks if publishing a resource has failed.<p>
+     *
+     * @return <code>true</code> if publishing a resource has failed
+     */
+    private synchronized boolean isFailed() {
+
+        return m_failure != null;
+    }
+
+    /**
+     * Remembers the first error that occurred.<p>
+     *
+     * @param message the message to report
+     * @param t the error
+     */
+    private synchronized void setFailure(CmsMessageContainer message, Throwable t) {
+
+        if (m_failure == null) {
+            m_failedMessage = message;
+            m_failure = t;
+        }
+    }
+
+    /**
+     * Merges the groups of two resources, the smaller index becomes the root.<p>
+     *
+     * @param parents the parent indexes of the union-find
+     * @param first the index of the first resource
+     * @param second the index of the second resource
+     */
+    private static void union(int[] parents, int first, int second) {
+
+        int firstRoot = find(parents, first);
+        int secondRoot = find(parents, second);
+        if (firstRoot < secondRoot) {
+            parents[secondRoot] = firstRoot;
+        } else if (secondRoot < firstRoot) {
+            parents[firstRoot] = secondRoot;
+        }
+    }
+}
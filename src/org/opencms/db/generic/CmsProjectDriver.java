@@ -43,7 +43,6 @@ import org.opencms.db.CmsPublishedResource;
 import org.opencms.db.CmsResourceState;
 import org.opencms.db.CmsVisitEntryFilter;
 import org.opencms.db.I_CmsDriver;
-import org.opencms.db.I_CmsHistoryDriver;
 import org.opencms.db.I_CmsPreparedStatementParameter;
 import org.opencms.db.I_CmsProjectDriver;
 import org.opencms.db.I_CmsVfsDriver;
@@ -92,6 +91,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -100,6 +100,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 
@@ -196,6 +199,9 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
     /** The driver manager. */
     protected CmsDriverManager m_driverManager;
 
+    /** The publish history entries of running publish jobs which have not been written yet, by publish id. */
+    protected Map<CmsUUID, List<CmsPublishedResource>> m_publishHistoryBatches = new ConcurrentHashMap<CmsUUID, List<CmsPublishedResource>>();
+
     /** The SQL manager. */
     protected CmsSqlManager m_sqlManager;
 
@@ -1651,12 +1657,19 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         int publishTag)
     throws CmsException {
 
-        int publishedFolderCount = 0;
-        int deletedFolderCount = 0;
-        int publishedFileCount = 0;
-        Set<CmsUUID> publishedContentIds = new HashSet<CmsUUID>();
-        Set<CmsUUID> publishedIds = new HashSet<CmsUUID>();
+        AtomicInteger publishedFolderCount = new AtomicInteger();
+        AtomicInteger deletedFolderCount = new AtomicInteger();
+        AtomicInteger publishedFileCount = new AtomicInteger();
+        Set<CmsUUID> publishedContentIds = Collections.synchronizedSet(new HashSet<CmsUUID>());
+        Set<CmsUUID> publishedIds = Collections.synchronizedSet(new HashSet<CmsUUID>());
+        CmsParallelPublisher publisher = new CmsParallelPublisher(
+            dbc,
+            m_driverManager.getDbContextFactory(),
+            report,
+            OpenCms.getPublishManager().getPublishThreads());
 
+        // the publish history is written with JDBC batches while the publish job is running
+        m_publishHistoryBatches.put(publishList.getPublishHistoryId(), new ArrayList<CmsPublishedResource>());
         try {
 
             ////////////////////////////////////////////////////////////////////////////////////////
@@ -1688,7 +1701,6 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                         dbc.currentUser().getName()));
             }
 
-            publishedFolderCount = 0;
             int foldersSize = publishList.getFolderList().size();
             if (foldersSize > 0) {
                 report.println(
@@ -1696,82 +1708,22 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                     I_CmsReport.FORMAT_HEADLINE);
             }
 
-            Iterator<CmsResource> itFolders = publishList.getFolderList().iterator();
-            I_CmsProjectDriver projectDriver = m_driverManager.getProjectDriver(dbc);
-            I_CmsHistoryDriver historyDriver = m_driverManager.getHistoryDriver(dbc);
-            while (itFolders.hasNext()) {
-                CmsResource currentFolder = itFolders.next();
-                try {
-                    if (currentFolder.getState().isNew() || currentFolder.getState().isChanged()) {
-                        // bounce the current publish task through all project drivers
-                        projectDriver.publishFolder(
-                            dbc,
-                            report,
-                            ++publishedFolderCount,
-                            foldersSize,
-                            onlineProject,
-                            new CmsFolder(currentFolder),
-                            publishList.getPublishHistoryId(),
-                            publishTag);
-
-                        dbc.pop();
-
-                        publishedIds.add(currentFolder.getStructureId());
-                        // log it
-                        CmsLogEntryType type = currentFolder.getState().isNew()
-                        ? CmsLogEntryType.RESOURCE_PUBLISHED_NEW
-                        : CmsLogEntryType.RESOURCE_PUBLISHED_MODIFIED;
-                        m_driverManager.log(
-                            dbc,
-                            new CmsLogEntry(
-                                dbc,
-                                currentFolder.getStructureId(),
-                                type,
-                                new String[] {currentFolder.getRootPath()}),
-                            true);
-
-                        // delete old historical entries
-                        historyDriver.deleteEntries(
-                            dbc,
-                            new CmsHistoryFile(currentFolder),
-                            OpenCms.getSystemInfo().getHistoryVersions(),
-                            -1);
-
-                        // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0
-                        internalResetResourceState(dbc, currentFolder);
-
-                        m_driverManager.unlockResource(dbc, currentFolder, true, true);
-                    } else {
-                        // state == unchanged !!?? something went really wrong
-                        report.print(Messages.get().container(Messages.RPT_PUBLISH_FOLDER_0), I_CmsReport.FORMAT_NOTE);
-                        report.print(
-                            org.opencms.report.Messages.get().container(
-                                org.opencms.report.Messages.RPT_ARGUMENT_1,
-                                dbc.removeSiteRoot(currentFolder.getRootPath())));
-                        report.print(
-                            org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
-                        report.println(
-                            org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
-                            I_CmsReport.FORMAT_ERROR);
-
-                        if (LOG.isErrorEnabled()) {
-                            // the whole resource is printed out here
-                            LOG.error(
-                                Messages.get().getBundle().key(
-                                    Messages.LOG_PUBLISHING_FILE_3,
-                                    String.valueOf(++publishedFolderCount),
-                                    String.valueOf(foldersSize),
-                                    currentFolder));
-                        }
-                    }
-
-                    dbc.pop();
-                } catch (Throwable t) {
-                    dbc.report(
-                        report,
-                        Messages.get().container(Messages.ERR_ERROR_PUBLISHING_FOLDER_1, currentFolder.getRootPath()),
-                        t);
-                }
+            // parent folders must be published before their sub folders
+            for (List<CmsResource> folders : getPublishLevels(publisher, publishList.getFolderList(), false)) {
+                publisher.publish(
+                    folders,
+                    folder -> Collections.singletonList(folder.getStructureId()),
+                    Messages.ERR_ERROR_PUBLISHING_FOLDER_1,
+                    (workerDbc, workerReport, currentFolder) -> internalPublishFolder(
+                        workerDbc,
+                        workerReport,
+                        publishedFolderCount.incrementAndGet(),
+                        foldersSize,
+                        onlineProject,
+                        currentFolder,
+                        publishList,
+                        publishTag,
+                        publishedIds));
             }
 
             if (foldersSize > 0) {
@@ -1779,11 +1731,12 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                     Messages.get().container(Messages.RPT_PUBLISH_FOLDERS_END_0),
                     I_CmsReport.FORMAT_HEADLINE);
             }
+            // write the publish history of each phase, so it is complete for the finished phases
+            internalFlushPublishHistory(dbc, publishList.getPublishHistoryId());
 
             ///////////////////////////////////////////////////////////////////////////////////////
             // publish changed/new/deleted files
 
-            publishedFileCount = 0;
             int filesSize = publishList.getFileList().size();
 
             if (filesSize > 0) {
@@ -1804,58 +1757,28 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             Set<CmsUUID> changedAndDeletedResourceIds = Sets.intersection(deletedResourceIds, changedResourceIds);
             dbc.setAttribute(CmsDriverManager.KEY_CHANGED_AND_DELETED, changedAndDeletedResourceIds);
 
-            Iterator<CmsResource> itFiles = publishList.getFileList().iterator();
-            while (itFiles.hasNext()) {
-                CmsResource currentResource = itFiles.next();
-                try {
-                    // bounce the current publish task through all project drivers
-                    projectDriver.publishFile(
-                        dbc,
-                        report,
-                        ++publishedFileCount,
-                        filesSize,
-                        onlineProject,
-                        currentResource,
-                        publishedContentIds,
-                        publishList.getPublishHistoryId(),
-                        publishTag);
-
-                    CmsResourceState state = currentResource.getState();
-                    if (!state.isDeleted()) {
-                        // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0
-                        internalResetResourceState(dbc, currentResource);
-                    }
-
-                    // unlock it
-                    m_driverManager.unlockResource(dbc, currentResource, true, true);
-                    // log it
-                    CmsLogEntryType type = state.isNew()
-                    ? CmsLogEntryType.RESOURCE_PUBLISHED_NEW
-                    : (state.isDeleted()
-                    ? CmsLogEntryType.RESOURCE_PUBLISHED_DELETED
-                    : CmsLogEntryType.RESOURCE_PUBLISHED_MODIFIED);
-                    m_driverManager.log(
-                        dbc,
-                        new CmsLogEntry(
-                            dbc,
-                            currentResource.getStructureId(),
-                            type,
-                            new String[] {currentResource.getRootPath()}),
-                        true);
-
-                    publishedIds.add(currentResource.getStructureId());
-                    dbc.pop();
-                } catch (Throwable t) {
-                    dbc.report(
-                        report,
-                        Messages.get().container(Messages.ERR_ERROR_PUBLISHING_FILE_1, currentResource.getRootPath()),
-                        t);
-                }
-            }
+            // siblings share their content, and a deleted and a new file may have the same path,
+            // so they are published one after another
+            publisher.publish(
+                publishList.getFileList(),
+                file -> Arrays.asList(file.getResourceId(), file.getRootPath()),
+                Messages.ERR_ERROR_PUBLISHING_FILE_1,
+                (workerDbc, workerReport, currentResource) -> internalPublishFile(
+                    workerDbc,
+                    workerReport,
+                    publishedFileCount.incrementAndGet(),
+                    filesSize,
+                    onlineProject,
+                    currentResource,
+                    publishList,
+                    publishTag,
+                    publishedContentIds,
+                    publishedIds));
 
             if (filesSize > 0) {
                 report.println(Messages.get().container(Messages.RPT_PUBLISH_FILES_END_0), I_CmsReport.FORMAT_HEADLINE);
             }
+            internalFlushPublishHistory(dbc, publishList.getPublishHistoryId());
 
             ////////////////////////////////////////////////////////////////////////////////////////
 
@@ -1865,7 +1788,6 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                 return;
             }
 
-            deletedFolderCount = 0;
             int deletedFoldersSize = deletedFolders.size();
             if (deletedFoldersSize > 0) {
                 report.println(
@@ -1873,52 +1795,22 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                     I_CmsReport.FORMAT_HEADLINE);
             }
 
-            Iterator<CmsResource> itDeletedFolders = deletedFolders.iterator();
-            while (itDeletedFolders.hasNext()) {
-                CmsResource currentFolder = itDeletedFolders.next();
-
-                try {
-                    // bounce the current publish task through all project drivers
-                    projectDriver.publishDeletedFolder(
-                        dbc,
-                        report,
-                        ++deletedFolderCount,
+            // sub folders must be deleted before their parent folders
+            for (List<CmsResource> folders : getPublishLevels(publisher, deletedFolders, true)) {
+                publisher.publish(
+                    folders,
+                    folder -> Collections.singletonList(folder.getStructureId()),
+                    Messages.ERR_ERROR_PUBLISHING_DELETED_FOLDER_1,
+                    (workerDbc, workerReport, currentFolder) -> internalPublishDeletedFolder(
+                        workerDbc,
+                        workerReport,
+                        deletedFolderCount.incrementAndGet(),
                         deletedFoldersSize,
                         onlineProject,
-                        new CmsFolder(currentFolder),
-                        publishList.getPublishHistoryId(),
-                        publishTag);
-
-                    dbc.pop();
-                    // delete old historical entries
-                    m_driverManager.getHistoryDriver(dbc).deleteEntries(
-                        dbc,
-                        new CmsHistoryFile(currentFolder),
-                        OpenCms.getSystemInfo().getHistoryVersionsAfterDeletion(),
-                        -1);
-
-                    publishedIds.add(currentFolder.getStructureId());
-                    // unlock it
-                    m_driverManager.unlockResource(dbc, currentFolder, true, true);
-                    // log it
-                    m_driverManager.log(
-                        dbc,
-                        new CmsLogEntry(
-                            dbc,
-                            currentFolder.getStructureId(),
-                            CmsLogEntryType.RESOURCE_PUBLISHED_DELETED,
-                            new String[] {currentFolder.getRootPath()}),
-                        true);
-
-                    dbc.pop();
-                } catch (Throwable t) {
-                    dbc.report(
-                        report,
-                        Messages.get().container(
-                            Messages.ERR_ERROR_PUBLISHING_DELETED_FOLDER_1,
-                            currentFolder.getRootPath()),
-                        t);
-                }
+                        currentFolder,
+                        publishList,
+                        publishTag,
+                        publishedIds));
             }
 
             if (deletedFoldersSize > 0) {
@@ -1926,6 +1818,7 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                     Messages.get().container(Messages.RPT_DELETE_FOLDERS_END_0),
                     I_CmsReport.FORMAT_HEADLINE);
             }
+            internalFlushPublishHistory(dbc, publishList.getPublishHistoryId());
         } catch (OutOfMemoryError o) {
             // clear all caches to reclaim memory
             OpenCms.fireCmsEvent(
@@ -1937,12 +1830,20 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             }
             throw new CmsDataAccessException(message, o);
         } finally {
+            publisher.shutDown();
+            try {
+                // if publishing failed, write the history of the resources that have been published
+                internalFlushPublishHistory(dbc, publishList.getPublishHistoryId());
+            } catch (CmsDataAccessException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+            m_publishHistoryBatches.remove(publishList.getPublishHistoryId());
             // reset vfs driver internal info after publishing
             m_driverManager.getVfsDriver(dbc).publishVersions(dbc, null, false);
             Object[] msgArgs = new Object[] {
-                String.valueOf(publishedFileCount),
-                String.valueOf(publishedFolderCount),
-                String.valueOf(deletedFolderCount),
+                String.valueOf(publishedFileCount.get()),
+                String.valueOf(publishedFolderCount.get()),
+                String.valueOf(deletedFolderCount.get()),
                 report.formatRuntime()};
 
             CmsMessageContainer message = Messages.get().container(Messages.RPT_PUBLISH_STAT_4, msgArgs);
@@ -2779,27 +2680,22 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
     public void writePublishHistory(CmsDbContext dbc, CmsUUID publishId, CmsPublishedResource resource)
     throws CmsDataAccessException {
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-
-        try {
-            conn = m_sqlManager.getConnection(dbc);
-            stmt = m_sqlManager.getPreparedStatement(conn, "C_RESOURCES_WRITE_PUBLISH_HISTORY");
-            stmt.setInt(1, resource.getPublishTag());
-            stmt.setString(2, resource.getStructureId().toString());
-            stmt.setString(3, resource.getResourceId().toString());
-            stmt.setString(4, resource.getRootPath());
-            stmt.setInt(5, resource.getMovedState().getState());
-            stmt.setInt(6, resource.getType());
-            stmt.setString(7, publishId.toString());
-            stmt.setInt(8, resource.getSiblingCount());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            throw new CmsDbSqlException(
-                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
-                e);
-        } finally {
-            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        List<CmsPublishedResource> batch = m_publishHistoryBatches.get(publishId);
+        if (batch == null) {
+            internalWritePublishHistory(dbc, publishId, Collections.singletonList(resource));
+            return;
+        }
+        // the publish job is running, so the entry is written together with the next batch
+        List<CmsPublishedResource> resources = null;
+        synchronized (batch) {
+            batch.add(resource);
+            if (batch.size() >= m_sqlManager.getBatchSize()) {
+                resources = new ArrayList<CmsPublishedResource>(batch);
+                batch.clear();
+            }
+        }
+        if (resources != null) {
+            internalWritePublishHistory(dbc, publishId, resources);
         }
     }
 
@@ -3066,6 +2962,41 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         return conditions.toString();
     }
 
+    /**
+     * Splits the given folders of a publish list by their path level.<p>
+     *
+     * The folders of the same level do not depend on each other, so they can be published in parallel.
+     * If the publisher is not parallel, the folders are returned unchanged as a single level.<p>
+     *
+     * @param publisher the publisher
+     * @param folders the folders to split
+     * @param deepestFirst if <code>true</code>, the deepest level is returned first, otherwise the top level
+     *
+     * @return the folders, split by their path level
+     */
+    protected List<List<CmsResource>> getPublishLevels(
+        CmsParallelPublisher publisher,
+        List<CmsResource> folders,
+        boolean deepestFirst) {
+
+        if (!publisher.isParallel()) {
+            return Collections.singletonList(folders);
+        }
+        Map<Integer, List<CmsResource>> levels = deepestFirst
+        ? new TreeMap<Integer, List<CmsResource>>(Collections.reverseOrder())
+        : new TreeMap<Integer, List<CmsResource>>();
+        for (CmsResource folder : folders) {
+            Integer level = new Integer(CmsResource.getPathLevel(folder.getRootPath()));
+            List<CmsResource> levelFolders = levels.get(level);
+            if (levelFolders == null) {
+                levelFolders = new ArrayList<CmsResource>();
+                levels.put(level, levelFolders);
+            }
+            levelFolders.add(folder);
+        }
+        return new ArrayList<List<CmsResource>>(levels.values());
+    }
+
     /**
      * Implementation of reading the user publish list which uses the log table.<p>
      *
@@ -3152,6 +3083,244 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         return (CmsPublishList)oin.readObject();
     }
 
+    /**
+     * Writes the publish history entries of a running publish job that have not been written yet.<p>
+     *
+     * @param dbc the current database context
+     * @param publishId the publish history id
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected void internalFlushPublishHistory(CmsDbContext dbc, CmsUUID publishId) throws CmsDataAccessException {
+
+        List<CmsPublishedResource> batch = m_publishHistoryBatches.get(publishId);
+        if (batch == null) {
+            return;
+        }
+        List<CmsPublishedResource> resources;
+        synchronized (batch) {
+            resources = new ArrayList<CmsPublishedResource>(batch);
+            batch.clear();
+        }
+        if (!resources.isEmpty()) {
+            internalWritePublishHistory(dbc, publishId, resources);
+        }
+    }
+
+    /**
+     * Publishes a deleted folder of a publish list, and removes its lock and old historical entries.<p>
+     *
+     * @param dbc the current database context
+     * @param report the report to write to
+     * @param m the number of the folder
+     * @param n the number of deleted folders in the publish list
+     * @param onlineProject the online project
+     * @param currentFolder the folder to publish
+     * @param publishList the publish list
+     * @param publishTag the publish tag
+     * @param publishedIds the structure ids of the published resources
+     *
+     * @throws CmsException if something goes wrong
+     */
+    protected void internalPublishDeletedFolder(
+        CmsDbContext dbc,
+        I_CmsReport report,
+        int m,
+        int n,
+        CmsProject onlineProject,
+        CmsResource currentFolder,
+        CmsPublishList publishList,
+        int publishTag,
+        Set<CmsUUID> publishedIds)
+    throws CmsException {
+
+        // bounce the current publish task through all project drivers
+        m_driverManager.getProjectDriver(dbc).publishDeletedFolder(
+            dbc,
+            report,
+            m,
+            n,
+            onlineProject,
+            new CmsFolder(currentFolder),
+            publishList.getPublishHistoryId(),
+            publishTag);
+
+        dbc.pop();
+        // delete old historical entries
+        m_driverManager.getHistoryDriver(dbc).deleteEntries(
+            dbc,
+            new CmsHistoryFile(currentFolder),
+            OpenCms.getSystemInfo().getHistoryVersionsAfterDeletion(),
+            -1);
+
+        publishedIds.add(currentFolder.getStructureId());
+        // unlock it
+        m_driverManager.unlockResource(dbc, currentFolder, true, true);
+        // log it
+        m_driverManager.log(
+            dbc,
+            new CmsLogEntry(
+                dbc,
+                currentFolder.getStructureId(),
+                CmsLogEntryType.RESOURCE_PUBLISHED_DELETED,
+                new String[] {currentFolder.getRootPath()}),
+            true);
+
+        dbc.pop();
+    }
+
+    /**
+     * Publishes a file of a publish list, and resets its state and lock.<p>
+     *
+     * @param dbc the current database context
+     * @param report the report to write to
+     * @param m the number of the file
+     * @param n the number of files in the publish list
+     * @param onlineProject the online project
+     * @param currentResource the file to publish
+     * @param publishList the publish list
+     * @param publishTag the publish tag
+     * @param publishedContentIds the resource ids of the files whose content has already been published
+     * @param publishedIds the structure ids of the published resources
+     *
+     * @throws CmsException if something goes wrong
+     */
+    protected void internalPublishFile(
+        CmsDbContext dbc,
+        I_CmsReport report,
+        int m,
+        int n,
+        CmsProject onlineProject,
+        CmsResource currentResource,
+        CmsPublishList publishList,
+        int publishTag,
+        Set<CmsUUID> publishedContentIds,
+        Set<CmsUUID> publishedIds)
+    throws CmsException {
+
+        // bounce the current publish task through all project drivers
+        m_driverManager.getProjectDriver(dbc).publishFile(
+            dbc,
+            report,
+            m,
+            n,
+            onlineProject,
+            currentResource,
+            publishedContentIds,
+            publishList.getPublishHistoryId(),
+            publishTag);
+
+        CmsResourceState state = currentResource.getState();
+        if (!state.isDeleted()) {
+            // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0
+            internalResetResourceState(dbc, currentResource);
+        }
+
+        // unlock it
+        m_driverManager.unlockResource(dbc, currentResource, true, true);
+        // log it
+        CmsLogEntryType type = state.isNew()
+        ? CmsLogEntryType.RESOURCE_PUBLISHED_NEW
+        : (state.isDeleted()
+        ? CmsLogEntryType.RESOURCE_PUBLISHED_DELETED
+        : CmsLogEntryType.RESOURCE_PUBLISHED_MODIFIED);
+        m_driverManager.log(
+            dbc,
+            new CmsLogEntry(dbc, currentResource.getStructureId(), type, new String[] {currentResource.getRootPath()}),
+            true);
+
+        publishedIds.add(currentResource.getStructureId());
+        dbc.pop();
+    }
+
+    /**
+     * Publishes a new or changed folder of a publish list, and resets its state and lock.<p>
+     *
+     * @param dbc the current database context
+     * @param report the report to write to
+     * @param m the number of the folder
+     * @param n the number of new or changed folders in the publish list
+     * @param onlineProject the online project
+     * @param currentFolder the folder to publish
+     * @param publishList the publish list
+     * @param publishTag the publish tag
+     * @param publishedIds the structure ids of the published resources
+     *
+     * @throws CmsException if something goes wrong
+     */
+    protected void internalPublishFolder(
+        CmsDbContext dbc,
+        I_CmsReport report,
+        int m,
+        int n,
+        CmsProject onlineProject,
+        CmsResource currentFolder,
+        CmsPublishList publishList,
+        int publishTag,
+        Set<CmsUUID> publishedIds)
+    throws CmsException {
+
+        if (currentFolder.getState().isNew() || currentFolder.getState().isChanged()) {
+            // bounce the current publish task through all project drivers
+            m_driverManager.getProjectDriver(dbc).publishFolder(
+                dbc,
+                report,
+                m,
+                n,
+                onlineProject,
+                new CmsFolder(currentFolder),
+                publishList.getPublishHistoryId(),
+                publishTag);
+
+            dbc.pop();
+
+            publishedIds.add(currentFolder.getStructureId());
+            // log it
+            CmsLogEntryType type = currentFolder.getState().isNew()
+            ? CmsLogEntryType.RESOURCE_PUBLISHED_NEW
+            : CmsLogEntryType.RESOURCE_PUBLISHED_MODIFIED;
+            m_driverManager.log(
+                dbc,
+                new CmsLogEntry(dbc, currentFolder.getStructureId(), type, new String[] {currentFolder.getRootPath()}),
+                true);
+
+            // delete old historical entries
+            m_driverManager.getHistoryDriver(dbc).deleteEntries(
+                dbc,
+                new CmsHistoryFile(currentFolder),
+                OpenCms.getSystemInfo().getHistoryVersions(),
+                -1);
+
+            // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0
+            internalResetResourceState(dbc, currentFolder);
+
+            m_driverManager.unlockResource(dbc, currentFolder, true, true);
+        } else {
+            // state == unchanged !!?? something went really wrong
+            report.print(Messages.get().container(Messages.RPT_PUBLISH_FOLDER_0), I_CmsReport.FORMAT_NOTE);
+            report.print(
+                org.opencms.report.Messages.get().container(
+                    org.opencms.report.Messages.RPT_ARGUMENT_1,
+                    dbc.removeSiteRoot(currentFolder.getRootPath())));
+            report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
+            report.println(
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
+                I_CmsReport.FORMAT_ERROR);
+
+            if (LOG.isErrorEnabled()) {
+                // the whole resource is printed out here
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_PUBLISHING_FILE_3,
+                        String.valueOf(m),
+                        String.valueOf(n),
+                        currentFolder));
+            }
+        }
+
+        dbc.pop();
+    }
+
     /**
      * Creates a new {@link CmsLogEntry} object from the given result set entry.<p>
      *
@@ -3266,6 +3435,56 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * Writes the given entries to the publish history with JDBC batches.<p>
+     *
+     * @param dbc the current database context
+     * @param publishId the publish history id
+     * @param resources the published resources
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected void internalWritePublishHistory(
+        CmsDbContext dbc,
+        CmsUUID publishId,
+        List<CmsPublishedResource> resources)
+    throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_RESOURCES_WRITE_PUBLISH_HISTORY");
+            int batchSize = m_sqlManager.getBatchSize();
+            int count = 0;
+            for (CmsPublishedResource resource : resources) {
+                stmt.setInt(1, resource.getPublishTag());
+                stmt.setString(2, resource.getStructureId().toString());
+                stmt.setString(3, resource.getResourceId().toString());
+                stmt.setString(4, resource.getRootPath());
+                stmt.setInt(5, resource.getMovedState().getState());
+                stmt.setInt(6, resource.getType());
+                stmt.setString(7, publishId.toString());
+                stmt.setInt(8, resource.getSiblingCount());
+                stmt.addBatch();
+                count++;
+                if ((count % batchSize) == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            if ((count % batchSize) != 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
     /**
      * Build the whole WHERE SQL statement part for the given log entry filter.<p>
      *
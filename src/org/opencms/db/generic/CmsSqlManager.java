@@ -28,14 +28,17 @@
 package org.opencms.db.generic;
 
 import org.opencms.db.CmsDbContext;
+import org.opencms.db.CmsDbReplicaRouter;
 import org.opencms.file.CmsProject;
 import org.opencms.main.CmsLog;
 import org.opencms.main.CmsRuntimeException;
+import org.opencms.main.OpenCms;
 import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -56,6 +59,12 @@ import org.apache.commons.logging.Log;
  */
 public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
 
+    /** The default number of rows written with one JDBC batch. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /** The runtime property for the number of rows written with one JDBC batch. */
+    public static final String PARAM_BATCH_SIZE = "db.batch.size";
+
     /** A pattern being replaced in SQL queries to generate SQL queries to access online/offline tables. */
     protected static final String QUERY_PROJECT_SEARCH_PATTERN = "_${PROJECT}_";
 
@@ -65,6 +74,9 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
     /** The filename/path of the SQL query properties. */
     private static final String QUERY_PROPERTIES = "org/opencms/db/generic/query.properties";
 
+    /** The number of rows written with one JDBC batch. */
+    protected int m_batchSize = DEFAULT_BATCH_SIZE;
+
     /** A map to cache queries with replaced search patterns. */
     protected ConcurrentHashMap<String, String> m_cachedQueries;
 
@@ -185,6 +197,19 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
 
     }
 
+    /**
+     * Returns the number of rows that are written with one JDBC batch.<p>
+     *
+     * The batch size is read from the runtime property {@link #PARAM_BATCH_SIZE} when the SQL manager
+     * is initialized.<p>
+     *
+     * @return the number of rows written with one JDBC batch
+     */
+    public int getBatchSize() {
+
+        return m_batchSize;
+    }
+
     /**
      * Retrieves the value of the designated column in the current row of this ResultSet object as
      * a byte array in the Java programming language.<p>
@@ -204,6 +229,26 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
         return res.getBytes(attributeName);
     }
 
+    /**
+     * Retrieves the value of the designated column in the current row of this ResultSet object as
+     * a stream of bytes.<p>
+     *
+     * Whether the value is really streamed from the database or read into memory first depends on the
+     * JDBC driver. Overwrite this method if another database server requires a different handling of byte
+     * attributes in tables.<p>
+     *
+     * @param res the result set
+     * @param attributeName the name of the table attribute
+     *
+     * @return the column value as stream; if the value is SQL NULL, the value returned is null
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public InputStream getBinaryStream(ResultSet res, String attributeName) throws SQLException {
+
+        return res.getBinaryStream(attributeName);
+    }
+
     /**
      * Returns a JDBC connection from the connection pool.<p>
      *
@@ -290,6 +335,30 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
         return con.prepareStatement(query);
     }
 
+    /**
+     * Returns a JDBC connection for read only access to the tables of the given project.<p>
+     *
+     * Reads of the online project are routed to the read replicas of the pool, if replicas are configured.
+     * Never use this connection for writing.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project to read
+     *
+     * @return a JDBC connection
+     *
+     * @throws SQLException if no connection could be obtained
+     */
+    public Connection getReadConnection(CmsDbContext dbc, CmsUUID projectId) throws SQLException {
+
+        if (CmsProject.ONLINE_PROJECT_ID.equals(projectId)) {
+            CmsDbReplicaRouter router = getReplicaRouter(m_poolUrl);
+            if (router != null) {
+                return router.getConnection();
+            }
+        }
+        return getConnection(dbc);
+    }
+
     /**
      * Initializes this SQL manager.<p>
      *
@@ -301,6 +370,14 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
         m_driverType = driverType;
         m_poolUrl = poolUrl;
 
+        Object batchSize = OpenCms.getRuntimeProperty(PARAM_BATCH_SIZE);
+        if (batchSize != null) {
+            try {
+                m_batchSize = Math.max(1, Integer.parseInt(batchSize.toString().trim()));
+            } catch (NumberFormatException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+        }
     }
 
     /**
@@ -80,6 +80,7 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -103,6 +104,9 @@ import org.apache.commons.logging.Log;
  */
 public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
+    /** The maximum number of IDs read with one query, some databases limit the size of an IN list. */
+    protected static final int MAX_IDS_PER_QUERY = 500;
+
     /** Contains the macro replacement value for the offline project. */
     protected static final String OFFLINE = "OFFLINE";
 
@@ -118,9 +122,11 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     /**
      * This field is temporarily used to compute the versions during publishing.<p>
      *
+     * It is synchronized because resources may be published by several threads.<p>
+     *
      * @see #publishVersions(CmsDbContext, CmsResource, boolean)
      */
-    protected List<CmsUUID> m_resOp = new ArrayList<CmsUUID>();
+    protected List<CmsUUID> m_resOp = Collections.synchronizedList(new ArrayList<CmsUUID>());
 
     /** The sql manager. */
     protected CmsSqlManager m_sqlManager;
@@ -625,6 +631,65 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#createRelations(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.List)
+     */
+    public void createRelations(CmsDbContext dbc, CmsUUID projectId, List<CmsRelation> relations)
+    throws CmsDataAccessException {
+
+        List<CmsRelation> batchRelations = new ArrayList<CmsRelation>(relations.size());
+        for (CmsRelation relation : relations) {
+            if (relation.getType().getId() == CmsRelationType.LOCALE_VARIANT.getId()) {
+                // locale variant relations need to be normalized after they have been created
+                createRelation(dbc, projectId, relation);
+            } else {
+                batchRelations.add(relation);
+            }
+        }
+        if (batchRelations.isEmpty()) {
+            return;
+        }
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_CREATE_RELATION");
+            int batchSize = m_sqlManager.getBatchSize();
+            int count = 0;
+            for (CmsRelation relation : batchRelations) {
+                stmt.setString(1, relation.getSourceId().toString());
+                stmt.setString(2, relation.getSourcePath());
+                stmt.setString(3, relation.getTargetId().toString());
+                stmt.setString(4, relation.getTargetPath());
+                stmt.setInt(5, relation.getType().getId());
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_CREATE_RELATION_2,
+                            String.valueOf(projectId),
+                            relation));
+                }
+                stmt.addBatch();
+                count++;
+                if ((count % batchSize) == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            if ((count % batchSize) != 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#createResource(org.opencms.db.CmsDbContext, CmsUUID, org.opencms.file.CmsResource, byte[])
      */
@@ -1823,7 +1888,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         PreparedStatement stmt = null;
         ResultSet res = null;
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatementForSql(conn, query.toString());
             stmt.setString(1, resource.getStructureId().toString());
             res = stmt.executeQuery();
@@ -1892,6 +1957,55 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return byteRes;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readContentStream(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, org.opencms.util.CmsUUID)
+     */
+    public InputStream readContentStream(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId)
+    throws CmsDataAccessException {
+
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        Connection conn = null;
+        boolean success = false;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            if (projectId.equals(CmsProject.ONLINE_PROJECT_ID)) {
+                stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_ONLINE_FILES_CONTENT");
+            } else {
+                stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_OFFLINE_FILES_CONTENT");
+            }
+            stmt.setString(1, resourceId.toString());
+            res = stmt.executeQuery();
+
+            if (!res.next()) {
+                throw new CmsVfsResourceNotFoundException(
+                    Messages.get().container(
+                        Messages.ERR_READ_CONTENT_WITH_RESOURCE_ID_2,
+                        resourceId,
+                        Boolean.valueOf(projectId.equals(CmsProject.ONLINE_PROJECT_ID))));
+            }
+            InputStream content = m_sqlManager.getBinaryStream(
+                res,
+                m_sqlManager.readQuery("C_RESOURCES_FILE_CONTENT"));
+            if (content == null) {
+                content = new ByteArrayInputStream(new byte[0]);
+            }
+            // the JDBC resources are closed together with the stream
+            InputStream result = new CmsContentInputStream(content, m_sqlManager, dbc, conn, stmt, res);
+            success = true;
+            return result;
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            if (!success) {
+                m_sqlManager.closeAll(dbc, conn, stmt, res);
+            }
+        }
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readFolder(org.opencms.db.CmsDbContext, CmsUUID, org.opencms.util.CmsUUID)
      */
@@ -2167,7 +2281,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         CmsProperty property;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_READALL");
             stmt.setString(1, resource.getStructureId().toString());
             stmt.setString(2, resource.getResourceId().toString());
@@ -2217,6 +2331,92 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return new ArrayList<CmsProperty>(propertyMap.values());
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readPropertyObjects(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, java.util.List)
+     */
+    public Map<String, List<CmsProperty>> readPropertyObjects(
+        CmsDbContext dbc,
+        CmsProject project,
+        List<String> rootPaths)
+    throws CmsDataAccessException {
+
+        Map<String, Map<String, CmsProperty>> propertyMaps = new HashMap<String, Map<String, CmsProperty>>();
+        for (String rootPath : rootPaths) {
+            propertyMaps.put(rootPath, new HashMap<String, CmsProperty>());
+        }
+        Map<String, List<CmsProperty>> result = new HashMap<String, List<CmsProperty>>();
+        if (propertyMaps.isEmpty()) {
+            return result;
+        }
+        CmsUUID projectId = ((dbc.getProjectId() == null) || dbc.getProjectId().isNullUUID())
+        ? project.getUuid()
+        : dbc.getProjectId();
+
+        ResultSet res = null;
+        PreparedStatement stmt = null;
+        Connection conn = null;
+        try {
+            StringBuffer queryBuf = new StringBuffer(256);
+            queryBuf.append(m_sqlManager.readQuery(projectId, "C_PROPERTIES_READALL_PATHS"));
+            queryBuf.append(BEGIN_CONDITION);
+            for (int i = 0; i < propertyMaps.size(); i++) {
+                if (i > 0) {
+                    queryBuf.append(", ");
+                }
+                queryBuf.append("?");
+            }
+            queryBuf.append(END_CONDITION);
+
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
+            stmt = m_sqlManager.getPreparedStatementForSql(conn, queryBuf.toString());
+            stmt.setInt(1, CmsProperty.STRUCTURE_RECORD_MAPPING);
+            stmt.setInt(2, CmsProperty.RESOURCE_RECORD_MAPPING);
+            int i = 3;
+            for (String rootPath : propertyMaps.keySet()) {
+                stmt.setString(i++, rootPath);
+            }
+            res = stmt.executeQuery();
+
+            while (res.next()) {
+                String rootPath = res.getString(1);
+                String propertyKey = res.getString(2);
+                String propertyValue = res.getString(3);
+                int mappingType = res.getInt(4);
+
+                Map<String, CmsProperty> propertyMap = propertyMaps.get(rootPath);
+                if (propertyMap == null) {
+                    continue;
+                }
+                CmsProperty property = propertyMap.get(propertyKey);
+                if (property == null) {
+                    // there doesn't exist a property object for this key yet
+                    property = new CmsProperty();
+                    property.setName(propertyKey);
+                    property.setOrigin(rootPath);
+                    propertyMap.put(propertyKey, property);
+                }
+                if (mappingType == CmsProperty.STRUCTURE_RECORD_MAPPING) {
+                    // this property value is mapped to a structure record
+                    property.setStructureValue(propertyValue);
+                } else {
+                    // this property value is mapped to a resource record
+                    property.setResourceValue(propertyValue);
+                }
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+
+        for (Map.Entry<String, Map<String, CmsProperty>> entry : propertyMaps.entrySet()) {
+            result.put(entry.getKey(), new ArrayList<CmsProperty>(entry.getValue().values()));
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readRelations(org.opencms.db.CmsDbContext, CmsUUID, CmsResource, org.opencms.relations.CmsRelationFilter)
      */
@@ -2234,7 +2434,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         ResultSet res = null;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             if (filter.isSource()) {
                 List<Object> params = new ArrayList<Object>(7);
 
@@ -2309,7 +2509,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         Connection conn = null;
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_RESOURCES_READBYID");
 
             stmt.setString(1, structureId.toString());
@@ -2360,7 +2560,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         boolean endsWithSlash = (len != path.length());
 
         try {
-            conn = m_sqlManager.getConnection(dbc);
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
             stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_RESOURCES_READ");
 
             stmt.setString(1, path);
@@ -2401,6 +2601,66 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return resource;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readResources(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.Collection, boolean)
+     */
+    public List<CmsResource> readResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        Collection<CmsUUID> structureIds,
+        boolean includeDeleted)
+    throws CmsDataAccessException {
+
+        List<CmsResource> result = new ArrayList<CmsResource>(structureIds.size());
+        List<CmsUUID> ids = new ArrayList<CmsUUID>(new HashSet<CmsUUID>(structureIds));
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        ResultSet res = null;
+        PreparedStatement stmt = null;
+        Connection conn = null;
+
+        try {
+            conn = m_sqlManager.getReadConnection(dbc, projectId);
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+                List<CmsUUID> chunk = ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()));
+                StringBuffer queryBuf = new StringBuffer(256);
+                queryBuf.append(m_sqlManager.readQuery(projectId, "C_RESOURCES_READBYIDS"));
+                queryBuf.append(BEGIN_CONDITION);
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (i > 0) {
+                        queryBuf.append(", ");
+                    }
+                    queryBuf.append("?");
+                }
+                queryBuf.append(END_CONDITION);
+
+                stmt = m_sqlManager.getPreparedStatementForSql(conn, queryBuf.toString());
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 1, chunk.get(i).toString());
+                }
+                res = stmt.executeQuery();
+                while (res.next()) {
+                    CmsResource resource = createResource(res, projectId);
+                    if (includeDeleted || !resource.getState().isDeleted()) {
+                        result.add(resource);
+                    }
+                }
+                m_sqlManager.closeAll(dbc, null, stmt, res);
+                res = null;
+                stmt = null;
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readResources(org.opencms.db.CmsDbContext, CmsUUID, CmsResourceState, int)
      */
@@ -3086,15 +3346,13 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         // copy offline to online relations
         CmsUUID dbcProjectId = dbc.getProjectId();
         dbc.setProjectId(CmsUUID.getNullUUID());
-        Iterator<CmsRelation> itRelations = m_driverManager.getVfsDriver(dbc).readRelations(
+        List<CmsRelation> relations = m_driverManager.getVfsDriver(dbc).readRelations(
             dbc,
             projectId,
             offlineResource,
-            CmsRelationFilter.TARGETS).iterator();
+            CmsRelationFilter.TARGETS);
         dbc.setProjectId(dbcProjectId);
-        while (itRelations.hasNext()) {
-            vfsDriver.createRelation(dbc, onlineProject.getUuid(), itRelations.next());
-        }
+        vfsDriver.createRelations(dbc, onlineProject.getUuid(), relations);
     }
 
     /**
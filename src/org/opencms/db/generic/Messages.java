@@ -160,6 +160,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_PUBLISHLIST_DESERIALIZATION_FAILED_1 = "ERR_PUBLISHLIST_DESERIALIZATION_FAILED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_PUBLISH_WORKER_0 = "ERR_PUBLISH_WORKER_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_QUERY_NOT_FOUND_1 = "ERR_QUERY_NOT_FOUND_1";
 
@@ -31,6 +31,7 @@ import org.opencms.db.CmsDbContext;
 import org.opencms.db.generic.Messages;
 import org.opencms.main.CmsLog;
 
+import java.io.InputStream;
 import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -149,4 +150,14 @@ public class CmsSqlManager extends org.opencms.db.generic.CmsSqlManager {
         Blob blob = res.getBlob(attributeName);
         return blob.getBytes(1, (int)blob.length());
     }
+
+    /**
+     * @see org.opencms.db.generic.CmsSqlManager#getBinaryStream(java.sql.ResultSet, java.lang.String)
+     */
+    @Override
+    public InputStream getBinaryStream(ResultSet res, String attributeName) throws SQLException {
+
+        Blob blob = res.getBlob(attributeName);
+        return blob != null ? blob.getBinaryStream() : null;
+    }
 }
\ No newline at end of file
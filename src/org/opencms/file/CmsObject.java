@@ -67,7 +67,10 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 import org.opencms.xml.content.CmsNumberSuffixNameSequence;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -2362,6 +2365,34 @@ public final class CmsObject {
         return m_securityManager.readBestUrlName(m_context, id, locale, defaultLocales);
     }
 
+    /**
+     * Opens a stream on the binary content of a file resource.<p>
+     *
+     * In case the given resource is a <code>{@link CmsFile}</code> that already has its content
+     * available, a stream on this content is returned. Otherwise the content is streamed from the VFS,
+     * without reading it into memory at once. This should be preferred over {@link #readFile(CmsResource)}
+     * for delivering large files.<p>
+     *
+     * The caller must always close the returned stream.<p>
+     *
+     * @param resource the resource to read the content for
+     *
+     * @return a stream on the file content
+     *
+     * @throws CmsException if the content could not be read for any reason
+     */
+    public InputStream readContentStream(CmsResource resource) throws CmsException {
+
+        if (resource instanceof CmsFile) {
+            CmsFile file = (CmsFile)resource;
+            if ((file.getContents() != null) && (file.getContents().length > 0)) {
+                // file has the contents already available
+                return new ByteArrayInputStream(file.getContents());
+            }
+        }
+        return m_securityManager.readContentStream(m_context, resource);
+    }
+
     /**
      * Returns the default resource for the given folder.<p>
      * <ol>
@@ -3025,6 +3056,27 @@ public final class CmsObject {
         return m_securityManager.readPropertyObjects(m_context, resource, search);
     }
 
+    /**
+     * Reads the property objects mapped to the resources with the given root paths, without inheritance.<p>
+     *
+     * The properties that are not yet cached are read with a single database query, which makes this
+     * useful for warming up the property cache. Since the resources themselves are not read,
+     * this requires the {@link CmsRole#ROOT_ADMIN} role.<p>
+     *
+     * All properties in the result lists will be in frozen (read only) state, so you can't change the values.<p>
+     *
+     * @param rootPaths the root paths of the resources
+     *
+     * @return the lists of <code>{@link CmsProperty}</code> objects, with the root paths as keys,
+     *      the list is empty for paths without properties
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public Map<String, List<CmsProperty>> readPropertyObjects(List<String> rootPaths) throws CmsException {
+
+        return m_securityManager.readPropertyObjects(m_context, rootPaths);
+    }
+
     /**
      * Reads the resources that were published in a publish task for a given publish history ID.<p>
      *
@@ -3209,6 +3261,32 @@ public final class CmsObject {
         return m_securityManager.readResource(m_context, addSiteRoot(resourcename), filter);
     }
 
+    /**
+     * Reads the resources with the given structure IDs from the VFS,
+     * using the specified resource filter.<p>
+     *
+     * Use this instead of reading the resources one by one with
+     * <code>{@link #readResource(CmsUUID, CmsResourceFilter)}</code> if many resources are needed at once,
+     * e.g. all elements of a container page. Resources that are not cached are read from the database
+     * with a few queries, not with one query for each resource.<p>
+     *
+     * In contrast to <code>{@link #readResource(CmsUUID, CmsResourceFilter)}</code>, no exception is thrown
+     * for resources that do not exist, do not match the filter or can not be read by the current user,
+     * they are just missing in the result.<p>
+     *
+     * @param structureIds the structure IDs of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given IDs
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public List<CmsResource> readResources(Collection<CmsUUID> structureIds, CmsResourceFilter filter)
+    throws CmsException {
+
+        return m_securityManager.readResources(m_context, structureIds, filter);
+    }
+
     /**
      * Reads all resources below the given resource matching the filter criteria,
      * including the full tree below the path only in case the <code>readTree</code>
@@ -52,6 +52,7 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.util.CmsUUID;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -526,6 +527,34 @@ public class CmsObjectWrapper {
         }
     }
 
+    /**
+     * Reads the content of a file resource as a stream.<p>
+     *
+     * The content is only streamed if no resource wrapper is responsible for the resource and
+     * no UTF-8 marker has to be added, otherwise <code>null</code> is returned and the content has to be read
+     * with {@link #readFile(String, CmsResourceFilter)}.<p>
+     *
+     * @see CmsObject#readContentStream(CmsResource)
+     *
+     * @param res the resource to read the content for
+     *
+     * @return the content stream, or <code>null</code> if the content can not be streamed
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public InputStream readContentStream(CmsResource res) throws CmsException {
+
+        if (!res.isFile() || (getResourceTypeWrapper(res) != null) || needUtf8Marker(res)) {
+            return null;
+        }
+        // make sure this is a real VFS resource and not one created by a wrapper
+        CmsResource vfsResource = m_cms.readResource(res.getStructureId(), CmsResourceFilter.IGNORE_EXPIRATION);
+        if (!vfsResource.getRootPath().equals(res.getRootPath())) {
+            return null;
+        }
+        return m_cms.readContentStream(vfsResource);
+    }
+
     /**
      * Reads a file resource (including it's binary content) from the VFS,
      * using the specified resource filter.<p>
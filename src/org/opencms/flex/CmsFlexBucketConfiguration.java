@@ -42,7 +42,9 @@ import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -63,6 +65,10 @@ import com.google.common.collect.Sets;
  * If a resource with its path below one of the paths from the 'clear all' list is published, the complete Flex cache should be
  * cleared.
  *
+ * Optionally, a maximum staleness in milliseconds can be configured per bucket. Entries whose buckets all have a maximum
+ * staleness are not removed from the Flex cache after a publish, but are marked as stale and are still delivered while they
+ * are rendered again, for at most the smallest maximum staleness of their buckets.<p>
+ *
  */
 public class CmsFlexBucketConfiguration {
 
@@ -102,6 +108,29 @@ public class CmsFlexBucketConfiguration {
             return result;
         }
 
+        /**
+         * Returns the time in milliseconds entries with this bucket set may be delivered after they have been invalidated by a publish.<p>
+         *
+         * This is the smallest maximum staleness of the buckets, so 0 if any of the buckets has no maximum staleness configured.<p>
+         *
+         * @return the maximum staleness, or 0 if entries must be removed immediately
+         */
+        public long getMaxStaleness() {
+
+            if (m_bits.isEmpty()) {
+                return 0;
+            }
+            long result = Long.MAX_VALUE;
+            for (int i = m_bits.nextSetBit(0); i >= 0; i = m_bits.nextSetBit(i + 1)) {
+                Long maxStaleness = m_maxStaleness.get(getBucketName(i));
+                if (maxStaleness == null) {
+                    return 0;
+                }
+                result = Math.min(result, maxStaleness.longValue());
+            }
+            return result;
+        }
+
         /**
          * If this entry is the bucket set created from a publish list, and the argument is the bucket list
          * of a flex cache entry, then the result of this method determines whether the flex cache entry for which
@@ -142,6 +171,9 @@ public class CmsFlexBucketConfiguration {
     /** The configuration key prefix used to define a bucket. */
     public static final String KEY_PREFIX_BUCKET = "bucket.";
 
+    /** The configuration key prefix used to define the maximum staleness of a bucket. */
+    public static final String KEY_PREFIX_MAX_STALENESS = "maxStaleness.";
+
     /** Logger instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsFlexBucketConfiguration.class);
 
@@ -157,6 +189,9 @@ public class CmsFlexBucketConfiguration {
     /** Flag which, when set, prevents further modification of this configuration object. */
     private boolean m_frozen;
 
+    /** The maximum staleness in milliseconds, by bucket name. */
+    private Map<String, Long> m_maxStaleness = new HashMap<String, Long>();
+
     /**
      * Loads the flex bucket configuration from a java.util.Properties instance.<p>
      *
@@ -167,16 +202,23 @@ public class CmsFlexBucketConfiguration {
 
         ArrayListMultimap<String, String> multimap = ArrayListMultimap.create();
         List<String> clearAll = Lists.newArrayList();
+        Map<String, Long> maxStaleness = new HashMap<String, Long>();
         for (Object keyObj : properties.keySet()) {
-            String key = (String)keyObj;
-            key = key.trim();
-            String value = (String)(properties.get(key));
-            value = value.trim();
+            // look up the value before trimming the key, otherwise keys with white space would not be found
+            String value = ((String)(properties.get(keyObj))).trim();
+            String key = ((String)keyObj).trim();
             if (key.startsWith(KEY_PREFIX_BUCKET)) {
                 String bucketName = key.substring(KEY_PREFIX_BUCKET.length());
                 multimap.putAll(bucketName, Arrays.asList(value.trim().split(" *, *")));
             } else if (KEY_CLEAR_ALL.equals(key)) {
                 clearAll = Arrays.asList(value.trim().split(" *, *"));
+            } else if (key.startsWith(KEY_PREFIX_MAX_STALENESS)) {
+                String bucketName = key.substring(KEY_PREFIX_MAX_STALENESS.length());
+                try {
+                    maxStaleness.put(bucketName, Long.valueOf(value));
+                } catch (NumberFormatException e) {
+                    LOG.error("Invalid maximum staleness for Flex bucket " + bucketName + ": " + value, e);
+                }
             }
         }
         CmsFlexBucketConfiguration result = new CmsFlexBucketConfiguration();
@@ -186,6 +228,9 @@ public class CmsFlexBucketConfiguration {
         for (String key : multimap.keySet()) {
             result.add(key, multimap.get(key));
         }
+        for (Map.Entry<String, Long> entry : maxStaleness.entrySet()) {
+            result.setMaxStaleness(entry.getKey(), entry.getValue().longValue());
+        }
         result.freeze();
         return result;
     }
@@ -304,6 +349,24 @@ public class CmsFlexBucketConfiguration {
         m_clearAll = Collections.unmodifiableList(clearAll);
     }
 
+    /**
+     * Sets the time in milliseconds entries of a bucket may be delivered after they have been invalidated by a publish.<p>
+     *
+     * @param bucketName the bucket name
+     * @param maxStaleness the maximum staleness in milliseconds, 0 means entries are removed immediately
+     */
+    public void setMaxStaleness(String bucketName, long maxStaleness) {
+
+        if (m_frozen) {
+            throw new IllegalStateException("Can not modify frozen CmsFlexBucketConfiguration");
+        }
+        if (maxStaleness > 0) {
+            m_maxStaleness.put(bucketName, Long.valueOf(maxStaleness));
+        } else {
+            m_maxStaleness.remove(bucketName);
+        }
+    }
+
     /**
      * Returns true if for the given publish list, the complete Flex cache should be cleared based on this configuration.<p>
      *
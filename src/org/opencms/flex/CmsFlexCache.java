@@ -27,7 +27,9 @@
 
 package org.opencms.flex;
 
+import org.opencms.cache.CmsConcurrentLruCache;
 import org.opencms.cache.CmsLruCache;
+import org.opencms.cache.CmsSlabAllocator;
 import org.opencms.cache.I_CmsLruCacheObject;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.file.CmsObject;
@@ -38,12 +40,10 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsRole;
-import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
@@ -51,10 +51,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.logging.Log;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Lists;
 
 /**
@@ -130,54 +138,60 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     }
 
     /**
-     * Extended LRUMap that handles the variations in case a key is removed.<p>
+     * A variation that is currently rendered by a request, used to coalesce concurrent requests for the same variation.<p>
      */
-    class CmsFlexKeyMap extends LRUMap {
+    private static class CmsFlexPendingRender {
 
-        /** Serial version UID required for safe serialization. */
-        private static final long serialVersionUID = 6931995916013396902L;
+        /** The latch released once the rendering is finished. */
+        CountDownLatch m_latch = new CountDownLatch(1);
+
+        /** The include stack of the request rendering the variation. */
+        CmsFlexRenderingStack m_owner;
 
         /**
-         * Initialize the map with the given size.<p>
+         * Creates a new pending rendering.<p>
          *
-         * @param maxSize the maximum number of key to cache
+         * @param owner the include stack of the request rendering the variation
          */
-        public CmsFlexKeyMap(int maxSize) {
+        CmsFlexPendingRender(CmsFlexRenderingStack owner) {
 
-            super(maxSize);
+            m_owner = owner;
         }
+    }
+
+    /**
+     * Removal listener for the key cache that handles the variations in case a key is evicted.<p>
+     */
+    class CmsFlexKeyRemovalListener implements RemovalListener<String, CmsFlexCacheVariation> {
 
         /**
          * Ensures that all variations that referenced by this key are released
-         * if the key is released.<p>
+         * if the key is evicted.<p>
          *
-         * @param entry the entry to remove
+         * @param notification the removal notification
          *
-         * @return <code>true</code> to actually delete the entry
-         *
-         * @see LRUMap#removeLRU(LinkEntry)
+         * @see com.google.common.cache.RemovalListener#onRemoval(com.google.common.cache.RemovalNotification)
          */
-        @Override
-        protected boolean removeLRU(LinkEntry entry) {
+        public void onRemoval(RemovalNotification<String, CmsFlexCacheVariation> notification) {
 
-            CmsFlexCacheVariation v = (CmsFlexCacheVariation)entry.getValue();
+            if (!notification.wasEvicted()) {
+                // explicit removals and replacements take care of the variations themselves
+                return;
+            }
+            CmsFlexCacheVariation v = notification.getValue();
             if (v == null) {
-                return true;
+                return;
             }
             Map<String, I_CmsLruCacheObject> m = v.m_map;
             if ((m == null) || (m.size() == 0)) {
-                return true;
+                return;
             }
-            Collection<I_CmsLruCacheObject> entries = m.values();
-            synchronized (m_variationCache) {
-                for (I_CmsLruCacheObject e : entries) {
-                    m_variationCache.remove(e);
-                }
-                v.m_map.clear();
-                v.m_map = null;
-                v.m_key = null;
+            for (I_CmsLruCacheObject e : new ArrayList<I_CmsLruCacheObject>(m.values())) {
+                m_variationCache.remove(e);
             }
-            return true;
+            m.clear();
+            v.m_map = null;
+            v.m_key = null;
         }
     }
 
@@ -217,6 +231,15 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     /** Initial size for variation lists, should be a power of 2. */
     public static final int INITIAL_CAPACITY_VARIATIONS = 8;
 
+    /** The default time in milliseconds a request waits for a concurrent request rendering the same variation. */
+    public static final long DEFAULT_COALESCING_TIMEOUT = 10000;
+
+    /** The default maximum number of stale entries that are rendered again at the same time. */
+    public static final int DEFAULT_MAX_REVALIDATIONS = 4;
+
+    /** The concurrency level for the resource key cache. */
+    public static final int KEY_CACHE_CONCURRENCY_LEVEL = 16;
+
     /** Offline repository constant. */
     public static final String REPOSITORY_OFFLINE = "offline";
 
@@ -227,7 +250,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     private static final Log LOG = CmsLog.getLog(CmsFlexCache.class);
 
     /** The LRU cache to organize the cached entries. */
-    protected CmsLruCache m_variationCache;
+    protected CmsConcurrentLruCache m_variationCache;
 
     /** The Flex bucket configuration. */
     private CmsFlexBucketConfiguration m_bucketConfiguration;
@@ -238,12 +261,33 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     /** The CMS object used for VFS operations. */
     private CmsObject m_cmsObject;
 
+    /** The number of coalesced requests that were served from the entry rendered by a concurrent request. */
+    private AtomicLong m_coalescedHits = new AtomicLong();
+
+    /** The number of coalesced requests that gave up waiting for a concurrent request. */
+    private AtomicLong m_coalescedTimeouts = new AtomicLong();
+
+    /** The number of requests that waited for a concurrent request rendering the same variation. */
+    private AtomicLong m_coalescedWaits = new AtomicLong();
+
+    /** The time in milliseconds a request waits for a concurrent request rendering the same variation. */
+    private long m_coalescingTimeout;
+
     /** Indicates if the cache is enabled or not. */
     private boolean m_enabled;
 
-    /** Map to store the entries for fast lookup. */
+    /** Map to store the entries for fast lookup, this is a concurrent map. */
     private Map<String, CmsFlexCacheVariation> m_keyCache;
 
+    /** The allocator for storing cached output off-heap, <code>null</code> if off-heap storage is disabled. */
+    private CmsSlabAllocator m_offHeapAllocator;
+
+    /** The variations currently rendered, mapped by their rendering key. */
+    private ConcurrentHashMap<String, CmsFlexPendingRender> m_pendingRenders;
+
+    /** Limits the number of stale entries that are rendered again at the same time. */
+    private Semaphore m_revalidationPermits;
+
     /** Counter for the size. */
     private int m_size;
 
@@ -262,20 +306,29 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
 
         m_enabled = configuration.isCacheEnabled();
         m_cacheOffline = configuration.isCacheOffline();
+        m_coalescingTimeout = configuration.getCoalescingTimeout();
+        m_pendingRenders = new ConcurrentHashMap<String, CmsFlexPendingRender>();
+        m_revalidationPermits = new Semaphore(configuration.getMaxRevalidations());
 
         long maxCacheBytes = configuration.getMaxCacheBytes();
         long avgCacheBytes = configuration.getAvgCacheBytes();
         int maxEntryBytes = configuration.getMaxEntryBytes();
         int maxKeys = configuration.getMaxKeys();
 
-        m_variationCache = new CmsLruCache(maxCacheBytes, avgCacheBytes, maxEntryBytes);
+        m_variationCache = new CmsConcurrentLruCache(maxCacheBytes, avgCacheBytes, maxEntryBytes);
         OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_entryLruCache", m_variationCache);
 
         if (m_enabled) {
-            CmsFlexKeyMap flexKeyMap = new CmsFlexKeyMap(maxKeys);
-            m_keyCache = Collections.synchronizedMap(
-                CmsCollectionsGenericWrapper.<String, CmsFlexCacheVariation> map(flexKeyMap));
-            OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_resourceMap", flexKeyMap);
+            Cache<String, CmsFlexCacheVariation> keyCache = CacheBuilder.newBuilder().concurrencyLevel(
+                KEY_CACHE_CONCURRENCY_LEVEL).maximumSize(maxKeys).removalListener(
+                    new CmsFlexKeyRemovalListener()).build();
+            m_keyCache = keyCache.asMap();
+            OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_resourceMap", m_keyCache);
+
+            if (configuration.getMaxOffHeapBytes() > 0) {
+                m_offHeapAllocator = new CmsSlabAllocator(configuration.getMaxOffHeapBytes());
+                OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_offHeapAllocator", m_offHeapAllocator);
+            }
 
             OpenCms.addCmsEventListener(
                 this,
@@ -295,6 +348,19 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Returns the key under which the rendering of a variation is coalesced.<p>
+     *
+     * @param key the cache key of the resource
+     * @param variation the variation
+     *
+     * @return the rendering key
+     */
+    static String getRenderingKey(CmsFlexCacheKey key, String variation) {
+
+        return key.getResource() + " VAR " + variation;
+    }
+
     /**
      * Copies the key set of a map while synchronizing on the map.<p>
      *
@@ -388,7 +454,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                                 publishId,
                                 publishedResources);
                             if (!bucketClearOk) {
-                                clear();
+                                clearForPublish();
                             }
                         } else {
                             clear();
@@ -559,6 +625,36 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         return null;
     }
 
+    /**
+     * Returns the number of coalesced requests that were served from the entry rendered by a concurrent request.<p>
+     *
+     * @return the number of coalesced cache hits
+     */
+    public long getCoalescedHitCount() {
+
+        return m_coalescedHits.get();
+    }
+
+    /**
+     * Returns the number of coalesced requests that gave up waiting for a concurrent request.<p>
+     *
+     * @return the number of coalescing timeouts
+     */
+    public long getCoalescedTimeoutCount() {
+
+        return m_coalescedTimeouts.get();
+    }
+
+    /**
+     * Returns the number of requests that waited for a concurrent request rendering the same variation.<p>
+     *
+     * @return the number of coalesced waits
+     */
+    public long getCoalescedWaitCount() {
+
+        return m_coalescedWaits.get();
+    }
+
     /**
      * Returns the LRU cache where the CacheEntries are cached.<p>
      *
@@ -603,6 +699,17 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         return m_enabled;
     }
 
+    /**
+     * Indicates if concurrent requests for the same uncached variation are coalesced,
+     * so that only one of them renders the variation.<p>
+     *
+     * @return true if request coalescing is enabled
+     */
+    public boolean isRequestCoalescingEnabled() {
+
+        return m_enabled && (m_coalescingTimeout > 0);
+    }
+
     /**
      * Returns the total number of cached resource keys.
      *
@@ -626,6 +733,43 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         return m_variationCache.size();
     }
 
+    /**
+     * Returns the allocator used to store cached output off-heap.<p>
+     *
+     * @return the off-heap allocator, or <code>null</code> if off-heap storage is disabled
+     */
+    public CmsSlabAllocator getOffHeapAllocator() {
+
+        return m_offHeapAllocator;
+    }
+
+    /**
+     * Signals that the rendering of a variation started with
+     * {@link #startRendering(String, CmsFlexRenderingStack)} is finished, waking up the requests waiting for it.<p>
+     *
+     * @param renderingKey the rendering key
+     */
+    void finishRendering(String renderingKey) {
+
+        CmsFlexPendingRender pending = m_pendingRenders.remove(renderingKey);
+        if (pending != null) {
+            pending.m_owner.remove(renderingKey);
+            pending.m_latch.countDown();
+        }
+    }
+
+    /**
+     * Signals that the rendering of a replacement for a stale entry started with
+     * {@link #startRevalidation(CmsFlexCacheEntry)} is finished.<p>
+     *
+     * @param entry the stale entry
+     */
+    void finishRevalidation(CmsFlexCacheEntry entry) {
+
+        entry.finishRevalidation();
+        m_revalidationPermits.release();
+    }
+
     /**
      * Looks up a specific entry in the cache.<p>
      *
@@ -633,6 +777,9 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      * In case the timeout of the entry has been reached, it will be removed from
      * the cache (and null will be returned in this case).<p>
      *
+     * The returned entry is retained for the caller, who must call {@link CmsFlexCacheEntry#release()}
+     * after the entry has been delivered.<p>
+     *
      * @param key The key to look for in the cache
      * @return the entry found for the key, or null if key is not in the cache
      */
@@ -657,11 +804,23 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                 // no cache entry available for variation
                 return null;
             }
-            if (entry.getDateExpires() < System.currentTimeMillis()) {
+            long now = System.currentTimeMillis();
+            if (entry.getDateExpires() < now) {
                 // cache entry avaiable but expired, remove entry
                 m_variationCache.remove(entry);
                 return null;
             }
+            if (entry.isStale() && (entry.getDateStaleUntil() < now)) {
+                // stale cache entry has not been replaced in time, remove entry
+                m_variationCache.remove(entry);
+                return null;
+            }
+            if (!entry.retain()) {
+                // the entry has been removed from the cache concurrently
+                return null;
+            }
+            // update the LRU state, but never wait for other threads on the cache hit path
+            m_variationCache.tryTouch(entry);
             // return the found cache entry
             return entry;
         } else {
@@ -807,6 +966,107 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Tries to register the current request as the one rendering a replacement for a stale entry.<p>
+     *
+     * The number of stale entries rendered at the same time is limited, so that a publish does not cause a
+     * load peak. While the replacement is rendered, or if the limit is reached, the stale entry is delivered to
+     * other requests. If this method returns <code>true</code>, the caller must call
+     * {@link #finishRevalidation(CmsFlexCacheEntry)} once the replacement has been put in the cache.<p>
+     *
+     * @param entry the stale entry
+     *
+     * @return true if the current request should render the replacement
+     */
+    boolean startRevalidation(CmsFlexCacheEntry entry) {
+
+        if (!entry.tryStartRevalidation()) {
+            return false;
+        }
+        if (!m_revalidationPermits.tryAcquire()) {
+            entry.finishRevalidation();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tries to register the current request as the one rendering a variation.<p>
+     *
+     * If this method returns <code>true</code>, the caller must call {@link #finishRendering(String)}
+     * once the rendered entry has been put in the cache (or could not be cached).<p>
+     *
+     * @param renderingKey the rendering key, see {@link #getRenderingKey(CmsFlexCacheKey, String)}
+     * @param stack the include stack of the current request
+     *
+     * @return true if the current request renders the variation, false if another request is already rendering it
+     */
+    boolean startRendering(String renderingKey, CmsFlexRenderingStack stack) {
+
+        if (m_pendingRenders.putIfAbsent(renderingKey, new CmsFlexPendingRender(stack)) == null) {
+            stack.add(renderingKey);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Waits until a concurrent request has finished rendering a variation, and then looks up the rendered entry.<p>
+     *
+     * The returned entry is retained for the caller, as in {@link #get(CmsFlexRequestKey)}.<p>
+     *
+     * The request does not wait if the variation is on its own include stack, or if the request rendering
+     * the variation (directly or through other waiting requests) waits for a variation on that stack.<p>
+     *
+     * @param renderingKey the rendering key
+     * @param requestKey the key of the waiting request
+     * @param stack the include stack of the waiting request
+     *
+     * @return the rendered entry, or <code>null</code> if the variation was not cached in time and must be rendered by the caller
+     */
+    CmsFlexCacheEntry waitForRendering(
+        String renderingKey,
+        CmsFlexRequestKey requestKey,
+        CmsFlexRenderingStack stack) {
+
+        CmsFlexPendingRender pending = m_pendingRenders.get(renderingKey);
+        if (pending != null) {
+            // publish the wait before checking for a cycle, so of two requests waiting for each other
+            // at least one sees the cycle
+            stack.setWaitingFor(renderingKey);
+            try {
+                if (isWaitingForStack(renderingKey, stack)) {
+                    // the variation includes itself, or waiting would block until the timeout
+                    // because the rendering request waits for a variation this request is rendering
+                    return null;
+                }
+                m_coalescedWaits.incrementAndGet();
+                if (!pending.m_latch.await(m_coalescingTimeout, TimeUnit.MILLISECONDS)) {
+                    m_coalescedTimeouts.incrementAndGet();
+                    if (LOG.isWarnEnabled()) {
+                        LOG.warn(
+                            Messages.get().getBundle().key(
+                                Messages.LOG_FLEXCACHE_COALESCING_TIMEOUT_2,
+                                renderingKey,
+                                new Long(m_coalescingTimeout)));
+                    }
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                m_coalescedTimeouts.incrementAndGet();
+                return null;
+            } finally {
+                stack.setWaitingFor(null);
+            }
+        }
+        CmsFlexCacheEntry entry = get(requestKey);
+        if ((entry != null) && (pending != null)) {
+            m_coalescedHits.incrementAndGet();
+        }
+        return entry;
+    }
+
     /**
      * Empties the cache completely.<p>
      */
@@ -905,6 +1165,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             } else {
                 long totalEntries = 0;
                 long removedEntries = 0;
+                long staleEntries = 0;
                 List<String> paths = Lists.newArrayList();
                 for (CmsPublishedResource pubRes : publishedResources) {
                     paths.add(pubRes.getRootPath());
@@ -940,15 +1201,25 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                             }
                         }
                         for (CmsFlexCacheEntry entryToDelete : entriesToDelete) {
-                            m_variationCache.remove(entryToDelete);
-                            removedEntries += 1;
+                            BucketSet entryBucketSet = entryToDelete.getBucketSet();
+                            long maxStaleness = entryBucketSet != null ? entryBucketSet.getMaxStaleness() : 0;
+                            if (maxStaleness > 0) {
+                                // keep delivering the entry until it has been rendered again
+                                entryToDelete.markStale(startTime + maxStaleness);
+                                staleEntries += 1;
+                            } else {
+                                m_variationCache.remove(entryToDelete);
+                                removedEntries += 1;
+                            }
                         }
                     }
                     long endTime = System.currentTimeMillis();
                     LOG.info(p
                         + "Removed "
                         + removedEntries
-                        + " of "
+                        + " and marked "
+                        + staleEntries
+                        + " as stale of "
                         + totalEntries
                         + " Flex cache entries, took "
                         + (endTime - startTime)
@@ -994,6 +1265,52 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         m_size = 0;
     }
 
+    /**
+     * Empties the cache after a publish operation that affects all entries.<p>
+     *
+     * Entries in Flex buckets with a maximum staleness are marked as stale instead of being removed,
+     * so they are still delivered while they are rendered again. The keys of the removed entries are cleared.<p>
+     */
+    private synchronized void clearForPublish() {
+
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long removedEntries = 0;
+        long staleEntries = 0;
+        for (Map.Entry<String, CmsFlexCacheVariation> entry : synchronizedCopyMap(m_keyCache).entrySet()) {
+            CmsFlexCacheVariation variation = entry.getValue();
+            for (I_CmsLruCacheObject cacheObject : synchronizedCopyMap(variation.m_map).values()) {
+                CmsFlexCacheEntry flexEntry = (CmsFlexCacheEntry)cacheObject;
+                BucketSet bucketSet = flexEntry.getBucketSet();
+                long maxStaleness = bucketSet != null ? bucketSet.getMaxStaleness() : 0;
+                if (maxStaleness > 0) {
+                    // keep delivering the entry until it has been rendered again
+                    flexEntry.markStale(now + maxStaleness);
+                    staleEntries += 1;
+                } else {
+                    m_variationCache.remove(flexEntry);
+                    removedEntries += 1;
+                }
+            }
+            if (variation.m_map.isEmpty()) {
+                m_keyCache.remove(entry.getKey());
+            }
+        }
+        m_size -= removedEntries;
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                "Removed "
+                    + removedEntries
+                    + " and marked "
+                    + staleEntries
+                    + " as stale Flex cache entries after publish, took "
+                    + (System.currentTimeMillis() - now)
+                    + " milliseconds");
+        }
+    }
+
     /**
      * Clears all entries and all keys from offline projects in the cache.<p>
      *
@@ -1072,6 +1389,33 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         clearAccordingToSuffix(CACHE_ONLINESUFFIX, true);
     }
 
+    /**
+     * Checks if waiting for a variation would end up waiting for a variation on the given include stack.<p>
+     *
+     * Follows the chain of waiting requests starting with the request rendering the given variation.<p>
+     *
+     * @param renderingKey the rendering key of the variation to wait for
+     * @param stack the include stack of the waiting request
+     *
+     * @return true if the chain of waiting requests reaches a variation on the given include stack
+     */
+    private boolean isWaitingForStack(String renderingKey, CmsFlexRenderingStack stack) {
+
+        String key = renderingKey;
+        // every request in a chain without a cycle renders a different variation
+        for (int i = m_pendingRenders.size(); (key != null) && (i >= 0); i--) {
+            if (stack.contains(key)) {
+                return true;
+            }
+            CmsFlexPendingRender pending = m_pendingRenders.get(key);
+            if (pending == null) {
+                return false;
+            }
+            key = pending.m_owner.getWaitingFor();
+        }
+        return false;
+    }
+
     /**
      * This method purges the JSP repository dirs,
      * i.e. it deletes all JSP files that OpenCms has written to the
@@ -1109,11 +1453,15 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (key.getTimeout() > 0) {
             theCacheEntry.setDateExpiresToNextTimeout(key.getTimeout());
         }
+        if (m_offHeapAllocator != null) {
+            theCacheEntry.moveToOffHeap(m_offHeapAllocator);
+        }
         if (o != null) {
             // We already have a variation map for this resource
             Map<String, I_CmsLruCacheObject> m = o.m_map;
+            I_CmsLruCacheObject old = m.get(key.getVariation());
             boolean wasAdded = true;
-            if (!m.containsKey(key.getVariation())) {
+            if ((old == null) || ((CmsFlexCacheEntry)old).isStale()) {
                 wasAdded = m_variationCache.add(theCacheEntry);
             } else {
                 wasAdded = m_variationCache.touch(theCacheEntry);
@@ -1121,7 +1469,14 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
 
             if (wasAdded) {
                 theCacheEntry.setVariationData(key.getVariation(), m);
+                // replace a stale entry in one step, so concurrent requests get either the stale or the new entry
                 m.put(key.getVariation(), theCacheEntry);
+                if ((old != null) && (old != theCacheEntry)) {
+                    m_variationCache.remove(old);
+                }
+            } else {
+                // the entry is not cached, free its off-heap memory
+                theCacheEntry.release();
             }
         } else {
             // No variation map for this resource yet, so create one
@@ -1133,6 +1488,9 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                 theCacheEntry.setVariationData(key.getVariation(), list.m_map);
                 list.m_map.put(key.getVariation(), theCacheEntry);
                 m_keyCache.put(key.getResource(), list);
+            } else {
+                // the entry is not cached, free its off-heap memory
+                theCacheEntry.release();
             }
         }
 
@@ -52,6 +52,9 @@ public class CmsFlexCacheConfiguration {
     /** Indicates if offline resources should be cached or not. */
     private boolean m_cacheOffline;
 
+    /** The time in milliseconds a request waits for a concurrent request rendering the same variation, 0 disables request coalescing. */
+    private long m_coalescingTimeout = CmsFlexCache.DEFAULT_COALESCING_TIMEOUT;
+
     /** The device selector. */
     private I_CmsJspDeviceSelector m_deviceSelector;
 
@@ -74,6 +77,12 @@ public class CmsFlexCacheConfiguration {
     /** The maximum key. */
     private int m_maxKeys;
 
+    /** The maximum off-heap bytes, 0 means no off-heap storage is used. */
+    private long m_maxOffHeapBytes;
+
+    /** The maximum number of stale entries that are rendered again at the same time. */
+    private int m_maxRevalidations = CmsFlexCache.DEFAULT_MAX_REVALIDATIONS;
+
     /**
      * Empty public constructor for the digester.
      */
@@ -92,6 +101,16 @@ public class CmsFlexCacheConfiguration {
         return m_avgCacheBytes;
     }
 
+    /**
+     * Returns the time in milliseconds a request waits for a concurrent request rendering the same variation.<p>
+     *
+     * @return the coalescing timeout, 0 if request coalescing is disabled
+     */
+    public long getCoalescingTimeout() {
+
+        return m_coalescingTimeout;
+    }
+
     /**
      * Returns the deviceSelector.<p>
      *
@@ -145,6 +164,26 @@ public class CmsFlexCacheConfiguration {
         return m_maxKeys;
     }
 
+    /**
+     * Returns the maximum number of bytes used to store cached output outside of the Java heap.<p>
+     *
+     * @return the maximum off-heap bytes, 0 if off-heap storage is disabled
+     */
+    public long getMaxOffHeapBytes() {
+
+        return m_maxOffHeapBytes;
+    }
+
+    /**
+     * Returns the maximum number of stale entries that are rendered again at the same time after a publish.<p>
+     *
+     * @return the maximum number of revalidations
+     */
+    public int getMaxRevalidations() {
+
+        return m_maxRevalidations;
+    }
+
     /**
      * Initializes the flex cache configuration with required parameters.<p>
      *
@@ -221,6 +260,16 @@ public class CmsFlexCacheConfiguration {
         m_cacheOffline = cacheOffline;
     }
 
+    /**
+     * Sets the time in milliseconds a request waits for a concurrent request rendering the same variation.<p>
+     *
+     * @param coalescingTimeout the coalescing timeout, 0 disables request coalescing
+     */
+    public void setCoalescingTimeout(String coalescingTimeout) {
+
+        m_coalescingTimeout = Long.parseLong(coalescingTimeout.trim());
+    }
+
     /**
      * Sets the device selector configuration.<p>
      *
@@ -278,6 +327,26 @@ public class CmsFlexCacheConfiguration {
         m_maxEntryBytes = maxEntryBytes;
     }
 
+    /**
+     * Sets the maximum number of bytes used to store cached output outside of the Java heap.<p>
+     *
+     * @param maxOffHeapBytes the maximum off-heap bytes, 0 disables off-heap storage
+     */
+    public void setMaxOffHeapBytes(String maxOffHeapBytes) {
+
+        m_maxOffHeapBytes = Long.parseLong(maxOffHeapBytes.trim());
+    }
+
+    /**
+     * Sets the maximum number of stale entries that are rendered again at the same time after a publish.<p>
+     *
+     * @param maxRevalidations the maximum number of revalidations
+     */
+    public void setMaxRevalidations(String maxRevalidations) {
+
+        m_maxRevalidations = Integer.parseInt(maxRevalidations.trim());
+    }
+
     /**
      * Sets the maxKeys.<p>
      *
@@ -27,6 +27,8 @@
 
 package org.opencms.flex;
 
+import org.opencms.cache.CmsSlabAllocator;
+import org.opencms.cache.CmsSlabBuffer;
 import org.opencms.cache.I_CmsLruCacheObject;
 import org.opencms.file.CmsResource;
 import org.opencms.flex.CmsFlexBucketConfiguration.BucketSet;
@@ -45,6 +47,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletException;
 
@@ -61,7 +65,8 @@ import org.apache.commons.logging.Log;
  * A CmsFlexCacheEntry might also describe a redirect-call, but in this case
  * nothing else will be cached.<p>
  *
- * The pre-generated output is saved in <code>byte[]</code> arrays.
+ * The pre-generated output is saved in <code>byte[]</code> arrays, or in off-heap
+ * {@link CmsSlabBuffer} instances if the Flex cache is configured to use off-heap storage.
  * The include() calls are saved as Strings of the included resource name,
  * the parameters for the calls are saved in a HashMap.
  * The headers are saved in a HashMap.
@@ -97,6 +102,9 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     /** The "last modified" date for this Flex cache entry. */
     private long m_dateLastModified;
 
+    /** The date until which this entry may be delivered after it has been invalidated, 0 if the entry is not stale. */
+    private volatile long m_dateStaleUntil;
+
     /** The list of items for this resource. */
     private List<Object> m_elements;
 
@@ -109,12 +117,18 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     /** Pointer to the previous cache entry in the LRU cache. */
     private I_CmsLruCacheObject m_previous;
 
+    /** The reference count, the cache itself holds the initial reference. */
+    private AtomicInteger m_referenceCount = new AtomicInteger(1);
+
     /** Flag which indicates whether a cached redirect is permanent. */
     private boolean m_redirectPermanent;
 
     /** A redirection target (if redirection is set). */
     private String m_redirectTarget;
 
+    /** Flag indicating if a request is currently rendering a replacement for this stale entry. */
+    private AtomicBoolean m_revalidating = new AtomicBoolean();
+
     /** The key under which this cache entry is stored in the variation map. */
     private String m_variationKey;
 
@@ -243,7 +257,7 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     /**
      * Returns the list of data entries of this cache entry.<p>
      *
-     * Data entries are byte arrays representing some kind of output
+     * Data entries are byte arrays or off-heap buffers representing some kind of output
      * or Strings representing include calls to other resources.<p>
      *
      * @return the list of data elements of this cache entry
@@ -284,6 +298,16 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         return m_dateLastModified;
     }
 
+    /**
+     * Returns the date until which this entry may be delivered after it has been invalidated.<p>
+     *
+     * @return the date until which this entry may be delivered, or 0 if this entry is not stale
+     */
+    public long getDateStaleUntil() {
+
+        return m_dateStaleUntil;
+    }
+
     /**
      * @see org.opencms.cache.I_CmsLruCacheObject#getLruCacheCosts()
      */
@@ -324,14 +348,82 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         return m_elements;
     }
 
+    /**
+     * Checks if this entry has been invalidated, but may still be delivered while a replacement is rendered.<p>
+     *
+     * @return true if this entry is stale
+     */
+    public boolean isStale() {
+
+        return m_dateStaleUntil != 0;
+    }
+
+    /**
+     * Marks this entry as stale after it has been invalidated by a publish.<p>
+     *
+     * If the entry is already stale, the earlier date is kept.<p>
+     *
+     * @param dateStaleUntil the date until which the entry may be delivered
+     */
+    public synchronized void markStale(long dateStaleUntil) {
+
+        if ((m_dateStaleUntil == 0) || (dateStaleUntil < m_dateStaleUntil)) {
+            m_dateStaleUntil = dateStaleUntil;
+        }
+    }
+
+    /**
+     * Moves the byte elements of this completed cache entry to off-heap storage.<p>
+     *
+     * Elements for which the allocator has no free memory left are kept on the heap.
+     * This must be called before the entry is visible to other threads.<p>
+     *
+     * @param allocator the allocator for the off-heap memory
+     */
+    public void moveToOffHeap(CmsSlabAllocator allocator) {
+
+        if (!m_completed || (m_elements == null) || (allocator == null)) {
+            return;
+        }
+        List<Object> elements = new ArrayList<Object>(m_elements.size());
+        for (Object o : m_elements) {
+            if (o instanceof byte[]) {
+                CmsSlabBuffer buffer = allocator.allocate((byte[])o);
+                elements.add(buffer != null ? buffer : o);
+            } else {
+                elements.add(o);
+            }
+        }
+        m_elements = Collections.unmodifiableList(elements);
+    }
+
+    /**
+     * Releases a reference to this cache entry acquired with {@link #retain()}.<p>
+     *
+     * Once the last reference is released, the off-heap memory used by this entry is freed.<p>
+     */
+    public void release() {
+
+        if ((m_referenceCount.decrementAndGet() == 0) && (m_elements != null)) {
+            for (Object o : m_elements) {
+                if (o instanceof CmsSlabBuffer) {
+                    ((CmsSlabBuffer)o).free();
+                }
+            }
+        }
+    }
+
     /**
      * @see org.opencms.cache.I_CmsLruCacheObject#removeFromLruCache()
      */
     public void removeFromLruCache() {
 
         if ((m_variationMap != null) && (m_variationKey != null)) {
-            m_variationMap.remove(m_variationKey);
+            // a stale entry may already have been replaced by a new entry for the same variation
+            m_variationMap.remove(m_variationKey, this);
         }
+        // release the reference held by the cache
+        release();
         if (LOG.isDebugEnabled()) {
             LOG.debug(
                 Messages.get().getBundle().key(
@@ -340,6 +432,27 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         }
     }
 
+    /**
+     * Acquires a reference to this cache entry, which prevents its off-heap memory from being freed
+     * while the entry is delivered.<p>
+     *
+     * Every successful call must be followed by a call to {@link #release()}.<p>
+     *
+     * @return <code>false</code> if the entry has already been released by the cache and must not be used any more
+     */
+    public boolean retain() {
+
+        while (true) {
+            int count = m_referenceCount.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (m_referenceCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
     /**
      * Processing method for this cached entry.<p>
      *
@@ -405,7 +518,11 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
                     }
                 } else {
                     try {
-                        res.writeToOutputStream((byte[])o, hasNoSubElements);
+                        if (o instanceof CmsSlabBuffer) {
+                            res.writeToOutputStream((CmsSlabBuffer)o, hasNoSubElements);
+                        } else {
+                            res.writeToOutputStream((byte[])o, hasNoSubElements);
+                        }
                     } catch (IOException e) {
                         CmsMessageContainer message = Messages.get().container(
                             Messages.LOG_FLEXCACHEKEY_NOT_FOUND_1,
@@ -576,6 +693,8 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
                     str += "" + count + " - <cms:include target=" + o + ">\n";
                 } else if (o instanceof byte[]) {
                     str += "" + count + " - <![CDATA[" + new String((byte[])o) + "]]>\n";
+                } else if (o instanceof CmsSlabBuffer) {
+                    str += "" + count + " - <!--[" + o.toString() + "]-->\n";
                 } else {
                     str += "<!--[" + o.toString() + "]-->";
                 }
@@ -586,6 +705,24 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         return str;
     }
 
+    /**
+     * Signals that the request rendering a replacement for this stale entry has finished.<p>
+     */
+    void finishRevalidation() {
+
+        m_revalidating.set(false);
+    }
+
+    /**
+     * Tries to register the current request as the one rendering a replacement for this stale entry.<p>
+     *
+     * @return true if the current request should render the replacement, false if another request is already doing it
+     */
+    boolean tryStartRevalidation() {
+
+        return m_revalidating.compareAndSet(false, true);
+    }
+
     /**
      * Clones the attribute instances if possible.<p>
      *
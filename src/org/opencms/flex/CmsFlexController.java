@@ -80,6 +80,9 @@ public class CmsFlexController {
     /** Indicates if this controller is currently in "forward" mode. */
     private boolean m_forwardMode;
 
+    /** The variations rendered along the include stack of the request. */
+    private CmsFlexRenderingStack m_renderingStack;
+
     /** Wrapped top request. */
     private HttpServletRequest m_req;
 
@@ -119,6 +122,7 @@ public class CmsFlexController {
         m_flexRequestList = base.m_flexRequestList;
         m_flexResponseList = base.m_flexResponseList;
         m_flexContextInfoList = base.m_flexContextInfoList;
+        m_renderingStack = base.m_renderingStack;
         m_forwardMode = base.m_forwardMode;
         m_throwableResourceUri = base.m_throwableResourceUri;
     }
@@ -153,6 +157,7 @@ public class CmsFlexController {
         m_flexRequestList = new Vector<CmsFlexRequest>();
         m_flexResponseList = new Vector<CmsFlexResponse>();
         m_flexContextInfoList = new Vector<CmsFlexRequestContextInfo>();
+        m_renderingStack = new CmsFlexRenderingStack();
         m_forwardMode = false;
         m_throwableResourceUri = null;
     }
@@ -712,6 +717,18 @@ public class CmsFlexController {
         (m_flexContextInfoList.get(pos)).updateDates(dateLastModified, dateExpires);
     }
 
+    /**
+     * Returns the variations rendered along the include stack of the request.<p>
+     *
+     * The stack is shared by all includes of the request.<p>
+     *
+     * @return the variations rendered along the include stack of the request
+     */
+    CmsFlexRenderingStack getRenderingStack() {
+
+        return m_renderingStack;
+    }
+
     /**
      * Updates the context info of the request context.<p>
      */
@@ -0,0 +1,101 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The variations a request is currently rendering along its include stack, used by the Flex cache
+ * to decide when a request must not wait for a concurrent request rendering the same variation.<p>
+ *
+ * A request and all its includes share one instance, see {@link CmsFlexController#getRenderingStack()}.<p>
+ *
+ * @since 11.0.0
+ */
+class CmsFlexRenderingStack {
+
+    /** The rendering keys of the variations rendered by the request. */
+    private Set<String> m_renderingKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** The rendering key of the variation the request is waiting for, or <code>null</code>. */
+    private volatile String m_waitingFor;
+
+    /**
+     * Adds a variation rendered by the request.<p>
+     *
+     * @param renderingKey the rendering key of the variation
+     */
+    void add(String renderingKey) {
+
+        m_renderingKeys.add(renderingKey);
+    }
+
+    /**
+     * Checks if the request is rendering the given variation somewhere on its include stack.<p>
+     *
+     * @param renderingKey the rendering key of the variation
+     *
+     * @return true if the request is rendering the given variation
+     */
+    boolean contains(String renderingKey) {
+
+        return m_renderingKeys.contains(renderingKey);
+    }
+
+    /**
+     * Returns the rendering key of the variation the request is waiting for.<p>
+     *
+     * @return the rendering key of the variation the request is waiting for, or <code>null</code>
+     */
+    String getWaitingFor() {
+
+        return m_waitingFor;
+    }
+
+    /**
+     * Removes a variation once the request has finished rendering it.<p>
+     *
+     * @param renderingKey the rendering key of the variation
+     */
+    void remove(String renderingKey) {
+
+        m_renderingKeys.remove(renderingKey);
+    }
+
+    /**
+     * Sets the rendering key of the variation the request is waiting for.<p>
+     *
+     * @param renderingKey the rendering key of the variation, or <code>null</code> once the request stops waiting
+     */
+    void setWaitingFor(String renderingKey) {
+
+        m_waitingFor = renderingKey;
+    }
+}
@@ -35,6 +35,7 @@ import org.opencms.loader.I_CmsResourceLoader;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.util.CmsStringUtil;
 
 import java.io.IOException;
 import java.util.List;
@@ -300,6 +301,11 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
         // push req/res to controller stack
         controller.push(w_req, w_res);
 
+        // the key of the variation this request renders for concurrent requests, if any
+        String renderingKey = null;
+        // the stale cache entry this request renders a replacement for, if any
+        CmsFlexCacheEntry staleEntry = null;
+
         // now that the req/res are on the stack, we need to make sure that they are removed later
         // that's why we have this try { ... } finally { ... } clause here
         try {
@@ -307,31 +313,15 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
             if (f_req.isCacheable()) {
                 // caching is on, check if requested resource is already in cache
                 entry = cache.get(w_req.getCmsCacheKey());
+                if ((entry != null) && entry.isStale() && cache.startRevalidation(entry)) {
+                    // render the stale entry again, concurrent requests still get the stale entry meanwhile
+                    staleEntry = entry;
+                    entry.release();
+                    entry = null;
+                }
                 if (entry != null) {
                     // the target is already in the cache
-                    try {
-                        if (LOG.isDebugEnabled()) {
-                            LOG.debug(
-                                Messages.get().getBundle().key(
-                                    Messages.LOG_FLEXREQUESTDISPATCHER_LOADING_RESOURCE_FROM_CACHE_1,
-                                    m_vfsTarget));
-                        }
-                        controller.updateDates(entry.getDateLastModified(), entry.getDateExpires());
-                        entry.service(w_req, w_res);
-                    } catch (CmsException e) {
-                        Throwable t;
-                        if (e.getCause() != null) {
-                            t = e.getCause();
-                        } else {
-                            t = e;
-                        }
-                        t = controller.setThrowable(e, m_vfsTarget);
-                        throw new ServletException(
-                            Messages.get().getBundle().key(
-                                Messages.ERR_FLEXREQUESTDISPATCHER_ERROR_LOADING_RESOURCE_FROM_CACHE_1,
-                                m_vfsTarget),
-                            t);
-                    }
+                    serviceCacheEntry(entry, controller, w_req, w_res);
                 } else {
                     // cache is on and resource is not yet cached, so we need to read the cache key for the response
                     CmsFlexCacheKey res_key = cache.getKey(CmsFlexCacheKey.getKeyName(m_vfsTarget, w_req.isOnline()));
@@ -393,6 +383,28 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
                 }
             }
 
+            if ((entry == null)
+                && f_req.isCacheable()
+                && w_req.isCacheable()
+                && !controller.isForwardMode()
+                && cache.isRequestCoalescingEnabled()) {
+                // make sure only one request renders the same variation at the same time
+                String variation = w_res.getCmsCacheKey().matchRequestKey(w_req.getCmsCacheKey());
+                if (CmsStringUtil.isNotEmpty(variation)) {
+                    String key = CmsFlexCache.getRenderingKey(w_res.getCmsCacheKey(), variation);
+                    if (cache.startRendering(key, controller.getRenderingStack())) {
+                        // this request renders the variation, concurrent requests will wait for the result
+                        renderingKey = key;
+                    } else {
+                        // another request is rendering the variation, wait for it and use the new cache entry
+                        entry = cache.waitForRendering(key, w_req.getCmsCacheKey(), controller.getRenderingStack());
+                        if (entry != null) {
+                            serviceCacheEntry(entry, controller, w_req, w_res);
+                        }
+                    }
+                }
+            }
+
             if (entry == null) {
                 // the target is not cached (or caching off), so load it with the internal resource loader
                 I_CmsResourceLoader loader = null;
@@ -482,6 +494,13 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
                 result = null;
             }
         } finally {
+            if (renderingKey != null) {
+                // wake up the requests waiting for this variation
+                cache.finishRendering(renderingKey);
+            }
+            if (staleEntry != null) {
+                cache.finishRevalidation(staleEntry);
+            }
             // indicate to response that include is finished
             f_res.setCmsIncludeMode(false);
             f_req.removeIncludeCall(m_vfsTarget);
@@ -490,4 +509,44 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
             controller.pop();
         }
     }
+
+    /**
+     * Delivers a cache entry to the given request / response and releases it afterwards.<p>
+     *
+     * @param entry the cache entry, retained for this request
+     * @param controller the Flex controller
+     * @param w_req the wrapped request
+     * @param w_res the wrapped response
+     *
+     * @throws ServletException in case something goes wrong
+     * @throws IOException in case something goes wrong
+     */
+    private void serviceCacheEntry(
+        CmsFlexCacheEntry entry,
+        CmsFlexController controller,
+        CmsFlexRequest w_req,
+        CmsFlexResponse w_res)
+    throws ServletException, IOException {
+
+        try {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_FLEXREQUESTDISPATCHER_LOADING_RESOURCE_FROM_CACHE_1,
+                        m_vfsTarget));
+            }
+            controller.updateDates(entry.getDateLastModified(), entry.getDateExpires());
+            entry.service(w_req, w_res);
+        } catch (CmsException e) {
+            Throwable t = controller.setThrowable(e, m_vfsTarget);
+            throw new ServletException(
+                Messages.get().getBundle().key(
+                    Messages.ERR_FLEXREQUESTDISPATCHER_ERROR_LOADING_RESOURCE_FROM_CACHE_1,
+                    m_vfsTarget),
+                t);
+        } finally {
+            // allow the cache to free the entry once it has been removed
+            entry.release();
+        }
+    }
 }
\ No newline at end of file
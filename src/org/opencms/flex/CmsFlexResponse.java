@@ -27,6 +27,7 @@
 
 package org.opencms.flex;
 
+import org.opencms.cache.CmsSlabBuffer;
 import org.opencms.jsp.util.CmsJspStandardContextBean;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.main.CmsLog;
@@ -1057,6 +1058,40 @@ public class CmsFlexResponse extends HttpServletResponseWrapper {
         }
     }
 
+    /**
+     * Writes the content of an off-heap buffer to the current output stream,
+     * this method should be called from CmsFlexCacheEntry.service() only.<p>
+     *
+     * In contrast to {@link #writeToOutputStream(byte[], boolean)}, the content is only copied
+     * to a heap array if this response writes to a buffer.<p>
+     *
+     * @param buffer the off-heap buffer
+     * @param useArray indicates that the content is the only output of this response
+     *
+     * @throws IOException in case something goes wrong while writing to the stream
+     */
+    void writeToOutputStream(CmsSlabBuffer buffer, boolean useArray) throws IOException {
+
+        if (isSuspended()) {
+            return;
+        }
+        if (m_writeOnlyToBuffer) {
+            if (useArray) {
+                // the buffer can be reused by the cache after delivery, so the bytes must be copied
+                m_cacheBytes = buffer.toByteArray();
+            } else {
+                if (m_out == null) {
+                    initStream();
+                }
+                buffer.writeTo(m_out);
+            }
+        } else {
+            // The request is not buffered, so we can write directly to it's parents output stream
+            buffer.writeTo(m_res.getOutputStream());
+            m_res.getOutputStream().flush();
+        }
+    }
+
     /**
      * Helper method to add a value in the internal header list.<p>
      *
@@ -1219,6 +1254,8 @@ public class CmsFlexResponse extends HttpServletResponseWrapper {
                 Object o = elements.get(i);
                 if (o instanceof byte[]) {
                     res.getOutputStream().write((byte[])o);
+                } else if (o instanceof CmsSlabBuffer) {
+                    ((CmsSlabBuffer)o).writeTo(res.getOutputStream());
                 } else {
                     if ((m_includeResults != null) && (m_includeResults.size() > count)) {
                         // make sure that we don't run behind end of list (should never happen, though)
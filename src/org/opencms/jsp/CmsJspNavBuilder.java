@@ -37,10 +37,12 @@ import org.opencms.file.types.I_CmsResourceType;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.security.CmsPermissionSet;
 import org.opencms.util.CmsFileUtil;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -542,24 +544,10 @@ public class CmsJspNavBuilder {
         folder = CmsFileUtil.removeTrailingSeparator(folder);
         List<CmsJspNavElement> result = new ArrayList<CmsJspNavElement>();
 
-        List<CmsResource> resources = null;
-        try {
-
-            resources = m_cms.getResourcesInFolder(folder, resourceFilter);
-        } catch (Exception e) {
-            // should never happen
-            LOG.error(e.getLocalizedMessage(), e);
-        }
-        if (resources == null) {
-            return Collections.<CmsJspNavElement> emptyList();
-        }
         boolean includeAll = visibility == Visibility.all;
         boolean includeHidden = visibility == Visibility.includeHidden;
-        for (CmsResource r : resources) {
-            CmsJspNavElement element = getNavigationForResource(m_cms.getSitePath(r), resourceFilter);
-            if ((element != null)
-                && (includeAll
-                    || (element.isInNavigation() && (includeHidden || !element.isHiddenNavigationEntry())))) {
+        for (CmsJspNavElement element : getNavigationElements(folder, resourceFilter, false)) {
+            if (includeAll || (element.isInNavigation() && (includeHidden || !element.isHiddenNavigationEntry()))) {
                 element.setNavContext(new NavContext(this, visibility, resourceFilter));
                 result.add(element);
             }
@@ -782,6 +770,135 @@ public class CmsJspNavBuilder {
         m_requestUriFolder = CmsResource.getFolderPath(m_requestUri);
     }
 
+    /**
+     * Returns the navigation cache, if it can be used for the current context and the given resource filter.<p>
+     *
+     * @param resourceFilter the filter to use reading the resources
+     *
+     * @return the navigation cache, or <code>null</code> if the resources have to be read
+     */
+    private CmsJspNavCache getNavigationCache(CmsResourceFilter resourceFilter) {
+
+        CmsJspNavCache cache = CmsJspNavCache.getInstance();
+        if ((cache != null)
+            && resourceFilter.equals(CmsResourceFilter.DEFAULT)
+            && m_cms.getRequestContext().getCurrentProject().isOnlineProject()) {
+            return cache;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the navigation elements for all resources in the given folder, regardless of their visibility.<p>
+     *
+     * The elements are created from the {@link CmsJspNavCache} in the online project.<p>
+     *
+     * @param folder the selected folder
+     * @param resourceFilter the filter to use reading the resources
+     * @param shallow <code>true</code> for a shallow look up, not regarding next level resources
+     *
+     * @return the unsorted list of navigation elements
+     */
+    private List<CmsJspNavElement> getNavigationElements(
+        String folder,
+        CmsResourceFilter resourceFilter,
+        boolean shallow) {
+
+        List<CmsJspNavElement> result = new ArrayList<CmsJspNavElement>();
+        CmsJspNavCache cache = getNavigationCache(resourceFilter);
+        if (cache != null) {
+            String rootPath = m_cms.getRequestContext().addSiteRoot(CmsFileUtil.addTrailingSeparator(folder));
+            try {
+                for (CmsJspNavCache.Entry entry : cache.getEntries(rootPath)) {
+                    CmsJspNavElement element = getNavigationForEntry(entry, shallow);
+                    if (element != null) {
+                        result.add(element);
+                    }
+                }
+                return result;
+            } catch (CmsException e) {
+                // read the folder without the cache
+                LOG.warn(e.getLocalizedMessage(), e);
+                result.clear();
+            }
+        }
+
+        List<CmsResource> resources;
+        try {
+            resources = m_cms.getResourcesInFolder(folder, resourceFilter);
+        } catch (Exception e) {
+            // should never happen
+            LOG.error(e.getLocalizedMessage(), e);
+            return result;
+        }
+        for (CmsResource r : resources) {
+            CmsJspNavElement element = getNavigationForResource(m_cms.getSitePath(r), resourceFilter, shallow);
+            if (element != null) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a navigation element from a navigation cache entry.<p>
+     *
+     * Applies the read permissions of the current user and the request time, like reading the resource
+     * with the default resource filter.<p>
+     *
+     * @param entry the navigation cache entry
+     * @param shallow <code>true</code> for a shallow look up, not regarding next level resources
+     *
+     * @return the navigation element, or <code>null</code> if the resource is not shown
+     */
+    private CmsJspNavElement getNavigationForEntry(CmsJspNavCache.Entry entry, boolean shallow) {
+
+        CmsResource resource = entry.getResource();
+        try {
+            if (!m_cms.hasPermissions(resource, CmsPermissionSet.ACCESS_READ, false, CmsResourceFilter.DEFAULT)) {
+                return null;
+            }
+        } catch (CmsException e) {
+            LOG.warn(e.getLocalizedMessage(), e);
+            return null;
+        }
+        String sitePath = m_cms.getSitePath(resource);
+        int level = CmsResource.getPathLevel(sitePath);
+        if (sitePath.endsWith("/")) {
+            level--;
+        }
+        Map<String, String> propertiesMap = entry.getProperties();
+        if (resource.isFolder()) {
+            boolean navigationLevel = NAVIGATION_LEVEL_FOLDER.equals(
+                propertiesMap.get(CmsPropertyDefinition.PROPERTY_DEFAULT_FILE));
+            CmsResource defaultFile = entry.getDefaultFile();
+            if (!navigationLevel
+                && (defaultFile != null)
+                && !defaultFile.isReleasedAndNotExpired(m_cms.getRequestContext().getRequestTime())) {
+                // do not show navigation entries for unreleased or expired resources
+                return null;
+            }
+            if (!shallow && navigationLevel) {
+                // this folder is marked as a navigation level, set the site path to the first sub element
+                List<CmsJspNavElement> subElements = getNavigationForFolder(
+                    sitePath,
+                    false,
+                    CmsResourceFilter.DEFAULT,
+                    true);
+                if (!subElements.isEmpty()) {
+                    CmsJspNavElement subElement = getNavigationForResource(
+                        subElements.get(0).getSitePath(),
+                        CmsResourceFilter.DEFAULT,
+                        false);
+                    if (subElement != null) {
+                        sitePath = subElement.getSitePath();
+                    }
+                }
+            }
+        }
+        return new CmsJspNavElement(sitePath, resource, new HashMap<String, String>(propertiesMap), level, m_locale);
+    }
+
     /**
      * Collect all navigation elements from the files in the given folder.<p>
     *
@@ -801,18 +918,8 @@ public class CmsJspNavBuilder {
         folder = CmsResource.getFolderPath(folder);
         List<CmsJspNavElement> result = new ArrayList<CmsJspNavElement>();
 
-        List<CmsResource> resources;
-        try {
-            resources = m_cms.getResourcesInFolder(folder, resourceFilter);
-        } catch (Exception e) {
-            // should never happen
-            LOG.error(e.getLocalizedMessage(), e);
-            return Collections.<CmsJspNavElement> emptyList();
-        }
-
-        for (CmsResource r : resources) {
-            CmsJspNavElement element = getNavigationForResource(m_cms.getSitePath(r), resourceFilter, shallow);
-            if ((element != null) && (includeInvisible || element.isInNavigation())) {
+        for (CmsJspNavElement element : getNavigationElements(folder, resourceFilter, shallow)) {
+            if (includeInvisible || element.isInNavigation()) {
                 result.add(element);
             }
         }
@@ -835,6 +942,28 @@ public class CmsJspNavBuilder {
         CmsResourceFilter resourceFilter,
         boolean shallow) {
 
+        CmsJspNavCache cache = getNavigationCache(resourceFilter);
+        if (cache != null) {
+            String rootPath = CmsFileUtil.removeTrailingSeparator(m_cms.getRequestContext().addSiteRoot(sitePath));
+            String parentFolder = CmsResource.getParentFolder(rootPath);
+            if (parentFolder != null) {
+                try {
+                    for (CmsJspNavCache.Entry entry : cache.getEntries(parentFolder)) {
+                        if (rootPath.equals(CmsFileUtil.removeTrailingSeparator(entry.getRootPath()))) {
+                            CmsJspNavElement element = getNavigationForEntry(entry, shallow);
+                            if (element != null) {
+                                return element;
+                            }
+                            // read the resource for the same result and log output as without the cache
+                            break;
+                        }
+                    }
+                } catch (CmsException e) {
+                    LOG.warn(e.getLocalizedMessage(), e);
+                }
+            }
+        }
+
         CmsResource resource;
         Map<String, String> propertiesMap;
         int level = CmsResource.getPathLevel(sitePath);
@@ -0,0 +1,405 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.jsp;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Caches the navigation information of the online project for the {@link CmsJspNavBuilder}.<p>
+ *
+ * For each folder, the cache holds an immutable list with the resources in the folder and their properties.
+ * The lists are read with the permissions of the administrator and also contain resources that are not released yet
+ * or expired. The navigation builder applies the permissions of the current user, the request time, the visibility
+ * and the locale when it creates the navigation elements from the cached entries.<p>
+ *
+ * After publishing, the parent folders of the published resources are removed from the cache, and the cached
+ * sub-folders of published new or deleted folders. Since siblings share their resource properties, the folders
+ * containing a sibling of a published resource are removed as well.<p>
+ *
+ * @since 11.0.0
+ */
+public final class CmsJspNavCache implements I_CmsEventListener {
+
+    /**
+     * A cached resource with its properties.<p>
+     */
+    static final class Entry {
+
+        /** The default file, if the resource is a folder that has one. */
+        private final CmsResource m_defaultFile;
+
+        /** The properties of the resource. */
+        private final Map<String, String> m_properties;
+
+        /** The resource. */
+        private final CmsResource m_resource;
+
+        /**
+         * Creates a new cache entry.<p>
+         *
+         * @param resource the resource
+         * @param properties the properties of the resource
+         * @param defaultFile the default file of the folder, or <code>null</code>
+         */
+        Entry(CmsResource resource, Map<String, String> properties, CmsResource defaultFile) {
+
+            m_resource = resource;
+            m_properties = Collections.unmodifiableMap(properties);
+            m_defaultFile = defaultFile;
+        }
+
+        /**
+         * Returns a copy of the default file, if the resource is a folder that has one.<p>
+         *
+         * @return a copy of the default file, or <code>null</code>
+         */
+        CmsResource getDefaultFile() {
+
+            return m_defaultFile != null ? m_defaultFile.getCopy() : null;
+        }
+
+        /**
+         * Returns the unmodifiable properties of the resource.<p>
+         *
+         * @return the properties of the resource
+         */
+        Map<String, String> getProperties() {
+
+            return m_properties;
+        }
+
+        /**
+         * Returns a copy of the resource.<p>
+         *
+         * @return a copy of the resource
+         */
+        CmsResource getResource() {
+
+            return m_resource.getCopy();
+        }
+
+        /**
+         * Returns the resource id of the resource, which is shared by its siblings.<p>
+         *
+         * @return the resource id of the resource
+         */
+        CmsUUID getResourceId() {
+
+            return m_resource.getResourceId();
+        }
+
+        /**
+         * Returns the root path of the resource.<p>
+         *
+         * @return the root path of the resource
+         */
+        String getRootPath() {
+
+            return m_resource.getRootPath();
+        }
+    }
+
+    /** The maximal number of cached folders. */
+    public static final int MAX_FOLDERS = 4096;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsJspNavCache.class);
+
+    /** The singleton instance, or <code>null</code> if the cache is not initialized. */
+    private static CmsJspNavCache m_instance;
+
+    /** The admin CMS context for the online project. */
+    private CmsObject m_cms;
+
+    /** The cached folder entries, by the root path of the folder. */
+    private Map<String, List<Entry>> m_folders;
+
+    /** Incremented whenever cached folders are removed, to avoid caching lists read before the removal. */
+    private AtomicLong m_generation = new AtomicLong();
+
+    /**
+     * Creates a new navigation cache.<p>
+     *
+     * @param cms the admin CMS context for the online project
+     */
+    private CmsJspNavCache(CmsObject cms) {
+
+        m_cms = cms;
+        m_folders = CmsMemoryMonitor.createLRUCacheMap(MAX_FOLDERS);
+    }
+
+    /**
+     * Returns the navigation cache, or <code>null</code> if it is not initialized.<p>
+     *
+     * @return the navigation cache, or <code>null</code>
+     */
+    public static CmsJspNavCache getInstance() {
+
+        return m_instance;
+    }
+
+    /**
+     * Initializes the navigation cache and registers it as event listener.<p>
+     *
+     * @param adminCms a CMS context with administrator permissions
+     *
+     * @throws CmsException if reading the online project fails
+     */
+    public static void initialize(CmsObject adminCms) throws CmsException {
+
+        CmsObject cms = OpenCms.initCmsObject(adminCms);
+        cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        cms.getRequestContext().setSiteRoot("");
+        CmsJspNavCache cache = new CmsJspNavCache(cms);
+        OpenCms.addCmsEventListener(
+            cache,
+            new int[] {
+                I_CmsEventListener.EVENT_CLEAR_CACHES,
+                I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES,
+                I_CmsEventListener.EVENT_PUBLISH_PROJECT});
+        m_instance = cache;
+    }
+
+    /**
+     * Removes all folders from the cache.<p>
+     */
+    public void clear() {
+
+        m_generation.incrementAndGet();
+        m_folders.clear();
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        switch (event.getType()) {
+            case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
+                String publishHistoryId = (String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID);
+                if (publishHistoryId == null) {
+                    clear();
+                    break;
+                }
+                try {
+                    uncachePublishedResources(m_cms.readPublishedResources(new CmsUUID(publishHistoryId)));
+                } catch (CmsException e) {
+                    LOG.warn(e.getLocalizedMessage(), e);
+                    clear();
+                }
+                break;
+            case I_CmsEventListener.EVENT_CLEAR_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES:
+                clear();
+                break;
+            default:
+                // noop
+                break;
+        }
+    }
+
+    /**
+     * Returns the number of cached folders.<p>
+     *
+     * @return the number of cached folders
+     */
+    public int size() {
+
+        return m_folders.size();
+    }
+
+    /**
+     * Returns the cached entries for the resources in the given folder, reading them if they are not cached.<p>
+     *
+     * @param folderRootPath the root path of the folder, with a trailing separator
+     *
+     * @return the cached entries for the resources in the folder, in the order they were read
+     *
+     * @throws CmsException if reading the folder fails
+     */
+    List<Entry> getEntries(String folderRootPath) throws CmsException {
+
+        List<Entry> entries = m_folders.get(folderRootPath);
+        if (entries == null) {
+            long generation = m_generation.get();
+            entries = readEntries(folderRootPath);
+            m_folders.put(folderRootPath, entries);
+            if (generation != m_generation.get()) {
+                // the cache has been invalidated while reading, so the entries may be outdated
+                m_folders.remove(folderRootPath, entries);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Checks if the entries for the given folder are cached.<p>
+     *
+     * @param folderRootPath the root path of the folder, with a trailing separator
+     *
+     * @return <code>true</code> if the entries for the folder are cached
+     */
+    boolean isCached(String folderRootPath) {
+
+        return m_folders.containsKey(folderRootPath);
+    }
+
+    /**
+     * Removes the folders affected by the published resources from the cache.<p>
+     *
+     * @param publishedResources the published resources
+     */
+    void uncachePublishedResources(List<CmsPublishedResource> publishedResources) {
+
+        m_generation.incrementAndGet();
+        List<String> removedTrees = new ArrayList<String>();
+        Set<CmsUUID> siblingResourceIds = new HashSet<CmsUUID>();
+        for (CmsPublishedResource published : publishedResources) {
+            String rootPath = published.getRootPath();
+            // the list containing the resource, and the list containing its folder for changed default files
+            String parent = CmsResource.getParentFolder(rootPath);
+            if (parent != null) {
+                m_folders.remove(parent);
+                String grandParent = CmsResource.getParentFolder(parent);
+                if (grandParent != null) {
+                    m_folders.remove(grandParent);
+                }
+            }
+            if (published.isFolder() && (published.getState().isNew() || published.getState().isDeleted())) {
+                removedTrees.add(CmsFileUtil.addTrailingSeparator(rootPath));
+            }
+            if (published.getSiblingCount() > 1) {
+                // the siblings in other folders share the resource properties
+                siblingResourceIds.add(published.getResourceId());
+            }
+        }
+        if (removedTrees.isEmpty() && siblingResourceIds.isEmpty()) {
+            return;
+        }
+        Iterator<Map.Entry<String, List<Entry>>> it = m_folders.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, List<Entry>> folder = it.next();
+            if (isInTree(folder.getKey(), removedTrees) || containsResource(folder.getValue(), siblingResourceIds)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Checks if one of the given entries is a sibling of one of the given resources.<p>
+     *
+     * @param entries the cached entries of a folder
+     * @param resourceIds the resource ids
+     *
+     * @return <code>true</code> if one of the entries has one of the resource ids
+     */
+    private boolean containsResource(List<Entry> entries, Set<CmsUUID> resourceIds) {
+
+        if (!resourceIds.isEmpty()) {
+            for (Entry entry : entries) {
+                if (resourceIds.contains(entry.getResourceId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the given folder is in one of the given trees.<p>
+     *
+     * @param folder the root path of the folder
+     * @param trees the root paths of the trees, with a trailing separator
+     *
+     * @return <code>true</code> if the folder is in one of the trees
+     */
+    private boolean isInTree(String folder, List<String> trees) {
+
+        for (String tree : trees) {
+            if (folder.startsWith(tree)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the entries for the resources in the given folder.<p>
+     *
+     * @param folderRootPath the root path of the folder
+     *
+     * @return the unmodifiable list of entries
+     *
+     * @throws CmsException if reading the folder fails
+     */
+    private List<Entry> readEntries(String folderRootPath) throws CmsException {
+
+        // the request context of the shared CMS object must not be used concurrently
+        CmsObject cms = OpenCms.initCmsObject(m_cms);
+        List<CmsResource> resources = cms.getResourcesInFolder(folderRootPath, CmsResourceFilter.IGNORE_EXPIRATION);
+        List<Entry> entries = new ArrayList<Entry>(resources.size());
+        for (CmsResource resource : resources) {
+            Map<String, String> properties = CmsProperty.toMap(cms.readPropertyObjects(resource, false));
+            CmsResource defaultFile = null;
+            if (resource.isFolder()) {
+                try {
+                    defaultFile = cms.readDefaultFile(resource, CmsResourceFilter.IGNORE_EXPIRATION);
+                } catch (CmsException e) {
+                    // the folder is shown without checking the default file, as the navigation builder does
+                    LOG.debug(e.getLocalizedMessage(), e);
+                }
+            }
+            entries.add(new Entry(resource, properties, defaultFile));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+}
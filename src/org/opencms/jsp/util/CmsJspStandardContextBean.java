@@ -91,9 +91,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
@@ -1775,7 +1777,9 @@ public final class CmsJspStandardContextBean {
                 m_cms,
                 m_page,
                 pageResource.getRootPath());
-
+            if (m_page != null) {
+                prefetchElementResources();
+            }
         }
     }
 
@@ -2281,4 +2285,31 @@ public final class CmsJspStandardContextBean {
         }
     }
 
-}
\ No newline at end of file
+
+    /**
+     * Reads the resources of all elements of the current page and of their formatters at once.<p>
+     *
+     * This fills the resource cache, so the elements do not read their resources one by one from
+     * the database when they are rendered.<p>
+     */
+    private void prefetchElementResources() {
+
+        Set<CmsUUID> ids = new LinkedHashSet<CmsUUID>();
+        for (CmsContainerElementBean element : m_page.getElements()) {
+            if (!element.isInMemoryOnly() && (element.getId() != null)) {
+                ids.add(element.getId());
+            }
+            if ((element.getFormatterId() != null) && !element.getFormatterId().isNullUUID()) {
+                ids.add(element.getFormatterId());
+            }
+        }
+        if (ids.size() > 1) {
+            try {
+                m_cms.readResources(ids, CmsResourceFilter.IGNORE_EXPIRATION);
+            } catch (CmsException e) {
+                // the elements will read their resources when they are rendered
+                LOG.warn(e.getLocalizedMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+/**
+ * A single byte range requested with the HTTP "Range" header.<p>
+ *
+ * Only single ranges are supported. Requests for multiple ranges are answered with the
+ * complete content, which is allowed by the HTTP specification.<p>
+ *
+ * @since 11.0.0
+ */
+public final class CmsByteRange {
+
+    /** The prefix of byte range headers. */
+    private static final String BYTES_PREFIX = "bytes=";
+
+    /** The end of the range (inclusive). */
+    private long m_end;
+
+    /** The length of the complete content. */
+    private long m_length;
+
+    /** The start of the range. */
+    private long m_start;
+
+    /**
+     * Creates a new byte range.<p>
+     *
+     * @param start the start of the range
+     * @param end the end of the range (inclusive)
+     * @param length the length of the complete content
+     */
+    private CmsByteRange(long start, long end, long length) {
+
+        m_start = start;
+        m_end = end;
+        m_length = length;
+    }
+
+    /**
+     * Parses the value of a HTTP "Range" header.<p>
+     *
+     * If the header is missing, malformed or requests more than one range, <code>null</code> is returned and
+     * the complete content should be sent. If the range can not be satisfied for the given content length,
+     * a range is returned for which {@link #isSatisfiable()} is <code>false</code>.<p>
+     *
+     * @param header the value of the "Range" header, may be <code>null</code>
+     * @param length the length of the complete content
+     *
+     * @return the requested range, or <code>null</code> if the complete content should be sent
+     */
+    public static CmsByteRange parse(String header, long length) {
+
+        if (header == null) {
+            return null;
+        }
+        header = header.trim();
+        if (!header.startsWith(BYTES_PREFIX)) {
+            return null;
+        }
+        String spec = header.substring(BYTES_PREFIX.length()).trim();
+        if (spec.indexOf(',') >= 0) {
+            // multiple ranges are not supported
+            return null;
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String startStr = spec.substring(0, dash).trim();
+        String endStr = spec.substring(dash + 1).trim();
+        long start;
+        long end;
+        try {
+            if (startStr.length() == 0) {
+                // suffix range, e.g. "bytes=-500" for the last 500 bytes
+                long suffix = Long.parseLong(endStr);
+                if (suffix < 0) {
+                    return null;
+                }
+                // a suffix of 0 bytes can not be satisfied
+                start = suffix == 0 ? length : Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(startStr);
+                end = endStr.length() == 0 ? Long.MAX_VALUE : Long.parseLong(endStr);
+                if ((start < 0) || (end < start)) {
+                    return null;
+                }
+                end = Math.min(end, length - 1);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new CmsByteRange(start, end, length);
+    }
+
+    /**
+     * Returns the value for the "Content-Range" response header.<p>
+     *
+     * @return the value for the "Content-Range" header
+     */
+    public String getContentRange() {
+
+        if (!isSatisfiable()) {
+            return "bytes */" + m_length;
+        }
+        return "bytes " + m_start + "-" + m_end + "/" + m_length;
+    }
+
+    /**
+     * Returns the end of the range (inclusive).<p>
+     *
+     * @return the end of the range
+     */
+    public long getEnd() {
+
+        return m_end;
+    }
+
+    /**
+     * Returns the number of bytes in the range.<p>
+     *
+     * @return the number of bytes in the range
+     */
+    public long getLength() {
+
+        return (m_end - m_start) + 1;
+    }
+
+    /**
+     * Returns the start of the range.<p>
+     *
+     * @return the start of the range
+     */
+    public long getStart() {
+
+        return m_start;
+    }
+
+    /**
+     * Checks if the range can be satisfied for the length of the content.<p>
+     *
+     * @return true if the range can be satisfied
+     */
+    public boolean isSatisfiable() {
+
+        return (m_start < m_length) && (m_start <= m_end);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return getContentRange();
+    }
+}
@@ -40,6 +40,8 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.workplace.CmsWorkplaceManager;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.Locale;
 
@@ -48,6 +50,8 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.IOUtils;
+
 /**
  * Dump loader for binary or other unprocessed resource types.<p>
  *
@@ -58,6 +62,12 @@ import javax.servlet.http.HttpServletResponse;
  */
 public class CmsDumpLoader implements I_CmsResourceLoader {
 
+    /** The default minimum size of files that are streamed instead of being read into memory. */
+    public static final int DEFAULT_STREAM_THRESHOLD = 1024 * 1024;
+
+    /** The configuration parameter for the minimum size of files that are streamed instead of being read into memory. */
+    public static final String PARAM_STREAM_THRESHOLD = "stream.threshold";
+
     /** The id of this loader. */
     public static final int RESOURCE_LOADER_ID = 1;
 
@@ -67,6 +77,9 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
     /** The resource loader configuration. */
     private CmsParameterConfiguration m_configuration;
 
+    /** The minimum size of files that are streamed instead of being read into memory. */
+    private int m_streamThreshold = DEFAULT_STREAM_THRESHOLD;
+
     /**
      * The constructor of the class is empty and does nothing.<p>
      */
@@ -175,6 +188,7 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
         } else {
             m_clientCacheMaxAge = Long.parseLong(String.valueOf(maxAge));
         }
+        m_streamThreshold = m_configuration.getInteger(PARAM_STREAM_THRESHOLD, DEFAULT_STREAM_THRESHOLD);
 
         if (CmsLog.INIT.isInfoEnabled()) {
             if (maxAge != null) {
@@ -228,13 +242,34 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             return;
         }
 
-        // make sure we have the file contents available
-        CmsFile file = cms.readFile(resource);
+        CmsFile file = null;
+        long length;
+        if (isStreamed(resource)) {
+            // large files are streamed, so the content is not read into memory at once
+            length = resource.getLength();
+        } else {
+            // make sure we have the file contents available
+            file = cms.readFile(resource);
+            length = file.getContents().length;
+        }
 
-        // set response status to "200 - OK" (required for static export "on-demand")
-        res.setStatus(HttpServletResponse.SC_OK);
-        // set content length header
-        res.setContentLength(file.getContents().length);
+        CmsByteRange range = getRequestedRange(resource, length, req);
+        if ((range != null) && !range.isSatisfiable()) {
+            res.setHeader(CmsRequestUtil.HEADER_CONTENT_RANGE, range.getContentRange());
+            res.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        res.setHeader(CmsRequestUtil.HEADER_ACCEPT_RANGES, "bytes");
+        if (range == null) {
+            // set response status to "200 - OK" (required for static export "on-demand")
+            res.setStatus(HttpServletResponse.SC_OK);
+            // set content length header
+            res.setContentLengthLong(length);
+        } else {
+            res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            res.setHeader(CmsRequestUtil.HEADER_CONTENT_RANGE, range.getContentRange());
+            res.setContentLengthLong(range.getLength());
+        }
 
         if (CmsWorkplaceManager.isWorkplaceUser(req)) {
             // prevent caching for Workplace users
@@ -242,7 +277,7 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             CmsRequestUtil.setNoCacheHeaders(res);
         } else {
             // set date last modified header
-            res.setDateHeader(CmsRequestUtil.HEADER_LAST_MODIFIED, file.getDateLastModified());
+            res.setDateHeader(CmsRequestUtil.HEADER_LAST_MODIFIED, resource.getDateLastModified());
 
             // set "Expires" only if cache control is not already set
             if (!res.containsHeader(CmsRequestUtil.HEADER_CACHE_CONTROL)) {
@@ -256,7 +291,11 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             }
         }
 
-        service(cms, file, req, res);
+        if ((file != null) && (range == null)) {
+            service(cms, file, req, res);
+        } else {
+            writeContent(cms, file != null ? file : resource, range, res.getOutputStream());
+        }
     }
 
     /**
@@ -265,7 +304,11 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
     public void service(CmsObject cms, CmsResource resource, ServletRequest req, ServletResponse res)
     throws CmsException, IOException {
 
-        res.getOutputStream().write(cms.readFile(resource).getContents());
+        if (isStreamed(resource)) {
+            writeContent(cms, resource, null, res.getOutputStream());
+        } else {
+            res.getOutputStream().write(cms.readFile(resource).getContents());
+        }
     }
 
     /**
@@ -300,4 +343,77 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
         }
         return false;
     }
+
+    /**
+     * Returns the byte range requested by the client, if any.<p>
+     *
+     * Since no entity tags are sent, an "If-Range" header is only accepted with a date that matches
+     * the last modification date of the resource.<p>
+     *
+     * @param resource the requested resource
+     * @param length the length of the content
+     * @param req the current request
+     *
+     * @return the requested range, or <code>null</code> if the complete content should be sent
+     */
+    protected CmsByteRange getRequestedRange(CmsResource resource, long length, HttpServletRequest req) {
+
+        CmsByteRange range = CmsByteRange.parse(req.getHeader(CmsRequestUtil.HEADER_RANGE), length);
+        if ((range != null) && (req.getHeader(CmsRequestUtil.HEADER_IF_RANGE) != null)) {
+            long ifRangeDate;
+            try {
+                ifRangeDate = req.getDateHeader(CmsRequestUtil.HEADER_IF_RANGE);
+            } catch (IllegalArgumentException e) {
+                // an entity tag, which can not match
+                return null;
+            }
+            // HTTP dates have a resolution of seconds
+            if ((ifRangeDate / 1000) != (resource.getDateLastModified() / 1000)) {
+                return null;
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Checks if the content of the given resource should be streamed instead of being read into memory.<p>
+     *
+     * @param resource the resource to check
+     *
+     * @return true if the content should be streamed
+     */
+    protected boolean isStreamed(CmsResource resource) {
+
+        if ((resource instanceof CmsFile) && (((CmsFile)resource).getContents() != null)) {
+            // the content is already available
+            return false;
+        }
+        return resource.getLength() >= m_streamThreshold;
+    }
+
+    /**
+     * Writes the content of a resource, or a range of it, to the given output stream.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the resource to write the content for
+     * @param range the range to write, or <code>null</code> to write the complete content
+     * @param out the output stream to write to
+     *
+     * @throws CmsException if the content could not be read
+     * @throws IOException if writing to the output stream fails
+     */
+    protected void writeContent(CmsObject cms, CmsResource resource, CmsByteRange range, OutputStream out)
+    throws CmsException, IOException {
+
+        InputStream in = cms.readContentStream(resource);
+        try {
+            if (range == null) {
+                IOUtils.copyLarge(in, out);
+            } else {
+                IOUtils.copyLarge(in, out, range.getStart(), range.getLength());
+            }
+        } finally {
+            in.close();
+        }
+    }
 }
\ No newline at end of file
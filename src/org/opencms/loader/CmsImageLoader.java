@@ -39,9 +39,11 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.scheduler.jobs.CmsImageCacheCleanupJob;
+import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -75,9 +77,27 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The configuration parameter for the OpenCms XML configuration to set the maximum image scale size. */
     public static final String CONFIGURATION_MAX_SCALE_SIZE = "image.scaling.maxsize";
 
+    /** The configuration parameter for the OpenCms XML configuration to enable the pre-generation of scaled images after publishing. */
+    public static final String CONFIGURATION_PREGENERATE_ENABLED = "image.pregenerate.enabled";
+
+    /** The configuration parameter for the OpenCms XML configuration to also pre-generate recently requested variants. */
+    public static final String CONFIGURATION_PREGENERATE_REQUESTED = "image.pregenerate.requested";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the variants to pre-generate, may be followed by "." and a site root. */
+    public static final String CONFIGURATION_PREGENERATE_VARIANTS = "image.pregenerate.variants";
+
     /** The configuration parameter for the OpenCms XML configuration to enable the image scaling. */
     public static final String CONFIGURATION_SCALING_ENABLED = "image.scaling.enabled";
 
+    /** The configuration parameter for the OpenCms XML configuration to set the maximum number of queued image scaling operations. */
+    public static final String CONFIGURATION_SCALING_QUEUE_SIZE = "image.scaling.queuesize";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the number of image scaling threads. */
+    public static final String CONFIGURATION_SCALING_THREADS = "image.scaling.threads";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the time to wait for a scaled image in milliseconds. */
+    public static final String CONFIGURATION_SCALING_TIMEOUT = "image.scaling.timeout";
+
     /** Default name for the image cache repository. */
     public static final String IMAGE_REPOSITORY_DEFAULT = "/WEB-INF/imagecache/";
 
@@ -99,6 +119,12 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The maximum image size (width * height) to apply image blurring when down scaling (setting this to high may cause "out of memory" errors). */
     protected static int m_maxBlurSize = CmsImageScaler.SCALE_DEFAULT_MAX_BLUR_SIZE;
 
+    /** The pre-generator for scaled images, <code>null</code> if pre-generation is disabled. */
+    protected static CmsImagePregenerator m_pregenerator;
+
+    /** The executor used to scale images. */
+    protected static CmsImageScalingExecutor m_scalingExecutor;
+
     /** The disk cache to use for saving scaled image versions. */
     protected static CmsVfsNameBasedDiskCache m_vfsDiskCache;
 
@@ -108,6 +134,24 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The maximum image size (width or height) to allow when up scaling an image using request parameters. */
     protected int m_maxScaleSize = CmsImageScaler.SCALE_DEFAULT_MAX_SIZE;
 
+    /** Indicates if scaled images are pre-generated after publishing. */
+    protected boolean m_pregenerateEnabled;
+
+    /** Indicates if recently requested variants are pre-generated after publishing. */
+    protected boolean m_pregenerateRequested = true;
+
+    /** The configured variants to pre-generate by site root, the empty site root is used for all sites. */
+    protected Map<String, String> m_pregenerateVariants = new HashMap<String, String>();
+
+    /** The maximum number of queued image scaling operations. */
+    protected int m_scalingQueueSize = CmsImageScalingExecutor.DEFAULT_QUEUE_SIZE;
+
+    /** The number of image scaling threads. */
+    protected int m_scalingThreads = CmsImageScalingExecutor.getDefaultThreads();
+
+    /** The time to wait for a scaled image in milliseconds. */
+    protected long m_scalingTimeout = CmsImageScalingExecutor.DEFAULT_TIMEOUT;
+
     /**
      * Creates a new image loader.<p>
      */
@@ -153,6 +197,16 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         return m_maxBlurSize;
     }
 
+    /**
+     * Returns the executor used to scale images, which also collects the image scaling statistics.<p>
+     *
+     * @return the executor used to scale images, or <code>null</code> if the loader has not been initialized
+     */
+    public static CmsImageScalingExecutor getScalingExecutor() {
+
+        return m_scalingExecutor;
+    }
+
     /**
      * Returns <code>true</code> if the image scaling and processing capabilities for the
      * OpenCms VFS images have been enabled, <code>false</code> if not.<p>
@@ -201,6 +255,36 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
             if (CONFIGURATION_DOWNSCALE.equals(paramName)) {
                 m_downScaleParams = paramValue.trim();
             }
+            if (CONFIGURATION_PREGENERATE_ENABLED.equals(paramName)) {
+                m_pregenerateEnabled = Boolean.valueOf(paramValue).booleanValue();
+            }
+            if (CONFIGURATION_PREGENERATE_REQUESTED.equals(paramName)) {
+                m_pregenerateRequested = Boolean.valueOf(paramValue).booleanValue();
+            }
+            if (CONFIGURATION_PREGENERATE_VARIANTS.equals(paramName)) {
+                m_pregenerateVariants.put("", paramValue.trim());
+            } else if (paramName.startsWith(CONFIGURATION_PREGENERATE_VARIANTS + ".")) {
+                m_pregenerateVariants.put(
+                    paramName.substring(CONFIGURATION_PREGENERATE_VARIANTS.length() + 1),
+                    paramValue.trim());
+            }
+            if (CONFIGURATION_SCALING_THREADS.equals(paramName)) {
+                m_scalingThreads = Math.max(
+                    1,
+                    CmsStringUtil.getIntValue(paramValue, CmsImageScalingExecutor.getDefaultThreads(), paramName));
+            }
+            if (CONFIGURATION_SCALING_QUEUE_SIZE.equals(paramName)) {
+                m_scalingQueueSize = CmsStringUtil.getIntValue(
+                    paramValue,
+                    CmsImageScalingExecutor.DEFAULT_QUEUE_SIZE,
+                    paramName);
+            }
+            if (CONFIGURATION_SCALING_TIMEOUT.equals(paramName)) {
+                m_scalingTimeout = CmsStringUtil.getIntValue(
+                    paramValue,
+                    (int)CmsImageScalingExecutor.DEFAULT_TIMEOUT,
+                    paramName);
+            }
         }
         super.addConfigurationParameter(paramName, paramValue);
     }
@@ -245,6 +329,14 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         m_enabled = false;
         m_imageRepositoryFolder = null;
         m_vfsDiskCache = null;
+        if (m_scalingExecutor != null) {
+            m_scalingExecutor.shutDown();
+            m_scalingExecutor = null;
+        }
+        if (m_pregenerator != null) {
+            m_pregenerator.shutDown();
+            m_pregenerator = null;
+        }
     }
 
     /**
@@ -287,6 +379,15 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
                 OpenCms.getSystemInfo().getWebApplicationRfsPath(),
                 m_imageRepositoryFolder);
         }
+        if (m_scalingExecutor == null) {
+            m_scalingExecutor = new CmsImageScalingExecutor(m_scalingThreads, m_scalingQueueSize, m_scalingTimeout);
+        }
+        if (m_pregenerateEnabled && (m_pregenerator == null)) {
+            m_pregenerator = new CmsImagePregenerator(this, m_pregenerateRequested);
+            for (Map.Entry<String, String> entry : m_pregenerateVariants.entrySet()) {
+                m_pregenerator.addConfiguredVariants(entry.getKey(), entry.getValue());
+            }
+        }
         OpenCms.addCmsEventListener(this);
         // output setup information
         if (CmsLog.INIT.isInfoEnabled()) {
@@ -296,6 +397,26 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
                     m_vfsDiskCache.getRepositoryPath()));
             CmsLog.INIT.info(
                 Messages.get().getBundle().key(Messages.INIT_IMAGE_SCALING_ENABLED_1, Boolean.valueOf(m_enabled)));
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_IMAGE_SCALING_THREADS_3,
+                    new Integer(m_scalingThreads),
+                    new Integer(m_scalingQueueSize),
+                    new Long(m_scalingTimeout)));
+        }
+    }
+
+    /**
+     * Initializes the runtime information of this loader.<p>
+     *
+     * This starts the pre-generation of scaled images after publishing, if it is enabled.<p>
+     *
+     * @param adminCms an OpenCms context with admin permissions
+     */
+    public void initialize(CmsObject adminCms) {
+
+        if (m_pregenerator != null) {
+            m_pregenerator.initialize(adminCms);
         }
     }
 
@@ -315,6 +436,12 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
             CmsImageScaler scaler = new CmsImageScaler(req, m_maxScaleSize, m_maxBlurSize);
             // load the file from the cache
             CmsFile file = getScaledImage(cms, resource, scaler);
+            if (file == null) {
+                // too many images are currently being scaled, let the client try again later
+                res.setHeader(CmsRequestUtil.HEADER_RETRY_AFTER, "1");
+                res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            }
             // now perform standard load operation inherited from dump loader
             super.load(cms, file, req, res);
         } else {
@@ -323,57 +450,138 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         }
     }
 
+    /**
+     * Deletes scaled versions of an image from the image cache.<p>
+     *
+     * @param rootPath the root path of the image
+     * @param current the current version of the image, whose scaled versions are kept,
+     *      or <code>null</code> to delete the scaled versions of all image versions
+     *
+     * @return the number of deleted scaled versions
+     */
+    protected int deleteImageVariants(String rootPath, CmsResource current) {
+
+        return m_vfsDiskCache.deleteCacheFiles(rootPath, current);
+    }
+
     /**
      * Returns a scaled version of the given OpenCms VFS image resource.<p>
      *
      * All results are cached in disk.
-     * If the scaled version does not exist in the cache, it is created.
+     * If the scaled version does not exist in the cache, it is created in one of the image scaling threads,
+     * concurrent requests for the same scaled version wait for the same scaling operation.
      * Unscaled versions of the images are also stored in the cache.<p>
      *
      * @param cms the current users OpenCms context
      * @param resource the base VFS resource for the image
      * @param scaler the configured image scaler
      *
-     * @return a scaled version of the given OpenCms VFS image resource
+     * @return a scaled version of the given OpenCms VFS image resource, or <code>null</code> if too many
+     *      images are currently being scaled
      *
      * @throws IOException in case of errors accessing the disk based cache
      * @throws CmsException in case of errors accessing the OpenCms VFS
      */
-    protected CmsFile getScaledImage(CmsObject cms, CmsResource resource, CmsImageScaler scaler)
+    protected CmsFile getScaledImage(CmsObject cms, CmsResource resource, final CmsImageScaler scaler)
     throws IOException, CmsException {
 
         String cacheParam = scaler.isValid() ? scaler.toString() : null;
-        String cacheName = m_vfsDiskCache.getCacheName(resource, cacheParam);
+        final String cacheName = m_vfsDiskCache.getCacheName(resource, cacheParam);
         byte[] content = m_vfsDiskCache.getCacheContent(cacheName);
+        m_scalingExecutor.recordCacheLookup(content != null);
+        if ((m_pregenerator != null) && (cacheParam != null)) {
+            m_pregenerator.recordVariant(resource.getRootPath(), cacheParam);
+        }
 
         CmsFile file;
-        if (content != null) {
-            if (resource instanceof CmsFile) {
-                // the original file content must be modified (required e.g. for static export)
-                file = (CmsFile)resource;
-            } else {
-                // this is no file, but we don't want to use "upgrade" since we don't need to read the content from the VFS
-                file = new CmsFile(resource);
-            }
-            // save the content in the file
-            file.setContents(content);
-        } else {
+        if ((content == null) && !scaler.isValid()) {
             // we must read the content from the VFS (if this has not been done yet)
             file = cms.readFile(resource);
-            // upgrade the file (load the content)
-            if (scaler.isValid()) {
-                if (scaler.getType() == 8) {
-                    // only need the focal point for mode 8
-                    scaler.setFocalPoint(CmsPreviewService.readFocalPoint(cms, resource));
-                }
-                // valid scaling parameters found, scale the content
-                content = scaler.scaleImage(file);
-                // exchange the content of the file with the scaled version
-                file.setContents(content);
-            }
-            // save the file content in the cache
+            // save the unscaled file content in the cache
             m_vfsDiskCache.saveCacheFile(cacheName, file.getContents());
+            return file;
         }
+        if (content == null) {
+            // the scaling runs in another thread, so it needs its own context
+            final CmsObject scaleCms = OpenCms.initCmsObject(cms);
+            final CmsResource scaleResource = resource;
+            content = m_scalingExecutor.scale(
+                cacheName,
+                () -> scaleImage(scaleCms, scaleResource, scaler, cacheName));
+            if (content == null) {
+                return null;
+            }
+        }
+        if (resource instanceof CmsFile) {
+            // the original file content must be modified (required e.g. for static export)
+            file = (CmsFile)resource;
+        } else {
+            // this is no file, but we don't want to use "upgrade" since we don't need to read the content from the VFS
+            file = new CmsFile(resource);
+        }
+        // save the content in the file
+        file.setContents(content);
         return file;
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a scaled version of an image in the image cache, if it does not already exist.<p>
+     *
+     * @param cms the OpenCms context to use
+     * @param resource the image
+     * @param scaler the image scaler to use
+     *
+     * @return <code>true</code> if the scaled version has been created
+     *
+     * @throws IOException in case of errors accessing the disk based cache
+     * @throws CmsException in case of errors accessing the OpenCms VFS
+     */
+    protected boolean pregenerateImage(final CmsObject cms, final CmsResource resource, final CmsImageScaler scaler)
+    throws IOException, CmsException {
+
+        if (!scaler.isValid()) {
+            return false;
+        }
+        final String cacheName = m_vfsDiskCache.getCacheName(resource, scaler.toString());
+        if (m_vfsDiskCache.hasCacheContent(cacheName)) {
+            return false;
+        }
+        return m_scalingExecutor.scale(cacheName, () -> scaleImage(cms, resource, scaler, cacheName)) != null;
+    }
+
+    /**
+     * Scales an image and saves the scaled version in the image cache.<p>
+     *
+     * This is called in one of the image scaling threads.<p>
+     *
+     * @param cms the OpenCms context to use
+     * @param resource the base VFS resource for the image
+     * @param scaler the configured image scaler
+     * @param cacheName the image cache name of the scaled version
+     *
+     * @return the scaled image content
+     *
+     * @throws IOException in case of errors accessing the disk based cache
+     * @throws CmsException in case of errors accessing the OpenCms VFS
+     */
+    protected byte[] scaleImage(CmsObject cms, CmsResource resource, CmsImageScaler scaler, String cacheName)
+    throws IOException, CmsException {
+
+        // another request may have finished scaling the same image in the meantime
+        byte[] content = m_vfsDiskCache.getCacheContent(cacheName);
+        if (content != null) {
+            return content;
+        }
+        // we must read the content from the VFS (if this has not been done yet)
+        CmsFile file = cms.readFile(resource);
+        if (scaler.getType() == 8) {
+            // only need the focal point for mode 8
+            scaler.setFocalPoint(CmsPreviewService.readFocalPoint(cms, resource));
+        }
+        // valid scaling parameters found, scale the content
+        content = scaler.scaleImage(file);
+        // save the scaled content in the cache
+        m_vfsDiskCache.saveCacheFile(cacheName, content);
+        return content;
+    }
+}
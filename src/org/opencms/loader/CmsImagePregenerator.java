@@ -0,0 +1,407 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsLogReport;
+import org.opencms.report.I_CmsReport;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Pre-generates scaled image variants after publishing, so that the first request for a published image
+ * does not have to wait for the image to be scaled.<p>
+ *
+ * The variants to generate for an image are the variants configured for the site of the image, and optionally
+ * the variants that have recently been requested for the previous version of the image. The obsolete variants
+ * of replaced or deleted images are removed from the image cache.<p>
+ *
+ * The obsolete variants are removed and the pre-generation is scheduled while the publish event is fired,
+ * so a line for each published image is written to the publish report. The variants are then generated one
+ * image after another in a single background thread, while the scaling itself runs in the image scaling threads
+ * of the {@link CmsImageScalingExecutor}. The publish thread does not wait for the scaling, problems during the
+ * scaling are only written to the log.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsImagePregenerator implements I_CmsEventListener {
+
+    /** The default maximum number of images for which the requested variants are remembered. */
+    public static final int DEFAULT_MAX_IMAGES = 10000;
+
+    /** The default maximum number of images waiting to be pre-generated. */
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    /** The maximum number of requested variants remembered for a single image. */
+    public static final int MAX_VARIANTS_PER_IMAGE = 32;
+
+    /** The separator for variants in the configuration. */
+    public static final String VARIANT_SEPARATOR = "|";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsImagePregenerator.class);
+
+    /** The admin context used to read the published images. */
+    private CmsObject m_adminCms;
+
+    /** The configured variants by site root, the empty site root is used for all sites. */
+    private Map<String, List<String>> m_configuredVariants;
+
+    /** The background thread. */
+    private ThreadPoolExecutor m_executor;
+
+    /** The image loader used to scale the images. */
+    private CmsImageLoader m_loader;
+
+    /** The recently requested variants by image root path. */
+    private Cache<String, Set<String>> m_requestedVariants;
+
+    /**
+     * Creates a new image pre-generator.<p>
+     *
+     * @param loader the image loader used to scale the images
+     * @param useRequestedVariants if <code>true</code>, recently requested variants are pre-generated as well
+     */
+    public CmsImagePregenerator(CmsImageLoader loader, boolean useRequestedVariants) {
+
+        m_loader = loader;
+        m_configuredVariants = new ConcurrentHashMap<String, List<String>>();
+        if (useRequestedVariants) {
+            m_requestedVariants = CacheBuilder.newBuilder().maximumSize(DEFAULT_MAX_IMAGES).build();
+        }
+        m_executor = new ThreadPoolExecutor(
+            1,
+            1,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(DEFAULT_QUEUE_SIZE),
+            runnable -> {
+                Thread thread = new Thread(runnable, "OpenCms-ImagePregeneration");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        m_executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Adds variants to pre-generate for all images of a site.<p>
+     *
+     * @param siteRoot the site root, or the empty String for all sites
+     * @param variants the image scaler parameters of the variants, separated by {@link #VARIANT_SEPARATOR}
+     */
+    public void addConfiguredVariants(String siteRoot, String variants) {
+
+        List<String> result = new ArrayList<String>();
+        for (String variant : CmsStringUtil.splitAsList(variants, VARIANT_SEPARATOR, true)) {
+            CmsImageScaler scaler = new CmsImageScaler(variant);
+            if (scaler.isValid()) {
+                // use the normalized parameters, so the variant matches the cache name used for requests
+                result.add(scaler.toString());
+            }
+        }
+        m_configuredVariants.put(siteRoot, Collections.unmodifiableList(result));
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        if ((event.getType() != I_CmsEventListener.EVENT_PUBLISH_PROJECT) || (m_adminCms == null)) {
+            return;
+        }
+        Map<String, ?> data = event.getData();
+        I_CmsReport report = (I_CmsReport)data.get(I_CmsEventListener.KEY_REPORT);
+        if (report == null) {
+            report = new CmsLogReport(Locale.ENGLISH, getClass());
+        }
+        CmsUUID publishHistoryId = new CmsUUID((String)data.get(I_CmsEventListener.KEY_PUBLISHID));
+        try {
+            CmsObject cms = OpenCms.initCmsObject(m_adminCms);
+            cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+            publishedImages(cms, cms.readPublishedResources(publishHistoryId), report);
+        } catch (CmsException e) {
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_IMAGE_PREGENERATION_PUBLISH_FAILED_1, publishHistoryId),
+                e);
+        }
+    }
+
+    /**
+     * Returns the variants to pre-generate for an image.<p>
+     *
+     * @param rootPath the root path of the image
+     *
+     * @return the image scaler parameters of the variants
+     */
+    public Set<String> getVariants(String rootPath) {
+
+        Set<String> result = new LinkedHashSet<String>();
+        List<String> variants = m_configuredVariants.get("");
+        if (variants != null) {
+            result.addAll(variants);
+        }
+        String siteRoot = OpenCms.getSiteManager().getSiteRoot(rootPath);
+        if (siteRoot != null) {
+            variants = m_configuredVariants.get(siteRoot);
+            if (variants != null) {
+                result.addAll(variants);
+            }
+        }
+        if (m_requestedVariants != null) {
+            Set<String> requested = m_requestedVariants.getIfPresent(rootPath);
+            if (requested != null) {
+                synchronized (requested) {
+                    result.addAll(requested);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Initializes the pre-generator and registers it as event listener.<p>
+     *
+     * @param adminCms an OpenCms context with admin permissions
+     */
+    public void initialize(CmsObject adminCms) {
+
+        m_adminCms = adminCms;
+        OpenCms.addCmsEventListener(this, new int[] {I_CmsEventListener.EVENT_PUBLISH_PROJECT});
+    }
+
+    /**
+     * Remembers that a variant of an image has been requested.<p>
+     *
+     * @param rootPath the root path of the image
+     * @param variant the image scaler parameters of the variant
+     */
+    public void recordVariant(String rootPath, String variant) {
+
+        if (m_requestedVariants == null) {
+            return;
+        }
+        Set<String> variants = m_requestedVariants.getIfPresent(rootPath);
+        if (variants == null) {
+            variants = new LinkedHashSet<String>();
+            Set<String> existing = m_requestedVariants.asMap().putIfAbsent(rootPath, variants);
+            if (existing != null) {
+                variants = existing;
+            }
+        }
+        synchronized (variants) {
+            if (variants.size() < MAX_VARIANTS_PER_IMAGE) {
+                variants.add(variant);
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread.<p>
+     */
+    public void shutDown() {
+
+        OpenCms.removeCmsEventListener(this);
+        m_executor.shutdownNow();
+    }
+
+    /**
+     * Generates the given variants of an image.<p>
+     *
+     * This is called in the background thread.<p>
+     *
+     * @param cms the OpenCms context to use
+     * @param resource the image
+     * @param variants the image scaler parameters of the variants to generate
+     */
+    protected void pregenerate(CmsObject cms, CmsResource resource, Set<String> variants) {
+
+        for (String variant : variants) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                m_loader.pregenerateImage(cms, resource, new CmsImageScaler(variant));
+            } catch (Exception e) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_IMAGE_PREGENERATION_FAILED_2,
+                        resource.getRootPath(),
+                        variant),
+                    e);
+            }
+        }
+    }
+
+    /**
+     * Removes obsolete variants of the published images from the image cache,
+     * and schedules the pre-generation of the variants for the new versions.<p>
+     *
+     * This is called in the thread that fires the publish event.<p>
+     *
+     * @param cms the OpenCms context for the online project
+     * @param publishedResources the published resources
+     * @param report the report to write to
+     */
+    protected void publishedImages(
+        CmsObject cms,
+        List<CmsPublishedResource> publishedResources,
+        I_CmsReport report) {
+
+        List<CmsPublishedResource> images = new ArrayList<CmsPublishedResource>();
+        for (CmsPublishedResource published : publishedResources) {
+            if (published.isFile() && isImage(published.getType())) {
+                images.add(published);
+            }
+        }
+        if (images.isEmpty()) {
+            return;
+        }
+        report.println(Messages.get().container(Messages.RPT_IMAGE_PREGENERATION_BEGIN_0), I_CmsReport.FORMAT_HEADLINE);
+        Integer size = new Integer(images.size());
+        int count = 0;
+        int scheduled = 0;
+        for (CmsPublishedResource image : images) {
+            count++;
+            String rootPath = image.getRootPath();
+            CmsResource resource = null;
+            if (!image.getState().isDeleted()) {
+                try {
+                    resource = cms.readResource(image.getStructureId(), CmsResourceFilter.ALL);
+                } catch (CmsException e) {
+                    // the image has been deleted or moved in the meantime
+                    LOG.debug(e.getLocalizedMessage(), e);
+                }
+            }
+            if ((resource == null) || !resource.getRootPath().equals(rootPath)) {
+                int deleted = m_loader.deleteImageVariants(rootPath, null);
+                report.println(
+                    Messages.get().container(
+                        Messages.RPT_IMAGE_VARIANTS_DELETED_4,
+                        new Object[] {new Integer(count), size, rootPath, new Integer(deleted)}),
+                    I_CmsReport.FORMAT_NOTE);
+                continue;
+            }
+            // collect the variants before they are forgotten with the old version
+            Set<String> variants = getVariants(rootPath);
+            int deleted = m_loader.deleteImageVariants(rootPath, resource);
+            if (!variants.isEmpty()) {
+                if (schedule(cms, resource, variants)) {
+                    scheduled += variants.size();
+                } else {
+                    variants = Collections.emptySet();
+                }
+            }
+            report.println(
+                Messages.get().container(
+                    Messages.RPT_IMAGE_VARIANTS_SCHEDULED_5,
+                    new Object[] {
+                        new Integer(count),
+                        size,
+                        rootPath,
+                        new Integer(variants.size()),
+                        new Integer(deleted)}),
+                I_CmsReport.FORMAT_NOTE);
+        }
+        report.println(
+            Messages.get().container(Messages.RPT_IMAGE_PREGENERATION_END_1, new Integer(scheduled)),
+            I_CmsReport.FORMAT_HEADLINE);
+    }
+
+    /**
+     * Checks if resources of the given type are served by the image loader.<p>
+     *
+     * @param typeId the resource type id
+     *
+     * @return <code>true</code> if resources of the given type are served by the image loader
+     */
+    private boolean isImage(int typeId) {
+
+        try {
+            return OpenCms.getResourceManager().getResourceType(
+                typeId).getLoaderId() == CmsImageLoader.RESOURCE_LOADER_ID_IMAGE_LOADER;
+        } catch (CmsLoaderException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Schedules the pre-generation of variants of an image in the background thread.<p>
+     *
+     * @param cms the OpenCms context for the online project
+     * @param resource the image
+     * @param variants the image scaler parameters of the variants to generate
+     *
+     * @return <code>false</code> if the image could not be scheduled because the queue is full
+     */
+    private boolean schedule(CmsObject cms, final CmsResource resource, final Set<String> variants) {
+
+        final CmsObject pregenerateCms;
+        try {
+            pregenerateCms = OpenCms.initCmsObject(cms);
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return false;
+        }
+        try {
+            m_executor.execute(() -> pregenerate(pregenerateCms, resource, variants));
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_IMAGE_PREGENERATION_REJECTED_1, resource.getRootPath()));
+            return false;
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Runs image scaling operations in a bounded pool of worker threads.<p>
+ *
+ * Concurrent requests for the same scaled image variant are coalesced, so that the image is scaled only once
+ * and all waiting requests get the same result. The number of scaling operations waiting to be executed is limited,
+ * if the queue is full further requests are rejected instead of being queued, so that a burst of requests for
+ * new image variants can not exhaust the heap.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsImageScalingExecutor {
+
+    /** The default maximum number of scaling operations waiting to be executed. */
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+
+    /** The default time to wait for a scaling operation in milliseconds. */
+    public static final long DEFAULT_TIMEOUT = 30000;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsImageScalingExecutor.class);
+
+    /** The number of image cache hits. */
+    private AtomicLong m_cacheHits = new AtomicLong();
+
+    /** The number of image cache misses. */
+    private AtomicLong m_cacheMisses = new AtomicLong();
+
+    /** The number of requests that waited for a scaling operation started by another request. */
+    private AtomicLong m_coalescedRequests = new AtomicLong();
+
+    /** The thread pool. */
+    private ThreadPoolExecutor m_executor;
+
+    /** The number of failed scaling operations. */
+    private AtomicLong m_failedScales = new AtomicLong();
+
+    /** The currently running or queued scaling operations by cache name. */
+    private ConcurrentHashMap<String, CompletableFuture<byte[]>> m_pending;
+
+    /** The total time scaling operations waited in the queue, in nanoseconds. */
+    private AtomicLong m_queueWaitNanos = new AtomicLong();
+
+    /** The number of requests rejected because the queue was full. */
+    private AtomicLong m_rejectedRequests = new AtomicLong();
+
+    /** The total time spent in scaling operations, in nanoseconds. */
+    private AtomicLong m_scaleNanos = new AtomicLong();
+
+    /** The number of completed scaling operations. */
+    private AtomicLong m_scales = new AtomicLong();
+
+    /** The time the statistics have been reset. */
+    private volatile long m_statisticsStart;
+
+    /** The time to wait for a scaling operation in milliseconds. */
+    private long m_timeout;
+
+    /** The number of requests that timed out while waiting for a scaling operation. */
+    private AtomicLong m_timeouts = new AtomicLong();
+
+    /**
+     * Creates a new image scaling executor.<p>
+     *
+     * @param threads the number of worker threads
+     * @param queueSize the maximum number of scaling operations waiting to be executed
+     * @param timeout the time to wait for a scaling operation in milliseconds
+     */
+    public CmsImageScalingExecutor(int threads, int queueSize, long timeout) {
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        m_executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)),
+            runnable -> {
+                Thread thread = new Thread(runnable, "OpenCms-ImageScaling-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        m_executor.allowCoreThreadTimeOut(true);
+        m_pending = new ConcurrentHashMap<String, CompletableFuture<byte[]>>();
+        m_timeout = timeout;
+        m_statisticsStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the default number of worker threads, which is half the number of available processors.<p>
+     *
+     * @return the default number of worker threads
+     */
+    public static int getDefaultThreads() {
+
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    /**
+     * Returns the average time a scaling operation waited in the queue in milliseconds.<p>
+     *
+     * @return the average queue wait time
+     */
+    public double getAverageQueueWait() {
+
+        long scales = m_scales.get() + m_failedScales.get();
+        return scales > 0 ? (m_queueWaitNanos.get() / 1000000.0) / scales : 0;
+    }
+
+    /**
+     * Returns the average duration of a scaling operation in milliseconds.<p>
+     *
+     * @return the average scaling duration
+     */
+    public double getAverageScaleTime() {
+
+        long scales = m_scales.get() + m_failedScales.get();
+        return scales > 0 ? (m_scaleNanos.get() / 1000000.0) / scales : 0;
+    }
+
+    /**
+     * Returns the number of image cache hits.<p>
+     *
+     * @return the number of image cache hits
+     */
+    public long getCacheHitCount() {
+
+        return m_cacheHits.get();
+    }
+
+    /**
+     * Returns the ratio of image cache hits to all image cache lookups.<p>
+     *
+     * @return the image cache hit ratio, between 0 and 1
+     */
+    public double getCacheHitRatio() {
+
+        long hits = m_cacheHits.get();
+        long total = hits + m_cacheMisses.get();
+        return total > 0 ? (double)hits / total : 0;
+    }
+
+    /**
+     * Returns the number of image cache misses.<p>
+     *
+     * @return the number of image cache misses
+     */
+    public long getCacheMissCount() {
+
+        return m_cacheMisses.get();
+    }
+
+    /**
+     * Returns the number of requests that waited for a scaling operation started by another request.<p>
+     *
+     * @return the number of coalesced requests
+     */
+    public long getCoalescedRequestCount() {
+
+        return m_coalescedRequests.get();
+    }
+
+    /**
+     * Returns the number of failed scaling operations.<p>
+     *
+     * @return the number of failed scaling operations
+     */
+    public long getFailedScaleCount() {
+
+        return m_failedScales.get();
+    }
+
+    /**
+     * Returns the number of scaling operations currently waiting in the queue.<p>
+     *
+     * @return the queue size
+     */
+    public int getQueueSize() {
+
+        return m_executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of requests rejected because the queue was full.<p>
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejectedRequestCount() {
+
+        return m_rejectedRequests.get();
+    }
+
+    /**
+     * Returns the number of completed scaling operations.<p>
+     *
+     * @return the number of completed scaling operations
+     */
+    public long getScaleCount() {
+
+        return m_scales.get();
+    }
+
+    /**
+     * Returns the average number of scaling operations per second since the statistics have been reset.<p>
+     *
+     * @return the number of scaling operations per second
+     */
+    public double getScalesPerSecond() {
+
+        long seconds = (System.currentTimeMillis() - m_statisticsStart) / 1000;
+        return seconds > 0 ? (double)m_scales.get() / seconds : m_scales.get();
+    }
+
+    /**
+     * Returns the number of requests that timed out while waiting for a scaling operation.<p>
+     *
+     * @return the number of timeouts
+     */
+    public long getTimeoutCount() {
+
+        return m_timeouts.get();
+    }
+
+    /**
+     * Records an image cache lookup.<p>
+     *
+     * @param hit <code>true</code> if the image was found in the cache
+     */
+    public void recordCacheLookup(boolean hit) {
+
+        if (hit) {
+            m_cacheHits.incrementAndGet();
+        } else {
+            m_cacheMisses.incrementAndGet();
+        }
+    }
+
+    /**
+     * Resets the statistics.<p>
+     */
+    public void resetStatistics() {
+
+        m_cacheHits.set(0);
+        m_cacheMisses.set(0);
+        m_coalescedRequests.set(0);
+        m_failedScales.set(0);
+        m_queueWaitNanos.set(0);
+        m_rejectedRequests.set(0);
+        m_scaleNanos.set(0);
+        m_scales.set(0);
+        m_timeouts.set(0);
+        m_statisticsStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Scales an image in one of the worker threads and waits for the result.<p>
+     *
+     * If the same image variant is already being scaled for another request, no new scaling operation
+     * is started, instead the result of the running operation is returned.<p>
+     *
+     * @param cacheName the image cache name of the scaled image variant
+     * @param task the scaling operation
+     *
+     * @return the scaled image content, or <code>null</code> if the scaling queue is full or the result
+     *      was not available in time
+     *
+     * @throws CmsException if the scaling operation fails with a CmsException
+     * @throws IOException if the scaling operation fails with an IOException
+     */
+    public byte[] scale(final String cacheName, final Callable<byte[]> task) throws CmsException, IOException {
+
+        final CompletableFuture<byte[]> result = new CompletableFuture<byte[]>();
+        CompletableFuture<byte[]> pending = m_pending.putIfAbsent(cacheName, result);
+        if (pending != null) {
+            m_coalescedRequests.incrementAndGet();
+            return waitFor(cacheName, pending);
+        }
+        final long queued = System.nanoTime();
+        try {
+            m_executor.execute(() -> {
+                long start = System.nanoTime();
+                m_queueWaitNanos.addAndGet(start - queued);
+                try {
+                    byte[] content = task.call();
+                    m_scales.incrementAndGet();
+                    // remove the pending operation before completing it, the result is now in the image cache
+                    m_pending.remove(cacheName, result);
+                    result.complete(content);
+                } catch (Throwable t) {
+                    m_failedScales.incrementAndGet();
+                    m_pending.remove(cacheName, result);
+                    result.completeExceptionally(t);
+                } finally {
+                    m_scaleNanos.addAndGet(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            m_rejectedRequests.incrementAndGet();
+            m_pending.remove(cacheName, result);
+            // requests that already joined this operation are rejected as well
+            result.complete(null);
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_IMAGE_SCALING_REJECTED_2,
+                        cacheName,
+                        new Integer(getQueueSize())));
+            }
+            return null;
+        }
+        return waitFor(cacheName, result);
+    }
+
+    /**
+     * Shuts down the worker threads.<p>
+     */
+    public void shutDown() {
+
+        m_executor.shutdownNow();
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return "scales: "
+            + m_scales.get()
+            + ", queue: "
+            + getQueueSize()
+            + ", coalesced: "
+            + m_coalescedRequests.get()
+            + ", rejected: "
+            + m_rejectedRequests.get()
+            + ", timeouts: "
+            + m_timeouts.get();
+    }
+
+    /**
+     * Waits for the result of a scaling operation.<p>
+     *
+     * @param cacheName the image cache name of the scaled image variant
+     * @param result the result of the scaling operation
+     *
+     * @return the scaled image content, or <code>null</code> if the result was not available in time
+     *
+     * @throws CmsException if the scaling operation failed with a CmsException
+     * @throws IOException if the scaling operation failed with an IOException
+     */
+    private byte[] waitFor(String cacheName, CompletableFuture<byte[]> result) throws CmsException, IOException {
+
+        try {
+            return result.get(m_timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            m_timeouts.incrementAndGet();
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_IMAGE_SCALING_TIMEOUT_2,
+                        cacheName,
+                        new Long(m_timeout)));
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CmsException) {
+                throw (CmsException)cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.i18n.CmsEncoder;
+import org.opencms.util.CmsStringUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The include dependencies of the JSPs written to a JSP repository.<p>
+ *
+ * For each JSP that has been written to the repository, the graph stores the root paths of the files that
+ * are included with <code>&lt;%@ include %&gt;</code>, <code>&lt;%@ page errorPage %&gt;</code> or
+ * <code>&lt;%@ cms %&gt;</code> directives. This allows to find all JSPs that are affected by a change
+ * of an included file without parsing the JSPs again.<p>
+ *
+ * The graph is stored in a text file with one line per JSP, containing the root path of the JSP
+ * followed by the root paths of the included files, separated by tabs.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsJspDependencyGraph {
+
+    /** The separator of the root paths in a line of the dependency file. */
+    private static final char SEPARATOR = '\t';
+
+    /** The JSPs including a file, by root path of the included file. */
+    private Map<String, Set<String>> m_dependants = new HashMap<String, Set<String>>();
+
+    /** The files included by a JSP, by root path of the JSP. */
+    private Map<String, Set<String>> m_includes = new HashMap<String, Set<String>>();
+
+    /** Flag to indicate if the graph has been changed since it was last loaded or saved. */
+    private boolean m_modified;
+
+    /**
+     * Removes all JSPs from the graph.<p>
+     */
+    public synchronized void clear() {
+
+        m_modified |= !m_includes.isEmpty();
+        m_includes.clear();
+        m_dependants.clear();
+    }
+
+    /**
+     * Checks if the includes of the given JSP are known.<p>
+     *
+     * @param rootPath the root path of the JSP
+     *
+     * @return <code>true</code> if the includes of the given JSP are known
+     */
+    public synchronized boolean contains(String rootPath) {
+
+        return m_includes.containsKey(rootPath);
+    }
+
+    /**
+     * Returns the root paths of all JSPs that directly or indirectly include the given file.<p>
+     *
+     * @param rootPath the root path of the included file
+     *
+     * @return the root paths of the JSPs depending on the given file, not containing the file itself
+     */
+    public synchronized Set<String> getDependants(String rootPath) {
+
+        Set<String> result = new LinkedHashSet<String>();
+        Deque<String> todo = new ArrayDeque<String>();
+        todo.add(rootPath);
+        while (!todo.isEmpty()) {
+            Set<String> dependants = m_dependants.get(todo.poll());
+            if (dependants == null) {
+                continue;
+            }
+            for (String dependant : dependants) {
+                if (!dependant.equals(rootPath) && result.add(dependant)) {
+                    todo.add(dependant);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the root paths of the files directly included by the given JSP.<p>
+     *
+     * @param rootPath the root path of the JSP
+     *
+     * @return the root paths of the included files, empty if the JSP is not known
+     */
+    public synchronized Set<String> getIncludes(String rootPath) {
+
+        Set<String> includes = m_includes.get(rootPath);
+        if (includes == null) {
+            return Collections.emptySet();
+        }
+        return new HashSet<String>(includes);
+    }
+
+    /**
+     * Checks if the graph has been changed since it was last loaded or saved.<p>
+     *
+     * @return <code>true</code> if the graph has been changed
+     */
+    public synchronized boolean isModified() {
+
+        return m_modified;
+    }
+
+    /**
+     * Replaces the graph with the content of the given dependency file.<p>
+     *
+     * @param file the dependency file
+     *
+     * @throws IOException if reading the file fails
+     */
+    public void load(File file) throws IOException {
+
+        Map<String, List<String>> includes = new HashMap<String, List<String>>();
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), CmsEncoder.ENCODING_UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                List<String> paths = CmsStringUtil.splitAsList(line, SEPARATOR, true);
+                if (!paths.isEmpty() && paths.get(0).startsWith("/")) {
+                    includes.put(paths.get(0), paths.subList(1, paths.size()));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        synchronized (this) {
+            m_includes.clear();
+            m_dependants.clear();
+            for (Map.Entry<String, List<String>> entry : includes.entrySet()) {
+                setIncludes(entry.getKey(), entry.getValue());
+            }
+            m_modified = false;
+        }
+    }
+
+    /**
+     * Removes a JSP and its includes from the graph.<p>
+     *
+     * The JSPs including the given JSP are not changed.<p>
+     *
+     * @param rootPath the root path of the JSP
+     */
+    public synchronized void remove(String rootPath) {
+
+        Set<String> includes = m_includes.remove(rootPath);
+        if (includes == null) {
+            return;
+        }
+        for (String include : includes) {
+            Set<String> dependants = m_dependants.get(include);
+            if (dependants != null) {
+                dependants.remove(rootPath);
+                if (dependants.isEmpty()) {
+                    m_dependants.remove(include);
+                }
+            }
+        }
+        m_modified = true;
+    }
+
+    /**
+     * Writes the graph to the given dependency file.<p>
+     *
+     * @param file the dependency file
+     *
+     * @throws IOException if writing the file fails
+     */
+    public synchronized void save(File file) throws IOException {
+
+        List<String> jsps = new ArrayList<String>(m_includes.keySet());
+        Collections.sort(jsps);
+        File tempFile = new File(file.getPath() + ".tmp");
+        Writer writer = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(tempFile), CmsEncoder.ENCODING_UTF_8));
+        try {
+            for (String jsp : jsps) {
+                writer.write(jsp);
+                for (String include : m_includes.get(jsp)) {
+                    writer.write(SEPARATOR);
+                    writer.write(include);
+                }
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            // the target may not be replaced on some platforms
+            file.delete();
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                throw new IOException(file.getPath());
+            }
+        }
+        m_modified = false;
+    }
+
+    /**
+     * Sets the files included by the given JSP, replacing the previously known includes.<p>
+     *
+     * @param rootPath the root path of the JSP
+     * @param includes the root paths of the included files
+     */
+    public synchronized void setIncludes(String rootPath, Collection<String> includes) {
+
+        remove(rootPath);
+        Set<String> includeSet = new HashSet<String>(includes);
+        includeSet.remove(rootPath);
+        m_includes.put(rootPath, includeSet);
+        for (String include : includeSet) {
+            Set<String> dependants = m_dependants.get(include);
+            if (dependants == null) {
+                dependants = new HashSet<String>();
+                m_dependants.put(include, dependants);
+            }
+            dependants.add(rootPath);
+        }
+        m_modified = true;
+    }
+
+    /**
+     * Returns the number of JSPs with known includes.<p>
+     *
+     * @return the number of JSPs with known includes
+     */
+    public synchronized int size() {
+
+        return m_includes.size();
+    }
+}
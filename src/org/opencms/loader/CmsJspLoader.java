@@ -28,6 +28,7 @@
 package org.opencms.loader;
 
 import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.db.CmsPublishedResource;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsPropertyDefinition;
@@ -60,6 +61,7 @@ import org.opencms.staticexport.CmsLinkManager;
 import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 import org.opencms.util.I_CmsRegexSubstitution;
 import org.opencms.workplace.CmsWorkplaceManager;
 
@@ -70,12 +72,15 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.SocketException;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -123,8 +128,24 @@ import com.google.common.base.Splitter;
  * in your servlet environment, you should try to change the value here.
  * The default <code>true</code> has been tested with Tomcat 4.1 and 5.0.
  * Older versions of Tomcat like 4.0 require a setting of <code>false</code>.</dd>
+ *
+ * <dt>jsp.precompile</dt><dd>
+ * (Optional) If <code>true</code>, the JSPs of the online project are written to the JSP repository
+ * in background threads at startup, and the JSPs affected by a publish operation are written again
+ * after publishing. The default is <code>false</code>.</dd>
+ *
+ * <dt>jsp.precompile.folders</dt><dd>
+ * (Optional) The root paths of the folders with the JSPs to write at startup, separated by <code>|</code>.
+ * The default is <code>/system/modules/</code>.</dd>
+ *
+ * <dt>jsp.precompile.threads</dt><dd>
+ * (Optional) The number of threads used to write the JSPs. The default is 2.</dd>
  * </dl>
  *
+ * The loader records the files included by the online JSPs it writes to the repository in a
+ * {@link CmsJspDependencyGraph}, which is saved in the repository. When an included file is published,
+ * all JSPs including it are removed from the repository, so they are written again with the new version.<p>
+ *
  * @since 6.0.0
  *
  * @see I_CmsResourceLoader
@@ -140,6 +161,9 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** Default jsp folder constant. */
     public static final String DEFAULT_JSP_FOLDER = "/WEB-INF/jsp/";
 
+    /** Default folders to pre-compile the JSPs from. */
+    public static final String DEFAULT_PRECOMPILE_FOLDERS = "/system/modules/";
+
     /** Special JSP directive tag start (<code>%&gt;</code>). */
     public static final String DIRECTIVE_END = "%>";
 
@@ -161,15 +185,30 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** Jsp folder parameter name. */
     public static final String PARAM_JSP_FOLDER = "jsp.folder";
 
+    /** Jsp pre-compilation parameter name. */
+    public static final String PARAM_JSP_PRECOMPILE = "jsp.precompile";
+
+    /** Jsp pre-compilation folders parameter name. */
+    public static final String PARAM_JSP_PRECOMPILE_FOLDERS = "jsp.precompile.folders";
+
+    /** Jsp pre-compilation threads parameter name. */
+    public static final String PARAM_JSP_PRECOMPILE_THREADS = "jsp.precompile.threads";
+
     /** Jsp repository parameter name. */
     public static final String PARAM_JSP_REPOSITORY = "jsp.repository";
 
     /** The id of this loader. */
     public static final int RESOURCE_LOADER_ID = 6;
 
+    /** Request context attribute for the stack of includes collected while JSPs are written. */
+    private static final String ATTRIBUTE_INCLUDES = CmsJspLoader.class.getName() + ".includes";
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsJspLoader.class);
 
+    /** The name of the file storing the include dependencies of the online JSPs in the repository. */
+    private static final String ONLINE_DEPENDENCIES_FILE = "online.dependencies";
+
     /** The maximum age for delivered contents in the clients cache. */
     private static long m_clientCacheMaxAge;
 
@@ -182,6 +221,9 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** The directory to store the generated JSP pages in (relative path in web application). */
     private static String m_jspWebAppRepository;
 
+    /** The admin context, used to read the published resources. */
+    private CmsObject m_adminCms;
+
     /** The CmsFlexCache used to store generated cache entries in. */
     private CmsFlexCache m_cache;
 
@@ -194,9 +236,15 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** The offline JSPs. */
     private Map<String, Boolean> m_offlineJsps;
 
+    /** The include dependencies of the online JSPs in the repository. */
+    private CmsJspDependencyGraph m_onlineDependencies = new CmsJspDependencyGraph();
+
     /** The online JSPs. */
     private Map<String, Boolean> m_onlineJsps;
 
+    /** The pre-compiler for the online JSPs, or <code>null</code> if pre-compilation is disabled. */
+    private CmsJspPrecompiler m_precompiler;
+
     /** A map from taglib names to their URIs. */
     private Map<String, String> m_taglibs = new HashMap<String, String>();
 
@@ -246,17 +294,26 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
             case EVENT_CLEAR_ONLINE_CACHES:
                 m_onlineJsps.clear();
                 return;
+            case EVENT_PUBLISH_PROJECT:
+                String publishHistoryId = (String)event.getData().get(KEY_PUBLISHID);
+                if ((m_adminCms != null) && (publishHistoryId != null)) {
+                    invalidateOnlineJsps(new CmsUUID(publishHistoryId));
+                }
+                return;
             default:
                 // do nothing
         }
     }
 
     /**
-     * Destroy this ResourceLoder, this is a NOOP so far.
+     * Destroy this ResourceLoder, stops the pre-compilation and saves the include dependencies of the online JSPs.<p>
      */
     public void destroy() {
 
-        // NOOP
+        if (m_precompiler != null) {
+            m_precompiler.shutDown();
+        }
+        saveOnlineDependencies();
     }
 
     /**
@@ -431,6 +488,16 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
             initCaches(cacheSize);
         }
 
+        if (m_configuration.getBoolean(PARAM_JSP_PRECOMPILE, false)) {
+            m_precompiler = new CmsJspPrecompiler(
+                this,
+                CmsStringUtil.splitAsList(
+                    m_configuration.getString(PARAM_JSP_PRECOMPILE_FOLDERS, DEFAULT_PRECOMPILE_FOLDERS),
+                    '|',
+                    true),
+                m_configuration.getInteger(PARAM_JSP_PRECOMPILE_THREADS, CmsJspPrecompiler.DEFAULT_THREADS));
+        }
+
         // output setup information
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_JSP_REPOSITORY_ABS_PATH_1, m_jspRepository));
@@ -446,11 +513,45 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                 CmsLog.INIT.info(
                     Messages.get().getBundle().key(Messages.INIT_JSP_CACHE_SIZE_1, String.valueOf(cacheSize)));
             }
+            if (m_precompiler != null) {
+                CmsLog.INIT.info(
+                    Messages.get().getBundle().key(
+                        Messages.INIT_JSP_PRECOMPILE_2,
+                        String.valueOf(m_precompiler.getThreads()),
+                        CmsStringUtil.listAsString(m_precompiler.getFolders(), "|")));
+            }
             CmsLog.INIT.info(
                 Messages.get().getBundle().key(Messages.INIT_LOADER_INITIALIZED_1, this.getClass().getName()));
         }
     }
 
+    /**
+     * Initializes the runtime information of this loader.<p>
+     *
+     * This reads the saved include dependencies of the online JSPs and starts the pre-compilation,
+     * if it is enabled.<p>
+     *
+     * @param adminCms an OpenCms context with admin permissions
+     */
+    public void initialize(CmsObject adminCms) {
+
+        m_adminCms = adminCms;
+        File file = getOnlineDependenciesFile();
+        if (file.exists()) {
+            try {
+                m_onlineDependencies.load(file);
+            } catch (IOException e) {
+                LOG.warn(
+                    Messages.get().getBundle().key(Messages.LOG_JSP_DEPENDENCIES_READ_FAILED_1, file.getAbsolutePath()),
+                    e);
+            }
+        }
+        OpenCms.addCmsEventListener(this, new int[] {EVENT_PUBLISH_PROJECT});
+        if (m_precompiler != null) {
+            m_precompiler.initialize(adminCms);
+        }
+    }
+
     /**
      * @see org.opencms.loader.I_CmsResourceLoader#isStaticExportEnabled()
      */
@@ -637,6 +738,24 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         }
     }
 
+    /**
+     * Saves the include dependencies of the online JSPs in the JSP repository, if they have been changed.<p>
+     */
+    public void saveOnlineDependencies() {
+
+        if ((m_jspRepository == null) || !m_onlineDependencies.isModified()) {
+            return;
+        }
+        File file = getOnlineDependenciesFile();
+        try {
+            m_onlineDependencies.save(file);
+        } catch (IOException e) {
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_JSP_DEPENDENCIES_WRITE_FAILED_1, file.getAbsolutePath()),
+                e);
+        }
+    }
+
     /**
      * @see org.opencms.loader.I_CmsResourceLoader#service(org.opencms.file.CmsObject, org.opencms.file.CmsResource, javax.servlet.ServletRequest, javax.servlet.ServletResponse)
      */
@@ -809,6 +928,13 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                     if (mustUpdate) {
                         // update strong link dependencies
                         mustUpdate = updateStrongLinks(resource, controller, updatedFiles);
+                        if (controller.getCurrentRequest().isOnline() && m_onlineDependencies.contains(jspVfsName)) {
+                            // update the known includes, the JSP is invalidated when one of them is published
+                            mustUpdate |= updateIncludes(resource, controller, updatedFiles);
+                            if (!mustUpdate) {
+                                m_onlineJsps.put(jspVfsName, Boolean.TRUE);
+                            }
+                        }
                     }
                 }
             }
@@ -846,8 +972,15 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                         }
 
                         try {
-                            // parse the JSP and modify OpenCms critical directives
-                            contents = parseJsp(contents, encoding, controller, updatedFiles, isHardInclude);
+                            // parse the JSP and modify OpenCms critical directives, collecting the included files
+                            Set<String> includes = new HashSet<String>();
+                            Deque<Set<String>> includeStack = getIncludeStack(controller);
+                            includeStack.push(includes);
+                            try {
+                                contents = parseJsp(contents, encoding, controller, updatedFiles, isHardInclude);
+                            } finally {
+                                includeStack.pop();
+                            }
                             if (LOG.isInfoEnabled()) {
                                 // check for existing file and display some debug info
                                 LOG.info(
@@ -875,6 +1008,9 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                             }
                             if (controller.getCurrentRequest().isOnline()) {
                                 m_onlineJsps.put(jspVfsName, Boolean.TRUE);
+                                m_onlineDependencies.setIncludes(jspVfsName, includes);
+                                // the saved dependencies are outdated now, they are saved again later
+                                getOnlineDependenciesFile().delete();
                             } else {
                                 m_offlineJsps.put(jspVfsName, Boolean.TRUE);
                             }
@@ -1090,6 +1226,8 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
 
         d = new File(getJspRepository() + CmsFlexCache.REPOSITORY_OFFLINE + File.separator);
         CmsFileUtil.purgeDirectory(d);
+        m_onlineDependencies.clear();
+        getOnlineDependenciesFile().delete();
         if (afterPurgeAction != null) {
             afterPurgeAction.run();
         }
@@ -1588,6 +1726,43 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         return macroResolver.resolveMacros(content);
     }
 
+    /**
+     * Writes an online JSP to the JSP repository without a request, this is used by the {@link CmsJspPrecompiler}.<p>
+     *
+     * JSPs with includes that can not be resolved in the root site are removed from the repository again,
+     * so they are written by the first request for them.<p>
+     *
+     * @param cms the OpenCms context for the online project and the root site
+     * @param resource the JSP
+     * @param req a request without parameters and headers
+     *
+     * @return <code>true</code> if the JSP has been written or was up to date
+     *
+     * @throws Exception if something goes wrong
+     */
+    protected boolean precompileJsp(CmsObject cms, CmsResource resource, HttpServletRequest req) throws Exception {
+
+        if (m_cache == null) {
+            // the controller can not be created without the Flex cache
+            return false;
+        }
+        String rootPath = resource.getRootPath();
+        if (!m_onlineDependencies.contains(rootPath)) {
+            // the includes of a JSP written before are unknown, so it must be written again
+            removeOnlineJsps(Collections.singleton(rootPath));
+        }
+        CmsFlexController controller = new CmsFlexController(cms, resource, m_cache, req, null, false, true);
+        controller.push(new CmsFlexRequest(req, controller), null);
+        updateJsp(resource, controller, new HashSet<String>(8));
+        for (String include : m_onlineDependencies.getIncludes(rootPath)) {
+            if (!cms.existsResource(include, CmsResourceFilter.ALL)) {
+                removeOnlineJsps(Collections.singleton(rootPath));
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns the jsp resource identified by the given name, using the controllers cms context.<p>
      *
@@ -1640,6 +1815,38 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         out.close();
     }
 
+    /**
+     * Updates all files that are included by the given online jsp file according to the dependency graph.<p>
+     *
+     * @param resource the current updated jsp file
+     * @param controller the controller for the jsp integration
+     * @param updatedFiles the already updated files
+     *
+     * @return <code>true</code> if the given JSP file should be updated due to dirty included files
+     *
+     * @throws ServletException might be thrown in the process of including the JSP
+     * @throws IOException might be thrown in the process of including the JSP
+     * @throws CmsLoaderException if the resource type can not be read
+     */
+    protected boolean updateIncludes(CmsResource resource, CmsFlexController controller, Set<String> updatedFiles)
+    throws CmsLoaderException, IOException, ServletException {
+
+        int numberOfUpdates = updatedFiles.size();
+        for (String include : m_onlineDependencies.getIncludes(resource.getRootPath())) {
+            CmsResource target;
+            try {
+                target = readJspResource(controller, include);
+            } catch (CmsException e) {
+                // the include is missing, the JSP is written again when it is published
+                LOG.debug(e.getLocalizedMessage(), e);
+                continue;
+            }
+            updateJsp(target, controller, updatedFiles);
+        }
+        // the current jsp file should be updated only if one of the included files has been updated
+        return numberOfUpdates < updatedFiles.size();
+    }
+
     /**
      * Updates a JSP page in the "real" file system in case the VFS resource has changed based on the resource name.<p>
      *
@@ -1669,6 +1876,7 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                     controller,
                     controller.getCmsObject().getRequestContext().addSiteRoot(jspVfsName));
             }
+            addInclude(controller, includeResource.getRootPath());
             // make sure the jsp referenced file is generated
             jspRfsName = updateJsp(includeResource, controller, updatedFiles);
             if (LOG.isDebugEnabled()) {
@@ -1676,6 +1884,8 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
             }
         } catch (Exception e) {
             jspRfsName = null;
+            // remember the include, so the JSP is written again if a file with this name is published
+            addInclude(controller, jspVfsName);
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_UPDATE_1, jspVfsName), e);
             }
@@ -1735,6 +1945,32 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         return numberOfUpdates < updatedFiles.size();
     }
 
+    /**
+     * Checks if the given JSP is known to be up to date in the online JSP repository.<p>
+     *
+     * @param rootPath the root path of the JSP
+     *
+     * @return <code>true</code> if the JSP is known to be up to date in the online JSP repository
+     */
+    boolean isOnlineJspCached(String rootPath) {
+
+        return m_onlineJsps.containsKey(rootPath);
+    }
+
+    /**
+     * Adds an included file to the includes collected for the JSP that is currently written.<p>
+     *
+     * @param controller the controller for the jsp integration
+     * @param rootPath the root path of the included file
+     */
+    private void addInclude(CmsFlexController controller, String rootPath) {
+
+        Set<String> includes = getIncludeStack(controller).peek();
+        if (includes != null) {
+            includes.add(rootPath);
+        }
+    }
+
     /**
      * Returns the read-write-lock for the given jsp vfs name.<p>
      *
@@ -1762,6 +1998,25 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         return lock;
     }
 
+    /**
+     * Returns the stack of includes collected for the JSPs that are currently written in the given request.<p>
+     *
+     * @param controller the controller for the jsp integration
+     *
+     * @return the stack of includes, the top element belongs to the innermost JSP
+     */
+    private Deque<Set<String>> getIncludeStack(CmsFlexController controller) {
+
+        CmsRequestContext context = controller.getCmsObject().getRequestContext();
+        @SuppressWarnings("unchecked")
+        Deque<Set<String>> stack = (Deque<Set<String>>)context.getAttribute(ATTRIBUTE_INCLUDES);
+        if (stack == null) {
+            stack = new ArrayDeque<Set<String>>();
+            context.setAttribute(ATTRIBUTE_INCLUDES, stack);
+        }
+        return stack;
+    }
+
     /**
      * Returns the RFS path for a JSP resource.<p>
      *
@@ -1789,4 +2044,81 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         String jspPath = CmsFileUtil.getRepositoryName(m_jspRepository, jspVfsName + extension, online);
         return jspPath;
     }
+
+    /**
+     * Returns the file storing the include dependencies of the online JSPs.<p>
+     *
+     * @return the file storing the include dependencies of the online JSPs
+     */
+    private File getOnlineDependenciesFile() {
+
+        return new File(m_jspRepository + ONLINE_DEPENDENCIES_FILE);
+    }
+
+    /**
+     * Removes the published files and all online JSPs including them from the JSP repository.<p>
+     *
+     * @param publishHistoryId the publish history id of the publish operation
+     */
+    private void invalidateOnlineJsps(CmsUUID publishHistoryId) {
+
+        List<CmsPublishedResource> publishedResources;
+        try {
+            publishedResources = m_adminCms.readPublishedResources(publishHistoryId);
+        } catch (CmsException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_JSP_READ_PUBLISHED_FAILED_1, publishHistoryId), e);
+            return;
+        }
+        Set<String> invalidJsps = new LinkedHashSet<String>();
+        for (CmsPublishedResource published : publishedResources) {
+            if (!published.isFile()) {
+                continue;
+            }
+            String rootPath = published.getRootPath();
+            Set<String> dependants = m_onlineDependencies.getDependants(rootPath);
+            if (!dependants.isEmpty() || m_onlineDependencies.contains(rootPath)) {
+                invalidJsps.add(rootPath);
+                invalidJsps.addAll(dependants);
+            }
+        }
+        if (invalidJsps.isEmpty()) {
+            return;
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_JSP_INVALIDATED_2,
+                    new Integer(invalidJsps.size()),
+                    publishHistoryId));
+        }
+        removeOnlineJsps(invalidJsps);
+        saveOnlineDependencies();
+        if (m_precompiler != null) {
+            m_precompiler.schedule(invalidJsps);
+        }
+    }
+
+    /**
+     * Removes the given JSPs from the online JSP repository and from the include dependencies.<p>
+     *
+     * @param rootPaths the root paths of the JSPs
+     */
+    private void removeOnlineJsps(Collection<String> rootPaths) {
+
+        for (String rootPath : rootPaths) {
+            ReentrantReadWriteLock lock = getFileLock(rootPath);
+            lock.writeLock().lock();
+            try {
+                m_onlineJsps.remove(rootPath);
+                m_onlineDependencies.remove(rootPath);
+                // the resource type may not be known any more, so remove the file with and without JSP extension
+                new File(CmsFileUtil.getRepositoryName(m_jspRepository, rootPath, true)).delete();
+                if (!rootPath.endsWith(JSP_EXTENSION)) {
+                    new File(CmsFileUtil.getRepositoryName(m_jspRepository, rootPath + JSP_EXTENSION, true)).delete();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
 }
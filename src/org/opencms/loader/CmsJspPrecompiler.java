@@ -0,0 +1,472 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.types.CmsResourceTypeJsp;
+import org.opencms.file.types.I_CmsResourceType;
+import org.opencms.i18n.CmsLocaleManager;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Writes the JSPs of the online project to the JSP repository in background threads,
+ * so that the first requests after startup or after publishing do not have to do this.<p>
+ *
+ * At startup, all JSPs below the configured folders are written with several threads. After publishing,
+ * the JSPs invalidated by the JSP loader are written again. JSPs that are already up to date in the repository
+ * are not written again, unless their includes are not known to the dependency graph of the loader.<p>
+ *
+ * The JSPs are written for the root site and with a request that has no parameters and headers, so JSPs with
+ * includes that can only be resolved in the context of a real request are removed from the repository again
+ * and left to the first request.
+ * The JSPs are compiled by the servlet container when they are requested for the first time.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsJspPrecompiler {
+
+    /**
+     * Implements the request passed to the JSP loader.<p>
+     *
+     * The request has no parameters and headers, but it keeps the attributes set while a JSP is written.
+     * The other methods return the values of a plain GET request to the OpenCms servlet.<p>
+     */
+    private static class CmsPrecompileRequestHandler implements InvocationHandler {
+
+        /** The request attributes. */
+        private Map<String, Object> m_attributes = new HashMap<String, Object>();
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(Object, Method, Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            switch (method.getName()) {
+                case "getAttribute":
+                    return m_attributes.get(args[0]);
+                case "getAttributeNames":
+                    return Collections.enumeration(new ArrayList<String>(m_attributes.keySet()));
+                case "setAttribute":
+                    if (args[1] == null) {
+                        m_attributes.remove(args[0]);
+                    } else {
+                        m_attributes.put((String)args[0], args[1]);
+                    }
+                    return null;
+                case "removeAttribute":
+                    m_attributes.remove(args[0]);
+                    return null;
+                case "getCharacterEncoding":
+                    return OpenCms.getSystemInfo().getDefaultEncoding();
+                case "getContextPath":
+                    return OpenCms.getSystemInfo().getContextPath();
+                case "getServletPath":
+                    return OpenCms.getSystemInfo().getServletPath();
+                case "getRequestURI":
+                    return OpenCms.getSystemInfo().getOpenCmsContext();
+                case "getRequestURL":
+                    return new StringBuffer("http://localhost").append(OpenCms.getSystemInfo().getOpenCmsContext());
+                case "getLocale":
+                    return CmsLocaleManager.getDefaultLocale();
+                case "getLocales":
+                    return Collections.enumeration(Collections.singletonList(CmsLocaleManager.getDefaultLocale()));
+                case "getMethod":
+                    return "GET";
+                case "getProtocol":
+                    return "HTTP/1.1";
+                case "getScheme":
+                    return "http";
+                case "getLocalName":
+                case "getRemoteHost":
+                case "getServerName":
+                    return "localhost";
+                case "getLocalAddr":
+                case "getRemoteAddr":
+                    return "127.0.0.1";
+                case "getLocalPort":
+                case "getServerPort":
+                    return new Integer(80);
+                case "getContentLength":
+                case "getIntHeader":
+                    return new Integer(-1);
+                case "getContentLengthLong":
+                case "getDateHeader":
+                    return new Long(-1);
+                case "equals":
+                    return Boolean.valueOf(proxy == args[0]);
+                case "hashCode":
+                    return new Integer(System.identityHashCode(proxy));
+                case "toString":
+                    return CmsJspPrecompiler.class.getName() + "$request";
+                default:
+                    // no parameters, headers, cookies or session
+                    Class<?> type = method.getReturnType();
+                    if (Map.class.equals(type)) {
+                        return Collections.emptyMap();
+                    } else if (Enumeration.class.equals(type)) {
+                        return Collections.emptyEnumeration();
+                    } else if (Boolean.TYPE.equals(type)) {
+                        return Boolean.FALSE;
+                    } else if (Integer.TYPE.equals(type)) {
+                        return new Integer(0);
+                    } else if (Long.TYPE.equals(type)) {
+                        return new Long(0);
+                    }
+                    return null;
+            }
+        }
+    }
+
+    /** The default number of threads. */
+    public static final int DEFAULT_THREADS = 2;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsJspPrecompiler.class);
+
+    /** The interval in which the startup task checks if OpenCms is ready for requests. */
+    private static final long RUNLEVEL_CHECK_INTERVAL = 1000;
+
+    /** The admin context used to read the JSPs. */
+    private CmsObject m_adminCms;
+
+    /** The background threads. */
+    private ExecutorService m_executor;
+
+    /** The root paths of the folders to read the JSPs from at startup. */
+    private List<String> m_folders;
+
+    /** The JSP loader used to write the JSPs. */
+    private CmsJspLoader m_loader;
+
+    /** The thread that writes the JSPs at startup. */
+    private Thread m_startupThread;
+
+    /** The number of background threads. */
+    private int m_threads;
+
+    /**
+     * Creates a new JSP pre-compiler.<p>
+     *
+     * @param loader the JSP loader used to write the JSPs
+     * @param folders the root paths of the folders to read the JSPs from at startup
+     * @param threads the number of background threads
+     */
+    public CmsJspPrecompiler(CmsJspLoader loader, List<String> folders, int threads) {
+
+        m_loader = loader;
+        m_folders = new ArrayList<String>(folders);
+        m_threads = Math.max(1, threads);
+        final AtomicInteger count = new AtomicInteger();
+        m_executor = Executors.newFixedThreadPool(m_threads, runnable -> {
+            Thread thread = new Thread(runnable, "OpenCms-JspPrecompiler-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the root paths of the folders to read the JSPs from at startup.<p>
+     *
+     * @return the root paths of the folders
+     */
+    public List<String> getFolders() {
+
+        return Collections.unmodifiableList(m_folders);
+    }
+
+    /**
+     * Returns the number of background threads.<p>
+     *
+     * @return the number of background threads
+     */
+    public int getThreads() {
+
+        return m_threads;
+    }
+
+    /**
+     * Initializes the pre-compiler and starts writing all JSPs below the configured folders,
+     * as soon as OpenCms is ready for requests.<p>
+     *
+     * @param adminCms an OpenCms context with admin permissions
+     */
+    public void initialize(CmsObject adminCms) {
+
+        m_adminCms = adminCms;
+        // the startup thread only waits and distributes the work, the JSPs are written by the background threads
+        m_startupThread = new Thread(this::precompileAll, "OpenCms-JspPrecompiler-Startup");
+        m_startupThread.setDaemon(true);
+        m_startupThread.start();
+    }
+
+    /**
+     * Writes the given JSPs again in the background threads.<p>
+     *
+     * @param rootPaths the root paths of the JSPs
+     */
+    public void schedule(Collection<String> rootPaths) {
+
+        if ((m_adminCms == null) || rootPaths.isEmpty()) {
+            return;
+        }
+        final List<String> paths = new ArrayList<String>(rootPaths);
+        try {
+            m_executor.execute(() -> precompilePublished(paths));
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * Stops the background threads.<p>
+     */
+    public void shutDown() {
+
+        if (m_startupThread != null) {
+            m_startupThread.interrupt();
+        }
+        m_executor.shutdownNow();
+    }
+
+    /**
+     * Creates a new request to pass to the JSP loader.<p>
+     *
+     * The request has no parameters and headers, and a new request is created for every JSP,
+     * so the attributes set while writing a JSP are not shared between the background threads.<p>
+     *
+     * @return the request
+     */
+    protected HttpServletRequest createRequest() {
+
+        return (HttpServletRequest)Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[] {HttpServletRequest.class},
+            new CmsPrecompileRequestHandler());
+    }
+
+    /**
+     * Writes a single JSP to the JSP repository.<p>
+     *
+     * This is called in the background threads.<p>
+     *
+     * @param cms the OpenCms context for the online project
+     * @param resource the JSP
+     *
+     * @return <code>true</code> if the JSP has been written or was up to date
+     */
+    protected boolean precompile(CmsObject cms, CmsResource resource) {
+
+        try {
+            return m_loader.precompileJsp(OpenCms.initCmsObject(cms), resource, createRequest());
+        } catch (Exception e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_JSP_PRECOMPILE_FAILED_1, resource.getRootPath()), e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the given JSPs to the JSP repository, using all background threads, and waits until they are written.<p>
+     *
+     * This must not be called in the background threads.<p>
+     *
+     * @param cms the OpenCms context for the online project
+     * @param resources the JSPs
+     *
+     * @return the number of JSPs that have been written or were up to date
+     */
+    protected int precompile(final CmsObject cms, List<CmsResource> resources) {
+
+        if (resources.isEmpty()) {
+            return 0;
+        }
+        int partitions = Math.min(m_threads, resources.size());
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            final List<CmsResource> partition = new ArrayList<CmsResource>();
+            for (int j = i; j < resources.size(); j += partitions) {
+                partition.add(resources.get(j));
+            }
+            tasks.add(() -> {
+                int count = 0;
+                for (CmsResource resource : partition) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    if (precompile(cms, resource)) {
+                        count++;
+                    }
+                }
+                return new Integer(count);
+            });
+        }
+        int result = 0;
+        try {
+            for (Future<Integer> future : m_executor.invokeAll(tasks)) {
+                result += future.get().intValue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.error(e.getLocalizedMessage(), e);
+        }
+        m_loader.saveOnlineDependencies();
+        return result;
+    }
+
+    /**
+     * Waits until OpenCms is ready for requests, then writes all JSPs below the configured folders.<p>
+     *
+     * This is called in the startup thread.<p>
+     */
+    protected void precompileAll() {
+
+        try {
+            while (OpenCms.getRunLevel() < OpenCms.RUNLEVEL_4_SERVLET_ACCESS) {
+                if (m_executor.isShutdown()) {
+                    return;
+                }
+                Thread.sleep(RUNLEVEL_CHECK_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            return;
+        }
+        CmsObject cms = getOnlineCms();
+        if (cms == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<CmsResource> resources = new ArrayList<CmsResource>();
+        for (String folder : m_folders) {
+            for (Integer typeId : CmsResourceTypeJsp.getJspResourceTypeIds()) {
+                try {
+                    I_CmsResourceType type = OpenCms.getResourceManager().getResourceType(typeId.intValue());
+                    resources.addAll(
+                        cms.readResources(folder, CmsResourceFilter.DEFAULT_FILES.addRequireType(type), true));
+                } catch (CmsException e) {
+                    LOG.warn(e.getLocalizedMessage(), e);
+                }
+            }
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_JSP_PRECOMPILE_START_2,
+                    new Integer(resources.size()),
+                    new Integer(m_threads)));
+        }
+        int count = precompile(cms, resources);
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_JSP_PRECOMPILE_FINISHED_3,
+                    new Integer(count),
+                    new Integer(resources.size() - count),
+                    new Long(System.currentTimeMillis() - start)));
+        }
+    }
+
+    /**
+     * Writes the JSPs invalidated by a publish operation again.<p>
+     *
+     * This is called in a background thread.<p>
+     *
+     * @param rootPaths the root paths of the invalidated JSPs
+     */
+    protected void precompilePublished(List<String> rootPaths) {
+
+        CmsObject cms = getOnlineCms();
+        if (cms == null) {
+            return;
+        }
+        for (String path : rootPaths) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                CmsResource resource = cms.readResource(path);
+                if (CmsResourceTypeJsp.isJsp(resource)) {
+                    // usually only a few JSPs are affected by a publish, so they are written in this thread
+                    precompile(cms, resource);
+                }
+            } catch (CmsException e) {
+                // the JSP has been deleted, or it is not yet released
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        m_loader.saveOnlineDependencies();
+    }
+
+    /**
+     * Returns a new OpenCms context for the online project and the root site.<p>
+     *
+     * @return the OpenCms context, or <code>null</code> if it can not be created
+     */
+    private CmsObject getOnlineCms() {
+
+        try {
+            CmsObject cms = OpenCms.initCmsObject(m_adminCms);
+            cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+            cms.getRequestContext().setSiteRoot("");
+            return cms;
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return null;
+        }
+    }
+}
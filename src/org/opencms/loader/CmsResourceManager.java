@@ -1170,6 +1170,16 @@ public class CmsResourceManager {
             type.initialize(cms);
         }
 
+        // the image loader needs an admin context for the pre-generation of scaled images,
+        // the JSP loader for the pre-compilation and the invalidation of the online JSPs
+        for (I_CmsResourceLoader loader : m_loaderList) {
+            if (loader instanceof CmsImageLoader) {
+                ((CmsImageLoader)loader).initialize(cms);
+            } else if (loader instanceof CmsJspLoader) {
+                ((CmsJspLoader)loader).initialize(cms);
+            }
+        }
+
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_LOADER_CONFIG_FINISHED_0));
         }
@@ -178,9 +178,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_IMAGE_SCALING_ENABLED_1 = "INIT_IMAGE_SCALING_ENABLED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_IMAGE_SCALING_THREADS_3 = "INIT_IMAGE_SCALING_THREADS_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JSP_CACHE_SIZE_1 = "INIT_JSP_CACHE_SIZE_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_JSP_PRECOMPILE_2 = "INIT_JSP_PRECOMPILE_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JSP_REPOSITORY_ABS_PATH_1 = "INIT_JSP_REPOSITORY_ABS_PATH_1";
 
@@ -238,9 +244,45 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_IGNORING_EXC_1 = "LOG_IGNORING_EXC_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_PREGENERATION_FAILED_2 = "LOG_IMAGE_PREGENERATION_FAILED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_PREGENERATION_PUBLISH_FAILED_1 = "LOG_IMAGE_PREGENERATION_PUBLISH_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_PREGENERATION_REJECTED_1 = "LOG_IMAGE_PREGENERATION_REJECTED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_SCALING_REJECTED_2 = "LOG_IMAGE_SCALING_REJECTED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_SCALING_TIMEOUT_2 = "LOG_IMAGE_SCALING_TIMEOUT_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_DEPENDENCIES_READ_FAILED_1 = "LOG_JSP_DEPENDENCIES_READ_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_DEPENDENCIES_WRITE_FAILED_1 = "LOG_JSP_DEPENDENCIES_WRITE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_INVALIDATED_2 = "LOG_JSP_INVALIDATED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JSP_PERMCHECK_4 = "LOG_JSP_PERMCHECK_4";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_PRECOMPILE_FAILED_1 = "LOG_JSP_PRECOMPILE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_PRECOMPILE_FINISHED_3 = "LOG_JSP_PRECOMPILE_FINISHED_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_PRECOMPILE_START_2 = "LOG_JSP_PRECOMPILE_START_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_READ_PUBLISHED_FAILED_1 = "LOG_JSP_READ_PUBLISHED_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_NAME_REAL_FS_1 = "LOG_NAME_REAL_FS_1";
 
@@ -265,6 +307,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_X_DIRECTIVE_DETECTED_1 = "LOG_X_DIRECTIVE_DETECTED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_IMAGE_PREGENERATION_BEGIN_0 = "RPT_IMAGE_PREGENERATION_BEGIN_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_IMAGE_PREGENERATION_END_1 = "RPT_IMAGE_PREGENERATION_END_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_IMAGE_VARIANTS_DELETED_4 = "RPT_IMAGE_VARIANTS_DELETED_4";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_IMAGE_VARIANTS_SCHEDULED_5 = "RPT_IMAGE_VARIANTS_SCHEDULED_5";
+
     /** Name of the used resource bundle. */
     private static final String BUNDLE_NAME = "org.opencms.loader.messages";
 
@@ -44,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -126,11 +127,11 @@ public final class CmsLockManager {
         // handle collisions with exclusive locked sub-resources in case of a folder
         if (resource.isFolder() && newLock.getSystemLock().isUnlocked()) {
             String resourceName = resource.getRootPath();
-            Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+            Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getCachedLocks(resourceName).iterator();
             while (itLocks.hasNext()) {
                 CmsLock lock = itLocks.next();
                 String lockedPath = lock.getResourceName();
-                if (lockedPath.startsWith(resourceName) && !lockedPath.equals(resourceName)) {
+                if (!lockedPath.equals(resourceName)) {
                     unlockResource(lockedPath, false);
                 }
             }
@@ -231,7 +232,7 @@ public final class CmsLockManager {
     throws CmsException {
 
         List<CmsResource> lockedResources = new ArrayList<CmsResource>();
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getCandidateLocks(resource.getRootPath(), filter).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             CmsResource lockedResource;
@@ -283,7 +284,7 @@ public final class CmsLockManager {
         Map<String, CmsResource> cache) throws CmsException {
 
         List<CmsResource> lockedResources = new ArrayList<CmsResource>();
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getCandidateLocks(resource.getRootPath(), filter).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             CmsResource lockedResource;
@@ -358,7 +359,7 @@ public final class CmsLockManager {
     public List<CmsLock> getLocks(CmsDbContext dbc, String resourceName, CmsLockFilter filter) throws CmsException {
 
         List<CmsLock> locks = new ArrayList<CmsLock>();
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = getCandidateLocks(resourceName, filter).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             if (filter.isSharedExclusive()) {
@@ -404,7 +405,7 @@ public final class CmsLockManager {
         if (resource == null) {
             return false;
         }
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getCachedLocks(resource.getRootPath()).iterator();
         while (itLocks.hasNext()) {
             CmsLock lock = itLocks.next();
             if (lock.getSystemLock().isUnlocked()) {
@@ -576,10 +577,10 @@ public final class CmsLockManager {
             if (resource.isFolder()) {
                 // in case of a folder, remove any exclusive locks on sub-resources that probably have
                 // been upgraded from an inherited lock when the user edited a resource
-                Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
+                Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getCachedLocks(resourcename).iterator();
                 while (itLocks.hasNext()) {
                     String lockedPath = (itLocks.next()).getResourceName();
-                    if (lockedPath.startsWith(resourcename) && !lockedPath.equals(resourcename)) {
+                    if (!lockedPath.equals(resourcename)) {
                         // remove the exclusive locked sub-resource
                         unlockResource(lockedPath, false);
                     }
@@ -593,13 +594,12 @@ public final class CmsLockManager {
         }
 
         if (lock.getType().isSharedExclusive()) {
-            List<String> locks = OpenCms.getMemoryMonitor().getAllCachedLockPaths();
             // when a resource with a shared lock gets unlocked, fetch all siblings of the resource
             // to the same content record to identify the exclusive locked sibling
             List<CmsResource> siblings = internalReadSiblings(dbc, resource);
             for (int i = 0; i < siblings.size(); i++) {
                 CmsResource sibling = siblings.get(i);
-                if (locks.contains(sibling.getRootPath())) {
+                if (getDirectLock(sibling.getRootPath()) != null) {
                     // remove the exclusive locked sibling
                     if (removeSystemLock) {
                         unlockResource(sibling.getRootPath(), true);
@@ -745,6 +745,43 @@ public final class CmsLockManager {
         }
     }
 
+    /**
+     * Returns the cached locks that may match the given resource name and filter.<p>
+     *
+     * Only the locks of the resource, its sub-resources and its parent folders are returned,
+     * depending on the filter. If the filter includes shared locks, all locks are returned,
+     * since the locked sibling of a resource may be located anywhere.<p>
+     *
+     * @param resourceName the resource name
+     * @param filter the lock filter
+     *
+     * @return the locks that may match the filter
+     */
+    private List<CmsLock> getCandidateLocks(String resourceName, CmsLockFilter filter) {
+
+        if (filter.isSharedExclusive()) {
+            return OpenCms.getMemoryMonitor().getAllCachedLocks();
+        }
+        Map<String, CmsLock> locks = new LinkedHashMap<String, CmsLock>();
+        if (filter.isIncludeChildren()) {
+            for (CmsLock lock : OpenCms.getMemoryMonitor().getCachedLocks(resourceName)) {
+                locks.put(lock.getResourceName(), lock);
+            }
+        }
+        if (filter.isIncludeParent()) {
+            // parents can only be folders, including the resource itself
+            String folder = resourceName.endsWith("/") ? resourceName : CmsResource.getParentFolder(resourceName);
+            while (folder != null) {
+                CmsLock lock = getDirectLock(folder);
+                if (lock != null) {
+                    locks.put(lock.getResourceName(), lock);
+                }
+                folder = CmsResource.getParentFolder(folder);
+            }
+        }
+        return new ArrayList<CmsLock>(locks.values());
+    }
+
     /**
      * Returns the direct lock of a resource.<p>
      *
@@ -766,12 +803,10 @@ public final class CmsLockManager {
      */
     private CmsLock getParentFolderLock(String resourceName) {
 
-        Iterator<CmsLock> itLocks = OpenCms.getMemoryMonitor().getAllCachedLocks().iterator();
-        while (itLocks.hasNext()) {
-            CmsLock lock = itLocks.next();
-            if (lock.getResourceName().endsWith("/")
-                && resourceName.startsWith(lock.getResourceName())
-                && !resourceName.equals(lock.getResourceName())) {
+        String parentFolder = CmsResource.getParentFolder(resourceName);
+        while (parentFolder != null) {
+            CmsLock lock = getDirectLock(parentFolder);
+            if (lock != null) {
                 // system locks does not get inherited
                 lock = lock.getEditionLock();
                 // check the lock
@@ -779,6 +814,7 @@ public final class CmsLockManager {
                     return lock;
                 }
             }
+            parentFolder = CmsResource.getParentFolder(parentFolder);
         }
         return CmsLock.getNullLock();
     }
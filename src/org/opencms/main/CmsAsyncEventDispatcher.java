@@ -0,0 +1,326 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.main;
+
+import java.util.Iterator;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Dispatches events to a single {@link I_CmsAsyncEventListener} in a background thread.<p>
+ *
+ * The events are queued in a bounded queue and handled one after another in the order they have been fired.
+ * If the queue is full, the thread that fires an event waits until there is space in the queue.
+ * An event that is still waiting is removed when an equal event is fired later, if the listener
+ * allows this with {@link I_CmsAsyncEventListener#isCoalescable(CmsEvent)}.<p>
+ *
+ * The dispatcher also keeps statistics of the queue depth and the latency between firing and handling the events.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsAsyncEventDispatcher {
+
+    /**
+     * An event waiting in the queue.<p>
+     */
+    private static class CmsQueuedEvent {
+
+        /** The event. */
+        protected CmsEvent m_event;
+
+        /** The time the event has been fired, in nanoseconds. */
+        protected long m_time;
+
+        /**
+         * Creates a new queued event.<p>
+         *
+         * @param event the event
+         */
+        protected CmsQueuedEvent(CmsEvent event) {
+
+            m_event = event;
+            m_time = System.nanoTime();
+        }
+    }
+
+    /** The default capacity of the queue. */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /** The static log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsAsyncEventDispatcher.class);
+
+    /** The number of events that have been replaced by a later equal event. */
+    private AtomicLong m_coalescedCount = new AtomicLong();
+
+    /** The number of events that have been handled. */
+    private AtomicLong m_handledCount = new AtomicLong();
+
+    /** The listener. */
+    private I_CmsAsyncEventListener m_listener;
+
+    /** The maximum latency between firing and handling an event, in nanoseconds. */
+    private volatile long m_maxLatency;
+
+    /** The maximum number of events that have been waiting in the queue. */
+    private volatile int m_maxQueueSize;
+
+    /** The queue of waiting events. */
+    private LinkedBlockingDeque<CmsQueuedEvent> m_queue;
+
+    /** Flag to indicate that the dispatcher has been shut down. */
+    private volatile boolean m_shutDown;
+
+    /** The background thread. */
+    private Thread m_thread;
+
+    /** The total latency between firing and handling the events, in nanoseconds. */
+    private AtomicLong m_totalLatency = new AtomicLong();
+
+    /**
+     * Creates a new dispatcher and starts its background thread.<p>
+     *
+     * @param listener the listener to dispatch the events to
+     * @param capacity the capacity of the queue
+     */
+    public CmsAsyncEventDispatcher(I_CmsAsyncEventListener listener, int capacity) {
+
+        m_listener = listener;
+        m_queue = new LinkedBlockingDeque<CmsQueuedEvent>(capacity);
+        m_thread = new Thread(this::run, "OpenCms: Event dispatcher for " + listener.getClass().getName());
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Queues an event for the listener.<p>
+     *
+     * If the event is fired by the listener itself, it is handled immediately.<p>
+     *
+     * @param event the event
+     */
+    public void dispatch(CmsEvent event) {
+
+        if ((Thread.currentThread() == m_thread) || m_shutDown) {
+            handle(new CmsQueuedEvent(event));
+            return;
+        }
+        boolean coalescable = m_listener.isCoalescable(event);
+        synchronized (m_queue) {
+            if (coalescable) {
+                // remove the waiting equal events, the new event is handled after all events fired before it
+                Iterator<CmsQueuedEvent> it = m_queue.iterator();
+                while (it.hasNext()) {
+                    CmsEvent queued = it.next().m_event;
+                    if ((queued.getType() == event.getType())
+                        && queued.getData().equals(event.getData())
+                        && m_listener.isCoalescable(queued)) {
+                        it.remove();
+                        m_coalescedCount.incrementAndGet();
+                    }
+                }
+            }
+        }
+        CmsQueuedEvent queuedEvent = new CmsQueuedEvent(event);
+        if (!m_queue.offer(queuedEvent)) {
+            LOG.warn(
+                Messages.get().getBundle().key(
+                    Messages.LOG_ASYNC_EVENT_QUEUE_FULL_2,
+                    m_listener.getClass().getName(),
+                    Integer.valueOf(m_queue.size())));
+            try {
+                m_queue.put(queuedEvent);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                handle(queuedEvent);
+                return;
+            }
+        }
+        int size = m_queue.size();
+        if (size > m_maxQueueSize) {
+            m_maxQueueSize = size;
+        }
+    }
+
+    /**
+     * Returns the average latency between firing and handling an event, in milliseconds.<p>
+     *
+     * @return the average latency
+     */
+    public long getAverageLatency() {
+
+        long count = m_handledCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(m_totalLatency.get() / count);
+    }
+
+    /**
+     * Returns the number of events that have been replaced by a later equal event.<p>
+     *
+     * @return the number of coalesced events
+     */
+    public long getCoalescedCount() {
+
+        return m_coalescedCount.get();
+    }
+
+    /**
+     * Returns the number of events that have been handled.<p>
+     *
+     * @return the number of handled events
+     */
+    public long getHandledCount() {
+
+        return m_handledCount.get();
+    }
+
+    /**
+     * Returns the listener.<p>
+     *
+     * @return the listener
+     */
+    public I_CmsAsyncEventListener getListener() {
+
+        return m_listener;
+    }
+
+    /**
+     * Returns the maximum latency between firing and handling an event, in milliseconds.<p>
+     *
+     * @return the maximum latency
+     */
+    public long getMaxLatency() {
+
+        return TimeUnit.NANOSECONDS.toMillis(m_maxLatency);
+    }
+
+    /**
+     * Returns the maximum number of events that have been waiting in the queue.<p>
+     *
+     * @return the maximum queue size
+     */
+    public int getMaxQueueSize() {
+
+        return m_maxQueueSize;
+    }
+
+    /**
+     * Returns the number of events waiting in the queue.<p>
+     *
+     * @return the number of waiting events
+     */
+    public int getQueueSize() {
+
+        return m_queue.size();
+    }
+
+    /**
+     * Stops the background thread after the waiting events have been handled.<p>
+     *
+     * @param timeout the maximum time to wait for the waiting events, in milliseconds
+     */
+    public void shutDown(long timeout) {
+
+        m_shutDown = true;
+        try {
+            m_thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (m_thread.isAlive()) {
+            m_thread.interrupt();
+        }
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return m_listener.getClass().getName()
+            + ": queue="
+            + getQueueSize()
+            + ", maxQueue="
+            + getMaxQueueSize()
+            + ", handled="
+            + getHandledCount()
+            + ", coalesced="
+            + getCoalescedCount()
+            + ", avgLatency="
+            + getAverageLatency()
+            + "ms, maxLatency="
+            + getMaxLatency()
+            + "ms";
+    }
+
+    /**
+     * Handles an event and updates the statistics.<p>
+     *
+     * @param queuedEvent the event to handle
+     */
+    private void handle(CmsQueuedEvent queuedEvent) {
+
+        try {
+            m_listener.cmsEvent(queuedEvent.m_event);
+        } catch (Throwable t) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.ERR_CALLING_EVENT_LISTENER_FAILED_2,
+                    m_listener.getClass().getName(),
+                    queuedEvent.m_event.toString()),
+                t);
+        }
+        long latency = System.nanoTime() - queuedEvent.m_time;
+        m_handledCount.incrementAndGet();
+        m_totalLatency.addAndGet(latency);
+        if (latency > m_maxLatency) {
+            m_maxLatency = latency;
+        }
+    }
+
+    /**
+     * Handles the queued events until the dispatcher is shut down and the queue is empty.<p>
+     */
+    private void run() {
+
+        while (!m_shutDown || !m_queue.isEmpty()) {
+            CmsQueuedEvent queuedEvent;
+            try {
+                queuedEvent = m_queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (queuedEvent != null) {
+                handle(queuedEvent);
+            }
+        }
+    }
+}
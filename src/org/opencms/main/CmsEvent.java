@@ -132,6 +132,18 @@ public class CmsEvent {
         return m_type.hashCode();
     }
 
+    /**
+     * Returns <code>true</code> if this event has been received from another node of the cluster.<p>
+     *
+     * @return <code>true</code> if this event has been received from another node of the cluster
+     *
+     * @see I_CmsEventListener#KEY_CLUSTER_NODE
+     */
+    public boolean isClusterEvent() {
+
+        return m_data.containsKey(I_CmsEventListener.KEY_CLUSTER_NODE);
+    }
+
     /**
      * Return a String representation of this CmsEvent.<p>
      *
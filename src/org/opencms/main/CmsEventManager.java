@@ -27,11 +27,15 @@
 
 package org.opencms.main;
 
+import org.opencms.db.I_CmsDbContextFactory;
+import org.opencms.file.CmsObject;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 
@@ -42,7 +46,9 @@ import org.apache.commons.logging.Log;
  * This instance can be obtained by calling {@link OpenCms#getEventManager()}.<p>
  *
  * Events can be used in OpenCms to notify custom event listeners that certain system events have happened.
- * Event listeners have to implement the interface {@link org.opencms.main.I_CmsEventListener}.<p>
+ * Event listeners have to implement the interface {@link org.opencms.main.I_CmsEventListener}.
+ * Listeners that implement {@link org.opencms.main.I_CmsAsyncEventListener} are called in a background thread
+ * of their own {@link CmsAsyncEventDispatcher}, all other listeners are called in the thread that fires the event.<p>
  *
  * @since 7.0.0
  *
@@ -57,6 +63,15 @@ public class CmsEventManager {
     /** The static log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsEventManager.class);
 
+    /** The maximum time to wait for the asynchronous listeners on shutdown, in milliseconds. */
+    private static final long SHUTDOWN_TIMEOUT = 10000;
+
+    /** The dispatchers for the asynchronous event listeners. */
+    private Map<I_CmsAsyncEventListener, CmsAsyncEventDispatcher> m_asyncDispatchers;
+
+    /** The transport that forwards events to the other nodes of a cluster, or <code>null</code>. */
+    private I_CmsClusterEventTransport m_clusterTransport;
+
     /** Stores the active event listeners. */
     private Map<Integer, List<I_CmsEventListener>> m_eventListeners;
 
@@ -66,6 +81,7 @@ public class CmsEventManager {
     public CmsEventManager() {
 
         m_eventListeners = new HashMap<Integer, List<I_CmsEventListener>>();
+        m_asyncDispatchers = new ConcurrentHashMap<I_CmsAsyncEventListener, CmsAsyncEventDispatcher>();
     }
 
     /**
@@ -107,15 +123,45 @@ public class CmsEventManager {
         }
     }
 
+    /**
+     * Notify all event listeners that an event has occurred on another node of the cluster.<p>
+     *
+     * The event is marked with the id of the node it has been received from, and is not forwarded again.<p>
+     *
+     * @param event the event that is forwarded to all listeners
+     * @param nodeId the id of the node the event has been received from
+     */
+    public void fireClusterEvent(CmsEvent event, String nodeId) {
+
+        event.getData().put(I_CmsEventListener.KEY_CLUSTER_NODE, nodeId);
+        fireEvent(event);
+    }
+
     /**
      * Notify all event listeners that a particular event has occurred.<p>
      *
+     * If a cluster transport is configured, events that have been fired on this node are also
+     * forwarded to the other nodes of the cluster.<p>
+     *
      * @param event the event that is forwarded to all listeners
      */
     public void fireEvent(CmsEvent event) {
 
         fireEventHandler(m_eventListeners.get(event.getTypeInteger()), event);
         fireEventHandler(m_eventListeners.get(I_CmsEventListener.LISTENERS_FOR_ALL_EVENTS), event);
+        I_CmsClusterEventTransport transport = m_clusterTransport;
+        if ((transport != null) && !event.isClusterEvent()) {
+            try {
+                transport.send(event);
+            } catch (Throwable t) {
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.ERR_SENDING_CLUSTER_EVENT_FAILED_2,
+                        transport.getClass().getName(),
+                        event.toString()),
+                    t);
+            }
+        }
     }
 
     /**
@@ -139,6 +185,52 @@ public class CmsEventManager {
         fireEvent(new CmsEvent(type, data));
     }
 
+    /**
+     * Returns the dispatchers of the asynchronous event listeners, which provide the queue and latency statistics.<p>
+     *
+     * @return the dispatchers of the asynchronous event listeners
+     */
+    public List<CmsAsyncEventDispatcher> getAsyncDispatchers() {
+
+        return new ArrayList<CmsAsyncEventDispatcher>(m_asyncDispatchers.values());
+    }
+
+    /**
+     * Returns the transport that forwards events to the other nodes of a cluster.<p>
+     *
+     * @return the cluster transport, or <code>null</code> if no cluster transport is configured
+     */
+    public I_CmsClusterEventTransport getClusterTransport() {
+
+        return m_clusterTransport;
+    }
+
+    /**
+     * Initializes the cluster transport, if one is configured, and starts receiving events from the other nodes.<p>
+     *
+     * @param adminCms an initialized CmsObject with admin permissions
+     * @param dbContextFactory the factory for the database contexts of the received events
+     */
+    public void initClusterTransport(CmsObject adminCms, I_CmsDbContextFactory dbContextFactory) {
+
+        if (m_clusterTransport == null) {
+            return;
+        }
+        try {
+            m_clusterTransport.initialize(adminCms, this, dbContextFactory);
+            if (CmsLog.INIT.isInfoEnabled()) {
+                CmsLog.INIT.info(
+                    Messages.get().getBundle().key(
+                        Messages.INIT_CLUSTER_TRANSPORT_2,
+                        m_clusterTransport.getClass().getName(),
+                        m_clusterTransport.getNodeId()));
+            }
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            m_clusterTransport = null;
+        }
+    }
+
     /**
      * Removes a cms event listener.<p>
      *
@@ -153,6 +245,54 @@ public class CmsEventManager {
                 listeners.remove(listener);
             }
         }
+        CmsAsyncEventDispatcher dispatcher = m_asyncDispatchers.remove(listener);
+        if (dispatcher != null) {
+            dispatcher.shutDown(SHUTDOWN_TIMEOUT);
+        }
+    }
+
+    /**
+     * Sets the transport that forwards events to the other nodes of a cluster.<p>
+     *
+     * @param clusterTransport the cluster transport, or <code>null</code> to disable forwarding events
+     */
+    public void setClusterTransport(I_CmsClusterEventTransport clusterTransport) {
+
+        m_clusterTransport = clusterTransport;
+    }
+
+    /**
+     * Stops the cluster transport, if one is configured, and the dispatchers of the asynchronous event listeners.<p>
+     */
+    public void shutDown() {
+
+        if (m_clusterTransport != null) {
+            m_clusterTransport.shutDown();
+            m_clusterTransport = null;
+        }
+        for (CmsAsyncEventDispatcher dispatcher : m_asyncDispatchers.values()) {
+            dispatcher.shutDown(SHUTDOWN_TIMEOUT);
+        }
+        m_asyncDispatchers.clear();
+    }
+
+    /**
+     * Calls a single event listener, or queues the event if the listener is asynchronous.<p>
+     *
+     * @param listener the listener
+     * @param event the event
+     */
+    protected void dispatchEvent(I_CmsEventListener listener, CmsEvent event) {
+
+        if (listener instanceof I_CmsAsyncEventListener) {
+            I_CmsAsyncEventListener asyncListener = (I_CmsAsyncEventListener)listener;
+            CmsAsyncEventDispatcher dispatcher = m_asyncDispatchers.computeIfAbsent(
+                asyncListener,
+                key -> new CmsAsyncEventDispatcher(key, CmsAsyncEventDispatcher.DEFAULT_CAPACITY));
+            dispatcher.dispatch(event);
+        } else {
+            listener.cmsEvent(event);
+        }
     }
 
     /**
@@ -172,7 +312,7 @@ public class CmsEventManager {
                 for (int i = 0; i < list.length; i++) {
                     try {
                         // fire the event
-                        list[i].cmsEvent(event);
+                        dispatchEvent(list[i], event);
                     } catch (Throwable t) {
                         LOG.error(
                             Messages.get().getBundle().key(
@@ -225,7 +365,7 @@ public class CmsEventManager {
                             event.toString()));
                     try {
                         // fire the event
-                        list[i].cmsEvent(event);
+                        dispatchEvent(list[i], event);
                     } catch (Throwable t) {
                         LOG.error(
                             Messages.get().getBundle().key(
@@ -266,6 +406,7 @@ public class CmsEventManager {
     protected void initialize(CmsEventManager base) {
 
         m_eventListeners = new HashMap<Integer, List<I_CmsEventListener>>(base.getEventListeners());
+        m_asyncDispatchers.putAll(base.m_asyncDispatchers);
 
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.main;
+
+/**
+ * Event listener that does not have to run in the thread that fires the event.<p>
+ *
+ * The event manager hands events for asynchronous listeners to a {@link CmsAsyncEventDispatcher}, which
+ * has a bounded queue and a single thread for each listener. The events are handled in the order they have
+ * been fired, but the listener has no guarantee when an event is handled. Data that is only valid while the
+ * event is fired, like the {@link I_CmsEventListener#KEY_DBCONTEXT database context} or the
+ * {@link I_CmsEventListener#KEY_REPORT report} of a publish event, must not be used.<p>
+ *
+ * Listeners that must have handled an event before the thread that fired it continues, for example
+ * to clear a cache, must not implement this interface.<p>
+ *
+ * @since 11.0.0
+ */
+public interface I_CmsAsyncEventListener extends I_CmsEventListener {
+
+    /**
+     * Checks if an event waiting in the queue of this listener can be replaced by a later event of the same type
+     * with the same data.<p>
+     *
+     * The default implementation allows this for events without data, like repeated requests to clear the caches.<p>
+     *
+     * @param event the event
+     *
+     * @return <code>true</code> if the event can be replaced by a later equal event
+     */
+    default boolean isCoalescable(CmsEvent event) {
+
+        return event.getData().isEmpty();
+    }
+}
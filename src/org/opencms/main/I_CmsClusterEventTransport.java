@@ -0,0 +1,77 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.configuration.I_CmsConfigurationParameterHandler;
+import org.opencms.db.I_CmsDbContextFactory;
+import org.opencms.file.CmsObject;
+
+/**
+ * Forwards events to the other OpenCms nodes of a cluster that share the same database.<p>
+ *
+ * The transport is configured in the <code>&lt;events&gt;</code> node of <code>opencms-system.xml</code>.
+ * The event manager hands all events that are fired locally to {@link #send(CmsEvent)}, the transport decides
+ * which of them are forwarded. Events received from other nodes are fired with
+ * {@link CmsEventManager#fireClusterEvent(CmsEvent, String)}, they are marked with the
+ * {@link I_CmsEventListener#KEY_CLUSTER_NODE} key and are not forwarded again.<p>
+ *
+ * @since 11.0.0
+ */
+public interface I_CmsClusterEventTransport extends I_CmsConfigurationParameterHandler {
+
+    /**
+     * Returns the id of this node in the cluster.<p>
+     *
+     * @return the id of this node in the cluster
+     */
+    String getNodeId();
+
+    /**
+     * Initializes the transport and starts receiving events from the other nodes.<p>
+     *
+     * @param adminCms an initialized CmsObject with admin permissions
+     * @param eventManager the event manager to fire the received events with
+     * @param dbContextFactory the factory for the database contexts of the received events
+     *
+     * @throws CmsException if something goes wrong
+     */
+    void initialize(CmsObject adminCms, CmsEventManager eventManager, I_CmsDbContextFactory dbContextFactory)
+    throws CmsException;
+
+    /**
+     * Forwards an event that has been fired on this node to the other nodes, if the event type is forwarded.<p>
+     *
+     * @param event the event
+     */
+    void send(CmsEvent event);
+
+    /**
+     * Stops receiving events from the other nodes.<p>
+     */
+    void shutDown();
+}
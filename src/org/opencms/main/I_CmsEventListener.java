@@ -363,6 +363,15 @@ public interface I_CmsEventListener {
     /** Key name for passing a change int in the data map - see the <code>CHANGED_XXX</code> constants in {@link org.opencms.db.CmsDriverManager}. */
     String KEY_CHANGE = "change";
 
+    /**
+     * Key name for passing the id of the cluster node an event has been received from in the data map.<p>
+     *
+     * Listeners that write shared data, like the files of the static export, should skip the publish events
+     * received from other nodes, since the node that has published has already written the data.
+     * Listeners that only update caches or data local to the node handle them like local events.<p>
+     */
+    String KEY_CLUSTER_NODE = "clusterNode";
+
     /** Key name for passing a database context in the data map. */
     String KEY_DBCONTEXT = "dbContext";
 
@@ -70,6 +70,7 @@ import org.opencms.i18n.CmsMessageContainer;
 import org.opencms.i18n.CmsSingleTreeLocaleHandler;
 import org.opencms.i18n.CmsVfsBundleManager;
 import org.opencms.importexport.CmsImportExportManager;
+import org.opencms.jsp.CmsJspNavCache;
 import org.opencms.jsp.jsonpart.CmsJsonPartFilter;
 import org.opencms.letsencrypt.CmsLetsEncryptConfiguration;
 import org.opencms.loader.CmsResourceManager;
@@ -119,6 +120,7 @@ import org.opencms.workplace.CmsWorkplaceSettings;
 import org.opencms.xml.CmsXmlContentTypeManager;
 import org.opencms.xml.CmsXmlUtils;
 import org.opencms.xml.containerpage.CmsFormatterConfiguration;
+import org.opencms.xml.content.CmsXmlContentCache;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -1397,6 +1399,7 @@ public final class OpenCmsCore {
         // get the event manager from the configuration and initialize it with the events already registered
         CmsEventManager configuredEventManager = systemConfiguration.getEventManager();
         configuredEventManager.initialize(m_eventManager);
+        configuredEventManager.setClusterTransport(systemConfiguration.getClusterTransport());
         m_eventManager = configuredEventManager;
 
         // check if the encoding setting is valid
@@ -1653,6 +1656,13 @@ public final class OpenCmsCore {
 
             // initialize the formatter configuration
             CmsFormatterConfiguration.initialize(adminCms);
+
+            // initialize the online navigation cache
+            CmsJspNavCache.initialize(adminCms);
+
+            // initialize the online XML content cache
+            CmsXmlContentCache.initialize(adminCms, m_memoryMonitor, systemConfiguration.getAdeCacheSettings());
+
             CmsPersistentLoginTokenHandler.setAdminCms(initCmsObject(adminCms));
             CmsLoginUI.setAdminCmsObject(initCmsObject(adminCms));
 
@@ -1690,6 +1700,22 @@ public final class OpenCmsCore {
         } catch (Exception e) {
             CmsLog.INIT.error("Problem with clearing caches after initialization: " + e.getLocalizedMessage(), e);
         }
+
+        try {
+            // start the cluster transport only now, so that the initial cache clearing is not forwarded
+            getEventManager().initClusterTransport(
+                initCmsObject(adminCms),
+                systemConfiguration.getRuntimeInfoFactory());
+        } catch (CmsException e) {
+            CmsLog.INIT.error("Problem with starting the cluster transport: " + e.getLocalizedMessage(), e);
+        }
+
+        try {
+            // preload the online VFS caches from the snapshot written at the last shutdown
+            getMemoryMonitor().loadCacheSnapshot(initCmsObject(adminCms));
+        } catch (CmsException e) {
+            CmsLog.INIT.error("Problem with loading the cache snapshot: " + e.getLocalizedMessage(), e);
+        }
     }
 
     /**
@@ -2093,6 +2119,16 @@ public final class OpenCmsCore {
                         Messages.get().getBundle().key(Messages.LOG_ERROR_SEARCH_MANAGER_SHUTDOWN_1, e.getMessage()),
                         e);
                 }
+                try {
+                    // stop receiving events from the other cluster nodes
+                    if (m_eventManager != null) {
+                        m_eventManager.shutDown();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(
+                        Messages.get().getBundle().key(Messages.LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1, e.getMessage()),
+                        e);
+                }
                 try {
                     // remote shell server must be shut down early since there is a background thread ongoing that reloads from the VFS
                     if (m_remoteShellServer != null) {
@@ -2180,6 +2216,14 @@ public final class OpenCmsCore {
                         Messages.get().getBundle().key(Messages.LOG_ERROR_THREAD_SHUTDOWN_1, e.getMessage()),
                         e);
                 }
+                try {
+                    // has to be written before the security manager is destroyed, since that clears the caches
+                    if (m_memoryMonitor != null) {
+                        m_memoryMonitor.writeCacheSnapshot();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(e.getLocalizedMessage(), e);
+                }
                 try {
                     if (m_securityManager != null) {
                         m_securityManager.destroy();
@@ -0,0 +1,378 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import org.opencms.db.CmsTypedCacheKey;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.util.CmsUUID;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Saves the keys of the cached online resources and property lists to a file, and reads these entries
+ * again when OpenCms is started, so that a restarted node does not begin with cold VFS caches.<p>
+ *
+ * The snapshot file contains one key per line, the structure id of a resource cached by id prefixed with
+ * <code>R</code>, the structure id of a resource cached by path prefixed with <code>RP</code>, or the root path
+ * of a resource whose property list was cached prefixed with <code>P</code>. Resources are loaded by id in bulk and
+ * cached again under their current root path, property lists are loaded by path in bulk.
+ * The entries are loaded in parallel by several threads, loading is stopped when the configured
+ * maximum load time has elapsed.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsCacheSnapshot {
+
+    /** The line prefix for the root path of a cached property list. */
+    public static final String PREFIX_PROPERTIES = "P ";
+
+    /** The line prefix for the structure id of a resource cached by id. */
+    public static final String PREFIX_RESOURCE = "R ";
+
+    /** The line prefix for the structure id of a resource cached by path. */
+    public static final String PREFIX_RESOURCE_PATH = "RP ";
+
+    /** The number of resources read per task. */
+    private static final int CHUNK_SIZE = 500;
+
+    /** The number of threads used for loading the snapshot. */
+    private static final int LOAD_THREADS = 4;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsCacheSnapshot.class);
+
+    /** The snapshot file. */
+    private File m_file;
+
+    /** The interval in milliseconds after which the snapshot is written again. */
+    private long m_interval;
+
+    /** The time the snapshot was last written. */
+    private long m_lastWrite;
+
+    /** The maximum number of keys saved in the snapshot. */
+    private int m_maxEntries;
+
+    /** The maximum time in milliseconds for loading the snapshot. */
+    private long m_maxLoadTime;
+
+    /**
+     * Creates a new cache snapshot.<p>
+     *
+     * @param file the snapshot file
+     * @param interval the interval in seconds after which the snapshot is written again
+     * @param maxEntries the maximum number of keys saved in the snapshot
+     * @param maxLoadTime the maximum time in seconds for loading the snapshot
+     */
+    public CmsCacheSnapshot(File file, int interval, int maxEntries, int maxLoadTime) {
+
+        m_file = file;
+        m_interval = interval * 1000L;
+        m_maxEntries = maxEntries;
+        m_maxLoadTime = maxLoadTime * 1000L;
+        m_lastWrite = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the snapshot file.<p>
+     *
+     * @return the snapshot file
+     */
+    public File getFile() {
+
+        return m_file;
+    }
+
+    /**
+     * Checks if the snapshot should be written again because the configured interval has elapsed.<p>
+     *
+     * @return <code>true</code> if the snapshot should be written again
+     */
+    public boolean isWriteDue() {
+
+        return (System.currentTimeMillis() - m_lastWrite) > m_interval;
+    }
+
+    /**
+     * Reads the entries of the snapshot file into the online caches.<p>
+     *
+     * The method returns when all entries have been read, or when the maximum load time has elapsed.<p>
+     *
+     * @param cms the CmsObject used for reading, this must have admin permissions
+     *
+     * @return the number of entries read
+     */
+    public int load(CmsObject cms) {
+
+        if (!m_file.isFile()) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        List<CmsUUID> resourceIds = new ArrayList<CmsUUID>();
+        List<CmsUUID> pathResourceIds = new ArrayList<CmsUUID>();
+        List<String> propertyPaths = new ArrayList<String>();
+        try {
+            read(resourceIds, pathResourceIds, propertyPaths);
+        } catch (IOException e) {
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_CACHE_SNAPSHOT_READ_FAILED_1, m_file.getAbsolutePath()),
+                e);
+            return 0;
+        }
+
+        AtomicInteger loaded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(LOAD_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "OpenCms-CacheWarmStart");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < resourceIds.size(); i += CHUNK_SIZE) {
+                List<CmsUUID> chunk = resourceIds.subList(i, Math.min(i + CHUNK_SIZE, resourceIds.size()));
+                executor.execute(() -> loaded.addAndGet(loadResources(cms, chunk, false)));
+            }
+            for (int i = 0; i < pathResourceIds.size(); i += CHUNK_SIZE) {
+                List<CmsUUID> chunk = pathResourceIds.subList(i, Math.min(i + CHUNK_SIZE, pathResourceIds.size()));
+                executor.execute(() -> loaded.addAndGet(loadResources(cms, chunk, true)));
+            }
+            for (int i = 0; i < propertyPaths.size(); i += CHUNK_SIZE) {
+                List<String> chunk = propertyPaths.subList(i, Math.min(i + CHUNK_SIZE, propertyPaths.size()));
+                executor.execute(() -> loaded.addAndGet(loadPropertyLists(cms, chunk)));
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(m_maxLoadTime, TimeUnit.MILLISECONDS)) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_CACHE_SNAPSHOT_TIMEOUT_2,
+                        m_file.getAbsolutePath(),
+                        new Long(m_maxLoadTime / 1000)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_CACHE_SNAPSHOT_LOADED_4,
+                    new Object[] {
+                        new Integer(loaded.get()),
+                        new Integer(resourceIds.size() + pathResourceIds.size() + propertyPaths.size()),
+                        m_file.getAbsolutePath(),
+                        new Long(System.currentTimeMillis() - start)}));
+        }
+        return loaded.get();
+    }
+
+    /**
+     * Writes the given keys to the snapshot file.<p>
+     *
+     * The keys should be ordered by recency, the most recently used keys first. If there are more keys than the
+     * configured maximum, the keys are taken from the three lists in turn, so the hottest keys of each cache
+     * are kept. The file is replaced only after the new snapshot has been written completely.<p>
+     *
+     * @param resourceIds the structure ids of the online resources cached by id
+     * @param pathResourceIds the structure ids of the online resources cached by path
+     * @param propertyPaths the root paths of the cached online property lists
+     *
+     * @throws IOException if writing the file fails
+     */
+    public void write(List<CmsUUID> resourceIds, List<CmsUUID> pathResourceIds, List<String> propertyPaths)
+    throws IOException {
+
+        m_lastWrite = System.currentTimeMillis();
+        File folder = m_file.getAbsoluteFile().getParentFile();
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        File temp = new File(folder, m_file.getName() + ".tmp");
+        int count = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            int size = Math.max(resourceIds.size(), Math.max(pathResourceIds.size(), propertyPaths.size()));
+            for (int i = 0; (i < size) && (count < m_maxEntries); i++) {
+                if (i < resourceIds.size()) {
+                    writer.write(PREFIX_RESOURCE);
+                    writer.write(resourceIds.get(i).toString());
+                    writer.newLine();
+                    count++;
+                }
+                if ((i < pathResourceIds.size()) && (count < m_maxEntries)) {
+                    writer.write(PREFIX_RESOURCE_PATH);
+                    writer.write(pathResourceIds.get(i).toString());
+                    writer.newLine();
+                    count++;
+                }
+                if ((i < propertyPaths.size()) && (count < m_maxEntries)) {
+                    writer.write(PREFIX_PROPERTIES);
+                    writer.write(propertyPaths.get(i));
+                    writer.newLine();
+                    count++;
+                }
+            }
+        }
+        Files.move(temp.toPath(), m_file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                Messages.get().getBundle().key(
+                    Messages.LOG_CACHE_SNAPSHOT_WRITTEN_2,
+                    new Integer(count),
+                    m_file.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * Reads the keys from the snapshot file.<p>
+     *
+     * Lines that can not be parsed are skipped.<p>
+     *
+     * @param resourceIds the list the structure ids of the resources cached by id are added to
+     * @param pathResourceIds the list the structure ids of the resources cached by path are added to
+     * @param propertyPaths the list the root paths of the property lists are added to
+     *
+     * @throws IOException if reading the file fails
+     */
+    protected void read(List<CmsUUID> resourceIds, List<CmsUUID> pathResourceIds, List<String> propertyPaths)
+    throws IOException {
+
+        try (BufferedReader reader = Files.newBufferedReader(m_file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(PREFIX_RESOURCE)) {
+                    String id = line.substring(PREFIX_RESOURCE.length()).trim();
+                    if (CmsUUID.isValidUUID(id)) {
+                        resourceIds.add(new CmsUUID(id));
+                    }
+                } else if (line.startsWith(PREFIX_RESOURCE_PATH)) {
+                    String id = line.substring(PREFIX_RESOURCE_PATH.length()).trim();
+                    if (CmsUUID.isValidUUID(id)) {
+                        pathResourceIds.add(new CmsUUID(id));
+                    }
+                } else if (line.startsWith(PREFIX_PROPERTIES) && (line.length() > PREFIX_PROPERTIES.length())) {
+                    propertyPaths.add(line.substring(PREFIX_PROPERTIES.length()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of the given CmsObject in the online project, so every loader thread has its own context.<p>
+     *
+     * @param cms the CmsObject to copy
+     *
+     * @return the copy in the online project
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private CmsObject initOnlineCms(CmsObject cms) throws CmsException {
+
+        CmsObject onlineCms = OpenCms.initCmsObject(cms);
+        onlineCms.getRequestContext().setCurrentProject(onlineCms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        onlineCms.getRequestContext().setSiteRoot("");
+        return onlineCms;
+    }
+
+    /**
+     * Reads the property lists of the resources with the given root paths in a single query.<p>
+     *
+     * Only the property lists directly attached to the resources are cached, the inherited property lists
+     * are built from the property lists of the resource and its parent folders when they are read.<p>
+     *
+     * @param cms the CmsObject to copy for reading
+     * @param rootPaths the root paths of the resources
+     *
+     * @return the number of property lists read
+     */
+    private int loadPropertyLists(CmsObject cms, List<String> rootPaths) {
+
+        if (Thread.currentThread().isInterrupted()) {
+            return 0;
+        }
+        try {
+            return initOnlineCms(cms).readPropertyObjects(rootPaths).size();
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the resources with the given structure ids in a single query.<p>
+     *
+     * Reading the resources caches them by id. Resources that were cached by path are additionally
+     * cached by their current root path.<p>
+     *
+     * @param cms the CmsObject to copy for reading
+     * @param structureIds the structure ids of the resources
+     * @param byPath <code>true</code> if the resources should also be cached by path
+     *
+     * @return the number of resources read
+     */
+    private int loadResources(CmsObject cms, List<CmsUUID> structureIds, boolean byPath) {
+
+        if (Thread.currentThread().isInterrupted()) {
+            return 0;
+        }
+        try {
+            List<CmsResource> resources = initOnlineCms(cms).readResources(structureIds, CmsResourceFilter.ALL);
+            if (byPath) {
+                CmsMemoryMonitor monitor = OpenCms.getMemoryMonitor();
+                for (CmsResource resource : resources) {
+                    monitor.cacheResource(
+                        new CmsTypedCacheKey(CmsTypedCacheKey.TYPE_RESOURCE, true, resource.getRootPath()),
+                        resource);
+                }
+            }
+            return resources.size();
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return 0;
+        }
+    }
+}
@@ -29,12 +29,14 @@ package org.opencms.monitor;
 
 import org.opencms.cache.CmsLruCache;
 import org.opencms.cache.CmsMemoryObjectCache;
+import org.opencms.cache.CmsSlabAllocator;
 import org.opencms.cache.CmsVfsMemoryObjectCache;
 import org.opencms.configuration.CmsSystemConfiguration;
 import org.opencms.db.CmsCacheSettings;
 import org.opencms.db.CmsDriverManager;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.db.CmsSecurityManager;
+import org.opencms.db.CmsTypedCacheKey;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsGroup;
 import org.opencms.file.CmsObject;
@@ -70,18 +72,29 @@ import org.opencms.util.PrintfFormat;
 import org.opencms.xml.CmsXmlContentDefinition;
 import org.opencms.xml.CmsXmlEntityResolver;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import javax.mail.internet.InternetAddress;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
 import org.apache.commons.collections.Buffer;
 import org.apache.commons.collections.buffer.SynchronizedBuffer;
@@ -156,6 +169,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** The concurrency level for the guava caches. */
     private static final int CONCURRENCY_LEVEL = 8;
 
+    /** The JMX domain and type for the cache statistics. */
+    private static final String JMX_CACHE_PREFIX = "org.opencms:type=Cache,name=";
+
     /** Set interval for clearing the caches to 10 minutes. */
     private static final int INTERVAL_CLEAR = 1000 * 60 * 10;
 
@@ -169,7 +185,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     private static final int MAX_DEPTH = 5;
 
     /** Cache for access control lists. */
-    private Map<String, CmsAccessControlList> m_cacheAccessControlList;
+    private Map<CmsTypedCacheKey, CmsAccessControlList> m_cacheAccessControlList;
 
     /** A temporary cache for XML content definitions. */
     private Map<String, CmsXmlContentDefinition> m_cacheContentDefinitions;
@@ -183,8 +199,8 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** A cache for accelerated locale lookup. */
     private Map<String, Locale> m_cacheLocale;
 
-    /** Cache for the resource locks. */
-    private Map<String, CmsLock> m_cacheLock;
+    /** Cache for the resource locks, sorted by root path. */
+    private ConcurrentNavigableMap<String, CmsLock> m_cacheLock;
 
     /** The memory object cache map. */
     private Map<String, Object> m_cacheMemObject;
@@ -193,7 +209,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     private Map<String, CmsOrganizationalUnit> m_cacheOrgUnit;
 
     /** Cache for permission checks. */
-    private Map<String, I_CmsPermissionHandler.CmsPermissionCheckResult> m_cachePermission;
+    private Map<CmsTypedCacheKey, I_CmsPermissionHandler.CmsPermissionCheckResult> m_cachePermission;
 
     /** Cache for offline projects. */
     private Map<String, CmsProject> m_cacheProject;
@@ -205,13 +221,13 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     private Map<String, CmsProperty> m_cacheProperty;
 
     /** Cache for property lists. */
-    private Map<String, List<CmsProperty>> m_cachePropertyList;
+    private Map<CmsTypedCacheKey, List<CmsProperty>> m_cachePropertyList;
 
     /** Cache for published resources. */
     private Map<String, List<CmsPublishedResource>> m_cachePublishedResources;
 
     /** Cache for resources. */
-    private Map<String, CmsResource> m_cacheResource;
+    private Map<CmsTypedCacheKey, CmsResource> m_cacheResource;
 
     /** Cache for resource lists. */
     private Map<String, List<CmsResource>> m_cacheResourceList;
@@ -219,6 +235,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** Cache for role lists. */
     private Map<String, List<CmsRole>> m_cacheRoleLists;
 
+    /** The snapshot of the online VFS cache keys, or null if warm start is disabled. */
+    private CmsCacheSnapshot m_cacheSnapshot;
+
     /** Cache for user data. */
     private Map<String, CmsUser> m_cacheUser;
 
@@ -276,9 +295,15 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** The average memory status. */
     private CmsMemoryStatus m_memoryAverage;
 
+    /** The memory budget of the monitored caches in bytes, or -1. */
+    private long m_memoryBudget = -1;
+
     /** The current memory status. */
     private CmsMemoryStatus m_memoryCurrent;
 
+    /** The caches that record statistics. */
+    private Map<String, CmsMonitoredCache<?, ?>> m_monitoredCaches = new ConcurrentHashMap<String, CmsMonitoredCache<?, ?>>();
+
     /** Contains the object to be monitored. */
     private Map<String, Object> m_monitoredObjects;
 
@@ -288,6 +313,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** Buffer for publish jobs. */
     private Buffer m_publishQueue;
 
+    /** The sum of the configured sizes of the monitored caches, used to share the memory budget. */
+    private long m_totalCacheSize;
+
     /** Flag for memory warning mail send. */
     private boolean m_warningLoggedSinceLastStatus;
 
@@ -529,6 +557,11 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
             return ((CmsLruCache)obj).size();
         }
 
+        if (obj instanceof CmsMonitoredCache) {
+            // the estimated size of the entries is kept by the cache
+            return ((CmsMonitoredCache<?, ?>)obj).getWeight();
+        }
+
         if (obj instanceof Map) {
             return getValueSize((Map<?, ?>)obj, 1);
         }
@@ -550,7 +583,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      * @param key the cache key
      * @param acl the acl to cache
      */
-    public void cacheACL(String key, CmsAccessControlList acl) {
+    public void cacheACL(CmsTypedCacheKey key, CmsAccessControlList acl) {
 
         if (m_disabled.get(CacheType.ACL) != null) {
             return;
@@ -652,7 +685,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      * @param key the cache key
      * @param permission the permission check result to cache
      */
-    public void cachePermission(String key, I_CmsPermissionHandler.CmsPermissionCheckResult permission) {
+    public void cachePermission(CmsTypedCacheKey key, I_CmsPermissionHandler.CmsPermissionCheckResult permission) {
 
         if (m_disabled.get(CacheType.PERMISSION) != null) {
             return;
@@ -708,7 +741,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      * @param key the cache key
      * @param propertyList the property list to cache
      */
-    public void cachePropertyList(String key, List<CmsProperty> propertyList) {
+    public void cachePropertyList(CmsTypedCacheKey key, List<CmsProperty> propertyList) {
 
         if (m_disabled.get(CacheType.PROPERTY_LIST) != null) {
             return;
@@ -764,7 +797,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      * @param key the cache key
      * @param resource the resource to cache
      */
-    public void cacheResource(String key, CmsResource resource) {
+    public void cacheResource(CmsTypedCacheKey key, CmsResource resource) {
 
         if (m_disabled.get(CacheType.RESOURCE) != null) {
             return;
@@ -908,6 +941,19 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         clearResourceCache();
     }
 
+    /**
+     * Clears the access control lists of the resource with the given root path and of all resources below it,
+     * and the cached permissions.<p>
+     *
+     * @param rootPath the root path of the resource whose access control entries have changed
+     */
+    public void clearAccessControlListCache(String rootPath) {
+
+        uncacheACLs(rootPath);
+        flushCache(CacheType.PERMISSION);
+        clearResourceCache();
+    }
+
     /**
      * Clears almost all internal caches.<p>
      */
@@ -924,6 +970,23 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         flushCache(CacheType.PUBLISHED_RESOURCES);
     }
 
+    /**
+     * Clears almost all internal caches, except the cached property lists.<p>
+     *
+     * This is used after publishing, when only the property lists of the published resources are removed.<p>
+     */
+    public void clearCacheExceptPropertyLists() {
+
+        clearPrincipalsCache();
+
+        flushCache(CacheType.PROJECT);
+        flushCache(CacheType.RESOURCE);
+        flushCache(CacheType.RESOURCE_LIST);
+        flushCache(CacheType.PROPERTY);
+        flushCache(CacheType.PROJECT_RESOURCES);
+        flushCache(CacheType.PUBLISHED_RESOURCES);
+    }
+
     /**
      * Clears all internal principal-related caches.<p>
      */
@@ -1143,7 +1206,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
             return;
         }
         // initialize new lock cache
-        Map<String, CmsLock> newLockCache = new ConcurrentHashMap<String, CmsLock>(newLocks);
+        ConcurrentNavigableMap<String, CmsLock> newLockCache = new ConcurrentSkipListMap<String, CmsLock>(newLocks);
         // register it
         register(CmsLockManager.class.getName(), newLockCache);
         // save the old cache
@@ -1406,6 +1469,18 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return new ArrayList<CmsPublishJobInfoBean>(m_publishHistory);
     }
 
+    /**
+     * Returns the statistics of the caches that record them, sorted by the cache name.<p>
+     *
+     * @return the statistics of the monitored caches
+     */
+    public List<I_CmsCacheStatistics> getCacheStatistics() {
+
+        List<I_CmsCacheStatistics> result = new ArrayList<I_CmsCacheStatistics>(m_monitoredCaches.values());
+        Collections.sort(result, (a, b) -> a.getName().compareTo(b.getName()));
+        return result;
+    }
+
     /**
      * Returns the ACL cached with the given cache key or <code>null</code> if not found.<p>
      *
@@ -1413,7 +1488,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      *
      * @return the ACL cached with the given cache key
      */
-    public CmsAccessControlList getCachedACL(String key) {
+    public CmsAccessControlList getCachedACL(CmsTypedCacheKey key) {
 
         return m_cacheAccessControlList.get(key);
     }
@@ -1470,6 +1545,27 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return m_cacheLock.get(rootPath);
     }
 
+    /**
+     * Returns the cached locks of all resources with a root path that starts with the given prefix.<p>
+     *
+     * The lock cache is sorted by root path, so only the matching locks are read.<p>
+     *
+     * @param prefix the root path prefix, e.g. the root path of a folder
+     *
+     * @return a list of {@link CmsLock} objects, sorted by root path
+     */
+    public List<CmsLock> getCachedLocks(String prefix) {
+
+        List<CmsLock> result = new ArrayList<CmsLock>();
+        for (Map.Entry<String, CmsLock> entry : m_cacheLock.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
     /**
      * Returns the memory object cached with the given cache key or <code>null</code> if not found.<p>
      *
@@ -1501,7 +1597,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      *
      * @return the permission check result cached with the given cache key
      */
-    public I_CmsPermissionHandler.CmsPermissionCheckResult getCachedPermission(String key) {
+    public I_CmsPermissionHandler.CmsPermissionCheckResult getCachedPermission(CmsTypedCacheKey key) {
 
         return m_cachePermission.get(key);
     }
@@ -1549,7 +1645,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      *
      * @return the property list cached with the given cache key
      */
-    public List<CmsProperty> getCachedPropertyList(String key) {
+    public List<CmsProperty> getCachedPropertyList(CmsTypedCacheKey key) {
 
         return m_cachePropertyList.get(key);
     }
@@ -1612,7 +1708,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      *
      * @return the resource cached with the given cache key
      */
-    public CmsResource getCachedResource(String key) {
+    public CmsResource getCachedResource(CmsTypedCacheKey key) {
 
         return m_cacheResource.get(key);
     }
@@ -1837,20 +1933,43 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
 
         // create and register all system caches
 
+        // the memory budget is shared by the monitored caches in proportion to their configured sizes
+        if (cacheSettings.getMemoryBudget() > 0) {
+            m_memoryBudget = cacheSettings.getMemoryBudget() * 1048576L;
+        }
+        m_totalCacheSize = 128
+            + 64
+            + cacheSettings.getPermissionCacheSize()
+            + (2 * cacheSettings.getUserCacheSize())
+            + cacheSettings.getGroupCacheSize()
+            + cacheSettings.getOrgUnitCacheSize()
+            + cacheSettings.getUserGroupsCacheSize()
+            + cacheSettings.getProjectCacheSize()
+            + cacheSettings.getProjectResourcesCacheSize()
+            + cacheSettings.getResourceCacheSize()
+            + (2 * cacheSettings.getRolesCacheSize())
+            + cacheSettings.getResourcelistCacheSize()
+            + cacheSettings.getPropertyCacheSize()
+            + cacheSettings.getPropertyListsCacheSize()
+            + 5
+            + cacheSettings.getAclCacheSize();
+
         // temporary xml entities cache
-        m_cacheXmlTemporaryEntity = createLRUCacheMap(128);
-        register(CmsXmlEntityResolver.class.getName() + ".xmlEntityTemporaryCache", m_cacheXmlTemporaryEntity);
+        m_cacheXmlTemporaryEntity = createMonitoredCache(
+            CmsXmlEntityResolver.class.getName() + ".xmlEntityTemporaryCache",
+            128);
 
         // permanent xml entities cache
         m_cacheXmlPermanentEntity = new ConcurrentHashMap<String, byte[]>(32);
         register(CmsXmlEntityResolver.class.getName() + ".xmlEntityPermanentCache", m_cacheXmlPermanentEntity);
 
         // xml content definitions cache
-        m_cacheContentDefinitions = createLRUCacheMap(64);
-        register(CmsXmlEntityResolver.class.getName() + ".contentDefinitionsCache", m_cacheContentDefinitions);
+        m_cacheContentDefinitions = createMonitoredCache(
+            CmsXmlEntityResolver.class.getName() + ".contentDefinitionsCache",
+            64);
 
         // lock cache
-        m_cacheLock = new ConcurrentHashMap<String, CmsLock>();
+        m_cacheLock = new ConcurrentSkipListMap<String, CmsLock>();
         register(CmsLockManager.class.getName(), m_cacheLock);
 
         // locale cache
@@ -1858,36 +1977,44 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsLocaleManager.class.getName(), m_cacheLocale);
 
         // permissions cache
-        m_cachePermission = createLRUCacheMap(cacheSettings.getPermissionCacheSize());
-        register(CmsSecurityManager.class.getName(), m_cachePermission);
+        m_cachePermission = createMonitoredCache(
+            CmsSecurityManager.class.getName(),
+            cacheSettings.getPermissionCacheSize());
 
         // user cache
-        m_cacheUser = createLRUCacheMap(cacheSettings.getUserCacheSize());
-        register(CmsDriverManager.class.getName() + ".userCache", m_cacheUser);
+        m_cacheUser = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".userCache",
+            cacheSettings.getUserCacheSize());
 
         // user list cache
-        m_cacheUserList = createLRUCacheMap(cacheSettings.getUserCacheSize());
-        register(CmsDriverManager.class.getName() + ".userListCache", m_cacheUserList);
+        m_cacheUserList = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".userListCache",
+            cacheSettings.getUserCacheSize());
 
         // group cache
-        m_cacheGroup = createLRUCacheMap(cacheSettings.getGroupCacheSize());
-        register(CmsDriverManager.class.getName() + ".groupCache", m_cacheGroup);
+        m_cacheGroup = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".groupCache",
+            cacheSettings.getGroupCacheSize());
 
         // organizational unit cache
-        m_cacheOrgUnit = createLRUCacheMap(cacheSettings.getOrgUnitCacheSize());
-        register(CmsDriverManager.class.getName() + ".orgUnitCache", m_cacheOrgUnit);
+        m_cacheOrgUnit = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".orgUnitCache",
+            cacheSettings.getOrgUnitCacheSize());
 
         // user groups list cache
-        m_cacheUserGroups = createLRUCacheMap(cacheSettings.getUserGroupsCacheSize());
-        register(CmsDriverManager.class.getName() + ".userGroupsCache", m_cacheUserGroups);
+        m_cacheUserGroups = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".userGroupsCache",
+            cacheSettings.getUserGroupsCacheSize());
 
         // project cache
-        m_cacheProject = createLRUCacheMap(cacheSettings.getProjectCacheSize());
-        register(CmsDriverManager.class.getName() + ".projectCache", m_cacheProject);
+        m_cacheProject = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".projectCache",
+            cacheSettings.getProjectCacheSize());
 
         // project resources cache cache
-        m_cacheProjectResources = createLRUCacheMap(cacheSettings.getProjectResourcesCacheSize());
-        register(CmsDriverManager.class.getName() + ".projectResourcesCache", m_cacheProjectResources);
+        m_cacheProjectResources = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".projectResourcesCache",
+            cacheSettings.getProjectResourcesCacheSize());
 
         // publish history
         int size = configuration.getPublishManager().getPublishHistorySize();
@@ -1901,36 +2028,56 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsPublishQueue.class.getName() + ".publishQueue", buffer);
 
         // resource cache
-        m_cacheResource = createLRUCacheMap(cacheSettings.getResourceCacheSize());
-        register(CmsDriverManager.class.getName() + ".resourceCache", m_cacheResource);
+        m_cacheResource = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".resourceCache",
+            cacheSettings.getResourceCacheSize());
 
         // roles cache
-        m_cacheHasRoles = createLRUCacheMap(cacheSettings.getRolesCacheSize());
-        register(CmsDriverManager.class.getName() + ".rolesCache", m_cacheHasRoles);
+        m_cacheHasRoles = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".rolesCache",
+            cacheSettings.getRolesCacheSize());
 
         // role lists cache
-        m_cacheRoleLists = createLRUCacheMap(cacheSettings.getRolesCacheSize());
-        register(CmsDriverManager.class.getName() + ".roleListsCache", m_cacheRoleLists);
+        m_cacheRoleLists = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".roleListsCache",
+            cacheSettings.getRolesCacheSize());
 
         // resource list cache
-        m_cacheResourceList = createLRUCacheMap(cacheSettings.getResourcelistCacheSize());
-        register(CmsDriverManager.class.getName() + ".resourceListCache", m_cacheResourceList);
+        m_cacheResourceList = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".resourceListCache",
+            cacheSettings.getResourcelistCacheSize());
 
         // property cache
-        m_cacheProperty = createLRUCacheMap(cacheSettings.getPropertyCacheSize());
-        register(CmsDriverManager.class.getName() + ".propertyCache", m_cacheProperty);
+        m_cacheProperty = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".propertyCache",
+            cacheSettings.getPropertyCacheSize());
 
         // property list cache
-        m_cachePropertyList = createLRUCacheMap(cacheSettings.getPropertyListsCacheSize());
-        register(CmsDriverManager.class.getName() + ".propertyListCache", m_cachePropertyList);
+        m_cachePropertyList = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".propertyListCache",
+            cacheSettings.getPropertyListsCacheSize());
 
         // published resources list cache
-        m_cachePublishedResources = createLRUCacheMap(5);
-        register(CmsDriverManager.class.getName() + ".publishedResourcesCache", m_cachePublishedResources);
+        m_cachePublishedResources = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".publishedResourcesCache",
+            5);
 
         // acl cache
-        m_cacheAccessControlList = createLRUCacheMap(cacheSettings.getAclCacheSize());
-        register(CmsDriverManager.class.getName() + ".accessControlListCache", m_cacheAccessControlList);
+        m_cacheAccessControlList = createMonitoredCache(
+            CmsDriverManager.class.getName() + ".accessControlListCache",
+            cacheSettings.getAclCacheSize());
+
+        // snapshot of the online vfs cache keys for the warm start
+        if (cacheSettings.isWarmStartEnabled()) {
+            m_cacheSnapshot = new CmsCacheSnapshot(
+                new File(OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(cacheSettings.getWarmStartFile())),
+                cacheSettings.getWarmStartInterval(),
+                cacheSettings.getWarmStartMaxEntries(),
+                cacheSettings.getWarmStartMaxLoadTime());
+            // the snapshot keeps the most recently used entries
+            recordAccessTimes(m_cacheResource);
+            recordAccessTimes(m_cachePropertyList);
+        }
 
         // vfs object cache
         m_cacheVfsObject = new ConcurrentHashMap<String, Object>();
@@ -2059,6 +2206,11 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
             if ((System.currentTimeMillis() - monitor.m_lastEmailStatus) > monitor.m_intervalEmail) {
                 monitor.monitorSendEmail(false);
             }
+
+            // check if the cache snapshot must be written
+            if ((monitor.m_cacheSnapshot != null) && monitor.m_cacheSnapshot.isWriteDue()) {
+                monitor.writeCacheSnapshot();
+            }
         } finally {
             // make sure state is reset even if an error occurs,
             // otherwise MM will not be executed after an error
@@ -2068,6 +2220,20 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return null;
     }
 
+    /**
+     * Reads the entries of the cache snapshot into the online VFS caches, if warm start is enabled.<p>
+     *
+     * The method blocks until all entries have been read, or until the configured maximum load time has elapsed.<p>
+     *
+     * @param cms the CmsObject used for reading, this must have admin permissions
+     */
+    public void loadCacheSnapshot(CmsObject cms) {
+
+        if (m_cacheSnapshot != null) {
+            m_cacheSnapshot.load(cms);
+        }
+    }
+
     /**
      * Returns true if the system runs low on memory.<p>
      *
@@ -2181,6 +2347,28 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         for (CacheType type : CacheType.values()) {
             flushCache(type);
         }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (String name : m_monitoredCaches.keySet()) {
+            try {
+                ObjectName objectName = new ObjectName(JMX_CACHE_PREFIX + name);
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Removes the access control lists of the resource with the given root path
+     * and of all resources below it from the cache.<p>
+     *
+     * @param rootPath the root path
+     */
+    public void uncacheACLs(String rootPath) {
+
+        m_cacheAccessControlList.keySet().removeIf(key -> key.getPath().startsWith(rootPath));
     }
 
     /**
@@ -2242,6 +2430,16 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_cacheProject.remove(project.getName());
     }
 
+    /**
+     * Removes the property list cached with the given cache key from the cache.<p>
+     *
+     * @param key the cache key
+     */
+    public void uncachePropertyList(CmsTypedCacheKey key) {
+
+        m_cachePropertyList.remove(key);
+    }
+
     /**
      * Removes the given publish job from the cache.<p>
      *
@@ -2295,6 +2493,47 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_cacheXmlTemporaryEntity.remove(key);
     }
 
+    /**
+     * Writes the keys of the cached online resources and property lists to the cache snapshot file,
+     * if warm start is enabled.<p>
+     */
+    public void writeCacheSnapshot() {
+
+        if ((m_cacheSnapshot == null) || (m_cacheResource == null)) {
+            return;
+        }
+        // the sets remove the duplicates of resources cached under several keys, keeping the most recent position
+        Set<CmsUUID> resourceIds = new LinkedHashSet<CmsUUID>();
+        Set<CmsUUID> pathResourceIds = new LinkedHashSet<CmsUUID>();
+        for (Map.Entry<CmsTypedCacheKey, CmsResource> entry : getEntriesByRecency(m_cacheResource)) {
+            if (entry.getKey().isOnline()) {
+                if (entry.getKey().getPath() != null) {
+                    pathResourceIds.add(entry.getValue().getStructureId());
+                } else {
+                    resourceIds.add(entry.getValue().getStructureId());
+                }
+            }
+        }
+        List<String> propertyPaths = new ArrayList<String>();
+        for (Map.Entry<CmsTypedCacheKey, List<CmsProperty>> entry : getEntriesByRecency(m_cachePropertyList)) {
+            if (entry.getKey().isOnline() && (entry.getKey().getPath() != null)) {
+                propertyPaths.add(entry.getKey().getPath());
+            }
+        }
+        try {
+            m_cacheSnapshot.write(
+                new ArrayList<CmsUUID>(resourceIds),
+                new ArrayList<CmsUUID>(pathResourceIds),
+                propertyPaths);
+        } catch (IOException e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_CACHE_SNAPSHOT_WRITE_FAILED_1,
+                    m_cacheSnapshot.getFile().getAbsolutePath()),
+                e);
+        }
+    }
+
     /**
      * Clears the OpenCms caches.<p>
      */
@@ -2340,7 +2579,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /**
      * Returns the number of items within a monitored object.<p>
      *
-     * <code>obj</code> must be of type {@link CmsLruCache} or {@link Map}.<p>
+     * <code>obj</code> must be of type {@link CmsLruCache}, {@link CmsSlabAllocator} or {@link Map}.<p>
      *
      * @param obj the object
      *
@@ -2351,6 +2590,11 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (obj instanceof CmsLruCache) {
             return Integer.toString(((CmsLruCache)obj).size());
         }
+        if (obj instanceof CmsSlabAllocator) {
+            // the number of used pages
+            CmsSlabAllocator allocator = (CmsSlabAllocator)obj;
+            return Long.toString(allocator.getUsedBytes() / allocator.getPageSize());
+        }
         if (obj instanceof Map) {
             return Integer.toString(((Map<?, ?>)obj).size());
         }
@@ -2416,6 +2660,10 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      */
     protected long getKeySize(Object obj) {
 
+        if (obj instanceof CmsMonitoredCache) {
+            // the keys are part of the estimated size of the entries
+            return 0;
+        }
         if (obj instanceof Map) {
             return getKeySize((Map<?, ?>)obj, 1);
         }
@@ -2426,7 +2674,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /**
      * Returns the max costs for all items within a monitored object.<p>
      *
-     * <code>obj</code> must be of type {@link CmsLruCache} or {@link LRUMap}.<p>
+     * <code>obj</code> must be of type {@link CmsLruCache}, {@link CmsSlabAllocator} or {@link LRUMap}.<p>
      *
      * @param obj the object
      *
@@ -2440,6 +2688,15 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (obj instanceof LRUMap) {
             return Integer.toString(((LRUMap)obj).maxSize());
         }
+        if (obj instanceof CmsMonitoredCache) {
+            CmsMonitoredCache<?, ?> cache = (CmsMonitoredCache<?, ?>)obj;
+            return cache.getMaxWeight() > 0
+            ? Long.toString(cache.getMaxWeight())
+            : Long.toString(cache.getMaxSize());
+        }
+        if (obj instanceof CmsSlabAllocator) {
+            return Long.toString(((CmsSlabAllocator)obj).getMaxBytes());
+        }
 
         return "-";
     }
@@ -2662,6 +2919,31 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                             form.sprintf(getItems(obj)),
                             form.sprintf(getLimit(obj)),
                             form.sprintf(Long.toString(size))}));
+                if (obj instanceof CmsMonitoredCache) {
+                    CmsMonitoredCache<?, ?> cache = (CmsMonitoredCache<?, ?>)obj;
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_MM_CACHE_STATISTICS_7,
+                            new Object[] {
+                                key,
+                                new Long(cache.getHitCount()),
+                                new Long(cache.getMissCount()),
+                                new PrintfFormat("%.3f").sprintf(cache.getHitRate()),
+                                new Long(cache.getEvictionCount()),
+                                new Long(cache.getLoadCount()),
+                                new PrintfFormat("%.2f").sprintf(cache.getAverageLoadTime())}));
+                }
+                if (obj instanceof CmsSlabAllocator) {
+                    CmsSlabAllocator allocator = (CmsSlabAllocator)obj;
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_MM_OFFHEAP_STATUS_4,
+                            new Object[] {
+                                key,
+                                new Long(allocator.getAllocatedBytes()),
+                                new Long(allocator.getFreeBytes()),
+                                new Long(allocator.getFailedAllocations())}));
+                }
             }
 
             LOG.info(
@@ -2736,4 +3018,69 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_memoryCurrent.update();
         m_memoryAverage.calculateAverage(m_memoryCurrent);
     }
+
+    /**
+     * Creates a cache that records statistics, registers it for monitoring and publishes its statistics with JMX.<p>
+     *
+     * If a memory budget is configured, the cache is limited to its share of the budget, otherwise it is limited
+     * to the given number of entries.<p>
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param name the name of the cache
+     * @param size the configured number of entries
+     *
+     * @return the cache
+     */
+    private <K, V> Map<K, V> createMonitoredCache(String name, int size) {
+
+        long maxWeight = -1;
+        if ((m_memoryBudget > 0) && (m_totalCacheSize > 0)) {
+            maxWeight = Math.max((m_memoryBudget * size) / m_totalCacheSize, 1024);
+        }
+        CmsMonitoredCache<K, V> cache = new CmsMonitoredCache<K, V>(name, size, maxWeight, CONCURRENCY_LEVEL);
+        m_monitoredCaches.put(name, cache);
+        register(name, cache);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_CACHE_PREFIX + name);
+            if (server.isRegistered(objectName)) {
+                // the cache of a previous initialization
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(new StandardMBean(cache, I_CmsCacheStatistics.class), objectName);
+        } catch (JMException e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_MM_JMX_REGISTRATION_FAILED_1, name), e);
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the entries of the given cache, the most recently used entries first if access times are recorded.<p>
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param cache the cache
+     *
+     * @return the entries of the cache
+     */
+    private <K, V> List<Map.Entry<K, V>> getEntriesByRecency(Map<K, V> cache) {
+
+        if (cache instanceof CmsMonitoredCache) {
+            return ((CmsMonitoredCache<K, V>)cache).getEntriesByRecency();
+        }
+        return new ArrayList<Map.Entry<K, V>>(cache.entrySet());
+    }
+
+    /**
+     * Starts recording the access times of the given cache, if it is a monitored cache.<p>
+     *
+     * @param cache the cache
+     */
+    private void recordAccessTimes(Map<?, ?> cache) {
+
+        if (cache instanceof CmsMonitoredCache) {
+            ((CmsMonitoredCache<?, ?>)cache).recordAccessTimes();
+        }
+    }
 }
@@ -0,0 +1,448 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import org.opencms.db.CmsTypedCacheKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ForwardingConcurrentMap;
+
+/**
+ * Concurrent LRU cache of the memory monitor that records statistics and can be limited by the estimated size of its
+ * entries instead of the number of entries.<p>
+ *
+ * The size of an entry is estimated once when it is stored, with {@link #estimateSize(Object, Object)}. The
+ * sum of the estimated sizes is always kept, so the memory monitor does not have to walk the cache to report its
+ * size.<p>
+ *
+ * A lookup with {@link #get(Object)} counts as hit or miss. If the same thread stores a value for the same key
+ * after a miss, the time in between counts as load time.<p>
+ *
+ * If {@link #recordAccessTimes()} has been called, the cache also keeps the time of the last access of each entry,
+ * so {@link #getEntriesByRecency()} can return the most recently used entries first.<p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ *
+ * @since 11.0.0
+ */
+public class CmsMonitoredCache<K, V> extends ForwardingConcurrentMap<K, V> implements I_CmsCacheStatistics {
+
+    /** Estimated size of an entry of the underlying cache, without key and value. */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    /** The key and the time of the last cache miss of the current thread. */
+    private static final ThreadLocal<Object[]> LAST_MISS = new ThreadLocal<Object[]>();
+
+    /** The time of the last access of each entry, or <code>null</code> if access times are not recorded. */
+    private volatile ConcurrentMap<K, Long> m_accessTimes;
+
+    /** The map view of the underlying cache. */
+    private ConcurrentMap<K, V> m_delegate;
+
+    /** The number of evicted entries. */
+    private LongAdder m_evictionCount = new LongAdder();
+
+    /** The number of cache hits. */
+    private LongAdder m_hitCount = new LongAdder();
+
+    /** The number of loaded values. */
+    private LongAdder m_loadCount = new LongAdder();
+
+    /** The total load time in nanoseconds. */
+    private LongAdder m_loadTime = new LongAdder();
+
+    /** The maximum number of entries, or -1. */
+    private long m_maxSize;
+
+    /** The maximum weight, or -1. */
+    private long m_maxWeight;
+
+    /** The number of cache misses. */
+    private LongAdder m_missCount = new LongAdder();
+
+    /** The name of the cache. */
+    private String m_name;
+
+    /** The estimated size of all entries. */
+    private AtomicLong m_weight = new AtomicLong();
+
+    /**
+     * Creates a new cache.<p>
+     *
+     * @param name the name of the cache
+     * @param maxSize the maximum number of entries, only used if no maximum weight is given
+     * @param maxWeight the maximum estimated size of all entries in bytes, or a value &lt;= 0 to limit the number of entries
+     * @param concurrencyLevel the concurrency level of the underlying cache
+     */
+    public CmsMonitoredCache(String name, long maxSize, long maxWeight, int concurrencyLevel) {
+
+        m_name = name;
+        final boolean weighted = maxWeight > 0;
+        m_maxWeight = weighted ? maxWeight : -1;
+        m_maxSize = weighted ? -1 : maxSize;
+        Weigher<K, V> weigher = new Weigher<K, V>() {
+
+            public int weigh(K key, V value) {
+
+                int size = estimateSize(key, value);
+                m_weight.addAndGet(size);
+                return weighted ? size : 1;
+            }
+        };
+        RemovalListener<K, V> removalListener = new RemovalListener<K, V>() {
+
+            public void onRemoval(RemovalNotification<K, V> notification) {
+
+                if ((notification.getKey() != null) && (notification.getValue() != null)) {
+                    m_weight.addAndGet(-estimateSize(notification.getKey(), notification.getValue()));
+                }
+                if (notification.getCause() == RemovalCause.SIZE) {
+                    m_evictionCount.increment();
+                }
+                ConcurrentMap<K, Long> accessTimes = m_accessTimes;
+                if ((accessTimes != null) && (notification.getCause() != RemovalCause.REPLACED)) {
+                    accessTimes.remove(notification.getKey());
+                }
+            }
+        };
+        m_delegate = CacheBuilder.newBuilder().concurrencyLevel(concurrencyLevel).maximumWeight(
+            weighted ? maxWeight : maxSize).weigher(weigher).removalListener(removalListener).<K, V> build().asMap();
+    }
+
+    /**
+     * Estimates the memory size of a cache entry in bytes.<p>
+     *
+     * @param key the key
+     * @param value the value
+     *
+     * @return the estimated size
+     */
+    public static int estimateSize(Object key, Object value) {
+
+        long size = ENTRY_OVERHEAD + estimateSize(key) + estimateSize(value);
+        return (int)Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Estimates the memory size of a single cache key or value in bytes.<p>
+     *
+     * @param obj the key or value
+     *
+     * @return the estimated size
+     */
+    private static long estimateSize(Object obj) {
+
+        if (obj instanceof CmsTypedCacheKey) {
+            CmsTypedCacheKey key = (CmsTypedCacheKey)obj;
+            // the referenced type, name, id and path are mostly shared with other objects
+            return 56 + (key.getPath() != null ? key.getPath().length() : 0);
+        }
+        if (obj instanceof Collection) {
+            long size = 48;
+            for (Object element : (Collection<?>)obj) {
+                size += 8 + CmsMemoryMonitor.getMemorySize(element);
+            }
+            return size;
+        }
+        if (obj instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)obj).entrySet()) {
+                size += 32 + CmsMemoryMonitor.getMemorySize(entry.getKey())
+                    + CmsMemoryMonitor.getMemorySize(entry.getValue());
+            }
+            return size;
+        }
+        return CmsMemoryMonitor.getMemorySize(obj);
+    }
+
+    /**
+     * @see com.google.common.collect.ForwardingMap#get(java.lang.Object)
+     */
+    @Override
+    public V get(Object key) {
+
+        V value = m_delegate.get(key);
+        if (value != null) {
+            m_hitCount.increment();
+            recordAccess(key);
+        } else {
+            m_missCount.increment();
+            LAST_MISS.set(new Object[] {key, Long.valueOf(System.nanoTime())});
+        }
+        return value;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getAverageLoadTime()
+     */
+    public double getAverageLoadTime() {
+
+        long count = m_loadCount.sum();
+        return count == 0 ? 0 : (m_loadTime.sum() / (double)count) / 1000000.0;
+    }
+
+    /**
+     * Returns the entries of this cache, the most recently used entries first.<p>
+     *
+     * Entries without a recorded access time come last. If access times are not recorded,
+     * the entries are returned in no particular order.<p>
+     *
+     * @return the entries of this cache
+     *
+     * @see #recordAccessTimes()
+     */
+    public List<Map.Entry<K, V>> getEntriesByRecency() {
+
+        List<Map.Entry<K, V>> result = new ArrayList<Map.Entry<K, V>>(m_delegate.entrySet());
+        if (m_accessTimes != null) {
+            // drop the times of entries that were removed while they were accessed
+            m_accessTimes.keySet().retainAll(m_delegate.keySet());
+            // copy the times first, so concurrent accesses do not change the order while sorting
+            final Map<K, Long> accessTimes = new HashMap<K, Long>(m_accessTimes);
+            Collections.sort(result, new Comparator<Map.Entry<K, V>>() {
+
+                public int compare(Map.Entry<K, V> entry1, Map.Entry<K, V> entry2) {
+
+                    Long time1 = accessTimes.get(entry1.getKey());
+                    Long time2 = accessTimes.get(entry2.getKey());
+                    return Long.compare(
+                        time2 != null ? time2.longValue() : Long.MIN_VALUE,
+                        time1 != null ? time1.longValue() : Long.MIN_VALUE);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getEvictionCount()
+     */
+    public long getEvictionCount() {
+
+        return m_evictionCount.sum();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getHitCount()
+     */
+    public long getHitCount() {
+
+        return m_hitCount.sum();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getHitRate()
+     */
+    public double getHitRate() {
+
+        long hits = m_hitCount.sum();
+        long total = hits + m_missCount.sum();
+        return total == 0 ? 1.0 : hits / (double)total;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getLoadCount()
+     */
+    public long getLoadCount() {
+
+        return m_loadCount.sum();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getMaxSize()
+     */
+    public long getMaxSize() {
+
+        return m_maxSize;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getMaxWeight()
+     */
+    public long getMaxWeight() {
+
+        return m_maxWeight;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getMissCount()
+     */
+    public long getMissCount() {
+
+        return m_missCount.sum();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getName()
+     */
+    public String getName() {
+
+        return m_name;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getSize()
+     */
+    public long getSize() {
+
+        return m_delegate.size();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#getWeight()
+     */
+    public long getWeight() {
+
+        return Math.max(m_weight.get(), 0);
+    }
+
+    /**
+     * @see com.google.common.collect.ForwardingMap#put(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public V put(K key, V value) {
+
+        recordLoad(key);
+        V result = m_delegate.put(key, value);
+        recordAccess(key);
+        return result;
+    }
+
+    /**
+     * @see com.google.common.collect.ForwardingConcurrentMap#putIfAbsent(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+
+        recordLoad(key);
+        V result = m_delegate.putIfAbsent(key, value);
+        recordAccess(key);
+        return result;
+    }
+
+    /**
+     * Starts recording the time of the last access of each entry, as required for {@link #getEntriesByRecency()}.<p>
+     *
+     * Entries that are already in the cache have no access time until they are accessed again.<p>
+     */
+    public void recordAccessTimes() {
+
+        if (m_accessTimes == null) {
+            m_accessTimes = new ConcurrentHashMap<K, Long>();
+        }
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsCacheStatistics#resetStatistics()
+     */
+    public void resetStatistics() {
+
+        m_hitCount.reset();
+        m_missCount.reset();
+        m_evictionCount.reset();
+        m_loadCount.reset();
+        m_loadTime.reset();
+    }
+
+    /**
+     * @see com.google.common.collect.ForwardingObject#toString()
+     */
+    @Override
+    public String toString() {
+
+        return m_name
+            + ": size="
+            + getSize()
+            + ", weight="
+            + getWeight()
+            + ", hits="
+            + getHitCount()
+            + ", misses="
+            + getMissCount()
+            + ", evictions="
+            + getEvictionCount()
+            + ", loads="
+            + getLoadCount();
+    }
+
+    /**
+     * @see com.google.common.collect.ForwardingConcurrentMap#delegate()
+     */
+    @Override
+    protected ConcurrentMap<K, V> delegate() {
+
+        return m_delegate;
+    }
+
+    /**
+     * Records the time of the access to the given key, if access times are recorded.<p>
+     *
+     * @param key the key of the accessed entry
+     */
+    @SuppressWarnings("unchecked")
+    private void recordAccess(Object key) {
+
+        ConcurrentMap<K, Long> accessTimes = m_accessTimes;
+        if (accessTimes != null) {
+            accessTimes.put((K)key, Long.valueOf(System.nanoTime()));
+        }
+    }
+
+    /**
+     * Records the load time if the current thread has missed the given key before.<p>
+     *
+     * @param key the key of the stored value
+     */
+    private void recordLoad(K key) {
+
+        Object[] lastMiss = LAST_MISS.get();
+        if ((lastMiss != null) && lastMiss[0].equals(key)) {
+            LAST_MISS.remove();
+            m_loadCount.increment();
+            m_loadTime.add(System.nanoTime() - ((Long)lastMiss[1]).longValue());
+        }
+    }
+}
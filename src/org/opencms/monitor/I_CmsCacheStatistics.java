@@ -0,0 +1,122 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+/**
+ * Statistics of a cache of the memory monitor.<p>
+ *
+ * The statistics of all caches of the memory monitor are also published as JMX beans with the
+ * object name <code>org.opencms:type=Cache,name=&lt;cache name&gt;</code>.<p>
+ *
+ * @since 11.0.0
+ */
+public interface I_CmsCacheStatistics {
+
+    /**
+     * Returns the average time between a cache miss and storing the loaded value in the cache, in milliseconds.<p>
+     *
+     * @return the average load time
+     */
+    double getAverageLoadTime();
+
+    /**
+     * Returns the number of entries that have been removed because the cache was full.<p>
+     *
+     * @return the number of evicted entries
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the number of lookups that have found a cached value.<p>
+     *
+     * @return the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the ratio of the lookups that have found a cached value.<p>
+     *
+     * @return the hit rate, between 0 and 1
+     */
+    double getHitRate();
+
+    /**
+     * Returns the number of values that have been stored in the cache after a cache miss.<p>
+     *
+     * @return the number of loaded values
+     */
+    long getLoadCount();
+
+    /**
+     * Returns the maximum number of entries of the cache.<p>
+     *
+     * @return the maximum number of entries, or -1 if the cache is limited by weight
+     */
+    long getMaxSize();
+
+    /**
+     * Returns the maximum weight of the cache in bytes.<p>
+     *
+     * @return the maximum weight, or -1 if the cache is limited by the number of entries
+     */
+    long getMaxWeight();
+
+    /**
+     * Returns the number of lookups that have not found a cached value.<p>
+     *
+     * @return the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Returns the name of the cache.<p>
+     *
+     * @return the name of the cache
+     */
+    String getName();
+
+    /**
+     * Returns the current number of entries in the cache.<p>
+     *
+     * @return the number of entries
+     */
+    long getSize();
+
+    /**
+     * Returns the estimated size of all entries in the cache in bytes.<p>
+     *
+     * @return the estimated size of all entries
+     */
+    long getWeight();
+
+    /**
+     * Resets the hit, miss, eviction and load counters.<p>
+     */
+    void resetStatistics();
+}
@@ -37,12 +37,30 @@ import org.opencms.i18n.I_CmsMessageBundle;
  */
 public final class Messages extends A_CmsMessageBundle {
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CACHE_SNAPSHOT_LOADED_4 = "LOG_CACHE_SNAPSHOT_LOADED_4";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CACHE_SNAPSHOT_READ_FAILED_1 = "LOG_CACHE_SNAPSHOT_READ_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CACHE_SNAPSHOT_TIMEOUT_2 = "LOG_CACHE_SNAPSHOT_TIMEOUT_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CACHE_SNAPSHOT_WRITE_FAILED_1 = "LOG_CACHE_SNAPSHOT_WRITE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CACHE_SNAPSHOT_WRITTEN_2 = "LOG_CACHE_SNAPSHOT_WRITTEN_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CAUGHT_THROWABLE_1 = "LOG_CAUGHT_THROWABLE_1";
 
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CLEAR_CACHE_MEM_CONS_0 = "LOG_CLEAR_CACHE_MEM_CONS_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_CACHE_STATISTICS_7 = "LOG_MM_CACHE_STATISTICS_7";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_CONNECTIONS_3 = "LOG_MM_CONNECTIONS_3";
 
@@ -70,12 +88,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_INTERVAL_WARNING_1 = "LOG_MM_INTERVAL_WARNING_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_JMX_REGISTRATION_FAILED_1 = "LOG_MM_JMX_REGISTRATION_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_LOG_INFO_2 = "LOG_MM_LOG_INFO_2";
 
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_NOWARN_STATUS_5 = "LOG_MM_NOWARN_STATUS_5";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_OFFHEAP_STATUS_4 = "LOG_MM_OFFHEAP_STATUS_4";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_SESSION_STAT_3 = "LOG_MM_SESSION_STAT_3";
 
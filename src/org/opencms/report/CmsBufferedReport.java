@@ -0,0 +1,265 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.report;
+
+import org.opencms.i18n.CmsMessageContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Report that collects the output and writes it to another report when it is flushed.<p>
+ *
+ * This is used if several threads write to the same report, so that the output of each thread
+ * is written in one piece and does not get mixed up with the output of the other threads.
+ * All read access is delegated to the underlying report.<p>
+ *
+ * @since 11.0.0
+ */
+public class CmsBufferedReport implements I_CmsReport {
+
+    /** The collected output. */
+    private List<Consumer<I_CmsReport>> m_output = new ArrayList<Consumer<I_CmsReport>>();
+
+    /** The report to write the output to. */
+    private I_CmsReport m_report;
+
+    /**
+     * Creates a new buffered report.<p>
+     *
+     * @param report the report to write the output to
+     */
+    public CmsBufferedReport(I_CmsReport report) {
+
+        m_report = report;
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#addError(java.lang.Object)
+     */
+    public void addError(Object obj) {
+
+        m_output.add(report -> report.addError(obj));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#addWarning(java.lang.Object)
+     */
+    public void addWarning(Object obj) {
+
+        m_output.add(report -> report.addWarning(obj));
+    }
+
+    /**
+     * Writes the collected output to the underlying report.<p>
+     *
+     * The underlying report is locked while the output is written.<p>
+     */
+    public void flush() {
+
+        if (m_output.isEmpty()) {
+            return;
+        }
+        synchronized (m_report) {
+            for (Consumer<I_CmsReport> output : m_output) {
+                output.accept(m_report);
+            }
+        }
+        m_output.clear();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#formatRuntime()
+     */
+    public String formatRuntime() {
+
+        return m_report.formatRuntime();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getErrors()
+     */
+    public List<Object> getErrors() {
+
+        return m_report.getErrors();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getLastEntryTime()
+     */
+    public long getLastEntryTime() {
+
+        return m_report.getLastEntryTime();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getLocale()
+     */
+    public Locale getLocale() {
+
+        return m_report.getLocale();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getReportUpdate()
+     */
+    public String getReportUpdate() {
+
+        return "";
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getReportUpdate(org.opencms.report.I_CmsReportUpdateFormatter)
+     */
+    public String getReportUpdate(I_CmsReportUpdateFormatter formatter) {
+
+        return "";
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getRuntime()
+     */
+    public long getRuntime() {
+
+        return m_report.getRuntime();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getSiteRoot()
+     */
+    public String getSiteRoot() {
+
+        return m_report.getSiteRoot();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getWarnings()
+     */
+    public List<Object> getWarnings() {
+
+        return m_report.getWarnings();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#hasError()
+     */
+    public boolean hasError() {
+
+        return m_report.hasError();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#hasWarning()
+     */
+    public boolean hasWarning() {
+
+        return m_report.hasWarning();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#print(org.opencms.i18n.CmsMessageContainer)
+     */
+    public void print(CmsMessageContainer container) {
+
+        m_output.add(report -> report.print(container));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#print(org.opencms.i18n.CmsMessageContainer, int)
+     */
+    public void print(CmsMessageContainer container, int format) {
+
+        m_output.add(report -> report.print(container, format));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println()
+     */
+    public void println() {
+
+        m_output.add(report -> report.println());
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println(org.opencms.i18n.CmsMessageContainer)
+     */
+    public void println(CmsMessageContainer container) {
+
+        m_output.add(report -> report.println(container));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println(org.opencms.i18n.CmsMessageContainer, int)
+     */
+    public void println(CmsMessageContainer container, int format) {
+
+        m_output.add(report -> report.println(container, format));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println(java.lang.Throwable)
+     */
+    public void println(Throwable t) {
+
+        m_output.add(report -> report.println(t));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#printMessageWithParam(org.opencms.i18n.CmsMessageContainer, java.lang.Object)
+     */
+    public void printMessageWithParam(CmsMessageContainer container, Object param) {
+
+        m_output.add(report -> report.printMessageWithParam(container, param));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#printMessageWithParam(int, int, org.opencms.i18n.CmsMessageContainer, java.lang.Object)
+     */
+    public void printMessageWithParam(int m, int n, CmsMessageContainer container, Object param) {
+
+        m_output.add(report -> report.printMessageWithParam(m, n, container, param));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#removeSiteRoot(java.lang.String)
+     */
+    public String removeSiteRoot(String resourcename) {
+
+        return m_report.removeSiteRoot(resourcename);
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#resetRuntime()
+     */
+    public void resetRuntime() {
+
+        // the runtime is managed by the underlying report
+    }
+}
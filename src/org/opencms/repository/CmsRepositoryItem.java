@@ -36,6 +36,9 @@ import org.opencms.loader.CmsResourceManager;
 import org.opencms.main.CmsException;
 import org.opencms.main.OpenCms;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
 /**
  * Represents a single entry in the repository. In the context of OpenCms
  * this means a single {@link CmsResource}.<p>
@@ -102,6 +105,30 @@ public class CmsRepositoryItem implements I_CmsRepositoryItem {
         return m_resource.getLength();
     }
 
+    /**
+     * @see org.opencms.repository.I_CmsRepositoryItem#getContentStream()
+     */
+    public InputStream getContentStream() {
+
+        if (!m_resource.isFile()) {
+            return null;
+        }
+
+        if (m_content == null) {
+            try {
+                InputStream stream = m_cms.readContentStream(m_resource);
+                if (stream != null) {
+                    return stream;
+                }
+            } catch (CmsException ex) {
+                // fall back to the content read by the wrappers
+            }
+        }
+
+        byte[] content = getContent();
+        return content != null ? new ByteArrayInputStream(content) : null;
+    }
+
     /**
      * @see org.opencms.repository.I_CmsRepositoryItem#getCreationDate()
      */
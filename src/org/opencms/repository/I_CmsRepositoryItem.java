@@ -27,6 +27,8 @@
 
 package org.opencms.repository;
 
+import java.io.InputStream;
+
 /**
  * This class represents items in the repository interface. That can be
  * files or folders (collections). <p>
@@ -42,6 +44,15 @@ public interface I_CmsRepositoryItem {
      */
     byte[] getContent();
 
+    /**
+     * Returns the content of this item as a stream.<p>
+     *
+     * The caller is responsible for closing the stream.<p>
+     *
+     * @return the content of this item as a stream
+     */
+    InputStream getContentStream();
+
     /**
      * Returns the length of the content of this item.<p>
      *
@@ -38,14 +38,17 @@ import org.opencms.search.documents.I_CmsDocumentFactory;
 import org.apache.commons.logging.Log;
 
 /**
- * Implements the indexing method for a single resource as thread.<p>
+ * Implements the indexing method for a single resource as runnable.<p>
  *
- * The indexing of a single resource is wrapped into a thread
- * in order to prevent the overall indexer from hanging.<p>
+ * The indexing of a single resource is run by a worker thread
+ * of the {@link CmsIndexingThreadManager} in order to prevent the overall indexer from hanging.<p>
+ *
+ * Before 11.0.0 this class extended {@link Thread}. It is now only a {@link Runnable},
+ * use <code>new Thread(indexingThread)</code> to run it in a separate thread.<p>
  *
  * @since 6.0.0
  */
-public class CmsIndexingThread extends Thread {
+public class CmsIndexingThread implements Runnable {
 
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsIndexingThread.class);
@@ -82,8 +85,6 @@ public class CmsIndexingThread extends Thread {
      */
     public CmsIndexingThread(CmsObject cms, CmsResource res, I_CmsSearchIndex index, int count, I_CmsReport report) {
 
-        super("OpenCms: Indexing '" + res.getName() + "'");
-
         m_cms = cms;
         m_res = res;
         m_index = index;
@@ -115,7 +116,7 @@ public class CmsIndexingThread extends Thread {
     }
 
     /**
-     * Starts the thread to index a single resource.<p>
+     * Indexes a single resource.<p>
      *
      * @see java.lang.Runnable#run()
      */
@@ -131,7 +132,7 @@ public class CmsIndexingThread extends Thread {
             docOk = true;
 
             // check if the thread was interrupted
-            if (isInterrupted() && LOG.isDebugEnabled()) {
+            if (Thread.currentThread().isInterrupted() && LOG.isDebugEnabled()) {
                 LOG.debug(
                     Messages.get().getBundle().key(Messages.LOG_ABANDONED_THREAD_FINISHED_1, m_res.getRootPath()));
             }
@@ -31,26 +31,79 @@ import org.opencms.db.CmsPublishedResource;
 import org.opencms.file.CmsResource;
 import org.opencms.i18n.CmsMessageContainer;
 import org.opencms.main.CmsLog;
+import org.opencms.report.CmsBufferedReport;
 import org.opencms.report.CmsLogReport;
 import org.opencms.report.I_CmsReport;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 
 /**
  * Implements the management of indexing threads.<p>
  *
+ * The documents are created by a pool of worker threads, so that the text of several resources
+ * can be extracted at the same time. The number of resources that are extracted at the same time
+ * is configured per index, see {@link I_CmsSearchIndex#getIndexingThreads()}.
+ * The created documents are always written to the index by the thread that uses the manager,
+ * in the order the resources have been added.<p>
+ *
+ * If the extraction of a resource exceeds the timeout, the worker is interrupted and abandoned,
+ * and a new worker is used for the next resource.<p>
+ *
  * @since 6.0.0
  */
 public class CmsIndexingThreadManager {
 
+    /**
+     * A document that is created by a worker thread and not yet written to the index.<p>
+     */
+    private static class PendingTask {
+
+        /** The time when the task is abandoned. */
+        long m_deadline;
+
+        /** The result of the task. */
+        Future<?> m_future;
+
+        /** The VFS indexer that has added the resource. */
+        CmsVfsIndexer m_indexer;
+
+        /** The buffered report of the task, <code>null</code> if the task writes to the report directly. */
+        CmsBufferedReport m_report;
+
+        /** The resource to index. */
+        CmsResource m_resource;
+
+        /** The indexing thread that creates the document. */
+        CmsIndexingThread m_thread;
+
+        /** The index writer to write the document with. */
+        I_CmsIndexWriter m_writer;
+    }
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsIndexingThreadManager.class);
 
+    /** The counter for the names of the worker threads. */
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
     /** Number of threads abandoned. */
     private int m_abandonedCounter;
 
+    /** The executor for the workers, created when the first resource is added. */
+    private ExecutorService m_executor;
+
     /** The time the last error was written to the log. */
     private long m_lastLogErrorTime;
 
@@ -60,12 +113,18 @@ public class CmsIndexingThreadManager {
     /** The maximum number of modifications before a commit in the search index is triggered. */
     private int m_maxModificationsBeforeCommit;
 
+    /** The documents that are created by the workers and not yet written to the index. */
+    private Deque<PendingTask> m_pending = new ArrayDeque<PendingTask>();
+
     /** Number of thread returned. */
     private int m_returnedCounter;
 
     /** Overall number of threads started. */
     private int m_startedCounter;
 
+    /** The number of resources that are indexed at the same time. */
+    private int m_threads;
+
     /** Timeout for abandoning threads. */
     private long m_timeout;
 
@@ -77,17 +136,30 @@ public class CmsIndexingThreadManager {
      */
     public CmsIndexingThreadManager(long timeout, int maxModificationsBeforeCommit) {
 
+        this(timeout, maxModificationsBeforeCommit, 1);
+    }
+
+    /**
+     * Creates and starts a thread manager for indexing threads.<p>
+     *
+     * @param timeout timeout after a thread is abandoned
+     * @param maxModificationsBeforeCommit the maximum number of modifications before a commit in the search index is triggered
+     * @param threads the number of resources that are indexed at the same time
+     */
+    public CmsIndexingThreadManager(long timeout, int maxModificationsBeforeCommit, int threads) {
+
         m_timeout = timeout;
         m_maxModificationsBeforeCommit = maxModificationsBeforeCommit;
+        m_threads = Math.max(1, threads);
     }
 
     /**
      * Creates and starts a new indexing thread for a resource.<p>
      *
-     * After an indexing thread was started, the manager suspends itself
-     * and waits for an amount of time specified by the <code>timeout</code>
-     * value. If the timeout value is reached, the indexing thread is
-     * aborted by an interrupt signal.<p>
+     * The document for the resource is created by a worker thread. If the configured number of
+     * resources is already indexed, the manager first waits until the oldest of them has been finished
+     * and writes its document to the index. If the <code>timeout</code> value is reached, the indexing
+     * thread is aborted by an interrupt signal.<p>
      *
      * @param indexer the VFS indexer to create the index thread for
      * @param writer the index writer that can update the index
@@ -97,69 +169,45 @@ public class CmsIndexingThreadManager {
 
         I_CmsReport report = indexer.getReport();
         m_startedCounter++;
-        CmsIndexingThread thread = new CmsIndexingThread(
-            indexer.getCms(),
+        PendingTask task = new PendingTask();
+        task.m_indexer = indexer;
+        task.m_writer = writer;
+        task.m_resource = res;
+        if ((m_threads > 1) && (report != null)) {
+            // collect the output, so that the output for the resources does not get mixed up
+            task.m_report = new CmsBufferedReport(report);
+        }
+        task.m_thread = newIndexingThread(
+            indexer,
             res,
-            indexer.getIndex(),
             m_startedCounter,
-            report);
-        thread.setPriority(Thread.MIN_PRIORITY);
-        thread.start();
-        try {
-            thread.join(m_timeout);
-        } catch (InterruptedException e) {
-            // ignore
-        }
-        if (thread.isAlive()) {
-            // the thread has not finished - so it must be marked as an abandoned thread
-            m_abandonedCounter++;
-            thread.interrupt();
-            if (LOG.isWarnEnabled()) {
-                LOG.warn(Messages.get().getBundle().key(Messages.LOG_INDEXING_TIMEOUT_1, res.getRootPath()));
-            }
-            if (report != null) {
-                report.println();
-                report.print(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
-                    I_CmsReport.FORMAT_WARNING);
-                report.println(
-                    Messages.get().container(Messages.RPT_SEARCH_INDEXING_TIMEOUT_1, res.getRootPath()),
-                    I_CmsReport.FORMAT_WARNING);
-            }
-        } else {
-            // the thread finished normally
-            m_returnedCounter++;
-        }
-        I_CmsSearchDocument doc = thread.getResult();
-        if (doc != null) {
-            // write the document to the index
-            indexer.updateResource(writer, res.getRootPath(), doc);
-        } else {
-            indexer.deleteResource(writer, new CmsPublishedResource(res));
-        }
-        if ((m_startedCounter % m_maxModificationsBeforeCommit) == 0) {
-            try {
-                writer.commit();
-            } catch (IOException e) {
-                if (LOG.isWarnEnabled()) {
-                    LOG.warn(
-                        Messages.get().getBundle().key(
-                            Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
-                            indexer.getIndex().getName(),
-                            indexer.getIndex().getPath()),
-                        e);
-                }
-            }
+            task.m_report != null ? task.m_report : report);
+        task.m_deadline = System.currentTimeMillis() + m_timeout;
+        task.m_future = getExecutor().submit(task.m_thread);
+        m_pending.add(task);
+        while (m_pending.size() >= m_threads) {
+            finishTask(m_pending.poll());
         }
     }
 
     /**
      * Returns if the indexing manager still have indexing threads.<p>
      *
+     * Waits for the documents that have not yet been written to the index before.<p>
+     *
      * @return true if the indexing manager still have indexing threads
      */
     public boolean isRunning() {
 
+        while (!m_pending.isEmpty()) {
+            finishTask(m_pending.poll());
+        }
+        if (m_executor != null) {
+            // abandoned workers are not stopped, they terminate when they are done
+            m_executor.shutdown();
+            m_executor = null;
+        }
+
         if (m_lastLogErrorTime <= 0) {
             m_lastLogErrorTime = System.currentTimeMillis();
             m_lastLogWarnTime = m_lastLogErrorTime;
@@ -223,4 +271,122 @@ public class CmsIndexingThreadManager {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates the indexing thread that creates the document for a resource.<p>
+     *
+     * @param indexer the VFS indexer that has added the resource
+     * @param res the resource to index
+     * @param count the report count
+     * @param report the report to write the output to
+     *
+     * @return the indexing thread for the resource
+     */
+    protected CmsIndexingThread newIndexingThread(
+        CmsVfsIndexer indexer,
+        CmsResource res,
+        int count,
+        I_CmsReport report) {
+
+        return new CmsIndexingThread(indexer.getCms(), res, indexer.getIndex(), count, report);
+    }
+
+    /**
+     * Waits until the document for a resource has been created and writes it to the index.<p>
+     *
+     * @param task the task that creates the document
+     */
+    private void finishTask(PendingTask task) {
+
+        I_CmsReport report = task.m_indexer.getReport();
+        boolean finished = false;
+        try {
+            task.m_future.get(Math.max(1, task.m_deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            finished = true;
+        } catch (TimeoutException e) {
+            // handled below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // the indexing thread reports all errors itself, so this should never happen
+            LOG.error(e.getLocalizedMessage(), e);
+            finished = true;
+        }
+        if (!finished) {
+            // the thread has not finished - so it must be marked as an abandoned thread
+            m_abandonedCounter++;
+            task.m_future.cancel(true);
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(Messages.LOG_INDEXING_TIMEOUT_1, task.m_resource.getRootPath()));
+            }
+            if (report != null) {
+                report.println();
+                report.print(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
+                    I_CmsReport.FORMAT_WARNING);
+                report.println(
+                    Messages.get().container(
+                        Messages.RPT_SEARCH_INDEXING_TIMEOUT_1,
+                        task.m_resource.getRootPath()),
+                    I_CmsReport.FORMAT_WARNING);
+            }
+        } else {
+            // the thread finished normally
+            m_returnedCounter++;
+            if (task.m_report != null) {
+                task.m_report.flush();
+            }
+        }
+        I_CmsSearchDocument doc = task.m_thread.getResult();
+        if (doc != null) {
+            // write the document to the index
+            task.m_indexer.updateResource(task.m_writer, task.m_resource.getRootPath(), doc);
+        } else {
+            task.m_indexer.deleteResource(task.m_writer, new CmsPublishedResource(task.m_resource));
+        }
+        if (((m_returnedCounter + m_abandonedCounter) % m_maxModificationsBeforeCommit) == 0) {
+            try {
+                task.m_writer.commit();
+            } catch (IOException e) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
+                            task.m_indexer.getIndex().getName(),
+                            task.m_indexer.getIndex().getPath()),
+                        e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the executor for the workers.<p>
+     *
+     * A worker that is busy with an abandoned resource is not reused, so new workers are created as needed.
+     * The number of resources indexed at the same time is limited by the manager.<p>
+     *
+     * @return the executor for the workers
+     */
+    private ExecutorService getExecutor() {
+
+        if (m_executor == null) {
+            m_executor = new ThreadPoolExecutor(
+                0,
+                Integer.MAX_VALUE,
+                60L,
+                TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(),
+                runnable -> {
+                    Thread thread = new Thread(
+                        runnable,
+                        "OpenCms: Indexing worker " + THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        }
+        return m_executor;
+    }
+}
@@ -156,6 +156,9 @@ public class CmsSearchIndex extends A_CmsSearchIndex {
     /** Constant for additional parameter to enable/disable language detection (default: false). */
     public static final String IGNORE_EXPIRATION = A_PARAM_PREFIX + ".ignoreExpiration";
 
+    /** Constant for additional parameter to set the number of resources indexed at the same time (default: 1). */
+    public static final String INDEXING_THREADS = A_PARAM_PREFIX + ".indexingThreads";
+
     /** Constant for additional parameter to enable/disable language detection (default: false). */
     public static final String LANGUAGEDETECTION = "search.solr.useLanguageDetection";
 
@@ -234,6 +237,9 @@ public class CmsSearchIndex extends A_CmsSearchIndex {
     /** The Lucene index searcher to use. */
     private transient IndexSearcher m_indexSearcher;
 
+    /** The number of resources that are indexed at the same time. */
+    private int m_indexingThreads;
+
     /** The Lucene index RAM buffer size, see {@link IndexWriterConfig#setRAMBufferSizeMB(double)}. */
     private Double m_luceneRAMBufferSizeMB;
 
@@ -262,6 +268,7 @@ public class CmsSearchIndex extends A_CmsSearchIndex {
         m_priority = -1;
         m_createExcerpt = true;
         m_maxHits = MAX_HITS_DEFAULT;
+        m_indexingThreads = 1;
         m_checkTimeRange = false;
     }
 
@@ -476,6 +483,12 @@ public class CmsSearchIndex extends A_CmsSearchIndex {
         } else if (CmsSearchIndex.EXCERPT.equals(key)) {
             m_createExcerpt = Boolean.valueOf(value).booleanValue();
 
+        } else if (INDEXING_THREADS.equals(key)) {
+            try {
+                m_indexingThreads = Math.max(1, Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_INVALID_PARAM_3, value, key, getName()));
+            }
         } else if (LUCENE_RAM_BUFFER_SIZE_MB.equals(key)) {
             try {
                 m_luceneRAMBufferSizeMB = Double.valueOf(value);
@@ -535,6 +548,9 @@ public class CmsSearchIndex extends A_CmsSearchIndex {
         if (!isCreatingExcerpt()) {
             result.put(EXCERPT, String.valueOf(m_createExcerpt));
         }
+        if (getIndexingThreads() > 1) {
+            result.put(INDEXING_THREADS, String.valueOf(getIndexingThreads()));
+        }
         if (m_luceneRAMBufferSizeMB != null) {
             result.put(LUCENE_RAM_BUFFER_SIZE_MB, String.valueOf(m_luceneRAMBufferSizeMB));
         }
@@ -667,6 +683,19 @@ public class CmsSearchIndex extends A_CmsSearchIndex {
         return null;
     }
 
+    /**
+     * Returns the number of resources that are indexed at the same time when the index is updated.<p>
+     *
+     * This is controlled by the parameter {@link #INDEXING_THREADS}, the default is 1.<p>
+     *
+     * @return the number of resources that are indexed at the same time
+     */
+    @Override
+    public int getIndexingThreads() {
+
+        return m_indexingThreads;
+    }
+
     /**
      * Returns the language locale for the given resource in this index.<p>
      *
@@ -92,6 +92,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
@@ -205,6 +206,11 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                     List<CmsResource> resources = Collections.singletonList(
                         (CmsResource)event.getData().get(I_CmsEventListener.KEY_RESOURCE));
                     reIndexResources(resources);
+                    CmsResource aclFolder = getFolderWithChangedAcl(event);
+                    if (aclFolder != null) {
+                        // the files below the folder inherit its access control entries
+                        reIndexResources(readFilesInFolder(getOfflineIndexProject(), aclFolder.getRootPath()));
+                    }
                     break;
                 case I_CmsEventListener.EVENT_RESOURCE_DELETED:
                     List<CmsResource> eventResources = (List<CmsResource>)event.getData().get(
@@ -670,6 +676,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The thread used of offline indexing. */
     protected CmsSearchOfflineIndexThread m_offlineIndexThread;
 
+    /** The ids of the folders with changed access control entries, the files below are reindexed on publish. */
+    private Set<CmsUUID> m_aclChangedFolders = ConcurrentHashMap.newKeySet();
+
     /** Configured analyzers for languages using &lt;analyzer&gt;. */
     private HashMap<Locale, CmsSearchAnalyzer> m_analyzers;
 
@@ -1009,6 +1018,13 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                             publishHistoryId));
                 }
                 break;
+            case I_CmsEventListener.EVENT_RESOURCE_MODIFIED:
+                CmsResource aclFolder = getFolderWithChangedAcl(event);
+                if (aclFolder != null) {
+                    // remember the folder, the online indexes are updated when it is published
+                    m_aclChangedFolders.add(aclFolder.getStructureId());
+                }
+                break;
             default:
                 // no operation
         }
@@ -1499,7 +1515,8 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             new int[] {
                 I_CmsEventListener.EVENT_CLEAR_CACHES,
                 I_CmsEventListener.EVENT_PUBLISH_PROJECT,
-                I_CmsEventListener.EVENT_REBUILD_SEARCHINDEXES});
+                I_CmsEventListener.EVENT_REBUILD_SEARCHINDEXES,
+                I_CmsEventListener.EVENT_RESOURCE_MODIFIED});
     }
 
     /**
@@ -2473,6 +2490,32 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return names;
     }
 
+    /**
+     * Returns the folder whose access control entries have been changed according to the given event,
+     * if any index filters its search results by the indexed access control entries.<p>
+     *
+     * @param event the resource modification event
+     *
+     * @return the folder with changed access control entries, or <code>null</code>
+     */
+    protected CmsResource getFolderWithChangedAcl(CmsEvent event) {
+
+        Object change = event.getData().get(I_CmsEventListener.KEY_CHANGE);
+        Object resource = event.getData().get(I_CmsEventListener.KEY_RESOURCE);
+        if (!(change instanceof Integer)
+            || ((((Integer)change).intValue() & CmsDriverManager.CHANGED_ACCESSCONTROL) == 0)
+            || !(resource instanceof CmsResource)
+            || !((CmsResource)resource).isFolder()) {
+            return null;
+        }
+        for (CmsSolrIndex index : getAllSolrIndexes()) {
+            if (index.isPermissionFilter()) {
+                return (CmsResource)resource;
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns the a offline project used for offline indexing.<p>
      *
@@ -2497,13 +2540,15 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     }
 
     /**
-     * Returns a new thread manager for the indexing threads.<p>
+     * Returns a new thread manager for the indexing threads of the given index.<p>
+     *
+     * @param index the index to update
      *
-     * @return a new thread manager for the indexing threads
+     * @return a new thread manager for the indexing threads of the given index
      */
-    protected CmsIndexingThreadManager getThreadManager() {
+    protected CmsIndexingThreadManager getThreadManager(I_CmsSearchIndex index) {
 
-        return new CmsIndexingThreadManager(m_timeout, m_maxModificationsBeforeCommit);
+        return new CmsIndexingThreadManager(m_timeout, m_maxModificationsBeforeCommit, index.getIndexingThreads());
     }
 
     /**
@@ -2622,6 +2667,29 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Reads all files below the given folder, including deleted files.<p>
+     *
+     * @param project the project to read the files from, or <code>null</code> for the online project
+     * @param rootPath the root path of the folder
+     *
+     * @return the files below the folder
+     */
+    protected List<CmsResource> readFilesInFolder(CmsProject project, String rootPath) {
+
+        try {
+            CmsObject cms = OpenCms.initCmsObject(m_adminCms);
+            if (project != null) {
+                cms.getRequestContext().setCurrentProject(project);
+            }
+            cms.getRequestContext().setSiteRoot("");
+            return cms.readResources(rootPath, CmsResourceFilter.ALL.addRequireFile(), true);
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
     /**
      * Checks, if the index should be rebuilt/updated at all by the search manager.
      * @param index the index to check.
@@ -2666,7 +2734,13 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             // When published resources with both states 'new' and 'deleted' exist in the same publish job history, the resource has been moved
 
             List<CmsPublishedResource> updateResources = new ArrayList<CmsPublishedResource>();
+            List<String> aclChangedFolders = new ArrayList<String>();
             for (CmsPublishedResource res : publishedResources) {
+                if (res.isFolder()
+                    && !res.getState().isDeleted()
+                    && m_aclChangedFolders.remove(res.getStructureId())) {
+                    aclChangedFolders.add(res.getRootPath());
+                }
                 if (res.isFolder() || res.getState().isUnchanged()) {
                     // folders and unchanged resources don't need to be indexed after publish
                     continue;
@@ -2722,6 +2796,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                 }
             }
 
+            for (String folder : aclChangedFolders) {
+                // the files below the folder inherit its access control entries
+                for (CmsResource file : readFilesInFolder(null, folder)) {
+                    CmsPublishedResource pubRes = new CmsPublishedResource(file);
+                    if (!updateResources.contains(pubRes)) {
+                        updateResources.add(pubRes);
+                    }
+                }
+            }
+
             findRelatedContainerPages(adminCms, updateResources);
             if (!updateResources.isEmpty()) {
                 // sort the resource to update
@@ -2813,7 +2897,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     throws CmsIndexException {
 
         // create a new thread manager for the indexing threads
-        CmsIndexingThreadManager threadManager = getThreadManager();
+        CmsIndexingThreadManager threadManager = getThreadManager(index);
 
         boolean isOfflineIndex = false;
         if (I_CmsSearchIndex.REBUILD_MODE_OFFLINE.equals(index.getRebuildMode())) {
@@ -3010,7 +3094,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
 
                     if (hasResourcesToUpdate) {
                         // create a new thread manager
-                        CmsIndexingThreadManager threadManager = getThreadManager();
+                        CmsIndexingThreadManager threadManager = getThreadManager(index);
 
                         Iterator<CmsSearchIndexUpdateData> i = updateCollections.iterator();
                         while (i.hasNext()) {
@@ -201,6 +201,18 @@ public interface I_CmsSearchIndex extends I_CmsConfigurationParameterHandler, Se
      */
     I_CmsSearchFieldConfiguration getFieldConfiguration();
 
+    /**
+     * Returns the number of resources that are indexed at the same time when the index is updated.<p>
+     *
+     * The default implementation returns 1, i.e. the resources are indexed one after another.<p>
+     *
+     * @return the number of resources that are indexed at the same time
+     */
+    default int getIndexingThreads() {
+
+        return 1;
+    }
+
     /**
      * Returns a new index writer for this index.<p>
      *
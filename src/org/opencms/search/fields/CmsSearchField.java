@@ -46,6 +46,9 @@ import java.util.Map;
  */
 public class CmsSearchField implements Serializable {
 
+    /** Name of the field that contains the access control entries relevant for reading the document. */
+    public static final String FIELD_ACL_ENTRIES = "acl_entries";
+
     /** Name of the field that contains the (optional) category of the document (hardcoded). */
     public static final String FIELD_CATEGORY = "category";
 
@@ -56,6 +56,7 @@ import org.opencms.search.fields.CmsSearchFieldConfiguration;
 import org.opencms.search.fields.CmsSearchFieldMapping;
 import org.opencms.search.fields.CmsSearchFieldMappingType;
 import org.opencms.search.fields.I_CmsSearchFieldMapping;
+import org.opencms.security.CmsAccessControlList;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.xml.CmsXmlContentDefinition;
 import org.opencms.xml.containerpage.CmsContainerElementBean;
@@ -186,6 +187,16 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
             document.addSearchField(m_solrFields.get(CmsSearchField.FIELD_SEARCH_CHANNEL), "content");
         }
 
+        // index the access control entries, so that searches can filter by the read permission
+        try {
+            CmsAccessControlList acl = cms.getAccessControlList(cms.getRequestContext().getSitePath(resource), false);
+            document.addSearchField(
+                m_solrFields.get(CmsSearchField.FIELD_ACL_ENTRIES),
+                CmsStringUtil.listAsString(CmsSolrPermissionFilter.getAclEntries(acl), "\n"));
+        } catch (CmsException e) {
+            LOG.error(e.getMessage(), e);
+        }
+
         document = appendFieldsForListSortOptions(document);
 
         if (resource.getRootPath().startsWith(OpenCms.getSiteManager().getSharedFolder())
@@ -691,6 +702,9 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
         sfield = new CmsSolrField(CmsSearchField.FIELD_SEARCH_CHANNEL, null, null, null);
         m_solrFields.put(sfield.getName(), sfield);
 
+        sfield = new CmsSolrField(CmsSearchField.FIELD_ACL_ENTRIES, null, null, null);
+        m_solrFields.put(sfield.getName(), sfield);
+
         /*
          * Fields with mapping
          */
@@ -127,6 +127,18 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** Constant for additional parameter to set the post processor class name. */
     public static final String POST_PROCESSOR = "search.solr.postProcessor";
 
+    /**
+     * Constant for additional parameter to enable or disable checking the read permission for each search result,
+     * in addition to the permission filter query. Enabled by default if the permission filter is disabled.
+     */
+    public static final String SOLR_SEARCH_PERMISSION_CHECK = "search.solr.permissionCheck";
+
+    /**
+     * Constant for additional parameter to let Solr filter the search results by the indexed access control entries.
+     * The index must be rebuilt after enabling the filter.
+     */
+    public static final String SOLR_SEARCH_PERMISSION_FILTER = "search.solr.permissionFilter";
+
     /**
      * Constant for additional parameter to set the maximally processed results (start + rows) for searches with this index.
      * It overwrites the global configuration from {@link CmsSolrConfiguration#getMaxProcessedResults()} for this index.
@@ -142,6 +154,12 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** Constant for additional parameter to set the maximal number of a result, the select handler should return. */
     public static final String SOLR_HANDLER_MAX_ALLOWED_RESULTS_AT_ALL = "handle.solr.maxAllowedResultsAtAll";
 
+    /** Constant for additional parameter to set the number of queued documents the index writer sends in one batch. */
+    public static final String SOLR_WRITER_BATCH_SIZE = "search.solr.writer.batchSize";
+
+    /** Constant for additional parameter to set the maximal time in milliseconds a document is queued by the index writer. */
+    public static final String SOLR_WRITER_MAX_DELAY = "search.solr.writer.maxDelay";
+
     /** Constant for additional parameter to disable the select handler (except for debug mode). */
     private static final String SOLR_HANDLER_DISABLE_SELECT = "handle.solr.disableSelectHandler";
 
@@ -246,6 +264,18 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** The maximal number of results to process for search queries. */
     int m_maxProcessedResults = -2; // special value for not initialized.
 
+    /** Flag, indicating if the read permission is checked for each search result, or null if not configured. */
+    private Boolean m_permissionCheck;
+
+    /** Flag, indicating if Solr filters the search results by the indexed access control entries. */
+    private boolean m_permissionFilter;
+
+    /** The number of queued documents the index writer sends in one batch. */
+    private int m_writerBatchSize = CmsSolrIndexWriter.DEFAULT_BATCH_SIZE;
+
+    /** The maximal time in milliseconds a document is queued by the index writer. */
+    private long m_writerMaxDelay = CmsSolrIndexWriter.DEFAULT_MAX_DELAY;
+
     /**
      * Default constructor.<p>
      */
@@ -369,6 +399,44 @@ public class CmsSolrIndex extends CmsSearchIndex {
                     }
                 }
                 break;
+            case SOLR_SEARCH_PERMISSION_CHECK:
+                if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(value)) {
+                    m_permissionCheck = Boolean.valueOf(value.trim());
+                }
+                break;
+            case SOLR_SEARCH_PERMISSION_FILTER:
+                if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(value)) {
+                    m_permissionFilter = Boolean.parseBoolean(value.trim());
+                }
+                break;
+            case SOLR_WRITER_BATCH_SIZE:
+                if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(value)) {
+                    try {
+                        m_writerBatchSize = Integer.parseInt(value.trim());
+                    } catch (NumberFormatException e) {
+                        LOG.warn(
+                            "Could not parse parameter \""
+                                + SOLR_WRITER_BATCH_SIZE
+                                + "\" for index \""
+                                + getName()
+                                + "\". The default value will be used instead.");
+                    }
+                }
+                break;
+            case SOLR_WRITER_MAX_DELAY:
+                if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(value)) {
+                    try {
+                        m_writerMaxDelay = Long.parseLong(value.trim());
+                    } catch (NumberFormatException e) {
+                        LOG.warn(
+                            "Could not parse parameter \""
+                                + SOLR_WRITER_MAX_DELAY
+                                + "\" for index \""
+                                + getName()
+                                + "\". The default value will be used instead.");
+                    }
+                }
+                break;
             default:
                 super.addConfigurationParameter(key, value);
                 break;
@@ -501,6 +569,18 @@ public class CmsSolrIndex extends CmsSearchIndex {
         if (getPostProcessor() != null) {
             result.put(POST_PROCESSOR, getPostProcessor().getClass().getName());
         }
+        if (m_permissionCheck != null) {
+            result.put(SOLR_SEARCH_PERMISSION_CHECK, m_permissionCheck.toString());
+        }
+        if (m_permissionFilter) {
+            result.put(SOLR_SEARCH_PERMISSION_FILTER, Boolean.TRUE.toString());
+        }
+        if (m_writerBatchSize != CmsSolrIndexWriter.DEFAULT_BATCH_SIZE) {
+            result.put(SOLR_WRITER_BATCH_SIZE, String.valueOf(m_writerBatchSize));
+        }
+        if (m_writerMaxDelay != CmsSolrIndexWriter.DEFAULT_MAX_DELAY) {
+            result.put(SOLR_WRITER_MAX_DELAY, String.valueOf(m_writerMaxDelay));
+        }
         return result;
     }
 
@@ -635,6 +715,26 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return m_postProcessor;
     }
 
+    /**
+     * Returns the number of queued documents the index writer sends to Solr in one batch.<p>
+     *
+     * @return the number of queued documents the index writer sends to Solr in one batch
+     */
+    public int getWriterBatchSize() {
+
+        return m_writerBatchSize;
+    }
+
+    /**
+     * Returns the maximal time in milliseconds a document is queued by the index writer before the queue is sent.<p>
+     *
+     * @return the maximal time in milliseconds a document is queued by the index writer
+     */
+    public long getWriterMaxDelay() {
+
+        return m_writerMaxDelay;
+    }
+
     /**
      * @see org.opencms.search.CmsSearchIndex#initialize()
      */
@@ -653,6 +753,28 @@ public class CmsSolrIndex extends CmsSearchIndex {
         }
     }
 
+    /**
+     * Returns if the read permission is checked for each search result.<p>
+     *
+     * If not configured, the permissions are checked for each result unless the permission filter is enabled.<p>
+     *
+     * @return <code>true</code> if the read permission is checked for each search result
+     */
+    public boolean isPermissionCheck() {
+
+        return m_permissionCheck != null ? m_permissionCheck.booleanValue() : !m_permissionFilter;
+    }
+
+    /**
+     * Returns if Solr filters the search results by the indexed access control entries.<p>
+     *
+     * @return <code>true</code> if Solr filters the search results by the indexed access control entries
+     */
+    public boolean isPermissionFilter() {
+
+        return m_permissionFilter;
+    }
+
     /** Returns a flag, indicating if the Solr server is not yet set.
      * @return a flag, indicating if the Solr server is not yet set.
      */
@@ -959,6 +1081,15 @@ public class CmsSolrIndex extends CmsSearchIndex {
             // initialize the search context
             CmsObject searchCms = OpenCms.initCmsObject(cms);
 
+            // let Solr filter by the indexed access control entries, if possible
+            String permissionFilterQuery = null;
+            if (isPermissionFilter()) {
+                boolean requireVisible = isRequireViewPermission() || ((filter != null) && filter.requireVisible());
+                permissionFilterQuery = CmsSolrPermissionFilter.getFilterQuery(searchCms, requireVisible);
+            }
+            // without a filter query, or if configured as safety net, the permissions are checked for each result
+            boolean checkPermissions = (permissionFilterQuery == null) || isPermissionCheck();
+
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
             //////////////////////// QUERY FOR PERMISSION CHECK, FACETS, SPELLCHECK, SUGGESTIONS ///////////////////////////
             ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -968,6 +1099,10 @@ public class CmsSolrIndex extends CmsSearchIndex {
             // Initialize rows, offset, end and the current page.
             int end = start + rows;
             int itemsToCheck = 0 == end ? 0 : Math.max(10, end + (end / 5)); // request 20 percent more, but at least 10 results if permissions are filtered
+            if (!checkPermissions) {
+                // Solr returns only readable documents, so there is nothing to filter
+                itemsToCheck = end;
+            }
             // use a set to prevent double entries if multiple check queries are performed.
             Set<String> resultSolrIds = new HashSet<>(rows); // rows are set before definitely.
 
@@ -979,6 +1114,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
             long solrPermissionTime = 0;
             // disable highlighting - it's done in the next query.
             checkQuery.setHighlight(false);
+            if (permissionFilterQuery != null) {
+                checkQuery.addFilterQuery(permissionFilterQuery);
+            }
             // adjust rows and start for the permission check.
             checkQuery.setRows(Integer.valueOf(Math.min(maxNumResults - processedResults, itemsToCheck)));
             checkQuery.setStart(Integer.valueOf(processedResults));
@@ -1006,7 +1144,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
             for (SolrDocument doc : checkQueryResponse.getResults()) {
                 try {
                     CmsSolrDocument searchDoc = new CmsSolrDocument(doc);
-                    if (needsPermissionCheck(searchDoc) && !hasPermissions(searchCms, searchDoc, filter)) {
+                    if (checkPermissions
+                        && needsPermissionCheck(searchDoc)
+                        && !hasPermissions(searchCms, searchDoc, filter)) {
                         visibleHitCount--;
                     } else {
                         if (cnt >= start) {
@@ -1061,8 +1201,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
                         try {
                             CmsSolrDocument searchDoc = new CmsSolrDocument(doc);
                             String docSolrId = searchDoc.getFieldValueAsString(CmsSearchField.FIELD_SOLR_ID);
-                            if ((needsPermissionCheck(searchDoc) && !hasPermissions(searchCms, searchDoc, filter))
-                                || resultSolrIds.contains(docSolrId)) {
+                            if ((checkPermissions
+                                && needsPermissionCheck(searchDoc)
+                                && !hasPermissions(searchCms, searchDoc, filter)) || resultSolrIds.contains(docSolrId)) {
                                 visibleHitCount--;
                             } else {
                                 if (cnt >= start) {
@@ -36,26 +36,73 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.search.I_CmsSearchDocument;
 import org.opencms.search.fields.CmsSearchField;
+import org.opencms.util.CmsUUID;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 
 /**
  * Implements the index writer for the Solr server used by OpenCms.<p>
  *
+ * Updated and deleted documents are queued and sent to Solr in batches. The queue is sent if it contains
+ * {@link CmsSolrIndex#getWriterBatchSize()} documents, if the oldest queued document has been waiting for
+ * {@link CmsSolrIndex#getWriterMaxDelay()} milliseconds, and on {@link #commit()} and {@link #close()}.
+ * Repeated updates of the same resource while it is queued replace each other, so only the last version is sent.<p>
+ *
+ * Indexed documents that are replaced or deleted are looked up first and then deleted by their Solr id,
+ * because deleting by query is expensive for Solr.<p>
+ *
  * @since 8.5.0
  */
 public class CmsSolrIndexWriter implements I_CmsSolrIndexWriter {
 
+    /** The default number of queued documents sent to Solr in one batch. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /** The default maximal time in milliseconds a document is queued before the queue is sent to Solr. */
+    public static final long DEFAULT_MAX_DELAY = 2000;
+
     /** The log object for this class. */
     protected static final Log LOG = CmsLog.getLog(CmsSolrIndexWriter.class);
 
+    /** The number of rows read with one lookup query. */
+    private static final int LOOKUP_ROWS = 1000;
+
+    /** The maximal number of terms combined in one lookup or delete query. */
+    private static final int MAX_QUERY_TERMS = 200;
+
+    /** The length of a structure id, Solr ids of serial date instances append the instance number to it. */
+    private static final int STRUCTURE_ID_LENGTH = CmsUUID.getNullUUID().toString().length();
+
+    /** The number of batches sent to Solr. */
+    private long m_batchCount;
+
+    /** The number of queued documents sent to Solr in one batch. */
+    private int m_batchSize;
+
+    /** The total time in milliseconds spent sending batches to Solr. */
+    private long m_batchTime;
+
     /** The time to wait before a commit is sent to the Solr index.  */
     private int m_commitMs = new Long(
         OpenCms.getSearchManager().getSolrServerConfiguration().getSolrCommitMs()).intValue();
@@ -63,9 +110,27 @@ public class CmsSolrIndexWriter implements I_CmsSolrIndexWriter {
     /** The Solr index. */
     private CmsSolrIndex m_index;
 
+    /** The maximal time in milliseconds spent sending a batch to Solr. */
+    private long m_maxBatchTime;
+
+    /** The maximal time in milliseconds a document is queued before the queue is sent to Solr. */
+    private long m_maxDelay;
+
+    /** The structure ids of the queued deleted resources. */
+    private Set<String> m_queuedDeletes = new LinkedHashSet<String>();
+
+    /** The queued documents, by the root path of the indexed resource. */
+    private Map<String, List<SolrInputDocument>> m_queuedUpdates = new LinkedHashMap<String, List<SolrInputDocument>>();
+
+    /** The time the oldest document in the queue was added, or 0 if the queue is empty. */
+    private long m_queueStart;
+
     /** The Solr client. */
     private SolrClient m_server;
 
+    /** The root paths of the documents sent since the last commit by their Solr id, queries do not find them yet. */
+    private Map<String, String> m_uncommitted = new HashMap<String, String>();
+
     /**
      * Constructor to create a Solr index writer.<p>
      *
@@ -90,7 +155,11 @@ public class CmsSolrIndexWriter implements I_CmsSolrIndexWriter {
 
         m_index = index;
         m_server = client;
+        m_batchSize = DEFAULT_BATCH_SIZE;
+        m_maxDelay = DEFAULT_MAX_DELAY;
         if (m_index != null) {
+            m_batchSize = m_index.getWriterBatchSize();
+            m_maxDelay = m_index.getWriterMaxDelay();
             LOG.info(
                 Messages.get().getBundle().key(
                     Messages.LOG_SOLR_WRITER_CREATE_2,
@@ -100,19 +169,26 @@ public class CmsSolrIndexWriter implements I_CmsSolrIndexWriter {
     }
 
     /**
+     * Sends the queued documents to Solr.<p>
+     *
      * @see org.opencms.search.I_CmsIndexWriter#close()
      */
-    public void close() {
+    public synchronized void close() throws IOException {
 
-        // nothing to do here
+        if ((m_server != null) && (m_index != null)) {
+            flush();
+        }
     }
 
     /**
+     * Sends the queued documents to Solr and commits them.<p>
+     *
      * @see org.opencms.search.I_CmsIndexWriter#commit()
      */
-    public void commit() throws IOException {
+    public synchronized void commit() throws IOException {
 
         if ((m_server != null) && (m_index != null)) {
+            flush();
             try {
                 LOG.info(
                     Messages.get().getBundle().key(
@@ -120,16 +196,28 @@ public class CmsSolrIndexWriter implements I_CmsSolrIndexWriter {
                         m_index.getName(),
                         m_index.getPath()));
                 m_server.commit();
+                m_uncommitted.clear();
             } catch (SolrServerException e) {
                 throw new IOException(e.getLocalizedMessage(), e);
             }
+            if (LOG.isInfoEnabled() && (m_batchCount > 0)) {
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_SOLR_WRITER_STATISTICS_5,
+                        new Object[] {
+                            m_index.getName(),
+                            m_index.getPath(),
+                            Long.valueOf(m_batchCount),
+                            Long.valueOf(getAverageBatchLatency()),
+                            Long.valueOf(m_maxBatchTime)}));
+            }
         }
     }
 
     /**
      * @see org.opencms.search.solr.I_CmsSolrIndexWriter#deleteAllDocuments()
      */
-    public void deleteAllDocuments() throws IOException {
+    public synchronized void deleteAllDocuments() throws IOException {
 
         if ((m_server != null) && (m_index != null)) {
             try {
@@ -138,6 +226,10 @@ public class CmsSolrIndexWriter implements I_CmsSolrIndexWriter {
                         Messages.LOG_SOLR_WRITER_DELETE_ALL_2,
                         m_index.getName(),
                         m_index.getPath()));
+                m_queuedUpdates.clear();
+                m_queuedDeletes.clear();
+                m_queueStart = 0;
+                m_uncommitted.clear();
                 m_server.deleteByQuery("*:*", m_commitMs);
             } catch (SolrServerException e) {
                 throw new IOException(e.getLocalizedMessage(), e);
@@ -146,27 +238,75 @@ public class CmsSolrIndexWriter implements I_CmsSolrIndexWriter {
     }
 
     /**
+     * Queues the deletion of all documents for the given resource.<p>
+     *
+     * Queued updates of the resource are discarded.<p>
+     *
      * @see org.opencms.search.I_CmsIndexWriter#deleteDocument(org.opencms.db.CmsPublishedResource)
      */
-    public void deleteDocument(CmsPublishedResource resource) throws IOException {
+    public synchronized void deleteDocument(CmsPublishedResource resource) throws IOException {
 
         if ((m_server != null) && (m_index != null)) {
-            try {
-                LOG.info(
-                    Messages.get().getBundle().key(
-                        Messages.LOG_SOLR_WRITER_DOC_DELETE_3,
-                        resource.getRootPath(),
-                        m_index.getName(),
-                        m_index.getPath()));
-                m_server.deleteByQuery("id:" + resource.getStructureId().toString(), m_commitMs);
-            } catch (SolrServerException e) {
-                throw new IOException(e.getLocalizedMessage(), e);
-            } catch (SolrException e) {
-                throw new IOException(e.getLocalizedMessage(), e);
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_SOLR_WRITER_DOC_DELETE_3,
+                    resource.getRootPath(),
+                    m_index.getName(),
+                    m_index.getPath()));
+            String structureId = resource.getStructureId().toString();
+            Iterator<List<SolrInputDocument>> it = m_queuedUpdates.values().iterator();
+            while (it.hasNext()) {
+                List<SolrInputDocument> instances = it.next();
+                if (!instances.isEmpty()
+                    && structureId.equals(String.valueOf(instances.get(0).getFieldValue(CmsSearchField.FIELD_ID)))) {
+                    it.remove();
+                }
             }
+            m_queuedDeletes.add(structureId);
+            flushIfDue();
         }
     }
 
+    /**
+     * Returns the average time in milliseconds spent sending a batch to Solr.<p>
+     *
+     * @return the average time in milliseconds spent sending a batch to Solr
+     */
+    public synchronized long getAverageBatchLatency() {
+
+        return m_batchCount > 0 ? m_batchTime / m_batchCount : 0;
+    }
+
+    /**
+     * Returns the number of batches sent to Solr by this writer.<p>
+     *
+     * @return the number of batches sent to Solr by this writer
+     */
+    public synchronized long getBatchCount() {
+
+        return m_batchCount;
+    }
+
+    /**
+     * Returns the maximal time in milliseconds spent sending a batch to Solr.<p>
+     *
+     * @return the maximal time in milliseconds spent sending a batch to Solr
+     */
+    public synchronized long getMaxBatchLatency() {
+
+        return m_maxBatchTime;
+    }
+
+    /**
+     * Returns the number of queued updated and deleted resources.<p>
+     *
+     * @return the number of queued updated and deleted resources
+     */
+    public synchronized int getQueueDepth() {
+
+        return m_queuedUpdates.size() + m_queuedDeletes.size();
+    }
+
     /**
      * @see org.opencms.search.I_CmsIndexWriter#optimize()
      */
@@ -177,42 +317,36 @@ public class CmsSolrIndexWriter implements I_CmsSolrIndexWriter {
     }
 
     /**
+     * Queues the documents for the given resource, replacing a queued update for the same root path.<p>
+     *
      * @see org.opencms.search.I_CmsIndexWriter#updateDocument(java.lang.String, org.opencms.search.I_CmsSearchDocument)
      */
-    public void updateDocument(String rootPath, I_CmsSearchDocument document) throws IOException {
+    public synchronized void updateDocument(String rootPath, I_CmsSearchDocument document) throws IOException {
 
         if ((m_server != null) && (m_index != null)) {
 
             if (document.getDocument() != null) {
-                try {
-                    m_server.deleteByQuery("path:\"" + rootPath + "\"", m_commitMs);
-                } catch (Exception e1) {
-                    LOG.error(e1.getLocalizedMessage(), e1);
-                }
-                try {
-                    LOG.info(
-                        Messages.get().getBundle().key(
-                            Messages.LOG_SOLR_WRITER_DOC_UPDATE_3,
-                            rootPath,
-                            m_index.getName(),
-                            m_index.getPath()));
-                    addDocumentInstances(document);
-                } catch (SolrServerException e) {
-                    throw new IOException(e.getLocalizedMessage(), e);
-                }
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_SOLR_WRITER_DOC_UPDATE_3,
+                        rootPath,
+                        m_index.getName(),
+                        m_index.getPath()));
+                m_queuedUpdates.put(rootPath, createDocumentInstances(document));
+                flushIfDue();
             }
         }
     }
 
     /**
-     * Adds Solr documents to the index for the {@link I_CmsSearchDocument}.
-     * Documents for serial dates are added for each occurrence once with the date of the respective occurrence.
+     * Creates the Solr documents to add to the index for the {@link I_CmsSearchDocument}.
+     * Documents for serial dates are created for each occurrence once with the date of the respective occurrence.
      * @param document the document for the indexed resource
-     * @throws SolrServerException thrown if adding the document to the index fails
-     * @throws IOException thrown if adding the document to the index fails
+     * @return the Solr documents to add to the index
      */
-    private void addDocumentInstances(I_CmsSearchDocument document) throws SolrServerException, IOException {
+    private List<SolrInputDocument> createDocumentInstances(I_CmsSearchDocument document) {
 
+        List<SolrInputDocument> result = new ArrayList<SolrInputDocument>();
         List<String> serialDates = document.getMultivaluedFieldAsStringList(CmsSearchField.FIELD_SERIESDATES);
         SolrInputDocument inputDoc = (SolrInputDocument)document.getDocument();
         String id = inputDoc.getFieldValue(CmsSearchField.FIELD_ID).toString();
@@ -250,12 +384,200 @@ public class CmsSolrIndexWriter implements I_CmsSolrIndexWriter {
                 //remove fields that should not be part of the index, but were used to transport extra-information on date series
                 inputDoc.removeField(CmsSearchField.FIELD_SERIESDATES_END);
                 inputDoc.removeField(CmsSearchField.FIELD_SERIESDATES_CURRENT_TILL);
-                m_server.add(inputDoc, m_commitMs);
+                // the document is queued, so each instance needs its own copy
+                result.add(inputDoc.deepCopy());
             }
         } else {
             inputDoc.setField(CmsSearchField.FIELD_SOLR_ID, id);
-            m_server.add(inputDoc, m_commitMs);
+            result.add(inputDoc);
+        }
+        return result;
+    }
+
+    /**
+     * Creates queries matching the given values of a field, with up to {@link #MAX_QUERY_TERMS} values per query.<p>
+     *
+     * @param field the field name
+     * @param values the values to match
+     *
+     * @return the queries
+     */
+    private List<String> createQueries(String field, Collection<String> values) {
+
+        List<String> result = new ArrayList<String>();
+        StringBuffer query = null;
+        int terms = 0;
+        for (String value : values) {
+            if (query == null) {
+                query = new StringBuffer(field).append(":(");
+            } else {
+                query.append(" OR ");
+            }
+            query.append(ClientUtils.escapeQueryChars(value));
+            terms++;
+            if (terms == MAX_QUERY_TERMS) {
+                result.add(query.append(")").toString());
+                query = null;
+                terms = 0;
+            }
+        }
+        if (query != null) {
+            result.add(query.append(")").toString());
+        }
+        return result;
+    }
+
+    /**
+     * Sends the queued documents and deletions to Solr.<p>
+     *
+     * The replaced and deleted documents are deleted first, the queued documents are added with a second request.<p>
+     *
+     * @throws IOException if sending the batch fails, the queued documents are discarded in this case
+     */
+    private void flush() throws IOException {
+
+        if (m_queuedUpdates.isEmpty() && m_queuedDeletes.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, List<SolrInputDocument>> updates = m_queuedUpdates;
+        Set<String> deletes = m_queuedDeletes;
+        m_queuedUpdates = new LinkedHashMap<String, List<SolrInputDocument>>();
+        m_queuedDeletes = new LinkedHashSet<String>();
+        m_queueStart = 0;
+
+        List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+        Set<String> addedIds = new HashSet<String>();
+        for (List<SolrInputDocument> instances : updates.values()) {
+            for (SolrInputDocument doc : instances) {
+                docs.add(doc);
+                addedIds.add(doc.getFieldValue(CmsSearchField.FIELD_SOLR_ID).toString());
+            }
+        }
+
+        UpdateRequest deleteRequest = new UpdateRequest();
+        int deleteCount;
+        try {
+            Set<String> staleIds = lookupIndexedIds(updates.keySet(), deletes);
+            // documents with the same Solr id are replaced when they are added
+            staleIds.removeAll(addedIds);
+            if (!staleIds.isEmpty()) {
+                deleteRequest.deleteById(new ArrayList<String>(staleIds));
+                m_uncommitted.keySet().removeAll(staleIds);
+            }
+            deleteCount = staleIds.size();
+        } catch (SolrServerException | SolrException | IOException e) {
+            LOG.warn(
+                Messages.get().getBundle().key(
+                    Messages.LOG_SOLR_WRITER_LOOKUP_FAILED_2,
+                    m_index.getName(),
+                    m_index.getPath()),
+                e);
+            for (String query : createQueries(CmsSearchField.FIELD_PATH, updates.keySet())) {
+                deleteRequest.deleteByQuery(query);
+            }
+            for (String query : createQueries(CmsSearchField.FIELD_ID, deletes)) {
+                deleteRequest.deleteByQuery(query);
+            }
+            deleteCount = updates.size() + deletes.size();
+        }
+
+        try {
+            if (deleteCount > 0) {
+                deleteRequest.setCommitWithin(m_commitMs);
+                deleteRequest.process(m_server);
+            }
+            if (!docs.isEmpty()) {
+                UpdateRequest addRequest = new UpdateRequest();
+                addRequest.add(docs);
+                addRequest.setCommitWithin(m_commitMs);
+                addRequest.process(m_server);
+                for (Map.Entry<String, List<SolrInputDocument>> entry : updates.entrySet()) {
+                    for (SolrInputDocument doc : entry.getValue()) {
+                        m_uncommitted.put(doc.getFieldValue(CmsSearchField.FIELD_SOLR_ID).toString(), entry.getKey());
+                    }
+                }
+            }
+        } catch (SolrServerException | SolrException e) {
+            throw new IOException(e.getLocalizedMessage(), e);
+        }
+
+        long time = System.currentTimeMillis() - start;
+        m_batchCount++;
+        m_batchTime += time;
+        m_maxBatchTime = Math.max(m_maxBatchTime, time);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                Messages.get().getBundle().key(
+                    Messages.LOG_SOLR_WRITER_BATCH_5,
+                    new Object[] {
+                        Integer.valueOf(docs.size()),
+                        Integer.valueOf(deleteCount),
+                        m_index.getName(),
+                        m_index.getPath(),
+                        Long.valueOf(time)}));
+        }
+    }
+
+    /**
+     * Sends the queue to Solr if it is full or if the oldest queued document has waited long enough.<p>
+     *
+     * @throws IOException if sending the batch fails
+     */
+    private void flushIfDue() throws IOException {
+
+        long now = System.currentTimeMillis();
+        if (m_queueStart == 0) {
+            m_queueStart = now;
         }
+        if ((getQueueDepth() >= m_batchSize) || ((now - m_queueStart) >= m_maxDelay)) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns the Solr ids of the indexed documents for the given root paths and structure ids.<p>
+     *
+     * @param rootPaths the root paths of the updated resources
+     * @param structureIds the structure ids of the deleted resources
+     *
+     * @return the Solr ids of the indexed documents
+     *
+     * @throws SolrServerException if querying Solr fails
+     * @throws IOException if querying Solr fails
+     */
+    private Set<String> lookupIndexedIds(Set<String> rootPaths, Set<String> structureIds)
+    throws SolrServerException, IOException {
 
+        // the Solr id of a document that is not a serial date instance is the structure id
+        Set<String> result = new HashSet<String>(structureIds);
+        // documents sent since the last commit are not found by the queries below
+        for (Map.Entry<String, String> entry : m_uncommitted.entrySet()) {
+            String solrId = entry.getKey();
+            if (rootPaths.contains(entry.getValue())
+                || structureIds.contains(solrId.substring(0, Math.min(STRUCTURE_ID_LENGTH, solrId.length())))) {
+                result.add(solrId);
+            }
+        }
+        List<String> queries = createQueries(CmsSearchField.FIELD_PATH, rootPaths);
+        queries.addAll(createQueries(CmsSearchField.FIELD_ID, structureIds));
+        for (String query : queries) {
+            int start = 0;
+            long found;
+            do {
+                SolrQuery solrQuery = new SolrQuery("*:*");
+                solrQuery.addFilterQuery(query);
+                solrQuery.setFields(CmsSearchField.FIELD_SOLR_ID);
+                solrQuery.setStart(Integer.valueOf(start));
+                solrQuery.setRows(Integer.valueOf(LOOKUP_ROWS));
+                SolrDocumentList docs = m_server.query(solrQuery).getResults();
+                for (SolrDocument doc : docs) {
+                    result.add(String.valueOf(doc.getFieldValue(CmsSearchField.FIELD_SOLR_ID)));
+                }
+                found = docs.getNumFound();
+                start += LOOKUP_ROWS;
+            } while (start < found);
+        }
+        return result;
     }
 }
@@ -0,0 +1,220 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search.solr;
+
+import org.opencms.file.CmsGroup;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsUser;
+import org.opencms.main.CmsException;
+import org.opencms.main.OpenCms;
+import org.opencms.search.fields.CmsSearchField;
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsAccessControlList;
+import org.opencms.security.CmsPermissionSet;
+import org.opencms.security.CmsPermissionSetCustom;
+import org.opencms.security.CmsRole;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates access control lists into index terms and the principals of a user into a Solr filter query,
+ * so that a Solr search only returns documents the user is allowed to read.<p>
+ *
+ * For every principal of the effective access control list of a resource, the terms stored in the
+ * {@link CmsSearchField#FIELD_ACL_ENTRIES} field tell if the entry exists, and if it allows or denies the
+ * read and view permissions. The filter query evaluates these terms like
+ * {@link CmsAccessControlList#getPermissions(CmsUser, List, List)}: the permissions of all principals of
+ * the user are summed up, denied permissions win, and the "all others" entry is only used if no other
+ * principal of the user has an entry.<p>
+ *
+ * @since 11.0.0
+ */
+public final class CmsSolrPermissionFilter {
+
+    /** Term prefix for a principal that has an entry. */
+    private static final String PREFIX_ENTRY = "e_";
+
+    /** Term prefix for a principal that is allowed to read. */
+    private static final String PREFIX_READ = "r_";
+
+    /** Term prefix for a principal that is denied to read. */
+    private static final String PREFIX_READ_DENIED = "rd_";
+
+    /** Term prefix for a principal that is allowed to view. */
+    private static final String PREFIX_VIEW = "v_";
+
+    /** Term prefix for a principal that is denied to view. */
+    private static final String PREFIX_VIEW_DENIED = "vd_";
+
+    /**
+     * Hides the public constructor for this utility class.<p>
+     */
+    private CmsSolrPermissionFilter() {
+
+        // hide the constructor
+    }
+
+    /**
+     * Returns the index terms for the given access control list.<p>
+     *
+     * @param acl the effective access control list of a resource, including the inherited entries
+     *
+     * @return the index terms for the access control list
+     */
+    public static List<String> getAclEntries(CmsAccessControlList acl) {
+
+        List<String> result = new ArrayList<String>();
+        for (Map.Entry<CmsUUID, CmsPermissionSetCustom> entry : acl.getPermissionMap().entrySet()) {
+            CmsUUID principalId = entry.getKey();
+            if (CmsAccessControlEntry.PRINCIPAL_OVERWRITE_ALL_ID.equals(principalId)) {
+                continue;
+            }
+            CmsPermissionSet permissions = entry.getValue();
+            if (!CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID.equals(principalId)) {
+                result.add(PREFIX_ENTRY + principalId);
+            }
+            int allowed = permissions.getAllowedPermissions();
+            int denied = permissions.getDeniedPermissions();
+            addTerm(result, PREFIX_READ, principalId, allowed, CmsPermissionSet.PERMISSION_READ);
+            addTerm(result, PREFIX_READ_DENIED, principalId, denied, CmsPermissionSet.PERMISSION_READ);
+            addTerm(result, PREFIX_VIEW, principalId, allowed, CmsPermissionSet.PERMISSION_VIEW);
+            addTerm(result, PREFIX_VIEW_DENIED, principalId, denied, CmsPermissionSet.PERMISSION_VIEW);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the filter query that restricts a search to the documents the current user can read.<p>
+     *
+     * No filter query is returned for users with the VFS manager role in any organizational unit, since
+     * these users may ignore the access control lists of some resources. For them, the permissions
+     * have to be checked for each search result.<p>
+     *
+     * @param cms the current user's context
+     * @param requireVisible if the view permission is required in addition to the read permission
+     *
+     * @return the filter query, or <code>null</code> if the permissions can not be checked by a filter query
+     */
+    public static String getFilterQuery(CmsObject cms, boolean requireVisible) {
+
+        CmsUser user = cms.getRequestContext().getCurrentUser();
+        Set<CmsUUID> principals = new LinkedHashSet<CmsUUID>();
+        principals.add(user.getId());
+        try {
+            if (!OpenCms.getRoleManager().getOrgUnitsForRole(cms, CmsRole.VFS_MANAGER.forOrgUnit(""), true).isEmpty()) {
+                return null;
+            }
+            for (CmsGroup group : cms.getGroupsOfUser(user.getName(), false)) {
+                principals.add(group.getId());
+            }
+            if (!user.isGuestUser()) {
+                for (CmsRole role : OpenCms.getRoleManager().getRolesOfUser(
+                    cms,
+                    user.getName(),
+                    "",
+                    true,
+                    false,
+                    false)) {
+                    principals.add(role.forOrgUnit(null).getId());
+                }
+            }
+        } catch (CmsException e) {
+            // without the principals of the user, the permissions are checked for each result
+            return null;
+        }
+
+        String field = CmsSearchField.FIELD_ACL_ENTRIES + ":";
+        CmsUUID allOthers = CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID;
+        // the principals of the user have entries: one must allow, none must deny
+        StringBuffer result = new StringBuffer(256);
+        result.append("(+").append(field).append(getTerms(PREFIX_READ, principals));
+        result.append(" -").append(field).append(getTerms(PREFIX_READ_DENIED, principals));
+        if (requireVisible) {
+            result.append(" +").append(field).append(getTerms(PREFIX_VIEW, principals));
+            result.append(" -").append(field).append(getTerms(PREFIX_VIEW_DENIED, principals));
+        }
+        // no principal of the user has an entry: the "all others" entry applies
+        result.append(") OR (+").append(field).append(PREFIX_READ).append(allOthers);
+        result.append(" -").append(field).append(PREFIX_READ_DENIED).append(allOthers);
+        if (requireVisible) {
+            result.append(" +").append(field).append(PREFIX_VIEW).append(allOthers);
+            result.append(" -").append(field).append(PREFIX_VIEW_DENIED).append(allOthers);
+        }
+        result.append(" -").append(field).append(getTerms(PREFIX_ENTRY, principals)).append(")");
+        return result.toString();
+    }
+
+    /**
+     * Adds a term for the principal if the given permission is contained in the permissions.<p>
+     *
+     * @param terms the list to add the term to
+     * @param prefix the term prefix
+     * @param principalId the id of the principal
+     * @param permissions the allowed or denied permissions of the principal
+     * @param permission the permission to check
+     */
+    private static void addTerm(
+        List<String> terms,
+        String prefix,
+        CmsUUID principalId,
+        int permissions,
+        int permission) {
+
+        if ((permissions & permission) > 0) {
+            terms.add(prefix + principalId);
+        }
+    }
+
+    /**
+     * Returns the terms with the given prefix for the principals, combined with OR.<p>
+     *
+     * @param prefix the term prefix
+     * @param principals the ids of the principals
+     *
+     * @return the combined terms
+     */
+    private static String getTerms(String prefix, Set<CmsUUID> principals) {
+
+        StringBuffer result = new StringBuffer(principals.size() * 42);
+        result.append('(');
+        for (CmsUUID principalId : principals) {
+            if (result.length() > 1) {
+                result.append(" OR ");
+            }
+            result.append(prefix).append(principalId);
+        }
+        result.append(')');
+        return result.toString();
+    }
+}
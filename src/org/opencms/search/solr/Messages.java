@@ -97,6 +97,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_SEARCH_EXECUTED_5 = "LOG_SOLR_SEARCH_EXECUTED_5";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SOLR_WRITER_BATCH_5 = "LOG_SOLR_WRITER_BATCH_5";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_WRITER_COMMIT_2 = "LOG_SOLR_WRITER_COMMIT_2";
 
@@ -112,6 +115,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_WRITER_DOC_UPDATE_3 = "LOG_SOLR_WRITER_DOC_UPDATE_3";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SOLR_WRITER_LOOKUP_FAILED_2 = "LOG_SOLR_WRITER_LOOKUP_FAILED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SOLR_WRITER_STATISTICS_5 = "LOG_SOLR_WRITER_STATISTICS_5";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SOLR_ERR_MAPPING_TO_INTERNALLY_USED_FIELD_2 = "LOG_SOLR_ERR_MAPPING_TO_INTERNALLY_USED_FIELD_2";
 
@@ -32,6 +32,7 @@ import org.opencms.db.CmsCacheSettings;
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDriverManager;
 import org.opencms.db.CmsSecurityManager;
+import org.opencms.db.CmsTypedCacheKey;
 import org.opencms.db.I_CmsCacheKey;
 import org.opencms.file.CmsProject;
 import org.opencms.file.CmsResource;
@@ -85,14 +86,16 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
 
         // checking the filter is less cost intensive then checking the cache,
         // this is why basic filter results are not cached
-        String cacheKey = m_keyGenerator.getCacheKeyForUserPermissions(
+        CmsTypedCacheKey cacheKey = m_keyGenerator.getTypedCacheKeyForUserPermissions(
             filter.requireVisible() && checkLock
             ? "11"
             : (!filter.requireVisible() && checkLock ? "01" : (filter.requireVisible() && !checkLock ? "10" : "00")),
             dbc,
             resource,
             requiredPermissions);
-        CmsPermissionCheckResult cacheResult = OpenCms.getMemoryMonitor().getCachedPermission(cacheKey);
+        CmsPermissionCheckResult cacheResult = cacheKey != null
+        ? OpenCms.getMemoryMonitor().getCachedPermission(cacheKey)
+        : null;
         if (cacheResult != null) {
             return cacheResult;
         }
@@ -214,7 +217,7 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
                             permissions.getPermissionString()}));
             }
         }
-        if (dbc.getProjectId().isNullUUID()) {
+        if ((cacheKey != null) && dbc.getProjectId().isNullUUID()) {
             OpenCms.getMemoryMonitor().cachePermission(cacheKey, result);
         }
 
@@ -511,8 +511,11 @@ public class CmsStaticExportManager implements I_CmsEventListener {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(Messages.get().getBundle().key(Messages.LOG_EVENT_PUBLISH_PROJECT_1, publishHistoryId));
                 }
-                synchronized (m_lockCmsEvent) {
-                    getHandler().performEventPublishProject(publishHistoryId, report);
+                if (!event.isClusterEvent()) {
+                    // the node that has published has already written the export data
+                    synchronized (m_lockCmsEvent) {
+                        getHandler().performEventPublishProject(publishHistoryId, report);
+                    }
                 }
                 clearCaches(event);
 
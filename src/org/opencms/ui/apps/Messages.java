@@ -160,6 +160,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String GUI_CACHE_FLEXCACHE_LABEL_STATS_BLOCK_0 = "GUI_CACHE_FLEXCACHE_LABEL_STATS_BLOCK_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_FLEXCACHE_LABEL_STATS_COALESCED_HITS_0 = "GUI_CACHE_FLEXCACHE_LABEL_STATS_COALESCED_HITS_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_FLEXCACHE_LABEL_STATS_COALESCED_TIMEOUTS_0 = "GUI_CACHE_FLEXCACHE_LABEL_STATS_COALESCED_TIMEOUTS_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_FLEXCACHE_LABEL_STATS_COALESCED_WAITS_0 = "GUI_CACHE_FLEXCACHE_LABEL_STATS_COALESCED_WAITS_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String GUI_CACHE_FLEXCACHE_LABEL_STATS_KEYS_0 = "GUI_CACHE_FLEXCACHE_LABEL_STATS_KEYS_0";
 
@@ -220,6 +229,27 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String GUI_CACHE_IMAGECACHE_LABEL_MEMORY_BLOCK_0 = "GUI_CACHE_IMAGECACHE_LABEL_MEMORY_BLOCK_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_IMAGECACHE_LABEL_STATS_COALESCED_0 = "GUI_CACHE_IMAGECACHE_LABEL_STATS_COALESCED_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_IMAGECACHE_LABEL_STATS_HIT_RATIO_0 = "GUI_CACHE_IMAGECACHE_LABEL_STATS_HIT_RATIO_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_IMAGECACHE_LABEL_STATS_QUEUE_WAIT_0 = "GUI_CACHE_IMAGECACHE_LABEL_STATS_QUEUE_WAIT_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_IMAGECACHE_LABEL_STATS_REJECTED_0 = "GUI_CACHE_IMAGECACHE_LABEL_STATS_REJECTED_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_IMAGECACHE_LABEL_STATS_SCALES_0 = "GUI_CACHE_IMAGECACHE_LABEL_STATS_SCALES_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_IMAGECACHE_LABEL_STATS_SCALES_PER_SECOND_0 = "GUI_CACHE_IMAGECACHE_LABEL_STATS_SCALES_PER_SECOND_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_IMAGECACHE_LABEL_STATS_SCALE_TIME_0 = "GUI_CACHE_IMAGECACHE_LABEL_STATS_SCALE_TIME_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String GUI_CACHE_IMAGECACHE_LIST_COLS_LENGTH_0 = "GUI_CACHE_IMAGECACHE_LIST_COLS_LENGTH_0";
 
@@ -271,6 +301,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String GUI_CACHE_JSP_REPOSITORY_ADMIN_TOOL_NAME_0 = "GUI_CACHE_JSP_REPOSITORY_ADMIN_TOOL_NAME_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_MONITORED_0 = "GUI_CACHE_MONITORED_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_CACHE_MONITORED_LABEL_STATS_5 = "GUI_CACHE_MONITORED_LABEL_STATS_5";
+
     /** Message constant for key in the resource bundle. */
     public static final String GUI_CACHE_REINI_TOOL_CONF_0 = "GUI_CACHE_REINI_TOOL_CONF_0";
 
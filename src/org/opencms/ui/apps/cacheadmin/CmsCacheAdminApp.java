@@ -43,7 +43,7 @@ import com.vaadin.v7.ui.VerticalLayout;
 
 /**
  * Vaadin app for Cache Administration.<p>
- * Functions: view flex and image caches, flush cashes.<p>
+ * Functions: view flex and image caches, view the statistics of the memory monitor caches, flush cashes.<p>
  */
 public class CmsCacheAdminApp extends A_CmsWorkplaceApp {
 
@@ -140,6 +140,11 @@ public class CmsCacheAdminApp extends A_CmsWorkplaceApp {
 
         layout.addComponent(flex);
 
+        Panel monitored = new Panel();
+        monitored.setContent(CmsCacheViewApp.getMonitoredCacheStatisticButton().getInfoLayout());
+        monitored.setCaption(CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_MONITORED_0));
+        layout.addComponent(monitored);
+
         outer.addComponent(flush);
         outer.addComponent(layout);
         outerouter.addStyleName("o-center");
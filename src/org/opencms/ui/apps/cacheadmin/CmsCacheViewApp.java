@@ -30,8 +30,10 @@ package org.opencms.ui.apps.cacheadmin;
 import org.opencms.cache.CmsLruCache;
 import org.opencms.flex.CmsFlexCache;
 import org.opencms.loader.CmsImageLoader;
+import org.opencms.loader.CmsImageScalingExecutor;
 import org.opencms.main.OpenCms;
 import org.opencms.monitor.CmsMemoryStatus;
+import org.opencms.monitor.I_CmsCacheStatistics;
 import org.opencms.ui.A_CmsUI;
 import org.opencms.ui.CmsVaadinUtils;
 import org.opencms.ui.FontOpenCms;
@@ -45,6 +47,7 @@ import org.opencms.util.CmsStringUtil;
 import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
@@ -187,6 +190,15 @@ public class CmsCacheViewApp extends A_CmsWorkplaceApp {
         infoMap.put(
             CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_FLEXCACHE_LABEL_STATS_VARIATIONS_0),
             String.valueOf(cache.size()));
+        infoMap.put(
+            CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_FLEXCACHE_LABEL_STATS_COALESCED_WAITS_0),
+            String.valueOf(cache.getCoalescedWaitCount()));
+        infoMap.put(
+            CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_FLEXCACHE_LABEL_STATS_COALESCED_HITS_0),
+            String.valueOf(cache.getCoalescedHitCount()));
+        infoMap.put(
+            CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_FLEXCACHE_LABEL_STATS_COALESCED_TIMEOUTS_0),
+            String.valueOf(cache.getCoalescedTimeoutCount()));
         infoMap.put(
             CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_FLEXCACHE_LABEL_MEMORY_MAXSIZE_0),
             CmsFileUtil.formatFilesize(
@@ -213,6 +225,34 @@ public class CmsCacheViewApp extends A_CmsWorkplaceApp {
         return info;
     }
 
+    /**
+     * Creates an info button for the statistics of the memory monitor caches.<p>
+     *
+     * @return CmsInfoButton
+     */
+    protected static CmsInfoButton getMonitoredCacheStatisticButton() {
+
+        Map<String, String> infoMap = new LinkedHashMap<String, String>();
+        Locale locale = A_CmsUI.getCmsObject().getRequestContext().getLocale();
+        for (I_CmsCacheStatistics cache : OpenCms.getMemoryMonitor().getCacheStatistics()) {
+            String name = cache.getName();
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            infoMap.put(
+                name,
+                CmsVaadinUtils.getMessageText(
+                    Messages.GUI_CACHE_MONITORED_LABEL_STATS_5,
+                    String.valueOf(cache.getSize()),
+                    String.valueOf(Math.round(cache.getHitRate() * 100)),
+                    String.valueOf(cache.getEvictionCount()),
+                    CmsFileUtil.formatFilesize(cache.getWeight(), locale),
+                    String.format(Locale.ENGLISH, "%.2f", Double.valueOf(cache.getAverageLoadTime()))));
+        }
+        CmsInfoButton info = new CmsInfoButton(infoMap);
+        info.setWindowCaption(CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_MONITORED_0));
+        info.setDescription(CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_MONITORED_0));
+        return info;
+    }
+
     /**
      * Creates in info button for image cache statistics.<p>
      *
@@ -230,6 +270,31 @@ public class CmsCacheViewApp extends A_CmsWorkplaceApp {
         infoMap.put(
             CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_IMAGECACHE_LABEL_MEMORY_BLOCK_0),
             CmsFileUtil.formatFilesize(size, A_CmsUI.getCmsObject().getRequestContext().getLocale()));
+        CmsImageScalingExecutor executor = CmsImageLoader.getScalingExecutor();
+        if (executor != null) {
+            Locale locale = A_CmsUI.getCmsObject().getRequestContext().getLocale();
+            infoMap.put(
+                CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_IMAGECACHE_LABEL_STATS_SCALES_0),
+                String.valueOf(executor.getScaleCount()));
+            infoMap.put(
+                CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_IMAGECACHE_LABEL_STATS_SCALES_PER_SECOND_0),
+                String.format(locale, "%.2f", Double.valueOf(executor.getScalesPerSecond())));
+            infoMap.put(
+                CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_IMAGECACHE_LABEL_STATS_SCALE_TIME_0),
+                String.format(locale, "%.1f", Double.valueOf(executor.getAverageScaleTime())));
+            infoMap.put(
+                CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_IMAGECACHE_LABEL_STATS_QUEUE_WAIT_0),
+                String.format(locale, "%.1f", Double.valueOf(executor.getAverageQueueWait())));
+            infoMap.put(
+                CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_IMAGECACHE_LABEL_STATS_HIT_RATIO_0),
+                String.format(locale, "%.1f %%", Double.valueOf(executor.getCacheHitRatio() * 100)));
+            infoMap.put(
+                CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_IMAGECACHE_LABEL_STATS_COALESCED_0),
+                String.valueOf(executor.getCoalescedRequestCount()));
+            infoMap.put(
+                CmsVaadinUtils.getMessageText(Messages.GUI_CACHE_IMAGECACHE_LABEL_STATS_REJECTED_0),
+                String.valueOf(executor.getRejectedRequestCount() + executor.getTimeoutCount()));
+        }
 
         CmsInfoButton info = new CmsInfoButton(infoMap);
 
@@ -52,6 +52,12 @@ public class CmsADECacheSettings {
     /** The size of the group container online cache. */
     private int m_groupContainerOnlineSize;
 
+    /** Default size in kilobytes for the online XML content cache. */
+    private static final int DEFAULT_XML_CONTENT_SIZE = 32768;
+
+    /** The size in kilobytes of the online XML content cache. */
+    private int m_xmlContentOnlineSize;
+
     /**
      * Default constructor.<p>
      */
@@ -152,6 +158,29 @@ public class CmsADECacheSettings {
         m_groupContainerOnlineSize = getIntValue(size, DEFAULT_GROUP_CONTAINER_SIZE);
     }
 
+    /**
+     * Returns the size in kilobytes of the online XML content cache.<p>
+     *
+     * @return the size in kilobytes of the online XML content cache
+     */
+    public int getXmlContentOnlineSize() {
+
+        if (m_xmlContentOnlineSize <= 0) {
+            return DEFAULT_XML_CONTENT_SIZE;
+        }
+        return m_xmlContentOnlineSize;
+    }
+
+    /**
+     * Sets the size in kilobytes of the cache for online XML contents.<p>
+     *
+     * @param size the size in kilobytes of the cache for online XML contents
+     */
+    public void setXmlContentOnlineSize(String size) {
+
+        m_xmlContentOnlineSize = getIntValue(size, DEFAULT_XML_CONTENT_SIZE);
+    }
+
     /**
      * Turns a string into an int.<p>
      *
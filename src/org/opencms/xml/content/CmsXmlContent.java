@@ -885,6 +885,18 @@ public class CmsXmlContent extends A_CmsXmlDocument {
         return value;
     }
 
+    /**
+     * Returns a copy of the XML document of this content.<p>
+     *
+     * Used by the {@link CmsXmlContentCache}, which must not share its documents with the callers.<p>
+     *
+     * @return a copy of the XML document of this content
+     */
+    Document copyDocument() {
+
+        return (Document)m_document.clone();
+    }
+
     /**
      * @see org.opencms.xml.A_CmsXmlDocument#getBookmark(java.lang.String)
      */
@@ -0,0 +1,356 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.xml.content;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.history.I_CmsHistoryResource;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
+import org.opencms.util.CmsUUID;
+import org.opencms.xml.CmsXmlEntityResolver;
+import org.opencms.xml.containerpage.CmsADECacheSettings;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.dom4j.Document;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Node wide cache for the parsed XML contents of the online project.<p>
+ *
+ * The cache holds a private copy of the XML document of each content, together with the file and the encoding.
+ * It is keyed by the structure id, and an entry is only used if the date of last modification of the requested
+ * resource matches the cached file. Callers never get the cached objects: each hit creates a new
+ * {@link CmsXmlContent} from a copy of the cached document, so changes made by the caller do not affect the cache.
+ * The cached document has not been prepared for use by the content handler, so every request prepares its own copy
+ * with its own context.<p>
+ *
+ * The memory needed by an entry is estimated from the size of the XML data, the least recently used entries
+ * are evicted if the configured size is exceeded. Published resources are removed from the cache,
+ * publishing a schema clears the whole cache.<p>
+ *
+ * @since 11.0.0
+ */
+public final class CmsXmlContentCache implements I_CmsEventListener {
+
+    /**
+     * A cached XML content.<p>
+     */
+    private static final class Entry {
+
+        /** The cached document, never handed out. */
+        private final Document m_document;
+
+        /** The encoding of the content. */
+        private final String m_encoding;
+
+        /** The file of the content. */
+        private final CmsFile m_file;
+
+        /**
+         * Creates a new cache entry.<p>
+         *
+         * @param document a private copy of the document
+         * @param encoding the encoding of the content
+         * @param file a private copy of the file
+         */
+        Entry(Document document, String encoding, CmsFile file) {
+
+            m_document = document;
+            m_encoding = encoding;
+            m_file = file;
+        }
+
+        /**
+         * Creates a new XML content from a copy of the cached document.<p>
+         *
+         * @param cms the current CMS context
+         *
+         * @return the new XML content
+         */
+        CmsXmlContent createContent(CmsObject cms) {
+
+            Document document;
+            // dom4j creates some internal lists lazily, so even copying modifies the cached document
+            synchronized (this) {
+                document = (Document)m_document.clone();
+            }
+            CmsXmlContent content = new CmsXmlContent(cms, document, m_encoding, new CmsXmlEntityResolver(cms));
+            content.setFile((CmsFile)m_file.clone());
+            return content;
+        }
+
+        /**
+         * Returns the date of last modification of the cached file.<p>
+         *
+         * @return the date of last modification of the cached file
+         */
+        long getDateLastModified() {
+
+            return m_file.getDateLastModified();
+        }
+
+        /**
+         * Returns the estimated memory needed for this entry in kilobytes.<p>
+         *
+         * @return the estimated memory needed for this entry in kilobytes
+         */
+        int getWeight() {
+
+            long size = (long)m_file.getLength() * (DOCUMENT_SIZE_FACTOR + 1);
+            return (int)Math.min(Integer.MAX_VALUE, Math.max(1, size / 1024));
+        }
+    }
+
+    /** The estimated memory needed for a parsed document, as a multiple of the size of its XML data. */
+    static final int DOCUMENT_SIZE_FACTOR = 10;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsXmlContentCache.class);
+
+    /** The singleton instance, or <code>null</code> if the cache is not initialized. */
+    private static CmsXmlContentCache m_instance;
+
+    /** The cached contents by structure id. */
+    private Cache<CmsUUID, Entry> m_cache;
+
+    /** The admin CMS context, used to read the publish history. */
+    private CmsObject m_cms;
+
+    /** Incremented whenever cached contents are removed, to avoid caching contents read before the removal. */
+    private AtomicLong m_generation = new AtomicLong();
+
+    /**
+     * Creates a new XML content cache.<p>
+     *
+     * @param cms the admin CMS context
+     * @param maxSize the maximal size of the cache in kilobytes
+     */
+    CmsXmlContentCache(CmsObject cms, int maxSize) {
+
+        m_cms = cms;
+        m_cache = CacheBuilder.newBuilder().concurrencyLevel(4).maximumWeight(maxSize).weigher(
+            new Weigher<CmsUUID, Entry>() {
+
+                public int weigh(CmsUUID key, Entry value) {
+
+                    return value.getWeight();
+                }
+            }).build();
+    }
+
+    /**
+     * Returns the XML content cache, or <code>null</code> if it is not initialized.<p>
+     *
+     * @return the XML content cache, or <code>null</code>
+     */
+    public static CmsXmlContentCache getInstance() {
+
+        return m_instance;
+    }
+
+    /**
+     * Initializes the XML content cache and registers it as event listener.<p>
+     *
+     * @param adminCms a CMS context with administrator permissions
+     * @param memoryMonitor the memory monitor to register the cache with
+     * @param cacheSettings the ADE cache settings, or <code>null</code> to use the default size
+     */
+    public static void initialize(
+        CmsObject adminCms,
+        CmsMemoryMonitor memoryMonitor,
+        CmsADECacheSettings cacheSettings) {
+
+        if (cacheSettings == null) {
+            cacheSettings = new CmsADECacheSettings();
+        }
+        CmsXmlContentCache cache = new CmsXmlContentCache(adminCms, cacheSettings.getXmlContentOnlineSize());
+        memoryMonitor.register(CmsXmlContentCache.class.getName() + ".xmlContentsOnline", cache.m_cache.asMap());
+        OpenCms.addCmsEventListener(
+            cache,
+            new int[] {
+                I_CmsEventListener.EVENT_CLEAR_CACHES,
+                I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES,
+                I_CmsEventListener.EVENT_PUBLISH_PROJECT});
+        m_instance = cache;
+    }
+
+    /**
+     * Removes all contents from the cache.<p>
+     */
+    public void clear() {
+
+        m_generation.incrementAndGet();
+        m_cache.invalidateAll();
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        switch (event.getType()) {
+            case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
+                String publishHistoryId = (String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID);
+                if (publishHistoryId == null) {
+                    clear();
+                    break;
+                }
+                try {
+                    uncachePublishedResources(m_cms.readPublishedResources(new CmsUUID(publishHistoryId)));
+                } catch (CmsException e) {
+                    LOG.warn(e.getLocalizedMessage(), e);
+                    clear();
+                }
+                break;
+            case I_CmsEventListener.EVENT_CLEAR_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES:
+                clear();
+                break;
+            default:
+                // noop
+                break;
+        }
+    }
+
+    /**
+     * Returns a new XML content created from the cached document for the given resource.<p>
+     *
+     * @param cms the current CMS context
+     * @param resource the XML content resource
+     *
+     * @return a new XML content, or <code>null</code> if the resource is not cached in the current version
+     */
+    public CmsXmlContent getContent(CmsObject cms, CmsResource resource) {
+
+        if (!isCacheable(cms, resource)) {
+            return null;
+        }
+        Entry entry = m_cache.getIfPresent(resource.getStructureId());
+        if ((entry == null) || (entry.getDateLastModified() != resource.getDateLastModified())) {
+            return null;
+        }
+        return entry.createContent(cms);
+    }
+
+    /**
+     * Returns the current generation of the cache, which changes whenever cached contents are removed.<p>
+     *
+     * Read the generation before reading the file of a content that will be cached with
+     * {@link #setContent(CmsObject, CmsXmlContent, long)}.<p>
+     *
+     * @return the current generation of the cache
+     */
+    public long getGeneration() {
+
+        return m_generation.get();
+    }
+
+    /**
+     * Caches a copy of the given XML content, if it was read in the online project.<p>
+     *
+     * The content is not cached if contents were removed from the cache since the given generation was read,
+     * because the file may have been read before it was published. Contents of subclasses, for example
+     * container pages, are not cached.<p>
+     *
+     * @param cms the current CMS context
+     * @param content the XML content that has just been unmarshalled, and not yet prepared for use
+     * @param generation the generation of the cache read before the file of the content was read
+     */
+    public void setContent(CmsObject cms, CmsXmlContent content, long generation) {
+
+        CmsFile file = content.getFile();
+        if ((file == null)
+            || (content.getClass() != CmsXmlContent.class)
+            || !isCacheable(cms, file)
+            || (generation != m_generation.get())) {
+            return;
+        }
+        Entry entry = new Entry(content.copyDocument(), content.getEncoding(), (CmsFile)file.clone());
+        m_cache.put(file.getStructureId(), entry);
+        if (generation != m_generation.get()) {
+            // removed while it was stored
+            m_cache.invalidate(file.getStructureId());
+        }
+    }
+
+    /**
+     * Returns the number of cached contents.<p>
+     *
+     * @return the number of cached contents
+     */
+    public long size() {
+
+        return m_cache.size();
+    }
+
+    /**
+     * Checks if the given resource can be cached for the given context.<p>
+     *
+     * @param cms the current CMS context
+     * @param resource the resource
+     *
+     * @return <code>true</code> if the resource can be cached
+     */
+    private boolean isCacheable(CmsObject cms, CmsResource resource) {
+
+        return cms.getRequestContext().getCurrentProject().isOnlineProject()
+            && !(resource instanceof I_CmsHistoryResource);
+    }
+
+    /**
+     * Removes the published resources from the cache, or clears the cache if a schema was published.<p>
+     *
+     * @param publishedResources the published resources
+     */
+    private void uncachePublishedResources(List<CmsPublishedResource> publishedResources) {
+
+        m_generation.incrementAndGet();
+        for (CmsPublishedResource published : publishedResources) {
+            String rootPath = published.getRootPath().toLowerCase(Locale.ROOT);
+            if (rootPath.endsWith(".xsd") || rootPath.endsWith(".dtd")) {
+                m_cache.invalidateAll();
+                return;
+            }
+            m_cache.invalidate(published.getStructureId());
+        }
+    }
+}
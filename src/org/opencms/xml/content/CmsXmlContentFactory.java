@@ -208,52 +208,7 @@ public final class CmsXmlContentFactory {
      */
     public static CmsXmlContent unmarshal(CmsObject cms, CmsFile file, boolean keepEncoding) throws CmsXmlException {
 
-        byte[] contentBytes = file.getContents();
-        String filename = cms.getSitePath(file);
-
-        String encoding = null;
-        try {
-            encoding = cms.readPropertyObject(
-                filename,
-                CmsPropertyDefinition.PROPERTY_CONTENT_ENCODING,
-                true).getValue();
-        } catch (@SuppressWarnings("unused") CmsException e) {
-            // encoding will be null
-        }
-        if (encoding == null) {
-            encoding = OpenCms.getSystemInfo().getDefaultEncoding();
-        } else {
-            encoding = CmsEncoder.lookupEncoding(encoding, null);
-            if (encoding == null) {
-                throw new CmsXmlException(Messages.get().container(Messages.ERR_XMLCONTENT_INVALID_ENC_1, filename));
-            }
-        }
-
-        CmsXmlContent content;
-        if (contentBytes.length > 0) {
-            // content is initialized
-            if (keepEncoding) {
-                // use the encoding from the content
-                content = unmarshal(cms, contentBytes, encoding, new CmsXmlEntityResolver(cms));
-            } else {
-                // use the encoding from the file property
-                // this usually only triggered by a save operation
-                try {
-                    String contentStr = new String(contentBytes, encoding);
-                    content = unmarshal(cms, contentStr, encoding, new CmsXmlEntityResolver(cms));
-                } catch (UnsupportedEncodingException e) {
-                    // this will not happen since the encodig has already been validated
-                    throw new CmsXmlException(
-                        Messages.get().container(Messages.ERR_XMLCONTENT_INVALID_ENC_1, filename), e);
-                }
-            }
-        } else {
-            // content is empty
-            content = new CmsXmlContent(cms, DocumentHelper.createDocument(), encoding, new CmsXmlEntityResolver(cms));
-        }
-
-        // set the file
-        content.setFile(file);
+        CmsXmlContent content = parse(cms, file, keepEncoding);
         // call prepare for use content handler and return the result
         return content.getHandler().prepareForUse(cms, content);
     }
@@ -288,9 +243,8 @@ public final class CmsXmlContentFactory {
         CmsXmlContent content = (CmsXmlContent)req.getAttribute(rootPath);
 
         if (content == null) {
-            // unmarshal XML structure from the file content
-            CmsFile file = resource instanceof CmsFile ? (CmsFile)resource : cms.readFile(resource);
-            content = unmarshal(cms, file);
+            // try to create the content from the node wide cache for the online project
+            content = unmarshal(cms, resource, CmsXmlContentCache.getInstance());
             // store the content as request attribute for future read requests
             req.setAttribute(rootPath, content);
         }
@@ -376,4 +330,114 @@ public final class CmsXmlContentFactory {
 
         return unmarshal(null, xmlData, encoding, resolver);
     }
+
+    /**
+     * Unmarshals a XML content instance from a OpenCms VFS file, without calling the
+     * prepare for use method of the content handler.<p>
+     *
+     * @param cms the current cms object
+     * @param file the file with the XML data to unmarshal
+     * @param keepEncoding if true, the encoding spefified in the XML header is used,
+     *    otherwise the encoding from the VFS file property is used
+     *
+     * @return a XML content instance unmarshalled from the provided file, not yet prepared for use
+     *
+     * @throws CmsXmlException if something goes wrong
+     */
+    static CmsXmlContent parse(CmsObject cms, CmsFile file, boolean keepEncoding) throws CmsXmlException {
+
+        byte[] contentBytes = file.getContents();
+        String filename = cms.getSitePath(file);
+
+        String encoding = null;
+        try {
+            encoding = cms.readPropertyObject(
+                filename,
+                CmsPropertyDefinition.PROPERTY_CONTENT_ENCODING,
+                true).getValue();
+        } catch (@SuppressWarnings("unused") CmsException e) {
+            // encoding will be null
+        }
+        if (encoding == null) {
+            encoding = OpenCms.getSystemInfo().getDefaultEncoding();
+        } else {
+            encoding = CmsEncoder.lookupEncoding(encoding, null);
+            if (encoding == null) {
+                throw new CmsXmlException(Messages.get().container(Messages.ERR_XMLCONTENT_INVALID_ENC_1, filename));
+            }
+        }
+
+        CmsXmlContent content;
+        if (contentBytes.length > 0) {
+            // content is initialized
+            if (keepEncoding) {
+                // use the encoding from the content
+                EntityResolver resolver = new CmsXmlEntityResolver(cms);
+                content = new CmsXmlContent(
+                    cms,
+                    CmsXmlUtils.unmarshalHelper(contentBytes, resolver),
+                    encoding,
+                    resolver);
+            } else {
+                // use the encoding from the file property
+                // this usually only triggered by a save operation
+                try {
+                    String contentStr = new String(contentBytes, encoding);
+                    EntityResolver resolver = new CmsXmlEntityResolver(cms);
+                    content = new CmsXmlContent(
+                        cms,
+                        CmsXmlUtils.unmarshalHelper(contentStr, resolver),
+                        encoding,
+                        resolver);
+                } catch (UnsupportedEncodingException e) {
+                    // this will not happen since the encodig has already been validated
+                    throw new CmsXmlException(
+                        Messages.get().container(Messages.ERR_XMLCONTENT_INVALID_ENC_1, filename), e);
+                }
+            }
+        } else {
+            // content is empty
+            content = new CmsXmlContent(cms, DocumentHelper.createDocument(), encoding, new CmsXmlEntityResolver(cms));
+        }
+
+        // set the file
+        content.setFile(file);
+        return content;
+    }
+
+    /**
+     * Unmarshals a XML content instance from a resource, using the given node wide cache.<p>
+     *
+     * The cache holds the parsed documents before they are prepared for use, so the content handler
+     * prepares the content for every request with the context of that request.<p>
+     *
+     * @param cms the current OpenCms context object
+     * @param resource the resource to unmarshal
+     * @param cache the node wide XML content cache, or <code>null</code>
+     *
+     * @return the unmarshaled xml content
+     *
+     * @throws CmsException if something goes wrong
+     */
+    static CmsXmlContent unmarshal(CmsObject cms, CmsResource resource, CmsXmlContentCache cache)
+    throws CmsException {
+
+        CmsXmlContent content = null;
+        long generation = 0;
+        if (cache != null) {
+            // read before the file, so contents read while they were published are not cached
+            generation = cache.getGeneration();
+            content = cache.getContent(cms, resource);
+        }
+        if (content == null) {
+            // unmarshal XML structure from the file content
+            CmsFile file = resource instanceof CmsFile ? (CmsFile)resource : cms.readFile(resource);
+            content = parse(cms, file, true);
+            if (cache != null) {
+                cache.setContent(cms, content, generation);
+            }
+        }
+        // call prepare for use content handler and return the result
+        return content.getHandler().prepareForUse(cms, content);
+    }
 }
\ No newline at end of file
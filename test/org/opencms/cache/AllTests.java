@@ -59,6 +59,9 @@ public final class AllTests {
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
         suite.addTest(TestCache.suite());
+        suite.addTest(new TestSuite(TestCmsConcurrentLruCache.class));
+        suite.addTest(new TestSuite(TestCmsSlabAllocator.class));
+        suite.addTest(new TestSuite(TestCmsVfsNameBasedDiskCache.class));
         //$JUnit-END$
         return suite;
     }
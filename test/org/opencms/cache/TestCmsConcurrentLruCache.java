@@ -0,0 +1,309 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.test.OpenCmsTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the concurrent LRU cache.<p>
+ */
+public class TestCmsConcurrentLruCache extends OpenCmsTestCase {
+
+    /**
+     * Simple cache object with fixed costs.<p>
+     */
+    static class TestCacheObject implements I_CmsLruCacheObject {
+
+        /** The costs. */
+        private int m_costs;
+
+        /** Flag indicating if the object is in the cache. */
+        private volatile boolean m_inCache;
+
+        /** The next object. */
+        private I_CmsLruCacheObject m_next;
+
+        /** The previous object. */
+        private I_CmsLruCacheObject m_previous;
+
+        /**
+         * Creates a new test object.<p>
+         *
+         * @param costs the costs
+         */
+        TestCacheObject(int costs) {
+
+            m_costs = costs;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#addToLruCache()
+         */
+        public void addToLruCache() {
+
+            m_inCache = true;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getLruCacheCosts()
+         */
+        public int getLruCacheCosts() {
+
+            return m_costs;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getNextLruObject()
+         */
+        public I_CmsLruCacheObject getNextLruObject() {
+
+            return m_next;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getPreviousLruObject()
+         */
+        public I_CmsLruCacheObject getPreviousLruObject() {
+
+            return m_previous;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getValue()
+         */
+        public Object getValue() {
+
+            return this;
+        }
+
+        /**
+         * Returns true if the object is in the cache.<p>
+         *
+         * @return true if the object is in the cache
+         */
+        public boolean isInCache() {
+
+            return m_inCache;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#removeFromLruCache()
+         */
+        public void removeFromLruCache() {
+
+            m_inCache = false;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setNextLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setNextLruObject(I_CmsLruCacheObject theNextObject) {
+
+            m_next = theNextObject;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setPreviousLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setPreviousLruObject(I_CmsLruCacheObject thePreviousObject) {
+
+            m_previous = thePreviousObject;
+        }
+    }
+
+    /**
+     * Tests adding, touching and removing objects.<p>
+     */
+    public void testAddTouchRemove() {
+
+        CmsConcurrentLruCache cache = new CmsConcurrentLruCache(1000, 800, 100, 4);
+        TestCacheObject a = new TestCacheObject(10);
+        TestCacheObject b = new TestCacheObject(20);
+        assertTrue(cache.add(a));
+        assertTrue(cache.add(b));
+        assertTrue(cache.add(a));
+        assertEquals(2, cache.size());
+        assertEquals(30, cache.getObjectCosts());
+        assertTrue(a.isInCache());
+        assertTrue(cache.touch(b));
+        assertTrue(cache.tryTouch(a));
+        assertSame(a, cache.remove(a));
+        assertNull(cache.remove(a));
+        assertFalse(a.isInCache());
+        assertFalse(cache.touch(a));
+        assertEquals(1, cache.size());
+        assertEquals(20, cache.getObjectCosts());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getObjectCosts());
+        assertFalse(b.isInCache());
+    }
+
+    /**
+     * Tests that concurrent modifications keep the cache statistics consistent.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testConcurrentConsistency() throws Exception {
+
+        final CmsConcurrentLruCache cache = new CmsConcurrentLruCache(5000, 4000, 50, 8);
+        final List<TestCacheObject> objects = new ArrayList<TestCacheObject>();
+        for (int i = 0; i < 500; i++) {
+            objects.add(new TestCacheObject(1 + (i % 10)));
+        }
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    for (int i = 0; i < 20000; i++) {
+                        TestCacheObject o = objects.get(((i * 31) + offset) % objects.size());
+                        switch (i % 4) {
+                            case 0:
+                                cache.remove(o);
+                                break;
+                            case 1:
+                                cache.tryTouch(o);
+                                break;
+                            default:
+                                cache.add(o);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int count = 0;
+        int costs = 0;
+        for (TestCacheObject o : objects) {
+            if (o.isInCache()) {
+                count++;
+                costs += o.getLruCacheCosts();
+            }
+        }
+        assertEquals(count, cache.size());
+        assertEquals(costs, cache.getObjectCosts());
+        assertTrue(cache.getObjectCosts() <= cache.getMaxCacheCosts());
+    }
+
+    /**
+     * Tests the eviction of objects once the max. costs are reached.<p>
+     */
+    public void testEviction() {
+
+        CmsConcurrentLruCache cache = new CmsConcurrentLruCache(100, 50, 30, 1);
+        List<TestCacheObject> objects = new ArrayList<TestCacheObject>();
+        for (int i = 0; i < 11; i++) {
+            TestCacheObject o = new TestCacheObject(10);
+            objects.add(o);
+            assertTrue(cache.add(o));
+            // keep the first object alive
+            cache.touch(objects.get(0));
+        }
+        // exceeding the max. costs removed objects until the costs dropped below the avg. costs
+        assertEquals(40, cache.getObjectCosts());
+        // with a single segment, the eviction is exact LRU
+        assertTrue(objects.get(0).isInCache());
+        assertTrue(objects.get(10).isInCache());
+        assertFalse(objects.get(1).isInCache());
+        assertFalse(objects.get(7).isInCache());
+
+        // objects that are too expensive are not cached at all
+        TestCacheObject big = new TestCacheObject(31);
+        assertFalse(cache.add(big));
+        assertFalse(big.isInCache());
+    }
+
+    /**
+     * Tests that every hit is registered while many threads touch the same objects concurrently.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testHitsUnderContention() throws Exception {
+
+        final CmsConcurrentLruCache cache = new CmsConcurrentLruCache(1000000, 800000, 1000, 4);
+        final List<TestCacheObject> objects = new ArrayList<TestCacheObject>();
+        for (int i = 0; i < 100; i++) {
+            TestCacheObject o = new TestCacheObject(10);
+            objects.add(o);
+            assertTrue(cache.add(o));
+        }
+        final int rounds = 2000;
+        final AtomicLong hits = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[16];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < rounds; i++) {
+                        // all threads hit the same few segments at the same time
+                        if (cache.touch(objects.get((i + offset) % objects.size()))) {
+                            hits.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // nothing was evicted, so every touch must have been a hit
+        assertEquals(threads.length * rounds, hits.get());
+        assertEquals(objects.size(), cache.size());
+        assertEquals(objects.size() * 10, cache.getObjectCosts());
+        for (TestCacheObject o : objects) {
+            assertTrue(o.isInCache());
+            // the LRU lists are still intact, so every object can be removed
+            assertSame(o, cache.remove(o));
+        }
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getObjectCosts());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.test.OpenCmsTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Tests for the off-heap slab allocator.<p>
+ */
+public class TestCmsSlabAllocator extends OpenCmsTestCase {
+
+    /**
+     * Tests storing and reading content.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testAllocateAndRead() throws Exception {
+
+        CmsSlabAllocator allocator = new CmsSlabAllocator(1024, 64, 256);
+        byte[] content = new byte[150];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte)i;
+        }
+        CmsSlabBuffer buffer = allocator.allocate(content);
+        assertNotNull(buffer);
+        assertEquals(150, buffer.getLength());
+        assertTrue(Arrays.equals(content, buffer.toByteArray()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+
+        // one slab with 4 pages of which 3 are used
+        assertEquals(256, allocator.getAllocatedBytes());
+        assertEquals(64, allocator.getFreeBytes());
+        assertEquals(192, allocator.getUsedBytes());
+
+        buffer.free();
+        buffer.free();
+        assertTrue(buffer.isFreed());
+        assertEquals(256, allocator.getFreeBytes());
+
+        CmsSlabBuffer empty = allocator.allocate(new byte[0]);
+        assertEquals(0, empty.toByteArray().length);
+    }
+
+    /**
+     * Tests that allocations fail once the maximum size has been reached.<p>
+     */
+    public void testMaxBytes() {
+
+        CmsSlabAllocator allocator = new CmsSlabAllocator(512, 64, 256);
+        assertNotNull(allocator.allocate(new byte[256]));
+        CmsSlabBuffer second = allocator.allocate(new byte[200]);
+        assertNotNull(second);
+        assertNull(allocator.allocate(new byte[100]));
+        assertEquals(1, allocator.getFailedAllocations());
+        assertEquals(512, allocator.getAllocatedBytes());
+
+        // freed pages are reused
+        second.free();
+        assertNotNull(allocator.allocate(new byte[100]));
+        assertEquals(512, allocator.getAllocatedBytes());
+    }
+}
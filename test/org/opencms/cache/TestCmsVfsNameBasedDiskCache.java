@@ -0,0 +1,111 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cache;
+
+import org.opencms.file.CmsResource;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+
+/**
+ * Tests for the name based disk cache.<p>
+ */
+public class TestCmsVfsNameBasedDiskCache extends OpenCmsTestCase {
+
+    /**
+     * Tests deleting the cached files of outdated resource versions.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testDeleteCacheFiles() throws Exception {
+
+        File baseDir = File.createTempFile("diskcache", "");
+        baseDir.delete();
+        baseDir.mkdirs();
+        try {
+            CmsVfsNameBasedDiskCache cache = new CmsVfsNameBasedDiskCache(baseDir.getAbsolutePath(), "/cache/");
+            CmsResource oldVersion = createResource("/sites/default/image.jpg", 1000L);
+            CmsResource newVersion = createResource("/sites/default/image.jpg", 2000L);
+            CmsResource otherImage = createResource("/sites/default/image_1.jpg", 1000L);
+            byte[] content = new byte[] {1};
+
+            cache.saveCacheFile(cache.getCacheName(oldVersion, null), content);
+            cache.saveCacheFile(cache.getCacheName(oldVersion, "w:100,h:100"), content);
+            cache.saveCacheFile(cache.getCacheName(oldVersion, "w:200,h:200"), content);
+            cache.saveCacheFile(cache.getCacheName(newVersion, "w:100,h:100"), content);
+            cache.saveCacheFile(cache.getCacheName(otherImage, "w:100,h:100"), content);
+
+            // only the variants of the old version are deleted
+            assertEquals(3, cache.deleteCacheFiles(oldVersion.getRootPath(), newVersion));
+            assertFalse(cache.hasCacheContent(cache.getCacheName(oldVersion, "w:100,h:100")));
+            assertTrue(cache.hasCacheContent(cache.getCacheName(newVersion, "w:100,h:100")));
+            assertTrue(cache.hasCacheContent(cache.getCacheName(otherImage, "w:100,h:100")));
+
+            // delete all versions
+            assertEquals(1, cache.deleteCacheFiles(newVersion.getRootPath(), null));
+            assertTrue(cache.hasCacheContent(cache.getCacheName(otherImage, "w:100,h:100")));
+            assertEquals(0, cache.deleteCacheFiles("/sites/default/missing/image.jpg", null));
+        } finally {
+            CmsFileUtil.purgeDirectory(baseDir);
+        }
+    }
+
+    /**
+     * Creates a resource for testing.<p>
+     *
+     * @param rootPath the root path
+     * @param dateLastModified the date last modified
+     *
+     * @return the resource
+     */
+    private CmsResource createResource(String rootPath, long dateLastModified) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            rootPath,
+            3,
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_UNCHANGED,
+            1000L,
+            CmsUUID.getNullUUID(),
+            dateLastModified,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            100,
+            dateLastModified,
+            0);
+    }
+}
@@ -65,6 +65,9 @@ public final class AllTests {
         suite.addTest(TestSubscriptionManager.suite());
         suite.addTest(TestAliases.suite());
         suite.addTest(TestUrlNameMapping.suite());
+        suite.addTest(new TestSuite(TestCmsParallelPublisher.class));
+        suite.addTest(new TestSuite(TestCmsDbReplicaRouter.class));
+        suite.addTest(new TestSuite(TestCmsDbClusterEventTransport.class));
         // $JUnit-END$
         return suite;
     }
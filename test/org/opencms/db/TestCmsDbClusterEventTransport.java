@@ -0,0 +1,229 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+
+package org.opencms.db;
+
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the cluster event transport that forwards events through the shared database.<p>
+ */
+public class TestCmsDbClusterEventTransport extends TestCase {
+
+    /**
+     * Transport that reads the resources from a map instead of the VFS.<p>
+     */
+    private static class TestTransport extends CmsDbClusterEventTransport {
+
+        /** The resources by structure id. */
+        Map<String, CmsResource> m_resources = new HashMap<String, CmsResource>();
+
+        /**
+         * Creates a new transport with the default configuration.<p>
+         */
+        TestTransport() {
+
+            initConfiguration();
+        }
+
+        /**
+         * @see org.opencms.db.CmsDbClusterEventTransport#readResource(java.lang.String)
+         */
+        @Override
+        protected CmsResource readResource(String id) {
+
+            return m_resources.get(id);
+        }
+    }
+
+    /** The overlap of the time window with the default poll interval. */
+    private static final long OVERLAP = 10000;
+
+    /**
+     * Tests that an event is only received once, also when it is read again in the next time window.<p>
+     */
+    public void testDuplicateSuppression() {
+
+        TestTransport transport = new TestTransport();
+        transport.updateNodes(Collections.singletonList("node1"));
+        assertTrue(transport.receiveEvent("e1", "node1", 1000));
+        assertFalse(transport.receiveEvent("e1", "node1", 1000));
+        // an event that is committed late, after a newer event of the same node
+        assertTrue(transport.receiveEvent("e3", "node1", 3000));
+        assertTrue(transport.receiveEvent("e2", "node1", 2000));
+        assertFalse(transport.receiveEvent("e2", "node1", 2000));
+        assertFalse(transport.receiveEvent("e3", "node1", 3000));
+        // the late event does not move the time window back
+        assertEquals(3000 - OVERLAP, transport.getReadStart("node1", 1000));
+        // the same event id of another node is a different event
+        assertTrue(transport.receiveEvent("e1", "node2", 1000));
+    }
+
+    /**
+     * Tests that the event data is decoded to the values that have been encoded.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testEncodeDecode() throws Exception {
+
+        TestTransport transport = new TestTransport();
+        CmsResource res1 = createResource("/sites/default/index.html");
+        CmsResource res2 = createResource("/sites/default/news.html");
+        CmsResource deleted = createResource("/sites/default/deleted.html");
+        transport.m_resources.put(res1.getStructureId().toString(), res1);
+        transport.m_resources.put(res2.getStructureId().toString(), res2);
+        CmsUUID publishId = new CmsUUID();
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put(I_CmsEventListener.KEY_PUBLISHID, publishId.toString());
+        data.put(I_CmsEventListener.KEY_CHANGE, Integer.valueOf(3));
+        data.put("flag", Boolean.TRUE);
+        data.put(I_CmsEventListener.KEY_USER_ID, publishId);
+        data.put(I_CmsEventListener.KEY_RESOURCE, res1);
+        data.put(I_CmsEventListener.KEY_RESOURCES, Arrays.asList(res1, deleted, res2));
+        // values that can not be forwarded are skipped
+        data.put(I_CmsEventListener.KEY_DBCONTEXT, new Object());
+        data.put("strings", Arrays.asList("a", "b"));
+
+        Map<String, Object> decoded = transport.decodeData(transport.encodeData(data));
+        assertEquals(6, decoded.size());
+        assertEquals(publishId.toString(), decoded.get(I_CmsEventListener.KEY_PUBLISHID));
+        assertEquals(Integer.valueOf(3), decoded.get(I_CmsEventListener.KEY_CHANGE));
+        assertEquals(Boolean.TRUE, decoded.get("flag"));
+        assertEquals(publishId, decoded.get(I_CmsEventListener.KEY_USER_ID));
+        assertSame(res1, decoded.get(I_CmsEventListener.KEY_RESOURCE));
+        // resources that can not be read on the receiving node are left out
+        assertEquals(Arrays.asList(res1, res2), decoded.get(I_CmsEventListener.KEY_RESOURCES));
+
+        // a single resource that can not be read is left out
+        data = new HashMap<String, Object>();
+        data.put(I_CmsEventListener.KEY_RESOURCE, deleted);
+        assertTrue(transport.decodeData(transport.encodeData(data)).isEmpty());
+    }
+
+    /**
+     * Tests the time windows for reading the events, with nodes whose clocks differ.<p>
+     */
+    public void testReadStart() {
+
+        TestTransport transport = new TestTransport();
+        List<String> nodes = new ArrayList<String>(Arrays.asList("node1", "node2"));
+        transport.updateNodes(nodes);
+        // the events of new nodes are read starting with their oldest event in the table
+        assertEquals(89999, transport.getReadStart("node1", 90000));
+        assertEquals(3599999, transport.getReadStart("node2", 3600000));
+        transport.receiveEvent("a1", "node1", 100000);
+        // the clock of node2 is one hour ahead
+        transport.receiveEvent("b1", "node2", 3700000);
+        assertEquals(100000 - OVERLAP, transport.getReadStart("node1", 90000));
+        assertEquals(3700000 - OVERLAP, transport.getReadStart("node2", 3600000));
+
+        // the events of node1 are still read although they are older than the events of node2
+        assertTrue(transport.receiveEvent("a2", "node1", 105000));
+        assertEquals(105000 - OVERLAP, transport.getReadStart("node1", 90000));
+        assertTrue(transport.receiveEvent("b2", "node2", 3701000));
+        assertEquals(3701000 - OVERLAP, transport.getReadStart("node2", 3600000));
+
+        // a third node is started, its clock is behind the others
+        nodes.add("node3");
+        transport.updateNodes(nodes);
+        assertEquals(49999, transport.getReadStart("node3", 50000));
+        transport.receiveEvent("c1", "node3", 50000);
+        assertEquals(50000 - OVERLAP, transport.getReadStart("node3", 50000));
+
+        // the events of node3 have all been deleted, if it writes events again they are read from the oldest
+        transport.updateNodes(Arrays.asList("node1", "node2"));
+        assertEquals(59999, transport.getReadStart("node3", 60000));
+        assertTrue(transport.receiveEvent("c1", "node3", 50000));
+    }
+
+    /**
+     * Tests that the ids of received events expire by the clock of the node that has written them.<p>
+     */
+    public void testRemoveExpiredEvents() {
+
+        TestTransport transport = new TestTransport();
+        transport.updateNodes(Arrays.asList("node1", "node2"));
+        long retention = CmsDbClusterEventTransport.DEFAULT_RETENTION;
+        transport.receiveEvent("a1", "node1", 1000);
+        transport.receiveEvent("a2", "node1", 1000 + retention + 1);
+        // the clock of node2 is far behind, its events are not expired by the times of node1
+        transport.receiveEvent("b1", "node2", 500);
+        transport.receiveEvent("b2", "node2", 600);
+
+        transport.removeExpiredEvents();
+        // the expired id is forgotten, so the event would be received again
+        assertTrue(transport.receiveEvent("a1", "node1", 1000));
+        assertFalse(transport.receiveEvent("a2", "node1", 1000 + retention + 1));
+        assertFalse(transport.receiveEvent("b1", "node2", 500));
+        assertFalse(transport.receiveEvent("b2", "node2", 600));
+    }
+
+    /**
+     * Creates a test resource.<p>
+     *
+     * @param rootPath the root path of the resource
+     *
+     * @return the resource
+     */
+    private static CmsResource createResource(String rootPath) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            rootPath,
+            CmsResourceTypePlain.getStaticTypeId(),
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_UNCHANGED,
+            0,
+            CmsUUID.getNullUUID(),
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            0,
+            0,
+            0);
+    }
+}
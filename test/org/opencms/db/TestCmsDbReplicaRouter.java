@@ -0,0 +1,293 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.test.OpenCmsTestCase;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Tests for routing online reads to read replica pools, using separate in-memory HSQLDB databases as pools.<p>
+ */
+public class TestCmsDbReplicaRouter extends OpenCmsTestCase {
+
+    /** The names of the test pools. */
+    private static final String[] POOL_NAMES = {"routerPrimary", "routerReplica1", "routerReplica2"};
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        for (String name : POOL_NAMES) {
+            CmsParameterConfiguration config = new CmsParameterConfiguration();
+            String prefix = CmsDbPoolV11.KEY_DATABASE_POOL + '.' + name + '.';
+            config.put(prefix + CmsDbPoolV11.KEY_JDBC_DRIVER, "org.hsqldb.jdbcDriver");
+            config.put(prefix + CmsDbPoolV11.KEY_JDBC_URL, "jdbc:hsqldb:mem:" + name);
+            config.put(prefix + CmsDbPoolV11.KEY_CONNECT_ATTEMTS, "1");
+            config.put(prefix + "v11.maximumPoolSize", "2");
+            CmsDbPoolV11 pool = new CmsDbPoolV11(config, name);
+            CmsDriverManager.m_pools.put(pool.getPoolUrl(), pool);
+        }
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        for (String name : POOL_NAMES) {
+            CmsDbPoolV11 pool = CmsDriverManager.m_pools.remove(CmsDbPoolV11.OPENCMS_URL_PREFIX + name);
+            if (pool != null) {
+                pool.close();
+            }
+        }
+        super.tearDown();
+    }
+
+    /**
+     * Tests that the replicas are created from the configuration.<p>
+     */
+    public void testConfiguration() {
+
+        CmsParameterConfiguration config = new CmsParameterConfiguration();
+        config.put("db.pool.routerPrimary.replicas", "routerReplica1, missing");
+        config.put("db.pool.routerPrimary.replicas.publishDelay", "1000");
+        CmsDbReplicaRouter router = CmsDbReplicaRouter.create(config, "routerPrimary");
+        assertNotNull(router);
+        List<CmsDbReplicaRouter.CmsPoolStatistics> statistics = router.getStatistics();
+        // the missing pool is ignored
+        assertEquals(2, statistics.size());
+        assertEquals("opencms:routerPrimary", statistics.get(0).getPoolUrl());
+        assertEquals("opencms:routerReplica1", statistics.get(1).getPoolUrl());
+
+        assertNull(CmsDbReplicaRouter.create(new CmsParameterConfiguration(), "routerPrimary"));
+    }
+
+    /**
+     * Tests that a failing replica is skipped until the health check succeeds again.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testFailover() throws Exception {
+
+        CmsDbReplicaRouter router = createRouter(0);
+        CmsDbPoolV11 replica1 = CmsDriverManager.m_pools.get("opencms:routerReplica1");
+        replica1.close();
+        for (int i = 0; i < 4; i++) {
+            assertEquals("routerReplica2", readFrom(router));
+        }
+        List<CmsDbReplicaRouter.CmsPoolStatistics> statistics = router.getStatistics();
+        assertEquals(1, statistics.get(1).getFailureCount());
+        assertFalse(statistics.get(1).isAvailable());
+        assertEquals(4, statistics.get(2).getConnectionCount());
+
+        // the health check does not bring back the closed pool
+        router.checkReplicas();
+        assertFalse(statistics.get(1).isAvailable());
+
+        // without any replica the primary pool is used
+        CmsDriverManager.m_pools.get("opencms:routerReplica2").close();
+        assertEquals("routerPrimary", readFrom(router));
+    }
+
+    /**
+     * Tests that the primary pool is used after a publish job until the replicas have caught up with it.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testReadAfterPublish() throws Exception {
+
+        for (String name : POOL_NAMES) {
+            execute(name, "DROP TABLE CMS_HISTORY_PROJECTS IF EXISTS");
+            execute(name, "CREATE TABLE CMS_HISTORY_PROJECTS (PUBLISH_TAG INTEGER NOT NULL)");
+            execute(name, "INSERT INTO CMS_HISTORY_PROJECTS VALUES (1)");
+        }
+        CmsDbReplicaRouter router = createRouter(0);
+        assertTrue(readFrom(router).startsWith("routerReplica"));
+
+        execute("routerPrimary", "INSERT INTO CMS_HISTORY_PROJECTS VALUES (2)");
+        router.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, new HashMap<String, Object>()));
+        List<CmsDbReplicaRouter.CmsPoolStatistics> statistics = router.getStatistics();
+        assertEquals(2, statistics.get(0).getPublishTag());
+        // no replica has caught up yet
+        assertEquals("routerPrimary", readFrom(router));
+        assertEquals("routerPrimary", readFrom(router));
+        assertEquals(1, statistics.get(1).getPublishTag());
+        assertEquals(1, statistics.get(2).getPublishTag());
+
+        // the lagging replicas are not checked again before the check interval has passed
+        execute("routerReplica1", "INSERT INTO CMS_HISTORY_PROJECTS VALUES (2)");
+        assertEquals("routerPrimary", readFrom(router));
+        assertEquals(1, statistics.get(1).getPublishTag());
+
+        // only the replica that has caught up is used after the health check
+        router.checkReplicas();
+        assertEquals(2, statistics.get(1).getPublishTag());
+        assertEquals(1, statistics.get(2).getPublishTag());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("routerReplica1", readFrom(router));
+        }
+
+        // the health check finds the other replica when it has caught up
+        execute("routerReplica2", "INSERT INTO CMS_HISTORY_PROJECTS VALUES (2)");
+        router.checkReplicas();
+        assertEquals(2, statistics.get(2).getPublishTag());
+        String first = readFrom(router);
+        assertFalse(first.equals(readFrom(router)));
+        assertEquals(3, statistics.get(0).getConnectionCount());
+    }
+
+    /**
+     * Tests that the primary pool is used after a publish job until its publish tag has been read.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testReadAfterPublishTagFailure() throws Exception {
+
+        for (String name : POOL_NAMES) {
+            execute(name, "DROP TABLE CMS_HISTORY_PROJECTS IF EXISTS");
+            if (!name.equals("routerPrimary")) {
+                execute(name, "CREATE TABLE CMS_HISTORY_PROJECTS (PUBLISH_TAG INTEGER NOT NULL)");
+                execute(name, "INSERT INTO CMS_HISTORY_PROJECTS VALUES (1)");
+            }
+        }
+        CmsDbReplicaRouter router = createRouter(0);
+        assertTrue(readFrom(router).startsWith("routerReplica"));
+
+        // the publish tag can not be read from the primary pool
+        router.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, new HashMap<String, Object>()));
+        assertEquals("routerPrimary", readFrom(router));
+        assertEquals("routerPrimary", readFrom(router));
+
+        // the failed read is not repeated before the check interval has passed
+        execute("routerPrimary", "CREATE TABLE CMS_HISTORY_PROJECTS (PUBLISH_TAG INTEGER NOT NULL)");
+        execute("routerPrimary", "INSERT INTO CMS_HISTORY_PROJECTS VALUES (1)");
+        assertEquals("routerPrimary", readFrom(router));
+
+        // the health check reads the publish tag again
+        router.checkReplicas();
+        List<CmsDbReplicaRouter.CmsPoolStatistics> statistics = router.getStatistics();
+        assertEquals(1, statistics.get(0).getPublishTag());
+        assertTrue(readFrom(router).startsWith("routerReplica"));
+        assertEquals(3, statistics.get(0).getConnectionCount());
+    }
+
+    /**
+     * Tests that the primary pool is used during the publish delay.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testReadDuringPublishDelay() throws Exception {
+
+        CmsDbReplicaRouter router = createRouter(60 * 60 * 1000);
+        assertTrue(readFrom(router).startsWith("routerReplica"));
+        router.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, new HashMap<String, Object>()));
+        assertEquals("routerPrimary", readFrom(router));
+        assertEquals(1, router.getStatistics().get(0).getConnectionCount());
+    }
+
+    /**
+     * Tests that the replicas are used in turn.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testRoundRobin() throws Exception {
+
+        CmsDbReplicaRouter router = createRouter(0);
+        String first = readFrom(router);
+        String second = readFrom(router);
+        assertFalse(first.equals(second));
+        assertEquals(first, readFrom(router));
+        assertEquals(second, readFrom(router));
+        List<CmsDbReplicaRouter.CmsPoolStatistics> statistics = router.getStatistics();
+        assertEquals(0, statistics.get(0).getConnectionCount());
+        assertEquals(2, statistics.get(1).getConnectionCount());
+        assertEquals(2, statistics.get(2).getConnectionCount());
+    }
+
+    /**
+     * Creates a router for the test pools.<p>
+     *
+     * @param publishDelay the publish delay
+     *
+     * @return the router
+     */
+    private CmsDbReplicaRouter createRouter(long publishDelay) {
+
+        return new CmsDbReplicaRouter(
+            "opencms:routerPrimary",
+            Arrays.asList("opencms:routerReplica1", "opencms:routerReplica2"),
+            0,
+            publishDelay);
+    }
+
+    /**
+     * Executes an SQL statement on one of the test pools.<p>
+     *
+     * @param poolName the name of the pool
+     * @param sql the SQL statement
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void execute(String poolName, String sql) throws Exception {
+
+        try (Connection con = CmsDriverManager.m_pools.get(CmsDbPoolV11.OPENCMS_URL_PREFIX + poolName).getConnection();
+            Statement stmt = con.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    /**
+     * Returns the name of the database a connection of the router is connected to.<p>
+     *
+     * @param router the router
+     *
+     * @return the database name
+     *
+     * @throws Exception if something goes wrong
+     */
+    private String readFrom(CmsDbReplicaRouter router) throws Exception {
+
+        try (Connection con = router.getConnection()) {
+            String url = con.getMetaData().getURL();
+            return url.substring(url.lastIndexOf(':') + 1);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.db.generic.CmsParallelPublisher;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsException;
+import org.opencms.report.CmsStringBufferReport;
+import org.opencms.report.Messages;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for publishing resources with several threads.<p>
+ */
+public class TestCmsParallelPublisher extends OpenCmsTestCase {
+
+    /**
+     * Tests that a failure stops publishing and is reported.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testFailure() throws Exception {
+
+        CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        CmsParallelPublisher publisher = new CmsParallelPublisher(
+            new CmsDbContext(),
+            new CmsDbContextFactory(),
+            report,
+            4);
+        List<CmsResource> resources = createResources(1, 5);
+        List<String> published = Collections.synchronizedList(new ArrayList<String>());
+        try {
+            publisher.publish(
+                resources,
+                resource -> Collections.singletonList(resource.getResourceId()),
+                org.opencms.db.generic.Messages.ERR_ERROR_PUBLISHING_FILE_1,
+                (dbc, workerReport, resource) -> {
+                    if (resource.getRootPath().endsWith("/2")) {
+                        throw new CmsException(Messages.get().container(Messages.RPT_FAILED_0));
+                    }
+                    published.add(resource.getRootPath());
+                });
+            fail("The failure was not reported");
+        } catch (CmsException e) {
+            // expected
+        } finally {
+            publisher.shutDown();
+        }
+        // the resources after the failed one are not published
+        assertEquals(2, published.size());
+        assertTrue(report.hasError());
+    }
+
+    /**
+     * Tests that resources of the same group are published one after another by the same thread,
+     * and that the report output of different resources is not mixed up.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testGroups() throws Exception {
+
+        CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        CmsParallelPublisher publisher = new CmsParallelPublisher(
+            new CmsDbContext(),
+            new CmsDbContextFactory(),
+            report,
+            4);
+        assertTrue(publisher.isParallel());
+        List<CmsResource> resources = createResources(8, 10);
+        Map<CmsUUID, List<String>> published = new HashMap<CmsUUID, List<String>>();
+        Map<CmsUUID, String> threads = new HashMap<CmsUUID, String>();
+        try {
+            publisher.publish(
+                resources,
+                resource -> Collections.singletonList(resource.getResourceId()),
+                org.opencms.db.generic.Messages.ERR_ERROR_PUBLISHING_FILE_1,
+                (dbc, workerReport, resource) -> {
+                    workerReport.print(Messages.get().container(Messages.RPT_ARGUMENT_1, resource.getRootPath()));
+                    Thread.yield();
+                    workerReport.println(Messages.get().container(Messages.RPT_OK_0));
+                    synchronized (published) {
+                        List<String> paths = published.get(resource.getResourceId());
+                        if (paths == null) {
+                            paths = new ArrayList<String>();
+                            published.put(resource.getResourceId(), paths);
+                            threads.put(resource.getResourceId(), Thread.currentThread().getName());
+                        }
+                        paths.add(resource.getRootPath());
+                        assertEquals(threads.get(resource.getResourceId()), Thread.currentThread().getName());
+                    }
+                });
+        } finally {
+            publisher.shutDown();
+        }
+        assertEquals(8, published.size());
+        for (List<String> paths : published.values()) {
+            assertEquals(10, paths.size());
+            for (int i = 0; i < paths.size(); i++) {
+                assertTrue(paths.get(i).endsWith("/" + i));
+            }
+        }
+        String[] lines = report.toString().split("\n");
+        assertEquals(80, lines.length);
+        for (String line : lines) {
+            assertTrue(line, line.matches(" /group\\d+/\\d+ o\\.k\\."));
+        }
+    }
+
+    /**
+     * Tests that resources sharing any of their group keys are published in the same group,
+     * like a deleted and a new file with the same path, and that the workers use their own database contexts.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testMergedGroups() throws Exception {
+
+        CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        CmsDbContext publishDbc = new CmsDbContext();
+        CmsParallelPublisher publisher = new CmsParallelPublisher(
+            publishDbc,
+            new CmsDbContextFactory(),
+            report,
+            4);
+        List<CmsResource> resources = createResources(3, 4);
+        // the first resource of group 1 gets the path of the first resource of group 0
+        CmsUUID group0 = resources.get(0).getResourceId();
+        CmsUUID group1 = resources.get(1).getResourceId();
+        resources.set(1, createResource(group1, resources.get(0).getRootPath(), 3));
+        List<CmsUUID> samePath = Collections.synchronizedList(new ArrayList<CmsUUID>());
+        Map<CmsUUID, String> threads = Collections.synchronizedMap(new HashMap<CmsUUID, String>());
+        Set<CmsDbContext> contexts = Collections.synchronizedSet(new HashSet<CmsDbContext>());
+        try {
+            publisher.publish(
+                resources,
+                resource -> Arrays.asList(resource.getResourceId(), resource.getRootPath()),
+                org.opencms.db.generic.Messages.ERR_ERROR_PUBLISHING_FILE_1,
+                (dbc, workerReport, resource) -> {
+                    contexts.add(dbc);
+                    threads.put(resource.getResourceId(), Thread.currentThread().getName());
+                    if (resource.getRootPath().equals("/group0/0")) {
+                        samePath.add(resource.getResourceId());
+                    }
+                });
+        } finally {
+            publisher.shutDown();
+        }
+        // groups 0 and 1 are merged, so they are published by the same worker in the order of the list
+        assertEquals(threads.get(group0), threads.get(group1));
+        assertEquals(Arrays.asList(group0, group1), samePath);
+        // every worker uses its own database context, not the one of the publish thread
+        assertFalse(contexts.isEmpty());
+        assertFalse(contexts.contains(publishDbc));
+    }
+
+    /**
+     * Tests that resources are published in the calling thread if only one thread is configured.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testSequential() throws Exception {
+
+        CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        CmsParallelPublisher publisher = new CmsParallelPublisher(
+            new CmsDbContext(),
+            new CmsDbContextFactory(),
+            report,
+            1);
+        assertFalse(publisher.isParallel());
+        List<CmsResource> resources = createResources(3, 3);
+        List<String> published = new ArrayList<String>();
+        String thread = Thread.currentThread().getName();
+        publisher.publish(
+            resources,
+            resource -> Collections.singletonList(resource.getResourceId()),
+            org.opencms.db.generic.Messages.ERR_ERROR_PUBLISHING_FILE_1,
+            (dbc, workerReport, resource) -> {
+                assertEquals(thread, Thread.currentThread().getName());
+                published.add(resource.getRootPath());
+            });
+        List<String> expected = new ArrayList<String>();
+        for (CmsResource resource : resources) {
+            expected.add(resource.getRootPath());
+        }
+        assertEquals(expected, published);
+    }
+
+    /**
+     * Creates resources for testing, the resources of a group share the same resource id like siblings.<p>
+     *
+     * @param groups the number of groups
+     * @param size the number of resources per group
+     *
+     * @return the resources, the groups are interleaved
+     */
+    private List<CmsResource> createResources(int groups, int size) {
+
+        List<CmsUUID> resourceIds = new ArrayList<CmsUUID>();
+        for (int g = 0; g < groups; g++) {
+            resourceIds.add(new CmsUUID());
+        }
+        List<CmsResource> result = new ArrayList<CmsResource>();
+        for (int i = 0; i < size; i++) {
+            for (int g = 0; g < groups; g++) {
+                result.add(createResource(resourceIds.get(g), "/group" + g + "/" + i, groups));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a resource for testing.<p>
+     *
+     * @param resourceId the resource id
+     * @param rootPath the root path
+     * @param siblingCount the sibling count
+     *
+     * @return the resource
+     */
+    private CmsResource createResource(CmsUUID resourceId, String rootPath, int siblingCount) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            resourceId,
+            rootPath,
+            1,
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_CHANGED,
+            0L,
+            CmsUUID.getNullUUID(),
+            0L,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            siblingCount,
+            0,
+            0L,
+            0);
+    }
+}
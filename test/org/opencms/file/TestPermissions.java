@@ -76,6 +76,7 @@ public class TestPermissions extends OpenCmsTestCase {
         suite.addTest(new TestPermissions("testDefaultPermissions"));
         suite.addTest(new TestPermissions("testPermissionOverwrite"));
         suite.addTest(new TestPermissions("testPermissionInheritance"));
+        suite.addTest(new TestPermissions("testPermissionInheritanceCache"));
         suite.addTest(new TestPermissions("testUserDeletion"));
 
         TestSetup wrapper = new TestSetup(suite) {
@@ -290,6 +291,46 @@ public class TestPermissions extends OpenCmsTestCase {
         assertEquals("-r-w", cms.getPermissions(subresourcename, "testUser").getPermissionString());
     }
 
+    /**
+     * Tests that the cached permissions inherited over several folder levels are updated
+     * if the permissions of a parent folder change.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPermissionInheritanceCache() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the cached inheritance of permissions");
+
+        String foldername = "testPermissionInheritanceCache";
+        String subfoldername = foldername + "/sub1/sub2";
+        String resourcename = subfoldername + "/test.txt";
+        String othername = "testPermissionInheritanceCacheOther";
+        String otherresourcename = othername + "/test.txt";
+
+        cms.createResource(foldername, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(foldername + "/sub1", CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(subfoldername, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(resourcename, CmsResourceTypePlain.getStaticTypeId());
+        cms.createResource(othername, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(otherresourcename, CmsResourceTypePlain.getStaticTypeId());
+
+        assertEquals("+r+w+v", cms.getPermissions(resourcename, "testUser").getPermissionString());
+        assertEquals("+r+w+v", cms.getPermissions(otherresourcename, "testUser").getPermissionString());
+
+        cms.chacc(foldername, I_CmsPrincipal.PRINCIPAL_GROUP, "Users", "+r+o+i");
+        assertEquals("+r", cms.getPermissions(resourcename, "testUser").getPermissionString());
+        assertEquals("+r", cms.getPermissions(subfoldername, "testUser").getPermissionString());
+        assertEquals("+r+w+v", cms.getPermissions(otherresourcename, "testUser").getPermissionString());
+
+        cms.chacc(subfoldername, I_CmsPrincipal.PRINCIPAL_GROUP, "Users", "+w");
+        assertEquals("+r+w", cms.getPermissions(resourcename, "testUser").getPermissionString());
+
+        cms.rmacc(subfoldername, I_CmsPrincipal.PRINCIPAL_GROUP, "Users");
+        cms.rmacc(foldername, I_CmsPrincipal.PRINCIPAL_GROUP, "Users");
+        assertEquals("+r+w+v", cms.getPermissions(resourcename, "testUser").getPermissionString());
+    }
+
     /**
      * Tests the overwriting of permissions.<p>
      *
@@ -27,6 +27,8 @@
 
 package org.opencms.file;
 
+import org.opencms.db.CmsTypedCacheKey;
+import org.opencms.file.types.CmsResourceTypeFolder;
 import org.opencms.file.types.CmsResourceTypePlain;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsRuntimeException;
@@ -224,6 +226,8 @@ public class TestProperty extends OpenCmsTestCase {
         suite.addTest(new TestProperty("testCaseSensitiveProperties"));
         suite.addTest(new TestProperty("testReadResourcesWithProperty"));
         suite.addTest(new TestProperty("testReadLocalizedProperty"));
+        suite.addTest(new TestProperty("testInheritedPropertiesAfterWrite"));
+        suite.addTest(new TestProperty("testInheritedPropertiesAfterPublish"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -487,6 +491,71 @@ public class TestProperty extends OpenCmsTestCase {
         assertTrue("Operation did not throw the required Exception", gotException);
     }
 
+    /**
+     * Tests that publishing only removes the cached online properties of the published resources.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testInheritedPropertiesAfterPublish() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the cached inherited properties after publishing");
+
+        String file = "/proptest/sub/file.txt";
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        CmsObject onlineCms = OpenCms.initCmsObject(cms);
+        onlineCms.getRequestContext().setCurrentProject(onlineCms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        assertEquals("b", onlineCms.readPropertyObject(file, CmsPropertyDefinition.PROPERTY_TITLE, true).getValue());
+        assertTrue(isPropertyListCached(true, "/proptest/"));
+        assertTrue(isPropertyListCached(true, file));
+
+        cms.lockResource("/proptest/");
+        cms.writePropertyObject("/proptest/", new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "c", null));
+        cms.unlockResource("/proptest/");
+        OpenCms.getPublishManager().publishResource(cms, "/proptest/");
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        // only the published folder is removed from the cache
+        assertFalse(isPropertyListCached(true, "/proptest/"));
+        assertTrue(isPropertyListCached(true, file));
+        assertEquals("c", onlineCms.readPropertyObject(file, CmsPropertyDefinition.PROPERTY_TITLE, true).getValue());
+    }
+
+    /**
+     * Tests that writing a property only removes the cached properties of the changed resource.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testInheritedPropertiesAfterWrite() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the cached inherited properties after writing a property");
+
+        String file = "/proptest/sub/file.txt";
+        cms.createResource("/proptest/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/proptest/sub/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource(file, CmsResourceTypePlain.getStaticTypeId());
+        cms.writePropertyObject("/proptest/", new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "a", null));
+
+        assertEquals("a", cms.readPropertyObject(file, CmsPropertyDefinition.PROPERTY_TITLE, true).getValue());
+        assertTrue(isPropertyListCached(false, "/proptest/"));
+        assertTrue(isPropertyListCached(false, "/proptest/sub/"));
+        assertTrue(isPropertyListCached(false, file));
+
+        cms.writePropertyObject("/proptest/", new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "b", null));
+
+        // only the changed folder is removed from the cache
+        assertFalse(isPropertyListCached(false, "/proptest/"));
+        assertTrue(isPropertyListCached(false, "/proptest/sub/"));
+        assertTrue(isPropertyListCached(false, file));
+        assertEquals("b", cms.readPropertyObject(file, CmsPropertyDefinition.PROPERTY_TITLE, true).getValue());
+        assertEquals(
+            "b",
+            CmsProperty.get(CmsPropertyDefinition.PROPERTY_TITLE, cms.readPropertyObjects(file, true)).getValue());
+    }
+
     /**
      * Tests the NULL_PROPERTY.<p>
      *
@@ -841,4 +910,18 @@ public class TestProperty extends OpenCmsTestCase {
         CmsProperty property10 = new CmsProperty("Title", "OpenCms", null);
         writeProperty(this, cms, "/folder2/", property10);
     }
+
+    /**
+     * Checks if the properties of a resource are cached.<p>
+     *
+     * @param online <code>true</code> to check the online project
+     * @param rootPath the root path of the resource
+     *
+     * @return <code>true</code> if the properties of the resource are cached
+     */
+    private boolean isPropertyListCached(boolean online, String rootPath) {
+
+        return null != OpenCms.getMemoryMonitor().getCachedPropertyList(
+            new CmsTypedCacheKey(CmsTypedCacheKey.TYPE_PROPERTY_LIST, online, rootPath));
+    }
 }
\ No newline at end of file
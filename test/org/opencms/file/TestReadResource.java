@@ -27,12 +27,16 @@
 
 package org.opencms.file;
 
+import org.opencms.db.CmsTypedCacheKey;
 import org.opencms.main.CmsException;
 import org.opencms.main.OpenCms;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.util.CmsUUID;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -73,6 +77,7 @@ public class TestReadResource extends OpenCmsTestCase {
         suite.addTest(new TestReadResource("testReadAfterExpirationDateIgnore"));
         suite.addTest(new TestReadResource("testReadWithResourceID"));
         suite.addTest(new TestReadResource("testReadWithWrongResourceID"));
+        suite.addTest(new TestReadResource("testReadResourcesWithIds"));
         suite.addTest(new TestReadResource("testReadFileWithResourceID"));
 
         TestSetup wrapper = new TestSetup(suite) {
@@ -340,6 +345,66 @@ public class TestReadResource extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Test reading several resources with their structure ids at once.<p>
+     *
+     * @throws Throwable if something is wrong
+     */
+    public void testReadResourcesWithIds() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        String[] paths = {"/folder1/page2.html", "/folder1/subfolder11/", "/folder1/page1.html"};
+        List<CmsUUID> ids = new ArrayList<CmsUUID>();
+        for (String path : paths) {
+            ids.add(cms.readResource(path).getStructureId());
+        }
+        // unknown ids and duplicates are skipped
+        ids.add(1, new CmsUUID("a7b5d298-b3ab-11d8-b3e3-514d35713fed"));
+        ids.add(ids.get(0));
+
+        List<CmsResource> resources = cms.readResources(ids, CmsResourceFilter.DEFAULT);
+        assertEquals(paths.length, resources.size());
+        for (int i = 0; i < paths.length; i++) {
+            assertEquals(cms.getRequestContext().addSiteRoot(paths[i]), resources.get(i).getRootPath());
+        }
+
+        // the resources are cached by their ids
+        CmsTypedCacheKey cacheKey = new CmsTypedCacheKey(
+            CmsTypedCacheKey.TYPE_RESOURCE_ID,
+            false,
+            0,
+            null,
+            ids.get(0),
+            null);
+        CmsResource cached = OpenCms.getMemoryMonitor().getCachedResource(cacheKey);
+        assertNotNull(cached);
+        assertNotSame(cached, resources.get(0));
+
+        // the callers get copies of the cached resources, which they can modify without changing the cache
+        CmsResource resource = cms.readResource(ids.get(0));
+        assertSame(cached, OpenCms.getMemoryMonitor().getCachedResource(cacheKey));
+        assertNotSame(cached, resource);
+        assertEquals(cms.getRequestContext().addSiteRoot(paths[0]), resource.getRootPath());
+        int type = resource.getTypeId();
+        long dateLastModified = resource.getDateLastModified();
+        resource.setType(type + 1);
+        resource.setDateLastModified(dateLastModified + 1000);
+        assertEquals(type, cms.readResource(ids.get(0)).getTypeId());
+        assertEquals(dateLastModified, cms.readResource(ids.get(0)).getDateLastModified());
+        resources.get(0).setType(type + 1);
+        assertEquals(type, cms.readResources(ids, CmsResourceFilter.DEFAULT).get(0).getTypeId());
+        assertEquals(type, cached.getTypeId());
+
+        // deleted resources are only read if the filter includes them
+        cms.lockResource(paths[0]);
+        cms.deleteResource(paths[0], CmsResource.DELETE_PRESERVE_SIBLINGS);
+        assertEquals(paths.length - 1, cms.readResources(ids, CmsResourceFilter.DEFAULT).size());
+        assertEquals(paths.length, cms.readResources(ids, CmsResourceFilter.ALL).size());
+        cms.undeleteResource(paths[0], false);
+        cms.unlockResource(paths[0]);
+        assertEquals(paths.length, cms.readResources(ids, CmsResourceFilter.DEFAULT).size());
+    }
+
     /**
      * Test readFile with the structure id.<p>
      *
@@ -58,6 +58,8 @@ public final class AllTests {
         TestSuite suite = new TestSuite("Tests for package " + AllTests.class.getPackage().getName());
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
+        suite.addTest(new TestSuite(TestCmsFlexBucketConfiguration.class));
+        suite.addTest(TestCmsFlexCacheCoalescing.suite());
         suite.addTest(new TestSuite(TestCmsFlexCacheEntry.class));
         suite.addTest(TestCmsFlexResponse.suite());
         //$JUnit-END$
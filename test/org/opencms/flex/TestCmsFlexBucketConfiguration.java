@@ -0,0 +1,78 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import org.opencms.flex.CmsFlexBucketConfiguration.BucketSet;
+import org.opencms.test.OpenCmsTestCase;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Tests for the Flex bucket configuration.<p>
+ */
+public class TestCmsFlexBucketConfiguration extends OpenCmsTestCase {
+
+    /**
+     * Tests the maximum staleness of bucket sets.<p>
+     */
+    public void testMaxStaleness() {
+
+        Properties props = new Properties();
+        props.setProperty("bucket.news", "/sites/default/news");
+        props.setProperty("bucket.events", "/sites/default/events");
+        props.setProperty("bucket.shop", "/sites/default/shop");
+        // white space around keys and values is ignored
+        props.setProperty("maxStaleness.news ", " 60000");
+        props.setProperty("maxStaleness.events", "30000 ");
+        props.setProperty("maxStaleness.OTHER", "invalid");
+        CmsFlexBucketConfiguration config = CmsFlexBucketConfiguration.loadFromProperties(props);
+
+        BucketSet news = config.getBucketSet(Arrays.asList("/sites/default/news/a.html"));
+        assertEquals(60000, news.getMaxStaleness());
+
+        // the smallest staleness of all buckets is used
+        BucketSet newsAndEvents = config.getBucketSet(
+            Arrays.asList("/sites/default/news/a.html", "/sites/default/events/b.html"));
+        assertEquals(30000, newsAndEvents.getMaxStaleness());
+
+        // buckets without a staleness prevent stale delivery
+        BucketSet newsAndShop = config.getBucketSet(
+            Arrays.asList("/sites/default/news/a.html", "/sites/default/shop/c.html"));
+        assertEquals(0, newsAndShop.getMaxStaleness());
+        BucketSet other = config.getBucketSet(Arrays.asList("/sites/default/index.html"));
+        assertEquals(0, other.getMaxStaleness());
+
+        try {
+            config.setMaxStaleness("shop", 1000);
+            fail("Frozen configuration must not be modifiable");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
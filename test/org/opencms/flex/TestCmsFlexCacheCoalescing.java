@@ -0,0 +1,346 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the coalescing of concurrent requests rendering the same variation in the Flex cache.<p>
+ */
+public class TestCmsFlexCacheCoalescing extends OpenCmsTestCase {
+
+    /**
+     * Flex cache that returns a fixed entry for every lookup, so the coalescing does not depend on rendered entries.<p>
+     */
+    static class CmsTestFlexCache extends CmsFlexCache {
+
+        /** The entry returned for every lookup. */
+        CmsFlexCacheEntry m_entry = new CmsFlexCacheEntry();
+
+        /**
+         * Creates a new test cache.<p>
+         *
+         * @param coalescingTimeout the coalescing timeout in milliseconds
+         */
+        CmsTestFlexCache(String coalescingTimeout) {
+
+            super(createConfiguration(coalescingTimeout));
+        }
+
+        /**
+         * @see org.opencms.flex.CmsFlexCache#get(org.opencms.flex.CmsFlexRequestKey)
+         */
+        @Override
+        CmsFlexCacheEntry get(CmsFlexRequestKey key) {
+
+            return m_entry;
+        }
+    }
+
+    /**
+     * Thread waiting for a variation rendered by another request.<p>
+     */
+    static class CmsWaitingThread extends Thread {
+
+        /** The cache. */
+        private CmsFlexCache m_cache;
+
+        /** The rendering key of the variation to wait for. */
+        private String m_renderingKey;
+
+        /** The entry returned after waiting. */
+        private AtomicReference<CmsFlexCacheEntry> m_result = new AtomicReference<CmsFlexCacheEntry>();
+
+        /** The include stack of the waiting request. */
+        private CmsFlexRenderingStack m_stack;
+
+        /**
+         * Creates a new waiting thread.<p>
+         *
+         * @param cache the cache
+         * @param renderingKey the rendering key of the variation to wait for
+         * @param stack the include stack of the waiting request
+         */
+        CmsWaitingThread(CmsFlexCache cache, String renderingKey, CmsFlexRenderingStack stack) {
+
+            m_cache = cache;
+            m_renderingKey = renderingKey;
+            m_stack = stack;
+        }
+
+        /**
+         * @see java.lang.Thread#run()
+         */
+        @Override
+        public void run() {
+
+            m_result.set(m_cache.waitForRendering(m_renderingKey, null, m_stack));
+        }
+
+        /**
+         * Returns the entry returned after waiting.<p>
+         *
+         * @return the entry returned after waiting
+         */
+        CmsFlexCacheEntry getResult() {
+
+            return m_result.get();
+        }
+    }
+
+    /** The coalescing timeout used by tests that do not expect a timeout. */
+    private static final String LONG_TIMEOUT = "30000";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsFlexCacheCoalescing(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsFlexCacheCoalescing.class.getName());
+
+        suite.addTest(new TestCmsFlexCacheCoalescing("testStartRendering"));
+        suite.addTest(new TestCmsFlexCacheCoalescing("testWaitForRendering"));
+        suite.addTest(new TestCmsFlexCacheCoalescing("testWaitTimeout"));
+        suite.addTest(new TestCmsFlexCacheCoalescing("testOwnIncludeStack"));
+        suite.addTest(new TestCmsFlexCacheCoalescing("testMutualIncludes"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Creates the configuration for a test cache.<p>
+     *
+     * @param coalescingTimeout the coalescing timeout in milliseconds
+     *
+     * @return the configuration
+     */
+    static CmsFlexCacheConfiguration createConfiguration(String coalescingTimeout) {
+
+        CmsFlexCacheConfiguration configuration = new CmsFlexCacheConfiguration();
+        configuration.initialize("true", "false", "2000000", "1000000", "200000", "4000");
+        configuration.setCoalescingTimeout(coalescingTimeout);
+        return configuration;
+    }
+
+    /**
+     * Waits until the given number of requests has started waiting for a rendering.<p>
+     *
+     * @param cache the cache
+     * @param waits the expected number of waiting requests
+     *
+     * @throws Exception if something goes wrong
+     */
+    private static void waitForWaits(CmsFlexCache cache, long waits) throws Exception {
+
+        long end = System.currentTimeMillis() + 10000;
+        while (cache.getCoalescedWaitCount() < waits) {
+            assertTrue("Request did not start waiting", System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Tests that two requests including each other's variations do not wait for each other.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testMutualIncludes() throws Exception {
+
+        CmsTestFlexCache cache = new CmsTestFlexCache(LONG_TIMEOUT);
+        CmsFlexRenderingStack stackA = new CmsFlexRenderingStack();
+        CmsFlexRenderingStack stackB = new CmsFlexRenderingStack();
+        assertTrue(cache.startRendering("x", stackA));
+        assertTrue(cache.startRendering("y", stackB));
+
+        // request B includes x, rendered by request A
+        CmsWaitingThread waiting = new CmsWaitingThread(cache, "x", stackB);
+        waiting.start();
+        waitForWaits(cache, 1);
+
+        // request A includes y, rendered by request B which waits for request A
+        long start = System.currentTimeMillis();
+        assertNull(cache.waitForRendering("y", null, stackA));
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertEquals(1, cache.getCoalescedWaitCount());
+        assertNull(stackA.getWaitingFor());
+
+        cache.finishRendering("x");
+        waiting.join(10000);
+        assertSame(cache.m_entry, waiting.getResult());
+        cache.finishRendering("y");
+        assertEquals(1, cache.getCoalescedHitCount());
+        assertEquals(0, cache.getCoalescedTimeoutCount());
+    }
+
+    /**
+     * Tests that a request never waits for a variation on its own include stack, but does wait for others.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testOwnIncludeStack() throws Exception {
+
+        CmsTestFlexCache cache = new CmsTestFlexCache("50");
+        CmsFlexRenderingStack stack = new CmsFlexRenderingStack();
+        CmsFlexRenderingStack other = new CmsFlexRenderingStack();
+        assertTrue(cache.startRendering("outer", stack));
+        assertTrue(cache.startRendering("inner", other));
+
+        // the resource includes itself
+        assertNull(cache.waitForRendering("outer", null, stack));
+        assertEquals(0, cache.getCoalescedWaitCount());
+
+        // a variation rendered by another request is waited for, even while rendering another variation
+        assertNull(cache.waitForRendering("inner", null, stack));
+        assertEquals(1, cache.getCoalescedWaitCount());
+        assertEquals(1, cache.getCoalescedTimeoutCount());
+
+        cache.finishRendering("inner");
+        cache.finishRendering("outer");
+        assertFalse(stack.contains("outer"));
+    }
+
+    /**
+     * Tests that only one request at a time renders a variation.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testStartRendering() throws Exception {
+
+        CmsTestFlexCache cache = new CmsTestFlexCache(LONG_TIMEOUT);
+        assertTrue(cache.isRequestCoalescingEnabled());
+        CmsFlexRenderingStack stackA = new CmsFlexRenderingStack();
+        CmsFlexRenderingStack stackB = new CmsFlexRenderingStack();
+
+        assertTrue(cache.startRendering("key", stackA));
+        assertTrue(stackA.contains("key"));
+        assertFalse(cache.startRendering("key", stackB));
+        assertFalse(stackB.contains("key"));
+        assertTrue(cache.startRendering("other", stackB));
+
+        cache.finishRendering("key");
+        assertFalse(stackA.contains("key"));
+        assertTrue(cache.startRendering("key", stackB));
+        assertTrue(stackB.contains("key"));
+        cache.finishRendering("key");
+        cache.finishRendering("other");
+        assertFalse(stackB.contains("other"));
+
+        // nobody is rendering the variation, so the lookup is done without waiting
+        assertSame(cache.m_entry, cache.waitForRendering("key", null, stackA));
+        assertEquals(0, cache.getCoalescedWaitCount());
+        assertEquals(0, cache.getCoalescedHitCount());
+    }
+
+    /**
+     * Tests that a request waits for a concurrent request rendering the same variation.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testWaitForRendering() throws Exception {
+
+        CmsTestFlexCache cache = new CmsTestFlexCache(LONG_TIMEOUT);
+        CmsFlexRenderingStack stackA = new CmsFlexRenderingStack();
+        CmsFlexRenderingStack stackB = new CmsFlexRenderingStack();
+        assertTrue(cache.startRendering("key", stackA));
+
+        CmsWaitingThread waiting = new CmsWaitingThread(cache, "key", stackB);
+        waiting.start();
+        waitForWaits(cache, 1);
+        assertEquals("key", stackB.getWaitingFor());
+        assertTrue(waiting.isAlive());
+
+        cache.finishRendering("key");
+        waiting.join(10000);
+        assertFalse(waiting.isAlive());
+        assertSame(cache.m_entry, waiting.getResult());
+        assertNull(stackB.getWaitingFor());
+        assertEquals(1, cache.getCoalescedWaitCount());
+        assertEquals(1, cache.getCoalescedHitCount());
+        assertEquals(0, cache.getCoalescedTimeoutCount());
+    }
+
+    /**
+     * Tests that a request renders the variation itself if the concurrent request does not finish in time.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testWaitTimeout() throws Exception {
+
+        CmsTestFlexCache cache = new CmsTestFlexCache("50");
+        CmsFlexRenderingStack stackA = new CmsFlexRenderingStack();
+        CmsFlexRenderingStack stackB = new CmsFlexRenderingStack();
+        assertTrue(cache.startRendering("key", stackA));
+
+        long start = System.currentTimeMillis();
+        assertNull(cache.waitForRendering("key", null, stackB));
+        assertTrue(System.currentTimeMillis() - start >= 50);
+        assertNull(stackB.getWaitingFor());
+        assertEquals(1, cache.getCoalescedWaitCount());
+        assertEquals(1, cache.getCoalescedTimeoutCount());
+        assertEquals(0, cache.getCoalescedHitCount());
+
+        cache.finishRendering("key");
+    }
+}
@@ -34,6 +34,29 @@ import org.opencms.test.OpenCmsTestCase;
  */
 public class TestCmsFlexCacheEntry extends OpenCmsTestCase {
 
+    /**
+     * Tests marking an entry as stale and claiming its revalidation.<p>
+     */
+    public void testMarkStale() {
+
+        CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+        assertFalse(entry.isStale());
+        assertEquals(0, entry.getDateStaleUntil());
+
+        entry.markStale(2000);
+        assertTrue(entry.isStale());
+        // a later publish must not extend the staleness
+        entry.markStale(3000);
+        assertEquals(2000, entry.getDateStaleUntil());
+        entry.markStale(1000);
+        assertEquals(1000, entry.getDateStaleUntil());
+
+        assertTrue(entry.tryStartRevalidation());
+        assertFalse(entry.tryStartRevalidation());
+        entry.finishRevalidation();
+        assertTrue(entry.tryStartRevalidation());
+    }
+
     /**
      * Tests the method getAbsoluteUri.<p>
      */
@@ -0,0 +1,353 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.jsp;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.db.CmsResourceState;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.CmsException;
+import org.opencms.main.OpenCms;
+import org.opencms.security.I_CmsPrincipal;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests for the online navigation cache and its use by the {@link CmsJspNavBuilder}.<p>
+ */
+public class TestCmsJspNavCache extends OpenCmsTestCase {
+
+    /** The root path of the test site. */
+    private static final String SITE_ROOT = "/sites/default";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsJspNavCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsJspNavCache.class.getName());
+
+        suite.addTest(new TestCmsJspNavCache("testParentAndGrandParentRemoval"));
+        suite.addTest(new TestCmsJspNavCache("testSubtreeRemoval"));
+        suite.addTest(new TestCmsJspNavCache("testSiblingRemoval"));
+        suite.addTest(new TestCmsJspNavCache("testPermissionFiltering"));
+        suite.addTest(new TestCmsJspNavCache("testVfsFallback"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that publishing a resource removes its parent and grandparent folder from the cache.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testParentAndGrandParentRemoval() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the removal of the parent folders of published resources from the navigation cache");
+        cms.createResource("/navcache1/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache1/a/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache1/a/b/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache1/a/b/page.txt", CmsResourceTypePlain.getStaticTypeId());
+        publish(cms, "/navcache1/");
+
+        CmsJspNavCache cache = CmsJspNavCache.getInstance();
+        String root = SITE_ROOT + "/navcache1/";
+        List<String> folders = Arrays.asList(SITE_ROOT + "/", root, root + "a/", root + "a/b/");
+        for (String folder : folders) {
+            cache.getEntries(folder);
+            assertTrue(cache.isCached(folder));
+        }
+
+        CmsResource page = getOnlineCms(cms).readResource("/navcache1/a/b/page.txt");
+        cache.uncachePublishedResources(
+            Collections.singletonList(new CmsPublishedResource(page, -1, CmsResource.STATE_CHANGED)));
+        assertFalse(cache.isCached(root + "a/b/"));
+        assertFalse(cache.isCached(root + "a/"));
+        assertTrue(cache.isCached(root));
+        assertTrue(cache.isCached(SITE_ROOT + "/"));
+    }
+
+    /**
+     * Tests that the navigation is filtered by the permissions of the current user, although the cache is shared.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testPermissionFiltering() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the permission filtering of cached navigation entries");
+        cms.createUser("navUser", "secret", "", null);
+        cms.addUserToGroup("navUser", OpenCms.getDefaultUsers().getGroupUsers());
+        cms.createResource("/navcache4/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache4/public.txt", CmsResourceTypePlain.getStaticTypeId());
+        cms.createResource("/navcache4/secret.txt", CmsResourceTypePlain.getStaticTypeId());
+        cms.chacc("/navcache4/secret.txt", I_CmsPrincipal.PRINCIPAL_USER, "navUser", "-r");
+        publish(cms, "/navcache4/");
+
+        CmsObject userCms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserGuest());
+        userCms.loginUser("navUser", "secret");
+        userCms.getRequestContext().setCurrentProject(userCms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        userCms.getRequestContext().setSiteRoot(SITE_ROOT + "/");
+
+        // the user reads the folder first, so the cached entries must not depend on the first reader
+        assertEquals(Collections.singletonList("/navcache4/public.txt"), getNavigation(userCms, "/navcache4/"));
+        assertTrue(CmsJspNavCache.getInstance().isCached(SITE_ROOT + "/navcache4/"));
+        assertEquals(
+            Arrays.asList("/navcache4/public.txt", "/navcache4/secret.txt"),
+            getNavigation(getOnlineCms(cms), "/navcache4/"));
+        assertEquals(Collections.singletonList("/navcache4/public.txt"), getNavigation(userCms, "/navcache4/"));
+
+        CmsJspNavBuilder builder = new CmsJspNavBuilder(userCms);
+        assertNull(builder.getNavigationForResource("/navcache4/secret.txt"));
+        assertNotNull(builder.getNavigationForResource("/navcache4/public.txt"));
+    }
+
+    /**
+     * Tests that publishing a sibling removes the folders of the other siblings, since they share the resource
+     * properties.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSiblingRemoval() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the removal of the folders of siblings from the navigation cache");
+        cms.createResource("/navcache3/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache3/a/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache3/b/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache3/a/page.txt", CmsResourceTypePlain.getStaticTypeId());
+        cms.writePropertyObject(
+            "/navcache3/a/page.txt",
+            new CmsProperty(CmsPropertyDefinition.PROPERTY_NAVTEXT, null, "old"));
+        cms.createSibling("/navcache3/a/page.txt", "/navcache3/b/page.txt", null);
+        publish(cms, "/navcache3/");
+
+        CmsObject onlineCms = getOnlineCms(cms);
+        CmsJspNavBuilder builder = new CmsJspNavBuilder(onlineCms);
+        assertEquals("old", builder.getNavigationForResource("/navcache3/b/page.txt").getNavText());
+        assertTrue(CmsJspNavCache.getInstance().isCached(SITE_ROOT + "/navcache3/b/"));
+
+        // change the shared resource property and publish only one sibling
+        cms.lockResource("/navcache3/a/page.txt");
+        cms.writePropertyObject(
+            "/navcache3/a/page.txt",
+            new CmsProperty(CmsPropertyDefinition.PROPERTY_NAVTEXT, null, "new"));
+        publish(cms, "/navcache3/a/page.txt");
+
+        assertFalse(CmsJspNavCache.getInstance().isCached(SITE_ROOT + "/navcache3/b/"));
+        assertEquals("new", builder.getNavigationForResource("/navcache3/b/page.txt").getNavText());
+    }
+
+    /**
+     * Tests that publishing a new or deleted folder removes the cached folders below it.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSubtreeRemoval() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the removal of the sub-folders of new and deleted folders from the navigation cache");
+        cms.createResource("/navcache2/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache2/folder/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache2/folder/sub/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache2/folder/sub/deep/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        publish(cms, "/navcache2/");
+
+        CmsJspNavCache cache = CmsJspNavCache.getInstance();
+        CmsResource folder = getOnlineCms(cms).readResource("/navcache2/folder/");
+        String root = SITE_ROOT + "/navcache2/folder/";
+        List<String> subFolders = Arrays.asList(root + "sub/", root + "sub/deep/");
+
+        // a changed folder only removes its parent folders
+        cacheFolders(cache, subFolders);
+        cache.uncachePublishedResources(
+            Collections.singletonList(new CmsPublishedResource(folder, -1, CmsResource.STATE_CHANGED)));
+        for (String subFolder : subFolders) {
+            assertTrue(cache.isCached(subFolder));
+        }
+
+        // new and deleted folders remove the whole sub-tree
+        for (CmsResourceState state : Arrays.asList(CmsResource.STATE_NEW, CmsResource.STATE_DELETED)) {
+            cacheFolders(cache, subFolders);
+            cache.uncachePublishedResources(
+                Collections.singletonList(new CmsPublishedResource(folder, -1, state)));
+            for (String subFolder : subFolders) {
+                assertFalse(cache.isCached(subFolder));
+            }
+        }
+    }
+
+    /**
+     * Tests that the navigation builder reads the VFS in the offline project, with other resource filters and
+     * for folders that can not be cached.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testVfsFallback() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the navigation without the navigation cache");
+        cms.createResource("/navcache5/", CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        cms.createResource("/navcache5/page1.txt", CmsResourceTypePlain.getStaticTypeId());
+        publish(cms, "/navcache5/");
+        cms.createResource("/navcache5/page2.txt", CmsResourceTypePlain.getStaticTypeId());
+
+        CmsJspNavCache cache = CmsJspNavCache.getInstance();
+        String root = SITE_ROOT + "/navcache5/";
+        assertEquals(Arrays.asList("/navcache5/page1.txt", "/navcache5/page2.txt"), getNavigation(cms, "/navcache5/"));
+        assertFalse(cache.isCached(root));
+
+        CmsObject onlineCms = getOnlineCms(cms);
+        List<CmsJspNavElement> elements = new CmsJspNavBuilder(onlineCms).getNavigationForFolder(
+            "/navcache5/",
+            CmsJspNavBuilder.Visibility.all,
+            CmsResourceFilter.ALL);
+        assertEquals(1, elements.size());
+        assertFalse(cache.isCached(root));
+
+        assertEquals(Collections.singletonList("/navcache5/page1.txt"), getNavigation(onlineCms, "/navcache5/"));
+        assertTrue(cache.isCached(root));
+
+        // a folder that can not be read is not cached
+        assertTrue(getNavigation(onlineCms, "/navcache5/missing/").isEmpty());
+        assertFalse(cache.isCached(root + "missing/"));
+    }
+
+    /**
+     * Reads the given folders into the navigation cache.<p>
+     *
+     * @param cache the navigation cache
+     * @param folders the root paths of the folders
+     *
+     * @throws CmsException if reading a folder fails
+     */
+    private void cacheFolders(CmsJspNavCache cache, List<String> folders) throws CmsException {
+
+        for (String folder : folders) {
+            cache.getEntries(folder);
+            assertTrue(cache.isCached(folder));
+        }
+    }
+
+    /**
+     * Returns the sorted site paths of all navigation elements in the given folder.<p>
+     *
+     * @param cms the CMS context
+     * @param folder the site path of the folder
+     *
+     * @return the site paths of the navigation elements
+     */
+    private List<String> getNavigation(CmsObject cms, String folder) {
+
+        List<String> result = new ArrayList<String>();
+        for (CmsJspNavElement element : new CmsJspNavBuilder(cms).getNavigationForFolder(
+            folder,
+            CmsJspNavBuilder.Visibility.all,
+            CmsResourceFilter.DEFAULT)) {
+            result.add(element.getSitePath());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns a copy of the given CMS context in the online project.<p>
+     *
+     * @param cms the CMS context
+     *
+     * @return the copy in the online project
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private CmsObject getOnlineCms(CmsObject cms) throws CmsException {
+
+        CmsObject onlineCms = OpenCms.initCmsObject(cms);
+        onlineCms.getRequestContext().setCurrentProject(onlineCms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        return onlineCms;
+    }
+
+    /**
+     * Publishes the given resource and waits until publishing has finished.<p>
+     *
+     * @param cms the CMS context
+     * @param resourceName the site path of the resource
+     *
+     * @throws Exception if publishing fails
+     */
+    private void publish(CmsObject cms, String resourceName) throws Exception {
+
+        OpenCms.getPublishManager().publishResource(cms, resourceName);
+        OpenCms.getPublishManager().waitWhileRunning();
+    }
+}
@@ -57,8 +57,13 @@ public final class AllTests {
         TestSuite suite = new TestSuite("Tests for package " + AllTests.class.getPackage().getName());
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
+        suite.addTest(new TestSuite(TestCmsByteRange.class));
         suite.addTest(new TestSuite(TestCmsImageScaler.class));
         suite.addTest(new TestSuite(TestCmsDefaultFileNameGenerator.class));
+        suite.addTest(new TestSuite(TestCmsImageScalingExecutor.class));
+        suite.addTest(TestCmsImagePregenerator.suite());
+        suite.addTest(new TestSuite(TestCmsJspDependencyGraph.class));
+        suite.addTest(TestCmsJspRepository.suite());
         //$JUnit-END$
         return suite;
     }
@@ -0,0 +1,95 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.loader;
+
+import org.opencms.test.OpenCmsTestCase;
+
+/**
+ * Tests the parsing of HTTP byte ranges.<p>
+ */
+public class TestCmsByteRange extends OpenCmsTestCase {
+
+    /**
+     * Tests that malformed and unsupported ranges are ignored.<p>
+     */
+    public void testIgnoredRanges() {
+
+        assertNull(CmsByteRange.parse(null, 100));
+        assertNull(CmsByteRange.parse("items=0-10", 100));
+        assertNull(CmsByteRange.parse("bytes=0-10,20-30", 100));
+        assertNull(CmsByteRange.parse("bytes=abc", 100));
+        assertNull(CmsByteRange.parse("bytes=x-10", 100));
+        assertNull(CmsByteRange.parse("bytes=20-10", 100));
+    }
+
+    /**
+     * Tests simple ranges.<p>
+     */
+    public void testRanges() {
+
+        CmsByteRange range = CmsByteRange.parse("bytes=0-9", 100);
+        assertTrue(range.isSatisfiable());
+        assertEquals(0, range.getStart());
+        assertEquals(9, range.getEnd());
+        assertEquals(10, range.getLength());
+        assertEquals("bytes 0-9/100", range.getContentRange());
+
+        // open ranges and ranges beyond the end are limited to the content length
+        range = CmsByteRange.parse("bytes=90-", 100);
+        assertEquals(10, range.getLength());
+        assertEquals("bytes 90-99/100", range.getContentRange());
+        range = CmsByteRange.parse("bytes=50-500", 100);
+        assertEquals(99, range.getEnd());
+    }
+
+    /**
+     * Tests suffix ranges.<p>
+     */
+    public void testSuffixRanges() {
+
+        CmsByteRange range = CmsByteRange.parse("bytes=-10", 100);
+        assertEquals(90, range.getStart());
+        assertEquals(99, range.getEnd());
+        range = CmsByteRange.parse("bytes=-500", 100);
+        assertEquals(0, range.getStart());
+        assertEquals(100, range.getLength());
+        assertFalse(CmsByteRange.parse("bytes=-0", 100).isSatisfiable());
+    }
+
+    /**
+     * Tests ranges which can not be satisfied.<p>
+     */
+    public void testUnsatisfiableRanges() {
+
+        CmsByteRange range = CmsByteRange.parse("bytes=100-200", 100);
+        assertFalse(range.isSatisfiable());
+        assertEquals("bytes */100", range.getContentRange());
+        assertFalse(CmsByteRange.parse("bytes=0-", 0).isSatisfiable());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeImage;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsStringBufferReport;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the pre-generation of scaled image variants after publishing.<p>
+ */
+public class TestCmsImagePregenerator extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsImagePregenerator(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsImagePregenerator.class.getName());
+
+        suite.addTest(new TestCmsImagePregenerator("testPublishReport"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Fires a publish event for the pre-generator with the given report.<p>
+     *
+     * @param pregenerator the pre-generator
+     * @param publishId the publish history id
+     * @param report the publish report
+     */
+    private static void firePublishEvent(
+        CmsImagePregenerator pregenerator,
+        CmsUUID publishId,
+        CmsStringBufferReport report) {
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put(I_CmsEventListener.KEY_PUBLISHID, publishId.toString());
+        data.put(I_CmsEventListener.KEY_REPORT, report);
+        pregenerator.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, data));
+    }
+
+    /**
+     * Tests that the lines for the published images are written to the publish report of the event.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testPublishReport() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the publish report of the image pre-generation");
+
+        String path = "/pregenerate.jpg";
+        String rootPath = cms.getRequestContext().addSiteRoot(path);
+        byte[] content = CmsFileUtil.readFile("org/opencms/loader/img_01.jpg");
+        cms.createResource(path, CmsResourceTypeImage.getStaticTypeId(), content, null);
+        cms.unlockResource(path);
+        CmsUUID publishId = OpenCms.getPublishManager().publishResource(cms, path);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        CmsImageLoader loader = (CmsImageLoader)OpenCms.getResourceManager().getLoader(
+            CmsImageLoader.RESOURCE_LOADER_ID_IMAGE_LOADER);
+        CmsImagePregenerator pregenerator = new CmsImagePregenerator(loader, false);
+        pregenerator.addConfiguredVariants("", "w:20,h:15");
+        pregenerator.initialize(cms);
+        try {
+            // the lines are written before the event has been handled
+            CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+            firePublishEvent(pregenerator, publishId, report);
+            String output = report.toString();
+            assertTrue(output, output.contains(rootPath));
+            assertTrue(
+                output,
+                output.contains(
+                    Messages.get().getBundle(Locale.ENGLISH).key(Messages.RPT_IMAGE_PREGENERATION_BEGIN_0)));
+            assertTrue(
+                output,
+                output.contains(
+                    Messages.get().getBundle(Locale.ENGLISH).key(
+                        Messages.RPT_IMAGE_PREGENERATION_END_1,
+                        Integer.valueOf(1))));
+
+            // the variants of a deleted image are removed, nothing is scheduled
+            cms.lockResource(path);
+            cms.deleteResource(path, CmsResource.DELETE_PRESERVE_SIBLINGS);
+            cms.unlockResource(path);
+            publishId = OpenCms.getPublishManager().publishResource(cms, path);
+            OpenCms.getPublishManager().waitWhileRunning();
+            report = new CmsStringBufferReport(Locale.ENGLISH);
+            firePublishEvent(pregenerator, publishId, report);
+            output = report.toString();
+            assertTrue(output, output.contains(rootPath));
+            assertTrue(
+                output,
+                output.contains(
+                    Messages.get().getBundle(Locale.ENGLISH).key(
+                        Messages.RPT_IMAGE_PREGENERATION_END_1,
+                        Integer.valueOf(0))));
+        } finally {
+            pregenerator.shutDown();
+        }
+    }
+}
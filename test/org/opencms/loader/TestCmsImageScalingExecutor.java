@@ -0,0 +1,140 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.loader;
+
+import org.opencms.test.OpenCmsTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the image scaling executor.<p>
+ */
+public class TestCmsImageScalingExecutor extends OpenCmsTestCase {
+
+    /**
+     * Tests that concurrent requests for the same image variant are scaled only once.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testCoalescing() throws Exception {
+
+        final CmsImageScalingExecutor executor = new CmsImageScalingExecutor(2, 10, 10000);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final byte[][] results = new byte[5][];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    results[index] = executor.scale("image.jpg", () -> {
+                        calls.incrementAndGet();
+                        started.countDown();
+                        release.await();
+                        return new byte[] {1, 2, 3};
+                    });
+                } catch (Exception e) {
+                    fail(e.getMessage());
+                }
+            });
+            threads[i].start();
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // wait until all other threads have joined the running operation
+        long end = System.currentTimeMillis() + 10000;
+        while ((executor.getCoalescedRequestCount() < (threads.length - 1)) && (System.currentTimeMillis() < end)) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, executor.getScaleCount());
+        assertEquals(threads.length - 1, executor.getCoalescedRequestCount());
+        for (byte[] result : results) {
+            assertEquals(3, result.length);
+        }
+        executor.shutDown();
+    }
+
+    /**
+     * Tests that requests are rejected if the queue is full.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testRejection() throws Exception {
+
+        final CmsImageScalingExecutor executor = new CmsImageScalingExecutor(1, 1, 10000);
+        final CountDownLatch release = new CountDownLatch(1);
+        // block the only worker thread and fill the queue
+        for (int i = 0; i < 2; i++) {
+            final String name = "image" + i + ".jpg";
+            new Thread(() -> {
+                try {
+                    executor.scale(name, () -> {
+                        release.await();
+                        return new byte[0];
+                    });
+                } catch (Exception e) {
+                    // ignore
+                }
+            }).start();
+        }
+        long end = System.currentTimeMillis() + 10000;
+        while ((executor.getQueueSize() < 1) && (System.currentTimeMillis() < end)) {
+            Thread.sleep(10);
+        }
+        assertNull(executor.scale("image2.jpg", () -> new byte[0]));
+        assertEquals(1, executor.getRejectedRequestCount());
+        release.countDown();
+        executor.shutDown();
+    }
+
+    /**
+     * Tests that the wait for a scaling operation times out.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testTimeout() throws Exception {
+
+        final CmsImageScalingExecutor executor = new CmsImageScalingExecutor(1, 1, 100);
+        final CountDownLatch release = new CountDownLatch(1);
+        assertNull(executor.scale("image.jpg", () -> {
+            release.await();
+            return new byte[0];
+        }));
+        assertEquals(1, executor.getTimeoutCount());
+        release.countDown();
+        executor.shutDown();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.test.OpenCmsTestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Tests the include dependency graph of the JSP loader.<p>
+ */
+public class TestCmsJspDependencyGraph extends OpenCmsTestCase {
+
+    /**
+     * Tests that the dependants of a file are resolved transitively.<p>
+     */
+    public void testDependants() {
+
+        CmsJspDependencyGraph graph = new CmsJspDependencyGraph();
+        graph.setIncludes("/a.jsp", Arrays.asList("/b.jsp", "/c.jsp"));
+        graph.setIncludes("/b.jsp", Collections.singletonList("/d.jsp"));
+        graph.setIncludes("/e.jsp", Collections.singletonList("/a.jsp"));
+
+        assertEquals(new HashSet<String>(Arrays.asList("/a.jsp", "/b.jsp", "/e.jsp")), graph.getDependants("/d.jsp"));
+        assertEquals(new HashSet<String>(Arrays.asList("/a.jsp", "/e.jsp")), graph.getDependants("/c.jsp"));
+        assertTrue(graph.getDependants("/e.jsp").isEmpty());
+
+        // cycles must not lead to endless loops, the file itself is never a dependant
+        graph.setIncludes("/d.jsp", Collections.singletonList("/e.jsp"));
+        assertFalse(graph.getDependants("/d.jsp").contains("/d.jsp"));
+        assertEquals(3, graph.getDependants("/d.jsp").size());
+    }
+
+    /**
+     * Tests replacing and removing the includes of a JSP.<p>
+     */
+    public void testReplaceAndRemove() {
+
+        CmsJspDependencyGraph graph = new CmsJspDependencyGraph();
+        assertFalse(graph.isModified());
+        graph.setIncludes("/a.jsp", Arrays.asList("/b.jsp", "/c.jsp"));
+        assertTrue(graph.isModified());
+        assertTrue(graph.contains("/a.jsp"));
+        assertFalse(graph.contains("/b.jsp"));
+
+        graph.setIncludes("/a.jsp", Collections.singletonList("/c.jsp"));
+        assertTrue(graph.getDependants("/b.jsp").isEmpty());
+        assertEquals(Collections.singleton("/c.jsp"), graph.getIncludes("/a.jsp"));
+
+        graph.remove("/a.jsp");
+        assertFalse(graph.contains("/a.jsp"));
+        assertTrue(graph.getDependants("/c.jsp").isEmpty());
+        assertTrue(graph.getIncludes("/a.jsp").isEmpty());
+        assertEquals(0, graph.size());
+    }
+
+    /**
+     * Tests writing the graph to a file and reading it again.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSaveAndLoad() throws Exception {
+
+        CmsJspDependencyGraph graph = new CmsJspDependencyGraph();
+        graph.setIncludes("/a.jsp", Arrays.asList("/b.jsp", "/c.jsp"));
+        graph.setIncludes("/b.jsp", Collections.<String> emptyList());
+
+        File file = File.createTempFile("opencms", ".dependencies");
+        try {
+            graph.save(file);
+            assertFalse(graph.isModified());
+
+            CmsJspDependencyGraph loaded = new CmsJspDependencyGraph();
+            loaded.load(file);
+            assertFalse(loaded.isModified());
+            assertEquals(2, loaded.size());
+            assertEquals(graph.getIncludes("/a.jsp"), loaded.getIncludes("/a.jsp"));
+            assertTrue(loaded.contains("/b.jsp"));
+            assertTrue(loaded.getIncludes("/b.jsp").isEmpty());
+            assertEquals(Collections.singleton("/a.jsp"), loaded.getDependants("/c.jsp"));
+        } finally {
+            file.delete();
+        }
+    }
+}
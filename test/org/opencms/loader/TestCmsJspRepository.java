@@ -0,0 +1,262 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypeJsp;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.File;
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequest;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests writing online JSPs to the JSP repository without a request and removing them after publishing.<p>
+ */
+public class TestCmsJspRepository extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsJspRepository(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsJspRepository.class.getName());
+
+        suite.addTest(new TestCmsJspRepository("testPrecompileJsp"));
+        suite.addTest(new TestCmsJspRepository("testInvalidateOnPublish"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that publishing an included file removes exactly the JSPs depending on it from the online repository.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testInvalidateOnPublish() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that publishing an include removes the JSPs depending on it from the online repository");
+
+        String include = createJsps(cms, "/invalidate/");
+        String page = "/invalidate/page.jsp";
+        String other = "/invalidate/other.jsp";
+        CmsJspLoader loader = getLoader();
+        CmsJspPrecompiler precompiler = new CmsJspPrecompiler(loader, Collections.<String> emptyList(), 1);
+        try {
+            CmsObject online = getOnlineCms(cms);
+            for (String path : new String[] {include, page, other}) {
+                assertTrue(path, precompiler.precompile(online, online.readResource(getRootPath(cms, path))));
+                assertOnlineJsp(loader, getRootPath(cms, path), true);
+            }
+        } finally {
+            precompiler.shutDown();
+        }
+
+        cms.lockResource(include);
+        CmsFile file = cms.readFile(include);
+        file.setContents("<%= request.getAttribute(\"changed\") %>".getBytes());
+        cms.writeFile(file);
+        cms.unlockResource(include);
+        OpenCms.getPublishManager().publishResource(cms, include);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        assertOnlineJsp(loader, getRootPath(cms, include), false);
+        assertOnlineJsp(loader, getRootPath(cms, page), false);
+        // the JSP that does not include the published file is kept
+        assertOnlineJsp(loader, getRootPath(cms, other), true);
+    }
+
+    /**
+     * Tests writing JSPs with the request of the pre-compiler, including a JSP that reads request attributes.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testPrecompileJsp() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing writing online JSPs with the request of the pre-compiler");
+
+        String include = createJsps(cms, "/precompile/");
+        String page = "/precompile/page.jsp";
+        CmsJspLoader loader = getLoader();
+        CmsJspPrecompiler precompiler = new CmsJspPrecompiler(loader, Collections.<String> emptyList(), 1);
+        try {
+            HttpServletRequest req = precompiler.createRequest();
+            assertEquals("GET", req.getMethod());
+            assertEquals(OpenCms.getSystemInfo().getDefaultEncoding(), req.getCharacterEncoding());
+            assertNotNull(req.getLocale());
+            assertNull(req.getParameter("title"));
+            assertFalse(req.getAttributeNames().hasMoreElements());
+            req.setAttribute("title", "Title");
+            assertEquals("Title", req.getAttribute("title"));
+            req.removeAttribute("title");
+            assertNull(req.getAttribute("title"));
+
+            CmsObject online = getOnlineCms(cms);
+            CmsResource resource = online.readResource(getRootPath(cms, page));
+            assertTrue(loader.precompileJsp(online, resource, req));
+            assertOnlineJsp(loader, getRootPath(cms, page), true);
+            assertOnlineJsp(loader, getRootPath(cms, include), true);
+            // the included JSP is up to date and written again only when it is published
+            assertTrue(precompiler.precompile(online, online.readResource(getRootPath(cms, include))));
+        } finally {
+            precompiler.shutDown();
+        }
+    }
+
+    /**
+     * Checks if a JSP is cached as up to date in the online JSP repository and written to it.<p>
+     *
+     * @param loader the JSP loader
+     * @param rootPath the root path of the JSP
+     * @param expected <code>true</code> if the JSP is expected in the online JSP repository
+     */
+    private void assertOnlineJsp(CmsJspLoader loader, String rootPath, boolean expected) {
+
+        assertEquals(rootPath, expected, loader.isOnlineJspCached(rootPath));
+        File file = new File(CmsFileUtil.getRepositoryName(loader.getJspRepository(), rootPath, true));
+        assertEquals(file.getAbsolutePath(), expected, file.exists());
+    }
+
+    /**
+     * Creates and publishes a folder with an included JSP that reads a request attribute,
+     * a JSP including it and another JSP.<p>
+     *
+     * @param cms the CMS context
+     * @param folder the site path of the folder, with a trailing separator
+     *
+     * @return the site path of the included JSP
+     *
+     * @throws Exception if something goes wrong
+     */
+    private String createJsps(CmsObject cms, String folder) throws Exception {
+
+        String include = folder + "include.jsp";
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(
+            include,
+            CmsResourceTypeJsp.getJSPTypeId(),
+            "<%= request.getAttribute(\"title\") %>".getBytes(),
+            null);
+        cms.createResource(
+            folder + "page.jsp",
+            CmsResourceTypeJsp.getJSPTypeId(),
+            ("<%@ include file=\"" + getRootPath(cms, include) + "\" %>").getBytes(),
+            null);
+        cms.createResource(folder + "other.jsp", CmsResourceTypeJsp.getJSPTypeId(), "other".getBytes(), null);
+        cms.unlockResource(folder);
+        OpenCms.getPublishManager().publishResource(cms, folder);
+        OpenCms.getPublishManager().waitWhileRunning();
+        return include;
+    }
+
+    /**
+     * Returns the JSP loader.<p>
+     *
+     * @return the JSP loader
+     *
+     * @throws Exception if something goes wrong
+     */
+    private CmsJspLoader getLoader() throws Exception {
+
+        return (CmsJspLoader)OpenCms.getResourceManager().getLoader(CmsJspLoader.RESOURCE_LOADER_ID);
+    }
+
+    /**
+     * Returns a CMS context for the online project and the root site, like the one used by the pre-compiler.<p>
+     *
+     * @param cms the CMS context
+     *
+     * @return a CMS context for the online project and the root site
+     *
+     * @throws Exception if something goes wrong
+     */
+    private CmsObject getOnlineCms(CmsObject cms) throws Exception {
+
+        CmsObject online = OpenCms.initCmsObject(cms);
+        online.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        online.getRequestContext().setSiteRoot("");
+        return online;
+    }
+
+    /**
+     * Returns the root path for a site path of the test site.<p>
+     *
+     * @param cms the CMS context
+     * @param sitePath the site path
+     *
+     * @return the root path
+     */
+    private String getRootPath(CmsObject cms, String sitePath) {
+
+        return cms.getRequestContext().addSiteRoot(sitePath);
+    }
+}
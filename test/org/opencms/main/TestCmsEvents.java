@@ -32,6 +32,14 @@ import org.opencms.file.CmsProject;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -41,6 +49,41 @@ import junit.framework.TestSuite;
  */
 public class TestCmsEvents extends OpenCmsTestCase {
 
+    /**
+     * Asynchronous test listener that waits with the first event until it is released.<p>
+     */
+    protected static class CmsTestAsyncListener implements I_CmsAsyncEventListener {
+
+        /** The received events. */
+        protected List<CmsEvent> m_events = Collections.synchronizedList(new ArrayList<CmsEvent>());
+
+        /** The latch to release the first event. */
+        protected CountDownLatch m_release = new CountDownLatch(1);
+
+        /** The latch that is counted down when the first event is handled. */
+        protected CountDownLatch m_started = new CountDownLatch(1);
+
+        /**
+         * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+         */
+        public void cmsEvent(CmsEvent event) {
+
+            m_started.countDown();
+            try {
+                m_release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            m_events.add(event);
+        }
+    }
+
+    /** Event type for the asynchronous test events with data. */
+    private static final int EVENT_ASYNC_DATA = 9001;
+
+    /** Event type for the asynchronous test events without data. */
+    private static final int EVENT_ASYNC_EMPTY = 9002;
+
     /**
      * Default JUnit constructor.<p>
      *
@@ -64,6 +107,7 @@ public class TestCmsEvents extends OpenCmsTestCase {
         suite.setName(TestCmsEvents.class.getName());
 
         suite.addTest(new TestCmsEvents("testBeforeAfterPublishEvent"));
+        suite.addTest(new TestCmsEvents("testAsyncEvents"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -83,6 +127,59 @@ public class TestCmsEvents extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Tests the order and the coalescing of events for an asynchronous listener.<p>
+     *
+     * @throws Throwable if the test fails
+     */
+    public void testAsyncEvents() throws Throwable {
+
+        echo("Testing events for an asynchronous listener");
+
+        CmsTestAsyncListener listener = new CmsTestAsyncListener();
+        OpenCms.addCmsEventListener(listener, new int[] {EVENT_ASYNC_DATA, EVENT_ASYNC_EMPTY});
+        try {
+            Map<String, Object> data = new HashMap<String, Object>();
+            data.put("count", Integer.valueOf(1));
+            OpenCms.fireCmsEvent(EVENT_ASYNC_DATA, data);
+            // the listener waits with the first event, so firing does not block
+            assertTrue(listener.m_started.await(10, TimeUnit.SECONDS));
+            assertTrue(listener.m_events.isEmpty());
+
+            OpenCms.fireCmsEvent(EVENT_ASYNC_EMPTY, null);
+            OpenCms.fireCmsEvent(EVENT_ASYNC_EMPTY, null);
+            data = new HashMap<String, Object>();
+            data.put("count", Integer.valueOf(2));
+            OpenCms.fireCmsEvent(EVENT_ASYNC_DATA, data);
+
+            CmsAsyncEventDispatcher dispatcher = null;
+            for (CmsAsyncEventDispatcher d : OpenCms.getEventManager().getAsyncDispatchers()) {
+                if (d.getListener() == listener) {
+                    dispatcher = d;
+                }
+            }
+            assertNotNull(dispatcher);
+            assertEquals(2, dispatcher.getQueueSize());
+            assertEquals(1, dispatcher.getCoalescedCount());
+
+            listener.m_release.countDown();
+            long timeout = System.currentTimeMillis() + 10000;
+            while ((dispatcher.getHandledCount() < 3) && (System.currentTimeMillis() < timeout)) {
+                Thread.sleep(10);
+            }
+            echo(dispatcher.toString());
+            assertEquals(3, listener.m_events.size());
+            assertEquals(EVENT_ASYNC_DATA, listener.m_events.get(0).getType());
+            assertEquals(Integer.valueOf(1), listener.m_events.get(0).getData().get("count"));
+            assertEquals(EVENT_ASYNC_EMPTY, listener.m_events.get(1).getType());
+            assertEquals(EVENT_ASYNC_DATA, listener.m_events.get(2).getType());
+            assertEquals(Integer.valueOf(2), listener.m_events.get(2).getData().get("count"));
+        } finally {
+            listener.m_release.countDown();
+            OpenCms.removeCmsEventListener(listener);
+        }
+    }
+
     /**
      * Test the before and after publish event.<p>
      *
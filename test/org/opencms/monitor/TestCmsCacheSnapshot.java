@@ -0,0 +1,246 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import org.opencms.db.CmsTypedCacheKey;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsResource;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests for writing, reading and loading the cache snapshot file.<p>
+ */
+public class TestCmsCacheSnapshot extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsCacheSnapshot(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsCacheSnapshot.class.getName());
+
+        suite.addTest(new TestCmsCacheSnapshot("testInvalidLines"));
+        suite.addTest(new TestCmsCacheSnapshot("testMaxEntries"));
+        suite.addTest(new TestCmsCacheSnapshot("testWriteAndRead"));
+        suite.addTest(new TestCmsCacheSnapshot("testLoad"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that lines which can not be parsed are skipped.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testInvalidLines() throws Exception {
+
+        File file = File.createTempFile("snapshot", ".txt");
+        try {
+            CmsUUID id = new CmsUUID();
+            CmsUUID pathId = new CmsUUID();
+            Files.write(
+                file.toPath(),
+                Arrays.asList(
+                    "R invalid",
+                    "R " + id,
+                    "RP invalid",
+                    "RP " + pathId,
+                    "X /sites/default/",
+                    "P ",
+                    "P /sites/default/index.html"),
+                StandardCharsets.UTF_8);
+            CmsCacheSnapshot snapshot = new CmsCacheSnapshot(file, 3600, 100, 10);
+            List<CmsUUID> ids = new ArrayList<CmsUUID>();
+            List<CmsUUID> pathIds = new ArrayList<CmsUUID>();
+            List<String> paths = new ArrayList<String>();
+            snapshot.read(ids, pathIds, paths);
+            assertEquals(Collections.singletonList(id), ids);
+            assertEquals(Collections.singletonList(pathId), pathIds);
+            assertEquals(Collections.singletonList("/sites/default/index.html"), paths);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests that loading the snapshot fills the resource caches by id and by path and the property list cache.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testLoad() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        CmsResource file = cms.readResource("/index.html");
+        CmsResource folder = cms.readResource("/folder1/");
+        File snapshotFile = File.createTempFile("snapshot", ".txt");
+        try {
+            CmsCacheSnapshot snapshot = new CmsCacheSnapshot(snapshotFile, 3600, 100, 60);
+            snapshot.write(
+                Collections.singletonList(file.getStructureId()),
+                Collections.singletonList(folder.getStructureId()),
+                Arrays.asList(file.getRootPath(), folder.getRootPath()));
+
+            CmsMemoryMonitor monitor = OpenCms.getMemoryMonitor();
+            monitor.flushResources();
+            monitor.flushPropertyLists();
+            CmsTypedCacheKey idKey = new CmsTypedCacheKey(
+                CmsTypedCacheKey.TYPE_RESOURCE_ID,
+                true,
+                0,
+                null,
+                file.getStructureId(),
+                null);
+            CmsTypedCacheKey pathKey = new CmsTypedCacheKey(CmsTypedCacheKey.TYPE_RESOURCE, true, folder.getRootPath());
+            CmsTypedCacheKey propertiesKey = new CmsTypedCacheKey(
+                CmsTypedCacheKey.TYPE_PROPERTY_LIST,
+                true,
+                file.getRootPath());
+            assertNull(monitor.getCachedResource(idKey));
+            assertNull(monitor.getCachedResource(pathKey));
+            assertNull(monitor.getCachedPropertyList(propertiesKey));
+
+            assertEquals(4, snapshot.load(cms));
+            assertEquals(file.getRootPath(), monitor.getCachedResource(idKey).getRootPath());
+            assertEquals(folder.getStructureId(), monitor.getCachedResource(pathKey).getStructureId());
+            List<CmsProperty> properties = monitor.getCachedPropertyList(propertiesKey);
+            assertNotNull(properties);
+            assertNotNull(
+                monitor.getCachedPropertyList(
+                    new CmsTypedCacheKey(CmsTypedCacheKey.TYPE_PROPERTY_LIST, true, folder.getRootPath())));
+
+            // the loaded property list is the one read in the online project
+            CmsObject onlineCms = OpenCms.initCmsObject(cms);
+            onlineCms.getRequestContext().setCurrentProject(onlineCms.readProject(CmsProject.ONLINE_PROJECT_ID));
+            assertEquals(onlineCms.readPropertyObjects("/index.html", false), properties);
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
+    /**
+     * Tests that the snapshot contains at most the configured number of keys, taken from the lists in turn.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testMaxEntries() throws Exception {
+
+        File file = File.createTempFile("snapshot", ".txt");
+        try {
+            CmsCacheSnapshot snapshot = new CmsCacheSnapshot(file, 3600, 4, 10);
+            List<CmsUUID> ids = Arrays.asList(new CmsUUID(), new CmsUUID(), new CmsUUID());
+            List<CmsUUID> pathIds = Collections.singletonList(new CmsUUID());
+            snapshot.write(ids, pathIds, Arrays.asList("/a", "/b"));
+            List<CmsUUID> readIds = new ArrayList<CmsUUID>();
+            List<CmsUUID> readPathIds = new ArrayList<CmsUUID>();
+            List<String> readPaths = new ArrayList<String>();
+            snapshot.read(readIds, readPathIds, readPaths);
+            // the most recently used keys of each list are kept
+            assertEquals(ids.subList(0, 2), readIds);
+            assertEquals(pathIds, readPathIds);
+            assertEquals(Collections.singletonList("/a"), readPaths);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests that the written keys are read again in the same order.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testWriteAndRead() throws Exception {
+
+        File file = File.createTempFile("snapshot", ".txt");
+        try {
+            CmsCacheSnapshot snapshot = new CmsCacheSnapshot(file, 3600, 100, 10);
+            assertFalse(snapshot.isWriteDue());
+            List<CmsUUID> ids = Arrays.asList(new CmsUUID(), new CmsUUID(), new CmsUUID());
+            List<CmsUUID> pathIds = Arrays.asList(new CmsUUID(), new CmsUUID());
+            List<String> paths = Arrays.asList("/sites/default/", "/sites/default/a file with spaces.html");
+            snapshot.write(ids, pathIds, paths);
+            List<CmsUUID> readIds = new ArrayList<CmsUUID>();
+            List<CmsUUID> readPathIds = new ArrayList<CmsUUID>();
+            List<String> readPaths = new ArrayList<String>();
+            snapshot.read(readIds, readPathIds, readPaths);
+            assertEquals(ids, readIds);
+            assertEquals(pathIds, readPathIds);
+            assertEquals(paths, readPaths);
+            assertFalse(new File(file.getParentFile(), file.getName() + ".tmp").exists());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import org.opencms.test.OpenCmsTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the monitored caches of the memory monitor.<p>
+ */
+public class TestCmsMonitoredCache extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsMonitoredCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the entries are returned with the most recently used entries first.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testEntriesByRecency() throws Exception {
+
+        CmsMonitoredCache<String, String> cache = new CmsMonitoredCache<String, String>("test", 10, -1, 1);
+        // entries stored before the access times are recorded come last
+        cache.put("old", "value");
+        cache.recordAccessTimes();
+        cache.put("a", "value");
+        Thread.sleep(1);
+        cache.put("b", "value");
+        Thread.sleep(1);
+        cache.put("c", "value");
+        Thread.sleep(1);
+        assertEquals("value", cache.get("a"));
+        Thread.sleep(1);
+        // a miss is no access
+        assertNull(cache.get("b2"));
+        cache.remove("c");
+        assertEquals(Arrays.asList("a", "b", "old"), getKeys(cache.getEntriesByRecency()));
+
+        cache.clear();
+        assertTrue(cache.getEntriesByRecency().isEmpty());
+    }
+
+    /**
+     * Tests that a cache limited by the number of entries evicts the oldest entries.<p>
+     */
+    public void testEntryLimit() {
+
+        CmsMonitoredCache<String, String> cache = new CmsMonitoredCache<String, String>("test", 10, -1, 1);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(10, cache.size());
+        assertEquals(90, cache.getEvictionCount());
+        assertEquals(10, cache.getMaxSize());
+        assertEquals(-1, cache.getMaxWeight());
+        assertNotNull(cache.get("key99"));
+        assertNull(cache.get("key0"));
+    }
+
+    /**
+     * Tests the hit, miss and load counters.<p>
+     */
+    public void testStatistics() {
+
+        CmsMonitoredCache<String, String> cache = new CmsMonitoredCache<String, String>("test", 10, -1, 1);
+        assertNull(cache.get("a"));
+        cache.put("a", "value");
+        assertEquals("value", cache.get("a"));
+        assertEquals("value", cache.get("a"));
+        // not loaded after a miss
+        cache.put("b", "value");
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(2.0 / 3.0, cache.getHitRate(), 0.001);
+        assertEquals(2, cache.getSize());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(2, cache.getSize());
+    }
+
+    /**
+     * Tests that a cache limited by weight keeps the estimated size of its entries below the limit.<p>
+     */
+    public void testWeightLimit() {
+
+        CmsMonitoredCache<String, byte[]> cache = new CmsMonitoredCache<String, byte[]>("test", 10, 20000, 1);
+        int entrySize = CmsMonitoredCache.estimateSize("key100", new byte[1000]);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + (i + 100), new byte[1000]);
+        }
+        assertTrue(cache.getWeight() <= 20000);
+        assertEquals(cache.size() * entrySize, cache.getWeight());
+        assertEquals(100 - cache.size(), cache.getEvictionCount());
+        assertTrue(cache.size() > 10);
+
+        cache.clear();
+        assertEquals(0, cache.getWeight());
+        assertEquals(-1, cache.getMaxSize());
+        assertEquals(20000, cache.getMaxWeight());
+    }
+
+    /**
+     * Returns the keys of the given entries.<p>
+     *
+     * @param entries the entries
+     *
+     * @return the keys
+     */
+    private List<String> getKeys(List<Map.Entry<String, String>> entries) {
+
+        List<String> result = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : entries) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsResource;
+import org.opencms.report.I_CmsReport;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the pending tasks and the timeout handling of the indexing thread manager.<p>
+ */
+public class TestCmsIndexingThreadManager extends OpenCmsTestCase {
+
+    /**
+     * Indexer that records the resources written to the index.<p>
+     */
+    static class TestIndexer extends CmsVfsIndexer {
+
+        /** The root paths of the resources written to the index, in order. */
+        List<String> m_written = Collections.synchronizedList(new ArrayList<String>());
+
+        /**
+         * @see org.opencms.search.CmsVfsIndexer#deleteResource(org.opencms.search.I_CmsIndexWriter, org.opencms.db.CmsPublishedResource)
+         */
+        @Override
+        protected void deleteResource(I_CmsIndexWriter indexWriter, CmsPublishedResource resource) {
+
+            m_written.add(resource.getRootPath());
+        }
+
+        /**
+         * @see org.opencms.search.CmsVfsIndexer#updateResource(org.opencms.search.I_CmsIndexWriter, java.lang.String, org.opencms.search.I_CmsSearchDocument)
+         */
+        @Override
+        protected void updateResource(I_CmsIndexWriter indexWriter, String rootPath, I_CmsSearchDocument doc) {
+
+            m_written.add(rootPath);
+        }
+    }
+
+    /**
+     * Indexing thread that sleeps instead of extracting the content of the resource.<p>
+     */
+    static class TestIndexingThread extends CmsIndexingThread {
+
+        /** The time to sleep. */
+        private long m_duration;
+
+        /** The manager that has created the thread. */
+        private TestThreadManager m_manager;
+
+        /**
+         * Creates a new test indexing thread.<p>
+         *
+         * @param manager the manager that has created the thread
+         * @param res the resource to index
+         * @param duration the time to sleep
+         */
+        TestIndexingThread(TestThreadManager manager, CmsResource res, long duration) {
+
+            super(null, res, null, 0, null);
+            m_manager = manager;
+            m_duration = duration;
+        }
+
+        /**
+         * @see org.opencms.search.CmsIndexingThread#getResult()
+         */
+        @Override
+        public I_CmsSearchDocument getResult() {
+
+            return null;
+        }
+
+        /**
+         * @see org.opencms.search.CmsIndexingThread#run()
+         */
+        @Override
+        public void run() {
+
+            int running = m_manager.m_running.incrementAndGet();
+            m_manager.m_maxRunning.accumulateAndGet(running, Math::max);
+            try {
+                Thread.sleep(m_duration);
+            } catch (InterruptedException e) {
+                m_manager.m_interrupted.countDown();
+            } finally {
+                m_manager.m_running.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Thread manager that creates sleeping indexing threads.<p>
+     */
+    static class TestThreadManager extends CmsIndexingThreadManager {
+
+        /** The number of commits. */
+        AtomicInteger m_commits = new AtomicInteger();
+
+        /** The time each resource takes to index, in the order the resources are added. */
+        List<Long> m_durations;
+
+        /** Counted down when an indexing thread is interrupted. */
+        CountDownLatch m_interrupted = new CountDownLatch(1);
+
+        /** The maximum number of indexing threads that were running at the same time. */
+        AtomicInteger m_maxRunning = new AtomicInteger();
+
+        /** The number of indexing threads that are running. */
+        AtomicInteger m_running = new AtomicInteger();
+
+        /** The index writer. */
+        I_CmsIndexWriter m_writer = new I_CmsIndexWriter() {
+
+            public void close() {
+
+                // noop
+            }
+
+            public void commit() {
+
+                m_commits.incrementAndGet();
+            }
+
+            public void deleteDocument(CmsPublishedResource resource) {
+
+                // noop
+            }
+
+            public void optimize() {
+
+                // noop
+            }
+
+            public void updateDocument(String rootPath, I_CmsSearchDocument document) {
+
+                // noop
+            }
+        };
+
+        /**
+         * Creates a new test thread manager.<p>
+         *
+         * @param timeout timeout after a thread is abandoned
+         * @param maxModificationsBeforeCommit the maximum number of modifications before a commit
+         * @param threads the number of resources that are indexed at the same time
+         * @param durations the time each resource takes to index, in the order the resources are added
+         */
+        TestThreadManager(long timeout, int maxModificationsBeforeCommit, int threads, Long... durations) {
+
+            super(timeout, maxModificationsBeforeCommit, threads);
+            m_durations = Arrays.asList(durations);
+        }
+
+        /**
+         * @see org.opencms.search.CmsIndexingThreadManager#newIndexingThread(org.opencms.search.CmsVfsIndexer, org.opencms.file.CmsResource, int, org.opencms.report.I_CmsReport)
+         */
+        @Override
+        protected CmsIndexingThread newIndexingThread(
+            CmsVfsIndexer indexer,
+            CmsResource res,
+            int count,
+            I_CmsReport report) {
+
+            return new TestIndexingThread(this, res, m_durations.get(count - 1).longValue());
+        }
+
+        /**
+         * Adds all resources and waits until they have been written to the index.<p>
+         *
+         * @param indexer the indexer to use
+         *
+         * @return the root paths of the added resources, in order
+         */
+        List<String> index(TestIndexer indexer) {
+
+            List<String> paths = new ArrayList<String>();
+            for (int i = 0; i < m_durations.size(); i++) {
+                CmsResource res = createResource("/file" + i + ".txt");
+                paths.add(res.getRootPath());
+                createIndexingThread(indexer, m_writer, res);
+            }
+            assertFalse(isRunning());
+            return paths;
+        }
+    }
+
+    /**
+     * Creates a resource for the tests.<p>
+     *
+     * @param rootPath the root path
+     *
+     * @return the resource
+     */
+    static CmsResource createResource(String rootPath) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            rootPath,
+            1,
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_CHANGED,
+            0L,
+            CmsUUID.getNullUUID(),
+            0L,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            0,
+            0L,
+            0);
+    }
+
+    /**
+     * Tests that the documents are written in the order the resources are added,
+     * while several resources are indexed at the same time.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testPendingTasks() throws Exception {
+
+        // the resources added later finish earlier
+        TestThreadManager manager = new TestThreadManager(
+            10000,
+            4,
+            3,
+            Long.valueOf(200),
+            Long.valueOf(150),
+            Long.valueOf(100),
+            Long.valueOf(50),
+            Long.valueOf(0),
+            Long.valueOf(0),
+            Long.valueOf(0),
+            Long.valueOf(0));
+        TestIndexer indexer = new TestIndexer();
+        List<String> paths = manager.index(indexer);
+
+        assertEquals(paths, indexer.m_written);
+        assertTrue(manager.m_maxRunning.get() > 1);
+        assertTrue(manager.m_maxRunning.get() <= 3);
+        assertEquals(0, manager.m_running.get());
+        assertEquals(1, manager.m_interrupted.getCount());
+        // a commit after every 4 documents
+        assertEquals(2, manager.m_commits.get());
+    }
+
+    /**
+     * Tests that a resource that exceeds the timeout is abandoned without blocking the other resources.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testTimeout() throws Exception {
+
+        TestThreadManager manager = new TestThreadManager(
+            500,
+            1,
+            2,
+            Long.valueOf(0),
+            Long.valueOf(600000),
+            Long.valueOf(0),
+            Long.valueOf(0));
+        TestIndexer indexer = new TestIndexer();
+        long start = System.currentTimeMillis();
+        List<String> paths = manager.index(indexer);
+
+        // the abandoned resource is removed from the index, the others are still written in order
+        assertEquals(paths, indexer.m_written);
+        assertTrue((System.currentTimeMillis() - start) < 60000);
+        // the abandoned indexing thread is interrupted
+        assertTrue(manager.m_interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(4, manager.m_commits.get());
+    }
+}
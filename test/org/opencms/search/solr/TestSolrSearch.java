@@ -27,6 +27,7 @@
 
 package org.opencms.search.solr;
 
+import org.opencms.db.CmsPublishedResource;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsProject;
@@ -41,6 +42,7 @@ import org.opencms.report.CmsShellReport;
 import org.opencms.report.I_CmsReport;
 import org.opencms.search.CmsSearchResource;
 import org.opencms.search.CmsSearchUtil;
+import org.opencms.search.I_CmsSearchDocument;
 import org.opencms.search.I_CmsSearchIndex;
 import org.opencms.search.fields.CmsSearchField;
 import org.opencms.security.I_CmsPrincipal;
@@ -101,6 +103,7 @@ public class TestSolrSearch extends OpenCmsTestCase {
         suite.addTest(new TestSolrSearch("testFolderName"));
         suite.addTest(new TestSolrSearch("testIndexer"));
         suite.addTest(new TestSolrSearch("testIndexGeneration"));
+        suite.addTest(new TestSolrSearch("testIndexWriterQueue"));
         suite.addTest(new TestSolrSearch("testIssueWithSpecialFoldernames"));
         suite.addTest(new TestSolrSearch("testLimitTimeRanges"));
         suite.addTest(new TestSolrSearch("testLimitTimeRangesOptimized"));
@@ -113,6 +116,7 @@ public class TestSolrSearch extends OpenCmsTestCase {
         suite.addTest(new TestSolrSearch("testAdvancedFacetting"));
         suite.addTest(new TestSolrSearch("testAdvancedHighlighting"));
         suite.addTest(new TestSolrSearch("testPermissionFilterAndLimits"));
+        suite.addTest(new TestSolrSearch("testPermissionFilterInSolr"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -395,6 +399,49 @@ public class TestSolrSearch extends OpenCmsTestCase {
         OpenCms.getSearchManager().removeSearchIndex(index);
     }
 
+    /**
+     * Tests that the Solr index writer queues and coalesces the updates of a resource.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testIndexWriterQueue() throws Throwable {
+
+        echo("Testing the update queue of the Solr index writer");
+
+        CmsObject cms = OpenCms.initCmsObject(getCmsObject());
+        cms.getRequestContext().setSiteRoot("");
+        String rootPath = "/sites/default/xmlcontent/article_0001.html";
+        CmsResource resource = cms.readResource(rootPath);
+        String query = "q=*:*&fq=path:\"" + rootPath + "\"";
+
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_OFFLINE);
+        assertEquals(1, index.search(cms, query).getNumFound());
+
+        CmsSolrIndexWriter writer = (CmsSolrIndexWriter)index.createIndexWriter(false, null);
+        I_CmsSearchDocument document = index.getDocumentFactory(resource).createDocument(cms, resource, index);
+        writer.updateDocument(rootPath, document);
+        document = index.getDocumentFactory(resource).createDocument(cms, resource, index);
+        writer.updateDocument(rootPath, document);
+        // repeated updates of the same resource are coalesced
+        assertEquals(1, writer.getQueueDepth());
+        assertEquals(0, writer.getBatchCount());
+
+        // the deletion discards the queued update
+        writer.deleteDocument(new CmsPublishedResource(resource));
+        assertEquals(1, writer.getQueueDepth());
+        writer.commit();
+        assertEquals(0, writer.getQueueDepth());
+        assertEquals(1, writer.getBatchCount());
+        assertEquals(0, index.search(cms, query).getNumFound());
+
+        // index the resource again
+        document = index.getDocumentFactory(resource).createDocument(cms, resource, index);
+        writer.updateDocument(rootPath, document);
+        writer.commit();
+        assertEquals(2, writer.getBatchCount());
+        assertEquals(1, index.search(cms, query).getNumFound());
+    }
+
     /**
      * Tests an issue where no results are found in folders that have names
      * like <code>/basisdienstleistungen_-_zka/</code>.<p>
@@ -814,6 +861,70 @@ public class TestSolrSearch extends OpenCmsTestCase {
 
     }
 
+    /**
+     * Tests filtering the search results by the indexed access control entries.<p>
+     *
+     * Uses the resources created by {@link #testPermissionFilterAndLimits()}.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPermissionFilterInSolr() throws Throwable {
+
+        echo("Testing the permission filter of the Solr index");
+
+        CmsObject adminCms = OpenCms.initCmsObject(getCmsObject());
+        adminCms.getRequestContext().setSiteRoot("/sites/default/");
+        String mainFolder = "searchfolder";
+        String subFolder1 = mainFolder + "/a";
+        String searchUser = "searchUser";
+
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+        index.addConfigurationParameter(CmsSolrIndex.SOLR_SEARCH_PERMISSION_FILTER, "true");
+        try {
+            assertFalse(index.isPermissionCheck());
+
+            CmsSolrQuery query = new CmsSolrQuery(getCmsObject(), null);
+            query.addFilterQuery("parent-folders:\"/sites/default/" + mainFolder + "/\"");
+            query.setSort(CmsSearchField.FIELD_PATH, ORDER.asc);
+            query.setRows(Integer.valueOf(20));
+
+            // the admin ignores the access control entries
+            CmsSolrResultList adminResults = index.search(adminCms, query);
+            assertEquals(100, adminResults.getNumFound());
+
+            CmsObject userCms = OpenCms.initCmsObject(adminCms);
+            userCms.getRequestContext().setCurrentProject(userCms.readProject(CmsProject.ONLINE_PROJECT_ID));
+            userCms.loginUser(searchUser, "password");
+            CmsSolrResultList userResults = index.search(userCms, query);
+            assertEquals(50, userResults.getNumFound());
+            assertEquals(20, userResults.size());
+            for (CmsSearchResource result : userResults) {
+                assertTrue(result.getRootPath().endsWith("b.txt"));
+            }
+
+            query.setStart(Integer.valueOf(40));
+            userResults = index.search(userCms, query);
+            assertEquals(50, userResults.getNumFound());
+            assertEquals(10, userResults.size());
+
+            echo("Granting read access to the folder, the files below have to be reindexed");
+            adminCms.lockResource(subFolder1);
+            adminCms.chacc(subFolder1, I_CmsPrincipal.PRINCIPAL_USER, searchUser, "+r+v");
+            adminCms.unlockResource(subFolder1);
+            OpenCms.getPublishManager().publishProject(
+                adminCms,
+                new CmsShellReport(adminCms.getRequestContext().getLocale()));
+            OpenCms.getPublishManager().waitWhileRunning();
+
+            query.setStart(Integer.valueOf(0));
+            userResults = index.search(userCms, query);
+            assertEquals(100, userResults.getNumFound());
+            assertEquals(20, userResults.size());
+        } finally {
+            index.addConfigurationParameter(CmsSolrIndex.SOLR_SEARCH_PERMISSION_FILTER, "false");
+        }
+    }
+
     /**
      * @throws Throwable
      */
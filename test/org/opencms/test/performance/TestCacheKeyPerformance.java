@@ -0,0 +1,240 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.test.performance;
+
+import org.opencms.db.CmsCacheKey;
+import org.opencms.db.CmsDbContext;
+import org.opencms.db.CmsTypedCacheKey;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.security.CmsPermissionSet;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Performance test for the permission cache keys.<p>
+ */
+public class TestCacheKeyPerformance extends OpenCmsTestCase {
+
+    /** The number of iterations of each loop. */
+    private static final int NUMBER_OF_ITERATIONS = 1000000;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCacheKeyPerformance(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCacheKeyPerformance.class.getName());
+
+        suite.addTest(new TestCacheKeyPerformance("testPermissionCacheKeys"));
+        suite.addTest(new TestCacheKeyPerformance("testPermissionCheck"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread so far.<p>
+     *
+     * @return the number of bytes allocated by the current thread, or -1 if the JVM does not measure allocations
+     */
+    private static long getAllocatedBytes() {
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if ((bean instanceof com.sun.management.ThreadMXBean)
+            && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported()
+            && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemoryEnabled()) {
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Formats the bytes allocated per iteration of a measured loop.<p>
+     *
+     * @param startBytes the allocated bytes before the loop, -1 if allocations are not measured
+     *
+     * @return the formatted bytes per iteration
+     */
+    private static String getBytesPerIteration(long startBytes) {
+
+        long endBytes = getAllocatedBytes();
+        if ((startBytes < 0) || (endBytes < 0)) {
+            return "n/a";
+        }
+        return "" + ((endBytes - startBytes) / NUMBER_OF_ITERATIONS);
+    }
+
+    /**
+     * Compares building string keys and typed keys, and their lookup in a permission cache.<p>
+     *
+     * The bytes allocated per key build and per lookup are measured with the thread allocation counter
+     * where the JVM supports it.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPermissionCacheKeys() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Comparing string and typed permission cache keys");
+
+        CmsResource resource = cms.readResource("/index.html");
+        CmsDbContext dbc = new CmsDbContext(cms.getRequestContext());
+        CmsPermissionSet permissions = CmsPermissionSet.ACCESS_READ;
+        CmsCacheKey keyGenerator = new CmsCacheKey();
+
+        Map<String, Boolean> stringCache = new HashMap<String, Boolean>();
+        stringCache.put(keyGenerator.getCacheKeyForUserPermissions("11", dbc, resource, permissions), Boolean.TRUE);
+        Map<CmsTypedCacheKey, Boolean> typedCache = new HashMap<CmsTypedCacheKey, Boolean>();
+        typedCache.put(
+            keyGenerator.getTypedCacheKeyForUserPermissions("11", dbc, resource, permissions),
+            Boolean.TRUE);
+
+        // the hash codes are summed up so the key builds are not optimized away
+        int hashCodes = 0;
+
+        long bytes = getAllocatedBytes();
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            hashCodes += keyGenerator.getCacheKeyForUserPermissions("11", dbc, resource, permissions).hashCode();
+        }
+        time = System.currentTimeMillis() - time;
+        echo(
+            ""
+                + NUMBER_OF_ITERATIONS
+                + " string key builds in "
+                + time
+                + " msecs, bytes per build: "
+                + getBytesPerIteration(bytes));
+
+        bytes = getAllocatedBytes();
+        time = System.currentTimeMillis();
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            hashCodes += keyGenerator.getTypedCacheKeyForUserPermissions("11", dbc, resource, permissions).hashCode();
+        }
+        time = System.currentTimeMillis() - time;
+        echo(
+            ""
+                + NUMBER_OF_ITERATIONS
+                + " typed key builds in "
+                + time
+                + " msecs, bytes per build: "
+                + getBytesPerIteration(bytes));
+
+        bytes = getAllocatedBytes();
+        time = System.currentTimeMillis();
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            assertNotNull(
+                stringCache.get(keyGenerator.getCacheKeyForUserPermissions("11", dbc, resource, permissions)));
+        }
+        time = System.currentTimeMillis() - time;
+        echo(
+            ""
+                + NUMBER_OF_ITERATIONS
+                + " lookups with string keys in "
+                + time
+                + " msecs, bytes per lookup: "
+                + getBytesPerIteration(bytes));
+
+        bytes = getAllocatedBytes();
+        time = System.currentTimeMillis();
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            assertNotNull(
+                typedCache.get(keyGenerator.getTypedCacheKeyForUserPermissions("11", dbc, resource, permissions)));
+        }
+        time = System.currentTimeMillis() - time;
+        echo(
+            ""
+                + NUMBER_OF_ITERATIONS
+                + " lookups with typed keys in "
+                + time
+                + " msecs, bytes per lookup: "
+                + getBytesPerIteration(bytes));
+
+        echo("Sum of key hash codes: " + hashCodes);
+    }
+
+    /**
+     * Measures cached permission checks.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPermissionCheck() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Measuring cached permission checks");
+
+        CmsResource resource = cms.readResource("/index.html");
+        assertTrue(cms.hasPermissions(resource, CmsPermissionSet.ACCESS_READ));
+
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            cms.hasPermissions(resource, CmsPermissionSet.ACCESS_READ);
+        }
+        time = System.currentTimeMillis() - time;
+        echo("" + NUMBER_OF_ITERATIONS + " permission checks in " + time + " msecs");
+    }
+}
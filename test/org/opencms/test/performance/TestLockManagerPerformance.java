@@ -0,0 +1,193 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.test.performance;
+
+import org.opencms.file.CmsObject;
+import org.opencms.lock.CmsLock;
+import org.opencms.lock.CmsLockFilter;
+import org.opencms.lock.CmsLockType;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Performance test for the lock manager with a large number of locks.<p>
+ */
+public class TestLockManagerPerformance extends OpenCmsTestCase {
+
+    /** The number of folders to create locks in. */
+    private static final int NUMBER_OF_FOLDERS = 100;
+
+    /** The number of locks to create. */
+    private static final int NUMBER_OF_LOCKS = 100000;
+
+    /** The number of times each query is executed. */
+    private static final int NUMBER_OF_QUERIES = 1000;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestLockManagerPerformance(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestLockManagerPerformance.class.getName());
+
+        suite.addTest(new TestLockManagerPerformance("testManyLocks"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Measures the lock queries with 100.000 cached locks.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testManyLocks() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        CmsMemoryMonitor monitor = OpenCms.getMemoryMonitor();
+        echo("Measuring the lock queries with " + NUMBER_OF_LOCKS + " locks");
+
+        List<CmsLock> previousLocks = monitor.getAllCachedLocks();
+        try {
+            long time = System.currentTimeMillis();
+            for (int i = 0; i < NUMBER_OF_LOCKS; i++) {
+                monitor.cacheLock(
+                    new CmsLock(
+                        "/bench/folder" + (i % NUMBER_OF_FOLDERS) + "/file" + i + ".html",
+                        cms.getRequestContext().getCurrentUser().getId(),
+                        cms.getRequestContext().getCurrentProject(),
+                        CmsLockType.EXCLUSIVE));
+            }
+            echo("Created " + NUMBER_OF_LOCKS + " locks in " + (System.currentTimeMillis() - time) + " msecs");
+
+            // the locks below a folder
+            String folder = "/bench/folder7/";
+            List<CmsLock> locks = null;
+            time = System.currentTimeMillis();
+            for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+                locks = monitor.getCachedLocks(folder);
+            }
+            long indexTime = System.currentTimeMillis() - time;
+            List<CmsLock> scannedLocks = null;
+            time = System.currentTimeMillis();
+            for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+                scannedLocks = new ArrayList<CmsLock>();
+                for (CmsLock lock : monitor.getAllCachedLocks()) {
+                    if (lock.getResourceName().startsWith(folder)) {
+                        scannedLocks.add(lock);
+                    }
+                }
+            }
+            long scanTime = System.currentTimeMillis() - time;
+            echo(
+                "Locks in folder: "
+                    + indexTime
+                    + " msecs with the sorted lock cache, "
+                    + scanTime
+                    + " msecs with a scan of all locks, for "
+                    + NUMBER_OF_QUERIES
+                    + " queries");
+            assertEquals(NUMBER_OF_LOCKS / NUMBER_OF_FOLDERS, locks.size());
+            assertEquals(scannedLocks.size(), locks.size());
+
+            // the lock inherited from a parent folder
+            cms.lockResource("/folder1/");
+            String resourceName = "/folder1/subfolder11/page1.html";
+            CmsLock lock = null;
+            time = System.currentTimeMillis();
+            for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+                lock = cms.getLock(resourceName);
+            }
+            echo(
+                "Inherited lock: "
+                    + (System.currentTimeMillis() - time)
+                    + " msecs for "
+                    + NUMBER_OF_QUERIES
+                    + " queries");
+            assertTrue(lock.isInherited());
+
+            // the locked resources in a folder
+            List<String> lockedResources = null;
+            time = System.currentTimeMillis();
+            for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+                lockedResources = cms.getLockedResources("/folder1/", CmsLockFilter.FILTER_ALL);
+            }
+            echo(
+                "Locked resources: "
+                    + (System.currentTimeMillis() - time)
+                    + " msecs for "
+                    + NUMBER_OF_QUERIES
+                    + " queries");
+            assertEquals(1, lockedResources.size());
+            cms.unlockResource("/folder1/");
+        } finally {
+            monitor.flushLocks(null);
+            for (CmsLock lock : previousLocks) {
+                monitor.cacheLock(lock);
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.test.performance;
+
+import org.opencms.cache.CmsConcurrentLruCache;
+import org.opencms.cache.CmsLruCache;
+import org.opencms.cache.I_CmsLruCacheObject;
+import org.opencms.test.OpenCmsTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Performance test comparing the cache hit throughput of the synchronized and the concurrent LRU cache.<p>
+ */
+public class TestLruCachePerformance extends OpenCmsTestCase {
+
+    /**
+     * Simple cache object with fixed costs.<p>
+     */
+    private static class CacheObject implements I_CmsLruCacheObject {
+
+        /** The next object. */
+        private I_CmsLruCacheObject m_next;
+
+        /** The previous object. */
+        private I_CmsLruCacheObject m_previous;
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#addToLruCache()
+         */
+        public void addToLruCache() {
+
+            // NOOP
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getLruCacheCosts()
+         */
+        public int getLruCacheCosts() {
+
+            return 100;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getNextLruObject()
+         */
+        public I_CmsLruCacheObject getNextLruObject() {
+
+            return m_next;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getPreviousLruObject()
+         */
+        public I_CmsLruCacheObject getPreviousLruObject() {
+
+            return m_previous;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getValue()
+         */
+        public Object getValue() {
+
+            return this;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#removeFromLruCache()
+         */
+        public void removeFromLruCache() {
+
+            // NOOP
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setNextLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setNextLruObject(I_CmsLruCacheObject theNextObject) {
+
+            m_next = theNextObject;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setPreviousLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setPreviousLruObject(I_CmsLruCacheObject thePreviousObject) {
+
+            m_previous = thePreviousObject;
+        }
+    }
+
+    /** The duration of each measurement in milliseconds. */
+    private static final long DURATION = 200;
+
+    /** The number of objects in the cache. */
+    private static final int NUMBER_OF_OBJECTS = 1000;
+
+    /**
+     * Compares the cache hit throughput of the synchronized and the concurrent LRU cache for 1 to 64 threads.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testHitThroughput() throws Exception {
+
+        for (int threads = 1; threads <= 64; threads *= 4) {
+            CmsLruCache syncCache = new CmsLruCache(1000000, 800000, 1000);
+            CmsConcurrentLruCache concurrentCache = new CmsConcurrentLruCache(1000000, 800000, 1000);
+            long syncOps = measureHits(syncCache, threads, false);
+            long concurrentOps = measureHits(concurrentCache, threads, true);
+            echo(
+                "Threads: "
+                    + threads
+                    + ", CmsLruCache: "
+                    + syncOps
+                    + " hits/s, CmsConcurrentLruCache: "
+                    + concurrentOps
+                    + " hits/s");
+        }
+    }
+
+    /**
+     * Measures the hit throughput of a cache.<p>
+     *
+     * @param cache the cache to measure
+     * @param threadCount the number of threads
+     * @param tryTouch if true, use {@link CmsConcurrentLruCache#tryTouch(I_CmsLruCacheObject)} for the hits
+     *
+     * @return the number of cache hits per second
+     *
+     * @throws Exception if something goes wrong
+     */
+    private long measureHits(final CmsLruCache cache, int threadCount, final boolean tryTouch) throws Exception {
+
+        final List<CacheObject> objects = new ArrayList<CacheObject>();
+        for (int i = 0; i < NUMBER_OF_OBJECTS; i++) {
+            CacheObject o = new CacheObject();
+            objects.add(o);
+            cache.add(o);
+        }
+        final AtomicLong ops = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int seed = t;
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long count = 0;
+                    long end = System.currentTimeMillis() + DURATION;
+                    int i = seed;
+                    while (((count & 0xff) != 0) || (System.currentTimeMillis() < end)) {
+                        CacheObject o = objects.get(i % objects.size());
+                        i += 7;
+                        if (tryTouch) {
+                            ((CmsConcurrentLruCache)cache).tryTouch(o);
+                        } else {
+                            cache.touch(o);
+                        }
+                        count++;
+                    }
+                    ops.addAndGet(count);
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return (ops.get() * 1000) / DURATION;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.test.performance;
+
+import org.opencms.db.generic.CmsSqlManager;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Performance test for publishing with JDBC batches.<p>
+ */
+public class TestPublishBatching extends OpenCmsTestCase {
+
+    /** The number of files to publish. */
+    private static final int NUMBER_OF_FILES = 10000;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestPublishBatching(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestPublishBatching.class.getName());
+
+        suite.addTest(new TestPublishBatching("testPublishBatchSize"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Publishes a large number of files with the JDBC batch size configured by the runtime property
+     * {@link CmsSqlManager#PARAM_BATCH_SIZE}, and reports the publish time.<p>
+     *
+     * The batch size is read when the drivers are initialized, so compare the results of test runs
+     * with different values of the property in the test configuration.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishBatchSize() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        Object batchSize = OpenCms.getRuntimeProperty(CmsSqlManager.PARAM_BATCH_SIZE);
+        echo(
+            "Measuring the publish performance with batch size "
+                + (batchSize != null ? batchSize : String.valueOf(CmsSqlManager.DEFAULT_BATCH_SIZE)));
+
+        String folder = "/batched/";
+        cms.createResource(folder, CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        int files = generateContent(cms, folder, NUMBER_OF_FILES, 0.2);
+
+        long time = System.currentTimeMillis();
+        OpenCms.getPublishManager().publishResource(cms, folder);
+        OpenCms.getPublishManager().waitWhileRunning();
+        time = System.currentTimeMillis() - time;
+
+        echo("" + files + " files published in " + time + " msecs");
+        assertTrue(cms.readResources(folder, CmsResourceFilter.ALL_MODIFIED, true).isEmpty());
+    }
+}
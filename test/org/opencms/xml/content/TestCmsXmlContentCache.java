@@ -0,0 +1,287 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.xml.content;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.xml.containerpage.CmsADECacheSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the node wide cache for the XML contents of the online project.<p>
+ */
+public class TestCmsXmlContentCache extends OpenCmsTestCase {
+
+    /** The number of XML contents read for each simulated page view. */
+    private static final int ELEMENTS_PER_PAGE = 30;
+
+    /** The number of simulated page views. */
+    private static final int PAGE_VIEWS = 200;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsXmlContentCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsXmlContentCache.class.getName());
+
+        suite.addTest(new TestCmsXmlContentCache("testCachedContentIsolation"));
+        suite.addTest(new TestCmsXmlContentCache("testCacheInvalidation"));
+        suite.addTest(new TestCmsXmlContentCache("testRemovalWhileReading"));
+        suite.addTest(new TestCmsXmlContentCache("testPageViewPerformance"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that changes to a content returned by the cache do not affect the cached content.<p>
+     *
+     * @throws Exception in case something goes wrong
+     */
+    public void testCachedContentIsolation() throws Exception {
+
+        CmsObject cms = getOnlineCmsObject();
+        echo("Testing that cached XML contents are not shared between callers");
+
+        CmsXmlContentCache cache = createCache(cms);
+        CmsResource resource = cms.readResource("/xmlcontent/article_0001.html");
+        assertNull(cache.getContent(cms, resource));
+
+        CmsXmlContent original = readContent(cms, resource, cache);
+        String title = original.getStringValue(cms, "Title", Locale.ENGLISH);
+        assertEquals(1, cache.size());
+
+        CmsXmlContent first = cache.getContent(cms, resource);
+        assertNotNull(first);
+        assertNotSame(original, first);
+        assertEquals(title, first.getStringValue(cms, "Title", Locale.ENGLISH));
+        first.getValue("Title", Locale.ENGLISH).setStringValue(cms, "Changed by the first caller");
+        first.getFile().setContents(new byte[0]);
+
+        CmsXmlContent second = cache.getContent(cms, resource);
+        assertEquals(title, second.getStringValue(cms, "Title", Locale.ENGLISH));
+        assertTrue(second.getFile().getLength() > 0);
+
+        // the offline project is never served from the cache
+        CmsObject offlineCms = getCmsObject();
+        assertNull(cache.getContent(offlineCms, offlineCms.readResource("/xmlcontent/article_0001.html")));
+    }
+
+    /**
+     * Tests that outdated contents are not returned by the cache.<p>
+     *
+     * @throws Exception in case something goes wrong
+     */
+    public void testCacheInvalidation() throws Exception {
+
+        CmsObject cms = getOnlineCmsObject();
+        echo("Testing the invalidation of cached XML contents");
+
+        CmsXmlContentCache cache = createCache(cms);
+        CmsResource resource = cms.readResource("/xmlcontent/article_0002.html");
+        readContent(cms, resource, cache);
+        assertNotNull(cache.getContent(cms, resource));
+
+        // a resource with a different modification date must not match the cached version
+        CmsResource modified = (CmsResource)resource.clone();
+        modified.setDateLastModified(resource.getDateLastModified() + 1000);
+        assertNull(cache.getContent(cms, modified));
+
+        cache.cmsEvent(
+            new CmsEvent(I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES, Collections.<String, Object> emptyMap()));
+        assertEquals(0, cache.size());
+        assertNull(cache.getContent(cms, resource));
+    }
+
+    /**
+     * Compares reading the XML contents of simulated page views with and without the cache.<p>
+     *
+     * @throws Exception in case something goes wrong
+     */
+    public void testPageViewPerformance() throws Exception {
+
+        CmsObject cms = getOnlineCmsObject();
+        echo("Comparing the unmarshalling of XML contents with and without the cache");
+
+        List<CmsResource> resources = new ArrayList<CmsResource>();
+        for (int i = 1; i <= 4; i++) {
+            resources.add(cms.readResource("/xmlcontent/article_000" + i + ".html"));
+        }
+
+        long uncachedTime = readPageViews(cms, resources, null);
+        CmsXmlContentCache cache = createCache(cms);
+        long cachedTime = readPageViews(cms, resources, cache);
+        assertEquals(resources.size(), cache.size());
+
+        echo(
+            "Read "
+                + PAGE_VIEWS
+                + " page views with "
+                + ELEMENTS_PER_PAGE
+                + " XML contents each: "
+                + uncachedTime
+                + " ms without cache, "
+                + cachedTime
+                + " ms with cache");
+    }
+
+    /**
+     * Tests that a content is not cached if the cache was cleared after the content was read.<p>
+     *
+     * @throws Exception in case something goes wrong
+     */
+    public void testRemovalWhileReading() throws Exception {
+
+        CmsObject cms = getOnlineCmsObject();
+        echo("Testing that contents read before a removal from the cache are not cached");
+
+        CmsXmlContentCache cache = createCache(cms);
+        CmsResource resource = cms.readResource("/xmlcontent/article_0003.html");
+        long generation = cache.getGeneration();
+        // the cache holds contents that are not yet prepared for use
+        CmsXmlContent content = CmsXmlContentFactory.parse(cms, cms.readFile(resource), true);
+        // the content may have been published after its file was read
+        cache.clear();
+        cache.setContent(cms, content, generation);
+        assertEquals(0, cache.size());
+
+        cache.setContent(cms, content, cache.getGeneration());
+        assertEquals(1, cache.size());
+        assertNotNull(cache.getContent(cms, resource));
+    }
+
+    /**
+     * Creates a new cache with the default size.<p>
+     *
+     * @param cms the CMS context
+     *
+     * @return the new cache
+     */
+    private CmsXmlContentCache createCache(CmsObject cms) {
+
+        return new CmsXmlContentCache(cms, new CmsADECacheSettings().getXmlContentOnlineSize());
+    }
+
+    /**
+     * Returns a CMS context for the online project.<p>
+     *
+     * @return a CMS context for the online project
+     *
+     * @throws Exception in case something goes wrong
+     */
+    private CmsObject getOnlineCmsObject() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        return cms;
+    }
+
+    /**
+     * Reads an XML content the way the content factory does for a new request.<p>
+     *
+     * @param cms the CMS context
+     * @param resource the XML content resource
+     * @param cache the cache to use, or <code>null</code>
+     *
+     * @return the XML content
+     *
+     * @throws Exception in case something goes wrong
+     */
+    private CmsXmlContent readContent(CmsObject cms, CmsResource resource, CmsXmlContentCache cache)
+    throws Exception {
+
+        return CmsXmlContentFactory.unmarshal(cms, resource, cache);
+    }
+
+    /**
+     * Reads the XML contents of the simulated page views and returns the time needed.<p>
+     *
+     * @param cms the CMS context
+     * @param resources the XML content resources to read
+     * @param cache the cache to use, or <code>null</code>
+     *
+     * @return the time needed in milliseconds
+     *
+     * @throws Exception in case something goes wrong
+     */
+    private long readPageViews(CmsObject cms, List<CmsResource> resources, CmsXmlContentCache cache)
+    throws Exception {
+
+        long start = System.currentTimeMillis();
+        for (int page = 0; page < PAGE_VIEWS; page++) {
+            for (int element = 0; element < ELEMENTS_PER_PAGE; element++) {
+                CmsXmlContent content = readContent(cms, resources.get(element % resources.size()), cache);
+                assertNotNull(content.getStringValue(cms, "Title", Locale.ENGLISH));
+            }
+        }
+        return System.currentTimeMillis() - start;
+    }
+}
@@ -693,5 +693,9 @@ CREATE NONCLUSTERED INDEX CMS_USERPUBLIST_IDX_02 ON CMS_USER_PUBLISH_LIST(STRUCT
 
 CREATE TABLE CMS_REWRITES (ID NVARCHAR(36) NOT NULL, ALIAS_MODE INT NOT NULL, PATTERN NVARCHAR(255) NOT NULL, REPLACEMENT VARCHAR(255) NOT NULL, SITE_ROOT NVARCHAR(64) NOT NULL, PRIMARY KEY (ID));
 CREATE NONCLUSTERED INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT);
+CREATE TABLE CMS_CLUSTER_EVENTS (EVENT_ID NVARCHAR(36) NOT NULL, NODE_ID NVARCHAR(64) NOT NULL, EVENT_TYPE INT NOT NULL, EVENT_DATA NVARCHAR(4000), EVENT_TIME BIGINT NOT NULL, PRIMARY KEY (EVENT_ID));
+CREATE NONCLUSTERED INDEX CMS_CLUSTER_EVENTS_IDX_01 ON CMS_CLUSTER_EVENTS (EVENT_TIME);
+
+CREATE NONCLUSTERED INDEX CMS_CLUSTER_EVENTS_IDX_02 ON CMS_CLUSTER_EVENTS (NODE_ID, EVENT_TIME);
 
 
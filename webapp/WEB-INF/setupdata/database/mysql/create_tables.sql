@@ -524,4 +524,19 @@ CREATE TABLE CMS_REWRITES
   )
 ENGINE = MYISAM CHARACTER SET UTF8;
 
-CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT); 
\ No newline at end of file
+CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT); 
+
+CREATE TABLE CMS_CLUSTER_EVENTS
+  (
+     EVENT_ID   VARCHAR(36) NOT NULL,
+     NODE_ID    VARCHAR(64) NOT NULL,
+     EVENT_TYPE INTEGER NOT NULL,
+     EVENT_DATA VARCHAR(4000),
+     EVENT_TIME BIGINT NOT NULL,
+     PRIMARY KEY (EVENT_ID)
+  )
+ENGINE = MYISAM CHARACTER SET UTF8;
+
+CREATE INDEX CMS_CLUSTER_EVENTS_IDX_01 ON CMS_CLUSTER_EVENTS (EVENT_TIME);
+
+CREATE INDEX CMS_CLUSTER_EVENTS_IDX_02 ON CMS_CLUSTER_EVENTS (NODE_ID, EVENT_TIME);
\ No newline at end of file
@@ -833,4 +833,8 @@ CREATE INDEX CMS_USERPUBLIST_IDX_01 ON CMS_USER_PUBLISH_LIST (USER_ID) TABLESPAC
 CREATE INDEX CMS_USERPUBLIST_IDX_02 ON CMS_USER_PUBLISH_LIST (STRUCTURE_ID) TABLESPACE ${indexTablespace};
 
 CREATE TABLE CMS_REWRITES (ID VARCHAR2(36) NOT NULL, ALIAS_MODE NUMBER NOT NULL, PATTERN VARCHAR2(255) NOT NULL, REPLACEMENT VARCHAR2(255) NOT NULL, SITE_ROOT VARCHAR2(64) NOT NULL, PRIMARY KEY (ID));
-CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT) TABLESPACE ${indexTablespace};
\ No newline at end of file
+CREATE INDEX CMS_REWRITES_IDX_01 ON CMS_REWRITES (SITE_ROOT) TABLESPACE ${indexTablespace};
+
+CREATE TABLE CMS_CLUSTER_EVENTS (EVENT_ID VARCHAR2(36) NOT NULL, NODE_ID VARCHAR2(64) NOT NULL, EVENT_TYPE NUMBER NOT NULL, EVENT_DATA VARCHAR2(4000), EVENT_TIME NUMBER NOT NULL, PRIMARY KEY (EVENT_ID));
+CREATE INDEX CMS_CLUSTER_EVENTS_IDX_01 ON CMS_CLUSTER_EVENTS (EVENT_TIME) TABLESPACE ${indexTablespace};
+CREATE INDEX CMS_CLUSTER_EVENTS_IDX_02 ON CMS_CLUSTER_EVENTS (NODE_ID, EVENT_TIME) TABLESPACE ${indexTablespace};
\ No newline at end of file